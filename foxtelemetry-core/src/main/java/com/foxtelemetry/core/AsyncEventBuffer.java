@@ -0,0 +1,159 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-blocking front end for the persistent queue. Callers publish into a lock-free ring;
+ * a single background writer drains it and hands whole batches to the {@link Sink} so the
+ * storage layer can commit many rows per transaction.
+ */
+final class AsyncEventBuffer<E> {
+
+    interface Sink<E> {
+        void write(@NonNull List<E> batch) throws Exception;
+    }
+
+    static final int MAX_WRITE_BATCH = 256;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final EventRingBuffer<E> ring;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final Sink<E> sink;
+
+    private final Object writeLock = new Object();
+    private final List<E> scratch = new ArrayList<>(MAX_WRITE_BATCH); // guarded by writeLock
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean writerIdle = new AtomicBoolean();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    AsyncEventBuffer(int capacity, @NonNull OverflowPolicy policy, long blockTimeoutMs, @NonNull Sink<E> sink) {
+        this.ring = new EventRingBuffer<>(capacity);
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeoutMs));
+        this.sink = sink;
+
+        this.writer = new Thread(this::runWriter, "FoxTelemetry-writer");
+        this.writer.setDaemon(true);
+        this.writer.setPriority(Thread.NORM_PRIORITY - 1);
+        this.writer.start();
+    }
+
+    /** Publishes an event without touching disk. Returns false if the overflow policy discarded it. */
+    boolean offer(@NonNull E event) {
+        if (ring.offer(event) || offerOnOverflow(event)) {
+            if (writerIdle.get()) LockSupport.unpark(writer);
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Synchronous barrier: returns once every event published before the call has been
+     * handed to the sink. Safe to call from any thread, including during shutdown.
+     */
+    void flushToDisk() {
+        synchronized (writeLock) {
+            while (drainOnce() > 0) { /* keep draining */ }
+        }
+    }
+
+    /**
+     * Like {@link #flushToDisk()} but gives up after {@code timeoutMs}. The drain runs on a helper
+     * thread, so the caller never blocks on the write lock or the sink: safe on a crashing thread
+     * that may itself hold a lock the sink needs. Returns true if the flush completed in time.
+     */
+    boolean flushToDisk(long timeoutMs) {
+        Thread flusher = new Thread(this::flushToDisk, "FoxTelemetry-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+        try {
+            flusher.join(Math.max(1, timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !flusher.isAlive();
+    }
+
+    int pending() { return ring.size(); }
+
+    long droppedCount() { return dropped.get(); }
+
+    /** Stops the writer after a final drain. Intended for tests; the SDK buffer lives for the process. */
+    void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushToDisk();
+    }
+
+    private boolean offerOnOverflow(E event) {
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!ring.offer(event)) {
+                    if (ring.poll() != null) dropped.incrementAndGet();
+                }
+                return true;
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                do {
+                    LockSupport.unpark(writer);
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    if (ring.offer(event)) return true;
+                } while (System.nanoTime() - deadline < 0);
+                return false;
+            case DROP_NEWEST:
+            default:
+                return false;
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            int written;
+            synchronized (writeLock) {
+                written = drainOnce();
+            }
+            if (written > 0) continue;
+
+            // Publish idleness before the final emptiness check so a concurrent offer()
+            // either sees the flag and unparks us, or we see its event and skip parking.
+            writerIdle.set(true);
+            if (running && ring.isEmpty()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            writerIdle.set(false);
+        }
+    }
+
+    // Caller must hold writeLock.
+    private int drainOnce() {
+        List<E> batch = scratch;
+        batch.clear();
+        E e;
+        while (batch.size() < MAX_WRITE_BATCH && (e = ring.poll()) != null) batch.add(e);
+        int n = batch.size();
+        if (n == 0) return 0;
+        try {
+            sink.write(batch);
+        } catch (Exception ex) {
+            dropped.addAndGet(n);
+        } finally {
+            batch.clear();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,189 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes an upload batch in the requested {@link WireFormat}. Both formats carry the same
+ * logical document:
+ *
+ * <pre>
+ * { "projectId": text, "appId": text, "packageName": text, "events": [ event, ... ] }
+ * </pre>
+ *
+ * <p><b>JSON</b>: stored event payloads are spliced into {@code events} verbatim.</p>
+ *
+ * <p><b>CBOR</b> (RFC 8949, {@code application/cbor}): the top level is a definite-length map
+ * with the four keys above, in that order. {@code events} is an indefinite-length array; each
+ * event is its stored JSON transcoded 1:1 to CBOR (objects become indefinite-length maps with
+ * text keys, integers become major type 0/1, fractions become float32 when lossless otherwise
+ * float64). A stored payload that is not valid JSON is skipped rather than failing the batch.
+ * Events are pulled from the {@link Iterable} one at a time, so memory stays bounded by the
+ * largest single event regardless of batch size.
+ * {@link CborDecoder} is the reference decoder.</p>
+ *
+ * <p>With {@link FoxTelemetryConfig#cborStringRefs}, the {@code events} array is wrapped in
+ * tag 256 (a stringref namespace) and every text string inside it may be a tag 25 reference to
+ * an earlier one, so class, method and file names, tags and keys repeated across frames, causes
+ * and events are sent once per batch. Error objects with a non-empty {@code frames} array then
+ * carry no {@code stacktrace} text. Without frames, the stacktrace is moved to the end of its
+ * object.</p>
+ *
+ * <p>With {@link FoxTelemetryConfig#batchEnvelope}, both formats send the event envelope once:</p>
+ *
+ * <pre>
+ * { "projectId", "appId", "packageName",
+ *   "envelope": { installId, environment, userId, device, ... },
+ *   "baseTimestamp": millis,
+ *   "events": [ { "dt": millis - baseTimestamp, &lt;overrides&gt;, type, ... }, ... ] }
+ * </pre>
+ *
+ * <p>An event's envelope is the three top-level keys, then {@code envelope}, then its own
+ * overrides: the envelope members whose value differs from the batch's (e.g. {@code userId}
+ * after it changed), or {@code null} for one it does not have. Events that still carry
+ * {@code timestamp} instead of {@code dt} are complete as they are (see {@link BatchEnvelope}).</p>
+ */
+public final class BatchEncoder {
+
+    private final CborWriter cbor = new CborWriter(4096);
+    private final JsonCborTranscoder transcoder = new JsonCborTranscoder();
+    private final CborStringTable strings = new CborStringTable();
+    private final BatchEnvelope envelope = new BatchEnvelope();
+    private int skipped;
+
+    /** Events dropped from the last CBOR batch because their stored payload was malformed. */
+    public int skippedCount() { return skipped; }
+
+    public void write(@NonNull OutputStream out, @NonNull WireFormat format,
+                      @NonNull FoxTelemetryConfig cfg, @NonNull Iterable<byte[]> events) throws IOException {
+        skipped = 0;
+        switch (format) {
+            case CBOR:
+                if (cfg.batchEnvelope) writeHoistedCbor(out, cfg, events);
+                else writeCbor(out, cfg, events);
+                break;
+            case JSON:
+                if (cfg.batchEnvelope) writeHoistedJson(out, cfg, events);
+                else writeJson(out, cfg, events);
+                break;
+            default:
+                throw new IllegalArgumentException("Resolve " + format + " to a concrete format first");
+        }
+    }
+
+    private static void writeJson(OutputStream out, FoxTelemetryConfig cfg, Iterable<byte[]> events) throws IOException {
+        Utf8JsonWriter w = new Utf8JsonWriter(256);
+        w.beginObject();
+        w.name("projectId").value(cfg.projectId);
+        w.name("appId").value(cfg.appId);
+        w.name("packageName").value(cfg.packageName);
+        w.name("events").beginArray();
+        w.writeTo(out);
+
+        boolean first = true;
+        for (byte[] e : events) {
+            if (!first) out.write(',');
+            out.write(e);
+            first = false;
+        }
+        out.write(']');
+        out.write('}');
+    }
+
+    private void writeHoistedJson(OutputStream out, FoxTelemetryConfig cfg, Iterable<byte[]> events) throws IOException {
+        Iterator<byte[]> it = events.iterator();
+        byte[] first = it.hasNext() ? it.next() : null;
+        envelope.begin(first);
+
+        Utf8JsonWriter w = new Utf8JsonWriter(512);
+        w.beginObject();
+        w.name("projectId").value(cfg.projectId);
+        w.name("appId").value(cfg.appId);
+        w.name("packageName").value(cfg.packageName);
+        byte[] shared = envelope.sharedObject(cfg);
+        w.name("envelope").rawValue(shared, 0, shared.length);
+        w.name("baseTimestamp").value(envelope.baseTimestamp());
+        w.name("events").beginArray();
+        w.writeTo(out);
+
+        for (byte[] e = first; e != null; e = it.hasNext() ? it.next() : null) {
+            if (e != first) out.write(',');
+            envelope.rewrite(e);
+            out.write(envelope.buffer(), 0, envelope.length());
+        }
+        out.write(']');
+        out.write('}');
+    }
+
+    private void writeHoistedCbor(OutputStream out, FoxTelemetryConfig cfg, Iterable<byte[]> events) throws IOException {
+        Iterator<byte[]> it = events.iterator();
+        byte[] first = it.hasNext() ? it.next() : null;
+        envelope.begin(first);
+
+        CborWriter w = cbor;
+        w.reset();
+        w.beginMap(6);
+        w.writeText("projectId").writeText(cfg.projectId);
+        w.writeText("appId").writeText(cfg.appId);
+        w.writeText("packageName").writeText(cfg.packageName);
+        w.writeText("envelope");
+        transcoder.setStringTable(null);
+        transcoder.setDropStackTraceText(false);
+        transcoder.transcode(envelope.sharedObject(cfg), w);
+        w.writeText("baseTimestamp").writeLong(envelope.baseTimestamp());
+        w.writeText("events");
+        beginEvents(w, cfg);
+        w.writeTo(out);
+
+        for (byte[] e = first; e != null; e = it.hasNext() ? it.next() : null) {
+            envelope.rewrite(e);
+            writeEvent(out, envelope.buffer(), envelope.length(), cfg.cborStringRefs);
+        }
+        out.write(CborWriter.BREAK);
+    }
+
+    private void writeCbor(OutputStream out, FoxTelemetryConfig cfg, Iterable<byte[]> events) throws IOException {
+        CborWriter w = cbor;
+        w.reset();
+        w.beginMap(4);
+        w.writeText("projectId").writeText(cfg.projectId);
+        w.writeText("appId").writeText(cfg.appId);
+        w.writeText("packageName").writeText(cfg.packageName);
+        w.writeText("events");
+        beginEvents(w, cfg);
+        w.writeTo(out);
+
+        for (byte[] e : events) writeEvent(out, e, e.length, cfg.cborStringRefs);
+        out.write(CborWriter.BREAK);
+    }
+
+    // Opens the events array and sets the transcoder up for its elements.
+    private void beginEvents(CborWriter w, FoxTelemetryConfig cfg) {
+        boolean refs = cfg.cborStringRefs;
+        if (refs) {
+            strings.reset();
+            w.writeTag(CborStringTable.TAG_NAMESPACE);
+        }
+        w.beginIndefiniteArray();
+        transcoder.setStringTable(refs ? strings : null);
+        transcoder.setDropStackTraceText(refs);
+    }
+
+    private void writeEvent(OutputStream out, byte[] json, int length, boolean refs) throws IOException {
+        CborWriter w = cbor;
+        w.reset();
+        int mark = strings.mark();
+        try {
+            transcoder.transcode(json, length, w);
+        } catch (IOException malformed) {
+            // Strings of the dropped event were never sent, so they must not be referenced.
+            if (refs) strings.rollback(mark);
+            skipped++;
+            return;
+        }
+        w.writeTo(out);
+    }
+}
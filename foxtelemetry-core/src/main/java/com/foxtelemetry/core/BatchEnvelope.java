@@ -0,0 +1,226 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Rewrites the stored events of one batch relative to a shared envelope and base timestamp, for
+ * {@link FoxTelemetryConfig#batchEnvelope}. The first event sets both. Each event then becomes
+ * {@code {"dt":ts-base, <overrides>, <its own members>}}, where the overrides are the envelope
+ * members that differ from the shared ones ({@code null} for one the event does not have).
+ * Events without a recognizable envelope (see {@link EventEnvelope#find}) pass through unchanged
+ * and keep their absolute {@code timestamp}.
+ *
+ * <p>Not thread-safe; one instance per {@link BatchEncoder}. Buffers are reused across batches.</p>
+ */
+final class BatchEnvelope {
+
+    private static final byte[] DT = "{\"dt\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_VALUE = ":null".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_MEMBERS = 16;
+
+    private final Utf8JsonWriter w = new Utf8JsonWriter(512);
+    private byte[] base = new byte[0];
+    private final int[] baseMembers = new int[MAX_MEMBERS * 4];
+    private int baseCount;
+    private final int[] eventMembers = new int[MAX_MEMBERS * 4];
+    private long baseTimestamp;
+
+    private byte[] out = new byte[1024];
+    private int outLen;
+
+    /** Takes the envelope and timestamp of {@code first} (null: an empty batch) as the shared ones. */
+    void begin(@Nullable byte[] first) {
+        base = new byte[0];
+        baseCount = 0;
+        baseTimestamp = 0;
+        if (first == null) return;
+        int ts = EventEnvelope.timestampEnd(first);
+        if (ts >= 0) baseTimestamp = EventEnvelope.timestamp(first, ts);
+        long range = EventEnvelope.find(first);
+        if (range < 0) return;
+        base = Arrays.copyOfRange(first, (int) (range >>> 32), (int) range);
+        baseCount = members(base, 0, base.length, baseMembers);
+        if (baseCount < 0) {
+            base = new byte[0];
+            baseCount = 0;
+        }
+    }
+
+    long baseTimestamp() {
+        return baseTimestamp;
+    }
+
+    /**
+     * The shared envelope as a JSON object, leaving out members that repeat the batch's own
+     * {@code projectId}, {@code appId} or {@code packageName}. Valid until the next call.
+     */
+    @NonNull
+    byte[] sharedObject(@NonNull FoxTelemetryConfig cfg) {
+        w.reset();
+        w.beginObject();
+        w.name("projectId").value(cfg.projectId);
+        w.name("appId").value(cfg.appId);
+        w.name("packageName").value(cfg.packageName);
+        w.endObject();
+        byte[] top = w.toByteArray();
+        int[] topMembers = new int[3 * 4];
+        int topCount = members(top, 1, top.length - 1, topMembers);
+
+        outLen = 0;
+        put('{');
+        boolean first = true;
+        for (int m = 0; m < baseCount; m++) {
+            int keyStart = baseMembers[m * 4];
+            int valueEnd = baseMembers[m * 4 + 3];
+            if (indexOfMember(top, topMembers, topCount, base, keyStart, valueEnd) >= 0) continue;
+            if (!first) put(',');
+            put(base, keyStart, valueEnd - keyStart);
+            first = false;
+        }
+        put('}');
+        return Arrays.copyOf(out, outLen);
+    }
+
+    /** Rewrites {@code event} into {@link #buffer()}[0, {@link #length()}). */
+    void rewrite(@NonNull byte[] event) {
+        long range = EventEnvelope.find(event);
+        if (range < 0) {
+            outLen = 0;
+            put(event, 0, event.length);
+            return;
+        }
+        int start = (int) (range >>> 32);
+        int end = (int) range;
+        long ts = EventEnvelope.timestamp(event, start - 1);
+
+        outLen = 0;
+        put(DT, 0, DT.length);
+        putLong(ts - baseTimestamp);
+        if (!sameBytes(event, start, end, base)) writeOverrides(event, start, end);
+        // ",<the event's own members>}" follows the envelope unchanged.
+        put(event, end, event.length - end);
+    }
+
+    byte[] buffer() {
+        return out;
+    }
+
+    int length() {
+        return outLen;
+    }
+
+    private void writeOverrides(byte[] event, int start, int end) {
+        int count = members(event, start, end, eventMembers);
+        if (count < 0) {
+            put(',');
+            put(event, start, end - start);
+            return;
+        }
+        for (int m = 0; m < count; m++) {
+            int keyStart = eventMembers[m * 4];
+            int valueEnd = eventMembers[m * 4 + 3];
+            if (indexOfMember(base, baseMembers, baseCount, event, keyStart, valueEnd) >= 0) continue;
+            put(',');
+            put(event, keyStart, valueEnd - keyStart);
+        }
+        for (int m = 0; m < baseCount; m++) {
+            int keyStart = baseMembers[m * 4];
+            int keyEnd = baseMembers[m * 4 + 1];
+            if (indexOfKey(event, eventMembers, count, base, keyStart, keyEnd) >= 0) continue;
+            put(',');
+            put(base, keyStart, keyEnd - keyStart);
+            put(NULL_VALUE, 0, NULL_VALUE.length);
+        }
+    }
+
+    /**
+     * Splits {@code b[start, end)} into members; per member {@code keyStart, keyEnd, valueStart,
+     * valueEnd} (the key range includes its quotes). Returns the count, or -1 if unexpected.
+     */
+    private static int members(byte[] b, int start, int end, int[] into) {
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            if (count == MAX_MEMBERS || into.length < (count + 1) * 4) return -1;
+            int valueEnd = EventEnvelope.skipMember(b, i, end);
+            if (valueEnd < 0) return -1;
+            int quote = i + 1;
+            while (b[quote] != '"') quote += b[quote] == '\\' ? 2 : 1;
+            into[count * 4] = i;
+            into[count * 4 + 1] = quote + 1;
+            into[count * 4 + 2] = quote + 2;
+            into[count * 4 + 3] = valueEnd;
+            count++;
+            if (valueEnd < end && b[valueEnd] != ',') return -1;
+            i = valueEnd + 1;
+        }
+        return count;
+    }
+
+    /** Index of the member of {@code b} equal (key and value) to {@code src[from, to)}, or -1. */
+    private static int indexOfMember(byte[] b, int[] members, int count, byte[] src, int from, int to) {
+        for (int m = 0; m < count; m++) {
+            int s = members[m * 4];
+            int e = members[m * 4 + 3];
+            if (e - s == to - from && regionEquals(b, s, src, from, to - from)) return m;
+        }
+        return -1;
+    }
+
+    private static int indexOfKey(byte[] b, int[] members, int count, byte[] src, int keyFrom, int keyTo) {
+        for (int m = 0; m < count; m++) {
+            int s = members[m * 4];
+            int e = members[m * 4 + 1];
+            if (e - s == keyTo - keyFrom && regionEquals(b, s, src, keyFrom, keyTo - keyFrom)) return m;
+        }
+        return -1;
+    }
+
+    private static boolean sameBytes(byte[] a, int from, int to, byte[] b) {
+        return to - from == b.length && regionEquals(a, from, b, 0, b.length);
+    }
+
+    private static boolean regionEquals(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        for (int i = 0; i < len; i++) {
+            if (a[aOff + i] != b[bOff + i]) return false;
+        }
+        return true;
+    }
+
+    private void putLong(long v) {
+        if (v < 0) {
+            put('-');
+            v = -v;
+        }
+        ensure(20);
+        int startLen = outLen;
+        do {
+            out[outLen++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        for (int i = startLen, j = outLen - 1; i < j; i++, j--) {
+            byte t = out[i];
+            out[i] = out[j];
+            out[j] = t;
+        }
+    }
+
+    private void put(int b) {
+        ensure(1);
+        out[outLen++] = (byte) b;
+    }
+
+    private void put(byte[] src, int off, int len) {
+        ensure(len);
+        System.arraycopy(src, off, out, outLen, len);
+        outLen += len;
+    }
+
+    private void ensure(int extra) {
+        if (outLen + extra > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, outLen + extra));
+    }
+}
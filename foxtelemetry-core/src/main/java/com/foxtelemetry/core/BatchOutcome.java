@@ -0,0 +1,93 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-event result of an accepted upload, by position in the batch. Events not marked are
+ * accepted; rejected ones are dead-lettered and retried ones stay queued
+ * (see {@code EventQueue.settle}).
+ */
+public final class BatchOutcome {
+
+    public static final BatchOutcome ALL_ACCEPTED = new Builder().build();
+
+    private final BitSet rejected;
+    private final BitSet retry;
+    private final Map<Integer, String> reasons;
+
+    private BatchOutcome(Builder b) {
+        this.rejected = (BitSet) b.rejected.clone();
+        this.retry = (BitSet) b.retry.clone();
+        this.reasons = new HashMap<>(b.reasons);
+    }
+
+    /** Every event of a {@code size}-event batch rejected for the same reason. */
+    @NonNull
+    public static BatchOutcome rejectAll(int size, @Nullable String reason) {
+        Builder b = new Builder();
+        for (int i = 0; i < size; i++) b.reject(i, reason);
+        return b.build();
+    }
+
+    public boolean allAccepted() {
+        return rejected.isEmpty() && retry.isEmpty();
+    }
+
+    public boolean isRejected(int index) {
+        return rejected.get(index);
+    }
+
+    public boolean isRetry(int index) {
+        return retry.get(index);
+    }
+
+    @Nullable
+    public String reason(int index) {
+        return reasons.get(index);
+    }
+
+    public int rejectedCount() {
+        return rejected.cardinality();
+    }
+
+    public int retryCount() {
+        return retry.cardinality();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BatchOutcome{rejected=" + rejected + ", retry=" + retry + "}";
+    }
+
+    public static final class Builder {
+        private final BitSet rejected = new BitSet();
+        private final BitSet retry = new BitSet();
+        private final Map<Integer, String> reasons = new HashMap<>();
+
+        /** The server refused the event for good (malformed, over quota for it, ...). */
+        public Builder reject(int index, @Nullable String reason) {
+            if (index < 0) return this;
+            rejected.set(index);
+            retry.clear(index);
+            if (reason != null) reasons.put(index, reason);
+            return this;
+        }
+
+        /** The server could not take the event now; it should be sent again later. */
+        public Builder retry(int index) {
+            if (index >= 0 && !rejected.get(index)) retry.set(index);
+            return this;
+        }
+
+        @NonNull
+        public BatchOutcome build() {
+            return new BatchOutcome(this);
+        }
+    }
+}
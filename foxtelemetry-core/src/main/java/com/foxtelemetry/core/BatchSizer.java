@@ -0,0 +1,63 @@
+package com.foxtelemetry.core;
+
+/**
+ * Adaptive upload batch size, expressed in stored payload bytes rather than event count.
+ * Additive increase while uploads are fast, multiplicative decrease when they are slow,
+ * fail, or the server rejects a body as too large (HTTP 413).
+ */
+public final class BatchSizer {
+
+    public static final long DEFAULT_MIN_BYTES = 8 * 1024;
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_START_BYTES = 64 * 1024;
+    /** Uploads faster than this grow the budget; slower than twice this shrink it. */
+    public static final long DEFAULT_TARGET_LATENCY_MS = 2_000;
+
+    private final long minBytes;
+    private final long maxBytes;
+    private final long step;
+    private final long targetLatencyMs;
+    private long budget;
+
+    public BatchSizer() {
+        this(DEFAULT_MIN_BYTES, DEFAULT_MAX_BYTES, DEFAULT_START_BYTES, DEFAULT_TARGET_LATENCY_MS);
+    }
+
+    public BatchSizer(long minBytes, long maxBytes, long startBytes, long targetLatencyMs) {
+        if (minBytes <= 0 || maxBytes < minBytes) throw new IllegalArgumentException("invalid byte bounds");
+        this.minBytes = minBytes;
+        this.maxBytes = maxBytes;
+        this.step = Math.max(1, minBytes);
+        this.targetLatencyMs = Math.max(1, targetLatencyMs);
+        this.budget = clamp(startBytes);
+    }
+
+    /** Byte budget for the next batch. A batch always holds at least one event, even if larger. */
+    public synchronized long budgetBytes() {
+        return budget;
+    }
+
+    /** A batch of {@code sentBytes} was accepted after {@code latencyMs}. */
+    public synchronized void onSuccess(long sentBytes, long latencyMs) {
+        if (latencyMs > 2 * targetLatencyMs) {
+            budget = clamp(budget / 2);
+        } else if (latencyMs <= targetLatencyMs && sentBytes >= budget / 2) {
+            // Only grow when the budget was actually exercised; a short tail batch says nothing.
+            budget = clamp(budget + Math.max(step, budget / 4));
+        }
+    }
+
+    /** The server answered 413 for a batch of {@code rejectedBytes}; the next one must be smaller. */
+    public synchronized void onTooLarge(long rejectedBytes) {
+        budget = clamp(Math.min(budget, rejectedBytes) / 2);
+    }
+
+    /** Transport failure or server overload. */
+    public synchronized void onFailure() {
+        budget = clamp(budget / 2);
+    }
+
+    private long clamp(long v) {
+        return Math.max(minBytes, Math.min(maxBytes, v));
+    }
+}
@@ -0,0 +1,79 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last N log lines, kept in memory as context for the next error or crash event instead of
+ * being queued one by one. All slots are allocated up front; a write only stores the caller's
+ * strings and a timestamp, so keeping a breadcrumb costs no disk I/O and no allocation.
+ *
+ * <p>Writers claim a position with one atomic increment and lock only their own slot, so threads
+ * logging at the same time rarely meet. A writer that has been lapped by {@code capacity} newer
+ * ones leaves the slot to them.</p>
+ */
+public final class BreadcrumbRing {
+
+    /** Receives the breadcrumbs, oldest first. */
+    public interface Visitor {
+        void crumb(long timestamp, @NonNull LogLevel level, @NonNull String tag, @NonNull String message);
+    }
+
+    private static final class Slot {
+        long position = -1; // guarded by this
+        long timestamp;
+        LogLevel level;
+        String tag;
+        String message;
+    }
+
+    private final Slot[] slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public BreadcrumbRing(int capacity) {
+        slots = new Slot[Math.max(1, capacity)];
+        for (int i = 0; i < slots.length; i++) slots[i] = new Slot();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public void add(@NonNull LogLevel level, @NonNull String tag, @NonNull String message, long timestamp) {
+        long n = next.getAndIncrement();
+        Slot s = slots[(int) (n % slots.length)];
+        synchronized (s) {
+            if (n < s.position) return;
+            s.position = n;
+            s.timestamp = timestamp;
+            s.level = level;
+            s.tag = tag;
+            s.message = message;
+        }
+    }
+
+    /**
+     * Hands the current breadcrumbs to {@code v}, oldest first, and returns how many it saw. A
+     * slot still being claimed by a concurrent writer is skipped rather than waited for.
+     */
+    public int forEach(@NonNull Visitor v) {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length);
+        int seen = 0;
+        for (long n = start; n < end; n++) {
+            Slot s = slots[(int) (n % slots.length)];
+            synchronized (s) {
+                if (s.position != n) continue;
+                v.crumb(s.timestamp, s.level, s.tag, s.message);
+            }
+            seen++;
+        }
+        return seen;
+    }
+
+    /** Number of breadcrumbs currently held. */
+    public int size() {
+        return (int) Math.min(next.get(), slots.length);
+    }
+}
@@ -0,0 +1,212 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference decoder for the {@link WireFormat#CBOR} batch body, intended for ingest-side
+ * implementations and tests. Produces plain Java values:
+ * maps as {@link LinkedHashMap}, arrays as {@link ArrayList}, integers as {@link Long},
+ * floats as {@link Double}, text as {@link String}, byte strings as {@code byte[]},
+ * plus {@link Boolean} and {@code null}. Unknown tags are skipped and their content returned.
+ *
+ * <p>Stringref (tag 256 namespaces, tag 25 references, as written by {@link BatchEncoder} with
+ * {@link FoxTelemetryConfig#cborStringRefs}) is resolved: references come back as the string
+ * they point to.</p>
+ */
+public final class CborDecoder {
+
+    private static final Object BREAK = new Object();
+    private static final int MAX_DEPTH = 128;
+
+    private final byte[] in;
+    private int pos;
+    // Strings of the innermost stringref namespace; null outside of one.
+    private List<Object> strings;
+
+    private CborDecoder(byte[] in) {
+        this.in = in;
+    }
+
+    /** Decodes a single CBOR data item that must span the whole input. */
+    @Nullable
+    public static Object decode(@NonNull byte[] data) throws IOException {
+        CborDecoder d = new CborDecoder(data);
+        try {
+            Object v = d.item(0);
+            if (v == BREAK) throw new IOException("Unexpected break");
+            if (d.pos != data.length) throw new IOException("Trailing bytes at offset " + d.pos);
+            return v;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated CBOR input");
+        }
+    }
+
+    /** Decodes a batch body and returns its top-level map. */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> decodeBatch(@NonNull byte[] data) throws IOException {
+        Object v = decode(data);
+        if (!(v instanceof Map)) throw new IOException("Batch body is not a CBOR map");
+        return (Map<String, Object>) v;
+    }
+
+    private Object item(int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw new IOException("Nesting too deep");
+        int initial = in[pos++] & 0xFF;
+        int major = initial >>> 5;
+        int info = initial & 0x1F;
+
+        if (major == CborWriter.MAJOR_SIMPLE) return simple(info);
+
+        boolean indefinite = info == CborWriter.INDEFINITE;
+        long arg = indefinite ? -1 : argument(info);
+
+        switch (major) {
+            case CborWriter.MAJOR_UNSIGNED:
+                if (arg < 0) throw new IOException("Unsigned integer exceeds 64-bit signed range");
+                return arg;
+            case CborWriter.MAJOR_NEGATIVE:
+                if (arg < 0) throw new IOException("Negative integer exceeds 64-bit signed range");
+                return -1 - arg;
+            case CborWriter.MAJOR_BYTES: {
+                if (indefinite) return chunked(CborWriter.MAJOR_BYTES);
+                byte[] b = bytes(arg);
+                remember(b, b.length);
+                return b;
+            }
+            case CborWriter.MAJOR_TEXT: {
+                if (indefinite) return new String(chunked(CborWriter.MAJOR_TEXT), StandardCharsets.UTF_8);
+                byte[] b = bytes(arg);
+                String s = new String(b, StandardCharsets.UTF_8);
+                remember(s, b.length);
+                return s;
+            }
+            case CborWriter.MAJOR_ARRAY: {
+                List<Object> list = new ArrayList<>(indefinite ? 8 : (int) Math.min(arg, 1024));
+                for (long i = 0; indefinite || i < arg; i++) {
+                    Object v = item(depth + 1);
+                    if (v == BREAK) {
+                        if (!indefinite) throw new IOException("Unexpected break");
+                        break;
+                    }
+                    list.add(v);
+                }
+                return list;
+            }
+            case CborWriter.MAJOR_MAP: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (long i = 0; indefinite || i < arg; i++) {
+                    Object k = item(depth + 1);
+                    if (k == BREAK) {
+                        if (!indefinite) throw new IOException("Unexpected break");
+                        break;
+                    }
+                    Object v = item(depth + 1);
+                    if (v == BREAK) throw new IOException("Map missing value");
+                    map.put(String.valueOf(k), v);
+                }
+                return map;
+            }
+            case CborWriter.MAJOR_TAG:
+            default:
+                if (indefinite) throw new IOException("Indefinite tag");
+                if (arg == CborStringTable.TAG_NAMESPACE) {
+                    List<Object> outer = strings;
+                    strings = new ArrayList<>();
+                    try {
+                        return item(depth + 1);
+                    } finally {
+                        strings = outer;
+                    }
+                }
+                if (arg == CborStringTable.TAG_REF && strings != null) {
+                    Object index = item(depth + 1);
+                    if (!(index instanceof Long) || (Long) index < 0 || (Long) index >= strings.size()) {
+                        throw new IOException("Bad string reference " + index);
+                    }
+                    return strings.get((int) (long) (Long) index);
+                }
+                return item(depth + 1);
+        }
+    }
+
+    /** Numbers a definite-length string of the current namespace if it is long enough to be referenced. */
+    private void remember(Object s, int byteLength) {
+        if (strings != null && byteLength >= CborStringTable.minLength(strings.size())) strings.add(s);
+    }
+
+    private Object simple(int info) throws IOException {
+        switch (info) {
+            case 20: return Boolean.FALSE;
+            case 21: return Boolean.TRUE;
+            case 22:
+            case 23: return null;
+            case 25: return (double) halfToFloat((int) readUInt(2));
+            case 26: return (double) Float.intBitsToFloat((int) readUInt(4));
+            case 27: return Double.longBitsToDouble(readUInt(8));
+            case CborWriter.INDEFINITE: return BREAK;
+            default:
+                if (info == 24) pos++;
+                return null;
+        }
+    }
+
+    private byte[] chunked(int major) throws IOException {
+        ByteArrayOutputStream acc = new ByteArrayOutputStream();
+        for (;;) {
+            int initial = in[pos] & 0xFF;
+            if (initial == CborWriter.BREAK) {
+                pos++;
+                return acc.toByteArray();
+            }
+            if (initial >>> 5 != major) throw new IOException("Bad chunk in indefinite string");
+            pos++;
+            byte[] chunk = bytes(argument(initial & 0x1F));
+            acc.write(chunk, 0, chunk.length);
+        }
+    }
+
+    private long argument(int info) throws IOException {
+        if (info < 24) return info;
+        switch (info) {
+            case 24: return readUInt(1);
+            case 25: return readUInt(2);
+            case 26: return readUInt(4);
+            case 27: return readUInt(8);
+            default: throw new IOException("Reserved additional info " + info);
+        }
+    }
+
+    private long readUInt(int n) {
+        long v = 0;
+        for (int i = 0; i < n; i++) v = (v << 8) | (in[pos++] & 0xFF);
+        return v;
+    }
+
+    private byte[] bytes(long count) throws IOException {
+        if (count < 0 || count > in.length - pos) throw new IOException("String length exceeds input");
+        byte[] out = new byte[(int) count];
+        System.arraycopy(in, pos, out, 0, out.length);
+        pos += out.length;
+        return out;
+    }
+
+    private static float halfToFloat(int half) {
+        int exp = (half >> 10) & 0x1F;
+        int mant = half & 0x3FF;
+        float v;
+        if (exp == 0) v = mant * (float) Math.pow(2, -24);
+        else if (exp == 31) v = mant == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        else v = (mant + 1024) * (float) Math.pow(2, exp - 25);
+        return (half & 0x8000) != 0 ? -v : v;
+    }
+}
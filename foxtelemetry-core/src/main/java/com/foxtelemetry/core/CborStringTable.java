@@ -0,0 +1,140 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Encoder side of the CBOR stringref extension (tag 256 opens a namespace, tag 25 refers to a
+ * string by index; see cbor.schmorp.de/stringref). Strings are numbered in the order they are
+ * first written, but only if they are long enough for a reference to be shorter than the string:
+ * 3 bytes for the first 24 entries, 4 up to 256, 5 up to 65536. Decoders apply the same rule, so
+ * no table is sent. Repeats are written as a 3-5 byte reference.
+ *
+ * <p>Lookups hash the UTF-8 bytes in place; strings are copied into one arena, so the table costs
+ * no allocation per string once it has grown. When it reaches {@link #MAX_ENTRIES} or
+ * {@link #MAX_ARENA_BYTES} it stops taking new strings for the rest of the namespace.</p>
+ */
+final class CborStringTable {
+
+    static final int TAG_NAMESPACE = 256;
+    static final int TAG_REF = 25;
+    static final int MAX_ENTRIES = 65_536;
+    static final int MAX_ARENA_BYTES = 1 << 20;
+
+    private byte[] arena = new byte[4096];
+    private int arenaLen;
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] hashes = new int[64];
+    private int size;
+    private boolean full;
+    // Open addressing: entry index + 1, 0 = empty.
+    private int[] slots = new int[128];
+
+    /** Minimum byte length for a string to get the next index (stringref rules). */
+    static int minLength(int index) {
+        if (index < 24) return 3;
+        if (index < 256) return 4;
+        if (index < 65_536) return 5;
+        return 7;
+    }
+
+    void reset() {
+        if (size > 0) Arrays.fill(slots, 0);
+        size = 0;
+        arenaLen = 0;
+        full = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Writes {@code src[off, off+len)} (valid UTF-8) as a text string or as a reference to an earlier one. */
+    void writeText(@NonNull CborWriter out, @NonNull byte[] src, int off, int len) {
+        if (len < 3) {
+            out.writeTextUtf8(src, off, len);
+            return;
+        }
+        int h = hash(src, off, len);
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int e = slots[i] - 1;
+            if (e < 0) break;
+            if (hashes[e] == h && equal(e, src, off, len)) {
+                out.writeTag(TAG_REF).writeLong(e);
+                return;
+            }
+        }
+        out.writeTextUtf8(src, off, len);
+        if (full) return;
+        if (size >= MAX_ENTRIES || arenaLen + len > MAX_ARENA_BYTES) {
+            // Decoders keep numbering strings we skip, so stop adding altogether from here on.
+            full = true;
+            return;
+        }
+        if (len >= minLength(size)) add(src, off, len, h);
+    }
+
+    /** Entry count to pass to {@link #rollback}, e.g. before an event that may turn out malformed. */
+    int mark() {
+        return size;
+    }
+
+    /** Forgets entries added after {@code mark}, whose strings were never sent. */
+    void rollback(int mark) {
+        if (mark >= size) return;
+        size = mark;
+        arenaLen = mark == 0 ? 0 : offsets[mark - 1] + lengths[mark - 1];
+        full = false;
+        Arrays.fill(slots, 0);
+        for (int e = 0; e < size; e++) insert(e);
+    }
+
+    private void add(byte[] src, int off, int len, int h) {
+        if (arenaLen + len > arena.length) arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLen + len));
+        System.arraycopy(src, off, arena, arenaLen, len);
+        if (size == offsets.length) {
+            int n = size * 2;
+            offsets = Arrays.copyOf(offsets, n);
+            lengths = Arrays.copyOf(lengths, n);
+            hashes = Arrays.copyOf(hashes, n);
+        }
+        offsets[size] = arenaLen;
+        lengths[size] = len;
+        hashes[size] = h;
+        arenaLen += len;
+        size++;
+        if (size * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            for (int e = 0; e < size; e++) insert(e);
+        } else {
+            insert(size - 1);
+        }
+    }
+
+    private void insert(int e) {
+        int mask = slots.length - 1;
+        int i = hashes[e] & mask;
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = e + 1;
+    }
+
+    private boolean equal(int e, byte[] src, int off, int len) {
+        if (lengths[e] != len) return false;
+        int a = offsets[e];
+        for (int i = 0; i < len; i++) {
+            if (arena[a + i] != src[off + i]) return false;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] src, int off, int len) {
+        int h = 0x811C9DC5;
+        for (int i = off, n = off + len; i < n; i++) {
+            h = (h ^ (src[i] & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,208 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Minimal CBOR (RFC 8949) encoder into a reusable byte buffer. Only the subset needed for
+ * telemetry batches: integers, text, booleans, null, floats and (in)definite maps/arrays.
+ */
+final class CborWriter {
+
+    static final int MAJOR_UNSIGNED = 0;
+    static final int MAJOR_NEGATIVE = 1;
+    static final int MAJOR_BYTES = 2;
+    static final int MAJOR_TEXT = 3;
+    static final int MAJOR_ARRAY = 4;
+    static final int MAJOR_MAP = 5;
+    static final int MAJOR_TAG = 6;
+    static final int MAJOR_SIMPLE = 7;
+
+    static final int INDEFINITE = 31;
+    static final int BREAK = 0xFF;
+    static final int FALSE = 0xF4;
+    static final int TRUE = 0xF5;
+    static final int NULL = 0xF6;
+    static final int FLOAT32 = 0xFA;
+    static final int FLOAT64 = 0xFB;
+
+    private byte[] buf;
+    private int len;
+
+    CborWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(64, initialCapacity)];
+    }
+
+    void reset() { len = 0; }
+
+    int size() { return len; }
+
+    void writeTo(@NonNull OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    @NonNull
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    CborWriter writeLong(long v) {
+        if (v >= 0) writeHeader(MAJOR_UNSIGNED, v);
+        else writeHeader(MAJOR_NEGATIVE, -1 - v);
+        return this;
+    }
+
+    CborWriter writeDouble(double v) {
+        float f = (float) v;
+        if (f == v || Double.isNaN(v)) {
+            int bits = Float.floatToIntBits(f);
+            ensure(5);
+            buf[len++] = (byte) FLOAT32;
+            putInt(bits);
+        } else {
+            long bits = Double.doubleToLongBits(v);
+            ensure(9);
+            buf[len++] = (byte) FLOAT64;
+            putInt((int) (bits >>> 32));
+            putInt((int) bits);
+        }
+        return this;
+    }
+
+    CborWriter writeBoolean(boolean v) {
+        put(v ? TRUE : FALSE);
+        return this;
+    }
+
+    CborWriter writeNull() {
+        put(NULL);
+        return this;
+    }
+
+    CborWriter writeText(@NonNull String s) {
+        int n = s.length();
+        int utf8 = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) utf8++;
+            else if (c < 0x800) utf8 += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8 += 4;
+                i++;
+            } else utf8 += 3;
+        }
+        writeHeader(MAJOR_TEXT, utf8);
+        ensure(utf8);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[len++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[len++] = (byte) (0xC0 | (c >> 6));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[len++] = (byte) (0xF0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) c = '\uFFFD';
+                buf[len++] = (byte) (0xE0 | (c >> 12));
+                buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /** Writes a text string from bytes that are already valid UTF-8. */
+    CborWriter writeTextUtf8(@NonNull byte[] src, int off, int count) {
+        writeHeader(MAJOR_TEXT, count);
+        putBytes(src, off, count);
+        return this;
+    }
+
+    CborWriter beginArray(int size) {
+        writeHeader(MAJOR_ARRAY, size);
+        return this;
+    }
+
+    CborWriter beginMap(int size) {
+        writeHeader(MAJOR_MAP, size);
+        return this;
+    }
+
+    CborWriter beginIndefiniteArray() {
+        put((MAJOR_ARRAY << 5) | INDEFINITE);
+        return this;
+    }
+
+    CborWriter beginIndefiniteMap() {
+        put((MAJOR_MAP << 5) | INDEFINITE);
+        return this;
+    }
+
+    CborWriter writeBreak() {
+        put(BREAK);
+        return this;
+    }
+
+    CborWriter writeTag(long tag) {
+        writeHeader(MAJOR_TAG, tag);
+        return this;
+    }
+
+    /** Appends already-encoded CBOR data items verbatim. */
+    CborWriter writeRaw(@NonNull byte[] src, int off, int count) {
+        putBytes(src, off, count);
+        return this;
+    }
+
+    void writeHeader(int major, long value) {
+        int mt = major << 5;
+        ensure(9);
+        if (value < 24) {
+            buf[len++] = (byte) (mt | (int) value);
+        } else if (value <= 0xFF) {
+            buf[len++] = (byte) (mt | 24);
+            buf[len++] = (byte) value;
+        } else if (value <= 0xFFFF) {
+            buf[len++] = (byte) (mt | 25);
+            buf[len++] = (byte) (value >>> 8);
+            buf[len++] = (byte) value;
+        } else if (value <= 0xFFFFFFFFL) {
+            buf[len++] = (byte) (mt | 26);
+            putInt((int) value);
+        } else {
+            buf[len++] = (byte) (mt | 27);
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+    }
+
+    private void putInt(int v) {
+        buf[len++] = (byte) (v >>> 24);
+        buf[len++] = (byte) (v >>> 16);
+        buf[len++] = (byte) (v >>> 8);
+        buf[len++] = (byte) v;
+    }
+
+    private void put(int b) {
+        ensure(1);
+        buf[len++] = (byte) b;
+    }
+
+    private void putBytes(byte[] src, int off, int count) {
+        ensure(count);
+        System.arraycopy(src, off, buf, len, count);
+        len += count;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+}
@@ -0,0 +1,149 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Single-slot crash record in a preallocated, memory-mapped file. {@link #record} runs on the
+ * dying thread: it encodes the crash event with an encoder and buffer reserved at startup and
+ * copies it into the mapping, without touching SQLite or taking any lock besides the breadcrumb
+ * ring's per-slot ones (held only for a few field stores), so it cannot deadlock on a queue lock
+ * the crashing (or another) thread already holds. The next process start reads
+ * the record back with {@link #readPending()} and imports it into the queue.
+ *
+ * <p>Layout: magic, state, payload length, CRC32 of the payload, then the encoded event. The
+ * state word is written last, so a record torn by the process dying mid-write stays invisible.</p>
+ */
+public final class CrashJournal {
+
+    static final String FILE_NAME = "foxtelemetry-crash.journal";
+    static final int FILE_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x464F584A; // "FOXJ"
+    private static final int STATE_EMPTY = 0;
+    private static final int STATE_COMMITTED = 1;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_STATE = 4;
+    private static final int OFF_LENGTH = 8;
+    private static final int OFF_CRC = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_PAYLOAD = FILE_SIZE - HEADER_SIZE;
+
+    private final MappedByteBuffer map;
+    private final EventEncoder encoder = new EventEncoder(FILE_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    /**
+     * Maps (creating and preallocating if needed) the journal in {@code dir}, which should not be
+     * backed up (the no-backup files dir on Android); returns null if that fails.
+     */
+    @Nullable
+    public static CrashJournal open(@NonNull File dir) {
+        return open(dir, FILE_NAME);
+    }
+
+    /**
+     * Like {@link #open(File)} with another file name. Each process needs its own journal: one
+     * shared slot would be imported by every process that starts, and overwritten by concurrent crashes.
+     */
+    @Nullable
+    public static CrashJournal open(@NonNull File dir, @NonNull String fileName) {
+        try {
+            return new CrashJournal(new File(dir, fileName));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    CrashJournal(@NonNull File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != FILE_SIZE) raf.setLength(FILE_SIZE);
+            // The mapping stays valid after the channel is closed.
+            this.map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+        if (map.getInt(OFF_MAGIC) != MAGIC) {
+            map.putInt(OFF_STATE, STATE_EMPTY);
+            map.putInt(OFF_MAGIC, MAGIC);
+        }
+    }
+
+    /**
+     * Writes the crash event. Only the first caller wins; concurrent or later crashes in the same
+     * process return false. Never throws.
+     */
+    public boolean record(@NonNull FoxTelemetryConfig cfg, @Nullable String installId, @NonNull Throwable t) {
+        try {
+            return record(TelemetryEventBuilder.envelope(cfg, installId), t, cfg.maxStackFrames,
+                    System.currentTimeMillis(), TelemetryEventBuilder.breadcrumbs());
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    boolean record(EventEnvelope env, Throwable t, int maxFrames, long timestamp) {
+        return record(env, t, maxFrames, timestamp, null);
+    }
+
+    boolean record(EventEnvelope env, Throwable t, int maxFrames, long timestamp, BreadcrumbRing breadcrumbs) {
+        if (!claimed.compareAndSet(false, true)) return false;
+        try {
+            long fingerprint = ErrorAggregator.fingerprint(t, ErrorAggregator.FINGERPRINT_FRAMES);
+            Utf8JsonWriter w;
+            int frames = maxFrames;
+            boolean text = true;
+            for (;;) {
+                w = encoder.writeError(env, timestamp, t, "UNCAUGHT_EXCEPTION", frames, text, fingerprint, 0, 0L, 0L,
+                        breadcrumbs);
+                if (w.size() <= MAX_PAYLOAD) break;
+                // Too big (deep recursion, huge messages): drop the printed trace, then breadcrumbs, then frames.
+                if (text) text = false;
+                else if (breadcrumbs != null) breadcrumbs = null;
+                else if (frames > 1) frames /= 2;
+                else return false;
+            }
+
+            crc.reset();
+            w.updateChecksum(crc);
+            map.putInt(OFF_STATE, STATE_EMPTY);
+            map.position(HEADER_SIZE);
+            w.writeTo(map);
+            map.putInt(OFF_LENGTH, w.size());
+            map.putInt(OFF_CRC, (int) crc.getValue());
+            map.putInt(OFF_STATE, STATE_COMMITTED);
+            // No force(): dirty pages of a shared mapping outlive the process; msync would only
+            // add latency to guard against a kernel crash.
+            return true;
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    /** The committed crash event left by a previous process, or null. */
+    @Nullable
+    public byte[] readPending() {
+        if (map.getInt(OFF_STATE) != STATE_COMMITTED) return null;
+        int length = map.getInt(OFF_LENGTH);
+        if (length <= 0 || length > MAX_PAYLOAD) return null;
+        byte[] payload = new byte[length];
+        map.position(HEADER_SIZE);
+        map.get(payload);
+        CRC32 check = new CRC32();
+        check.update(payload, 0, length);
+        return (int) check.getValue() == map.getInt(OFF_CRC) ? payload : null;
+    }
+
+    /** Marks the slot empty once its event is safely in the queue. */
+    public void clear() {
+        map.putInt(OFF_STATE, STATE_EMPTY);
+    }
+}
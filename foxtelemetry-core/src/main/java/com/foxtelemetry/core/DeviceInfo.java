@@ -0,0 +1,21 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Static description of the device, captured once. Kept free of {@code android.os.Build}
+ * so the encoder can run (and be benchmarked) on a plain JVM.
+ */
+public final class DeviceInfo {
+    @Nullable public final String brand;
+    @Nullable public final String model;
+    public final int sdkInt;
+    @Nullable public final String release;
+
+    public DeviceInfo(@Nullable String brand, @Nullable String model, int sdkInt, @Nullable String release) {
+        this.brand = brand;
+        this.model = model;
+        this.sdkInt = sdkInt;
+        this.release = release;
+    }
+}
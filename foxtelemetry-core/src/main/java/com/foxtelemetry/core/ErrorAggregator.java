@@ -0,0 +1,173 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses error storms. Each throwable gets a stable fingerprint (exception types plus the
+ * top frames of every cause, messages excluded). The first occurrence in a window is reported
+ * normally; repeats within {@code windowMs} only bump a counter and are later reported as a
+ * single {@link Summary} carrying the full trace, the count and first/last timestamps.
+ *
+ * <p>At most {@code maxEntries} fingerprints are tracked (LRU); an evicted entry with pending
+ * repeats is turned into a summary rather than lost.</p>
+ */
+public final class ErrorAggregator {
+
+    public static final int FINGERPRINT_FRAMES = 8;
+
+    private static final int MAX_CAUSE_DEPTH = 8;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** A run of suppressed repeats, ready to be encoded as one event. */
+    public static final class Summary {
+        @NonNull public final Throwable throwable;
+        @Nullable public final String contextTag;
+        public final long fingerprint;
+        public final int occurrences;
+        public final long firstSeen;
+        public final long lastSeen;
+
+        Summary(Entry e) {
+            this.throwable = e.throwable;
+            this.contextTag = e.contextTag;
+            this.fingerprint = e.fingerprint;
+            this.occurrences = e.suppressed;
+            this.firstSeen = e.firstSuppressed;
+            this.lastSeen = e.lastSuppressed;
+        }
+    }
+
+    private static final class Entry {
+        final long fingerprint;
+        Throwable throwable;
+        String contextTag;
+        long windowStart;
+        int suppressed;
+        long firstSuppressed;
+        long lastSuppressed;
+
+        Entry(long fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final long windowMs;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final List<Summary> ready = new ArrayList<>();
+    private long nextSweepAt;
+
+    public ErrorAggregator(long windowMs, final int maxEntries) {
+        this.windowMs = Math.max(1, windowMs);
+        final int cap = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= cap) return false;
+                Entry e = eldest.getValue();
+                if (e.suppressed > 0) ready.add(new Summary(e));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Records one occurrence. Returns true if the caller should report it now (first occurrence
+     * in a window), false if it was only counted.
+     */
+    public synchronized boolean record(long fingerprint, @NonNull Throwable t, @Nullable String contextTag, long now) {
+        Entry e = entries.get(fingerprint);
+        if (e == null) {
+            e = new Entry(fingerprint);
+            e.throwable = t;
+            e.contextTag = contextTag;
+            e.windowStart = now;
+            entries.put(fingerprint, e);
+            return true;
+        }
+        if (now - e.windowStart >= windowMs) {
+            if (e.suppressed > 0) ready.add(new Summary(e));
+            e.suppressed = 0;
+            e.throwable = t;
+            e.contextTag = contextTag;
+            e.windowStart = now;
+            return true;
+        }
+        if (e.suppressed == 0) e.firstSuppressed = now;
+        e.suppressed++;
+        e.lastSuppressed = now;
+        return false;
+    }
+
+    /**
+     * Returns summaries for windows that have closed (or all pending ones if {@code force}),
+     * resetting their counters. Cheap when nothing is due: a full sweep runs at most once per window.
+     */
+    @NonNull
+    public synchronized List<Summary> drain(long now, boolean force) {
+        if (!force && ready.isEmpty() && now < nextSweepAt) return Collections.emptyList();
+        nextSweepAt = now + windowMs;
+
+        List<Summary> out = new ArrayList<>(ready);
+        ready.clear();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            boolean closed = now - e.windowStart >= windowMs;
+            if (e.suppressed > 0 && (closed || force)) {
+                out.add(new Summary(e));
+                e.suppressed = 0;
+                e.windowStart = now;
+            } else if (closed && e.suppressed == 0) {
+                // Idle fingerprint: drop it so the throwable is not retained any longer.
+                it.remove();
+            }
+        }
+        return out;
+    }
+
+    /** Stable 64-bit fingerprint over exception types and top frames of the cause chain. */
+    public static long fingerprint(@NonNull Throwable t, int topFrames) {
+        long h = FNV_OFFSET;
+        Throwable c = t;
+        for (int depth = 0; c != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            h = mix(h, c.getClass().getName());
+            StackTraceElement[] st = c.getStackTrace();
+            for (int i = 0, n = Math.min(st.length, topFrames); i < n; i++) {
+                StackTraceElement f = st[i];
+                h = mix(h, f.getClassName());
+                h = mix(h, f.getMethodName());
+                h = mix(h, f.getLineNumber());
+            }
+            Throwable next = c.getCause();
+            c = next == c ? null : next;
+        }
+        return h;
+    }
+
+    private static long mix(long h, @Nullable String s) {
+        if (s != null) {
+            for (int i = 0, n = s.length(); i < n; i++) {
+                h ^= s.charAt(i);
+                h *= FNV_PRIME;
+            }
+        }
+        h ^= 0xFF; // separator so ("ab","c") != ("a","bc")
+        return h * FNV_PRIME;
+    }
+
+    private static long mix(long h, int v) {
+        for (int i = 0; i < 4; i++) {
+            h ^= (v >>> (i * 8)) & 0xFF;
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+}
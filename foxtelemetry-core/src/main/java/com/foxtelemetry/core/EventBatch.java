@@ -0,0 +1,23 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A batch of stored event payloads to upload. Iteration may read lazily from storage, so a
+ * batch can be streamed more than once (e.g. on a format fallback) without being held in memory.
+ */
+public interface EventBatch extends Iterable<byte[]> {
+
+    /** Number of events in the batch. */
+    int size();
+
+    /** Sum of stored payload sizes in bytes (before batch framing or compression). */
+    long payloadBytes();
+
+    /**
+     * Stable identifier of exactly these events, sent so the server can drop a batch it already
+     * accepted (e.g. when the response was lost); null if the batch has none.
+     */
+    @Nullable
+    String id();
+}
@@ -0,0 +1,402 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Encodes telemetry events straight to UTF-8 JSON bytes. One encoder (and its buffer) is kept
+ * per thread, so the only per-event allocation on the log path is the final exact-size payload.
+ */
+public final class EventEncoder {
+
+    private static final ThreadLocal<EventEncoder> LOCAL = new ThreadLocal<EventEncoder>() {
+        @Override
+        protected EventEncoder initialValue() {
+            return new EventEncoder();
+        }
+    };
+
+    /** Longer breadcrumb messages are cut, so a few huge lines cannot crowd out the stack trace. */
+    static final int MAX_BREADCRUMB_CHARS = 512;
+
+    // Indexed by Priority.*.
+    private static final String[] PRIORITY_NAMES = {"debug", "info", "warn", "error", "crash"};
+
+    private final Utf8JsonWriter w;
+    private final BreadcrumbRing.Visitor crumbWriter = this::writeBreadcrumb;
+
+    private EventEncoder() {
+        this(1024);
+    }
+
+    /** A private encoder, e.g. for the crash journal, which must not depend on thread-locals. */
+    EventEncoder(int bufferSize) {
+        this.w = new Utf8JsonWriter(bufferSize);
+    }
+
+    /** Returns the calling thread's encoder. Not thread-safe; do not share the instance. */
+    @NonNull
+    public static EventEncoder get() {
+        return LOCAL.get();
+    }
+
+    @NonNull
+    public byte[] encodeLog(@NonNull EventEnvelope env, long timestamp,
+                            @NonNull String level, @Nullable String tag, @Nullable String message) {
+        return encodeLog(env, timestamp, level, tag, message, 0);
+    }
+
+    /** Log event; {@code repeated > 0} marks it as standing for that many further identical calls. */
+    @NonNull
+    public byte[] encodeLog(@NonNull EventEnvelope env, long timestamp,
+                            @NonNull String level, @Nullable String tag, @Nullable String message, int repeated) {
+        w.reset();
+        begin(env, timestamp);
+        w.name("type").value("log");
+        w.name("level").value(level);
+        if (tag != null) w.name("tag").value(tag);
+        if (message != null) w.name("message").value(message);
+        if (repeated > 0) w.name("repeated").value(repeated);
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    /**
+     * Custom {@code event}: {@code "name"} plus the builder's attributes as an {@code "attrs"}
+     * object, written straight from its arrays. Non-finite doubles become {@code null}.
+     */
+    @NonNull
+    public byte[] encodeEvent(@NonNull EventEnvelope env, long timestamp, @NonNull EventBuilder e) {
+        w.reset();
+        begin(env, timestamp);
+        w.name("type").value("event");
+        w.name("name").value(e.name());
+        w.name("attrs").beginObject();
+        for (int i = 0, n = e.size(); i < n; i++) {
+            w.name(e.key(i));
+            switch (e.type(i)) {
+                case EventBuilder.TYPE_LONG: w.value(e.longValue(i)); break;
+                case EventBuilder.TYPE_DOUBLE: w.value(e.doubleValue(i)); break;
+                case EventBuilder.TYPE_BOOLEAN: w.value(e.booleanValue(i)); break;
+                default: w.value(e.stringValue(i)); break;
+            }
+        }
+        w.endObject();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    /**
+     * {@code trace} event: all spans of one trace. Span {@code start} is the offset from the root's
+     * start and {@code dur} the duration, both in microseconds; the root has no {@code parent}.
+     */
+    @NonNull
+    public byte[] encodeTrace(@NonNull EventEnvelope env, @NonNull Trace t) {
+        w.reset();
+        begin(env, t.startWallMillis);
+        w.name("type").value("trace");
+        w.name("traceId").value(toHex(t.traceId));
+        if (t.dropped > 0) w.name("droppedSpans").value(t.dropped);
+        w.name("spans").beginArray();
+        for (int i = 0; i < t.size; i++) {
+            w.beginObject();
+            w.name("id").value(toHex(t.spanIds[i]));
+            if (t.parentIds[i] != 0L) w.name("parent").value(toHex(t.parentIds[i]));
+            w.name("name").value(t.names[i]);
+            w.name("start").value(t.startOffsets[i] / 1000);
+            w.name("dur").value(t.durations[i] / 1000);
+            if (t.errors[i]) w.name("error").value(true);
+            String[] tags = t.tags[i];
+            if (tags != null) {
+                w.name("tags").beginObject();
+                for (int k = 0; k < tags.length; k += 2) w.name(tags[k]).value(tags[k + 1]);
+                w.endObject();
+            }
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    /**
+     * {@code log_filter} event: counts of log calls dropped by {@link LogFilter} between
+     * {@code since} and {@code until}, in total and per tag.
+     */
+    @NonNull
+    public byte[] encodeLogFilterReport(@NonNull EventEnvelope env, @NonNull LogFilter.Report r) {
+        w.reset();
+        begin(env, r.untilMillis);
+        w.name("type").value("log_filter");
+        w.name("since").value(r.sinceMillis);
+        w.name("until").value(r.untilMillis);
+        w.name("belowLevel").value(r.belowLevel);
+        w.name("sampled").value(r.sampled);
+        w.name("rateLimited").value(r.rateLimited);
+        w.name("collapsed").value(r.collapsed);
+        w.name("tags").beginObject();
+        for (Map.Entry<String, long[]> e : r.byTag.entrySet()) {
+            long[] c = e.getValue();
+            w.name(e.getKey()).beginObject();
+            w.name("sampled").value(c[0]);
+            w.name("rateLimited").value(c[1]);
+            w.name("collapsed").value(c[2]);
+            w.endObject();
+        }
+        w.endObject();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    /**
+     * {@code sdk_stats} event: the SDK's own overhead and health. Durations are
+     * {@code [count, p50, p95, p99, max]} in microseconds; statuses that never occurred are left out.
+     */
+    @NonNull
+    public byte[] encodeSdkStats(@NonNull EventEnvelope env, @NonNull SdkStats s) {
+        w.reset();
+        begin(env, s.takenAtMillis);
+        w.name("type").value("sdk_stats");
+        w.name("enqueued").value(s.eventsEnqueued);
+        w.name("filtered").value(s.eventsFiltered);
+        w.name("droppedOverflow").value(s.eventsDroppedOverflow);
+        w.name("evicted").value(s.eventsEvicted);
+        w.name("deadLettered").value(s.eventsDeadLettered);
+        w.name("internalErrors").value(s.internalErrors);
+        w.name("queueDepth").value(s.queueDepth);
+        w.name("queueBytes").value(s.queueBytes);
+        w.name("uploaded").value(s.eventsUploaded);
+        w.name("uploadedBytes").value(s.bytesUploaded);
+        w.name("retries").value(s.uploadRetries);
+        w.name("http").beginObject();
+        status("2xx", s.http2xx);
+        status("4xx", s.http4xx);
+        status("413", s.http413);
+        status("429", s.http429);
+        status("5xx", s.http5xx);
+        status("other", s.httpOther);
+        status("failed", s.httpFailed);
+        w.endObject();
+        w.name("latencyUs").beginObject();
+        latency("build", s.eventBuild);
+        latency("enqueue", s.enqueue);
+        latency("upload", s.upload);
+        w.endObject();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    /**
+     * {@code metrics} event: one entry per active series of a {@link MetricRegistry}. Histograms
+     * carry count/sum/min/max, a few quantiles and the sketch's buckets ({@code gamma}, zero count,
+     * and {@code pos}/{@code neg} counts starting at bucket {@code posOffset}/{@code negOffset}),
+     * so the ingest side can merge them across intervals and devices.
+     */
+    @NonNull
+    public byte[] encodeMetrics(@NonNull EventEnvelope env, @NonNull MetricsReport r) {
+        w.reset();
+        begin(env, r.untilMillis);
+        w.name("type").value("metrics");
+        w.name("since").value(r.sinceMillis);
+        w.name("until").value(r.untilMillis);
+        if (r.refusedSeries > 0) w.name("refusedSeries").value(r.refusedSeries);
+        w.name("series").beginArray();
+        for (int i = 0, n = r.entries.size(); i < n; i++) {
+            MetricsReport.Entry e = r.entries.get(i);
+            w.beginObject();
+            w.name("name").value(e.name);
+            w.name("kind").value(e.kind);
+            if (e.tags.length > 0) {
+                w.name("tags").beginObject();
+                for (int t = 0; t + 1 < e.tags.length; t += 2) w.name(e.tags[t]).value(e.tags[t + 1]);
+                w.endObject();
+            }
+            QuantileSketch q = e.sketch;
+            if (q == null) {
+                if ("counter".equals(e.kind)) w.name("value").value((long) e.value);
+                else w.name("value").value(e.value);
+            } else {
+                w.name("count").value(q.count());
+                w.name("sum").value(q.sum());
+                w.name("min").value(q.min());
+                w.name("max").value(q.max());
+                w.name("p50").value(q.quantile(0.5));
+                w.name("p90").value(q.quantile(0.9));
+                w.name("p99").value(q.quantile(0.99));
+                w.name("sketch").beginObject();
+                w.name("gamma").value(q.gamma());
+                if (q.zeroCount() > 0) w.name("zero").value(q.zeroCount());
+                bins("pos", q.positiveOffset(), q.positiveCounts());
+                bins("neg", q.negativeOffset(), q.negativeCounts());
+                w.endObject();
+            }
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    private void bins(String name, int offset, long[] counts) {
+        if (counts.length == 0) return;
+        w.name(name + "Offset").value(offset);
+        w.name(name).beginArray();
+        for (long c : counts) w.value(c);
+        w.endArray();
+    }
+
+    private void status(String name, long count) {
+        if (count > 0) w.name(name).value(count);
+    }
+
+    private void latency(String name, SdkStats.Latency l) {
+        w.name(name).beginArray()
+                .value(l.count).value(l.p50Nanos / 1000).value(l.p95Nanos / 1000)
+                .value(l.p99Nanos / 1000).value(l.maxNanos / 1000)
+                .endArray();
+    }
+
+    /** {@code queue_eviction} event: what the queue discarded to stay within its limits. */
+    @NonNull
+    public byte[] encodeEvictionReport(@NonNull EventEnvelope env, @NonNull EvictionReport r) {
+        w.reset();
+        begin(env, r.untilMillis);
+        w.name("type").value("queue_eviction");
+        w.name("since").value(r.sinceMillis);
+        w.name("until").value(r.untilMillis);
+        w.name("expired").value(r.expired);
+        w.name("overCapacity").value(r.overCapacity);
+        w.name("bytes").value(r.bytes);
+        w.name("byPriority").beginObject();
+        for (int p = 0; p < r.byPriority.length && p < PRIORITY_NAMES.length; p++) {
+            w.name(PRIORITY_NAMES[p]).value(r.byPriority[p]);
+        }
+        w.endObject();
+        w.endObject();
+        return w.toByteArray();
+    }
+
+    @NonNull
+    public byte[] encodeError(@NonNull EventEnvelope env, long timestamp,
+                              @NonNull Throwable t, @Nullable String contextTag, int maxFrames) {
+        return encodeError(env, timestamp, t, contextTag, maxFrames, 0L, 0, 0L, 0L);
+    }
+
+    /**
+     * Error event with aggregation fields: {@code fingerprint} (16 hex digits) and, when
+     * {@code occurrences > 0}, {@code occurrences}/{@code firstSeen}/{@code lastSeen}.
+     */
+    @NonNull
+    public byte[] encodeError(@NonNull EventEnvelope env, long timestamp,
+                              @NonNull Throwable t, @Nullable String contextTag, int maxFrames,
+                              long fingerprint, int occurrences, long firstSeen, long lastSeen) {
+        return encodeError(env, timestamp, t, contextTag, maxFrames, fingerprint, occurrences, firstSeen, lastSeen, null);
+    }
+
+    /** As above, plus the current contents of {@code breadcrumbs} as a {@code breadcrumbs} array. */
+    @NonNull
+    public byte[] encodeError(@NonNull EventEnvelope env, long timestamp,
+                              @NonNull Throwable t, @Nullable String contextTag, int maxFrames,
+                              long fingerprint, int occurrences, long firstSeen, long lastSeen,
+                              @Nullable BreadcrumbRing breadcrumbs) {
+        return writeError(env, timestamp, t, contextTag, maxFrames, true,
+                fingerprint, occurrences, firstSeen, lastSeen, breadcrumbs).toByteArray();
+    }
+
+    /**
+     * Encodes an error event into this encoder's buffer and returns it, without copying it out.
+     * {@code stackTraceText} false leaves out the printed {@code stacktrace} and keeps only frames.
+     */
+    Utf8JsonWriter writeError(@NonNull EventEnvelope env, long timestamp,
+                              @NonNull Throwable t, @Nullable String contextTag, int maxFrames, boolean stackTraceText,
+                              long fingerprint, int occurrences, long firstSeen, long lastSeen,
+                              @Nullable BreadcrumbRing breadcrumbs) {
+        w.reset();
+        begin(env, timestamp);
+        w.name("type").value("error");
+        if (contextTag != null) w.name("context").value(contextTag);
+        if (fingerprint != 0L) w.name("fingerprint").value(toHex(fingerprint));
+        if (occurrences > 0) {
+            w.name("occurrences").value(occurrences);
+            w.name("firstSeen").value(firstSeen);
+            w.name("lastSeen").value(lastSeen);
+        }
+        w.name("exception");
+        writeThrowable(t, maxFrames, stackTraceText);
+        if (breadcrumbs != null && breadcrumbs.size() > 0) {
+            w.name("breadcrumbs").beginArray();
+            breadcrumbs.forEach(crumbWriter);
+            w.endArray();
+        }
+        w.endObject();
+        return w;
+    }
+
+    private void writeBreadcrumb(long timestamp, LogLevel level, String tag, String message) {
+        w.beginObject();
+        w.name("timestamp").value(timestamp);
+        w.name("level").value(level.name());
+        w.name("tag").value(tag);
+        w.name("message").value(message.length() > MAX_BREADCRUMB_CHARS
+                ? message.substring(0, MAX_BREADCRUMB_CHARS) : message);
+        w.endObject();
+    }
+
+    private static String toHex(long v) {
+        char[] out = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            out[i] = Character.forDigit((int) (v & 0xF), 16);
+            v >>>= 4;
+        }
+        return new String(out);
+    }
+
+    private void begin(EventEnvelope env, long timestamp) {
+        w.beginObject();
+        w.name("timestamp").value(timestamp);
+        w.rawMembers(env.members);
+    }
+
+    private void writeThrowable(Throwable t, int maxFrames, boolean stackTraceText) {
+        w.beginObject();
+        w.name("name").value(t.getClass().getName());
+        String message = t.getMessage();
+        if (message != null) w.name("message").value(message);
+
+        if (stackTraceText) {
+            w.name("stacktrace");
+            Writer out = w.beginStringValue();
+            PrintWriter pw = new PrintWriter(out);
+            t.printStackTrace(pw);
+            pw.flush();
+            w.endStringValue();
+        }
+
+        StackTraceElement[] st = t.getStackTrace();
+        int n = Math.min(st.length, maxFrames);
+        w.name("frames").beginArray();
+        for (int i = 0; i < n; i++) {
+            StackTraceElement e = st[i];
+            w.beginObject();
+            w.name("class").value(e.getClassName());
+            w.name("method").value(e.getMethodName());
+            String file = e.getFileName();
+            if (file != null) w.name("file").value(file);
+            w.name("line").value(e.getLineNumber());
+            w.name("native").value(e.isNativeMethod());
+            w.endObject();
+        }
+        w.endArray();
+
+        Throwable cause = t.getCause();
+        if (cause != null && cause != t) {
+            w.name("cause");
+            writeThrowable(cause, maxFrames, stackTraceText);
+        }
+        w.endObject();
+    }
+}
@@ -0,0 +1,183 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fields every event repeats (project, app, package, install ID, environment, user, device),
+ * encoded once into UTF-8 JSON object members and spliced into each event by {@link EventEncoder}.
+ * A new envelope is built only when the config instance or install ID changes.
+ *
+ * <p>Encoded events start with {@code {"timestamp":N,} followed by these members (from
+ * {@code "projectId"} to the {@code "device"} object). The static helpers find, strip and restore
+ * them, so the queue can store events without their envelope and {@link BatchEncoder} can send
+ * it once per batch.</p>
+ */
+public final class EventEnvelope {
+
+    @NonNull final FoxTelemetryConfig config;
+    @Nullable final String installId;
+    @NonNull final byte[] members;
+
+    private static final byte[] TIMESTAMP_PREFIX = "{\"timestamp\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FIRST_KEY = "\"projectId\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_KEY = "\"device\":".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_MEMBERS = 16;
+
+    private EventEnvelope(FoxTelemetryConfig config, String installId, byte[] members) {
+        this.config = config;
+        this.installId = installId;
+        this.members = members;
+    }
+
+    @NonNull
+    public static EventEnvelope create(@NonNull FoxTelemetryConfig cfg, @Nullable String installId, @NonNull DeviceInfo device) {
+        // Encode as a throwaway object and strip the braces to keep only the members.
+        Utf8JsonWriter w = new Utf8JsonWriter(256);
+        w.beginObject();
+        w.name("projectId").value(cfg.projectId);
+        w.name("appId").value(cfg.appId);
+        w.name("packageName").value(cfg.packageName);
+        if (installId != null) w.name("installId").value(installId);
+        if (cfg.environment != null) w.name("environment").value(cfg.environment);
+        if (cfg.userId != null) w.name("userId").value(cfg.userId);
+
+        w.name("device").beginObject();
+        if (device.brand != null) w.name("brand").value(device.brand);
+        if (device.model != null) w.name("model").value(device.model);
+        w.name("sdkInt").value(device.sdkInt);
+        if (device.release != null) w.name("release").value(device.release);
+        w.endObject();
+        w.endObject();
+
+        byte[] obj = w.toByteArray();
+        byte[] members = new byte[obj.length - 2];
+        System.arraycopy(obj, 1, members, 0, members.length);
+        return new EventEnvelope(cfg, installId, members);
+    }
+
+    /** True if this envelope was built for exactly this config instance and install ID. */
+    public boolean isFor(@NonNull FoxTelemetryConfig cfg, @Nullable String installId) {
+        return config == cfg && (this.installId == null ? installId == null : this.installId.equals(installId));
+    }
+
+    /**
+     * Offset just past the digits of a leading {@code {"timestamp":N}, or -1 if the event does not
+     * start that way.
+     */
+    static int timestampEnd(@NonNull byte[] event) {
+        if (!startsWith(event, 0, TIMESTAMP_PREFIX)) return -1;
+        int i = TIMESTAMP_PREFIX.length;
+        if (i < event.length && event[i] == '-') i++;
+        int digits = i;
+        while (i < event.length && event[i] >= '0' && event[i] <= '9') i++;
+        return i == digits || i - digits > 18 ? -1 : i;
+    }
+
+    /** The leading timestamp; only valid if {@link #timestampEnd} found one. */
+    static long timestamp(@NonNull byte[] event, int end) {
+        int i = TIMESTAMP_PREFIX.length;
+        boolean negative = event[i] == '-';
+        if (negative) i++;
+        long v = 0;
+        for (; i < end; i++) v = v * 10 + (event[i] - '0');
+        return negative ? -v : v;
+    }
+
+    /**
+     * Where the envelope members sit in an encoded event: {@code (start << 32) | end}, with the
+     * member after them starting at {@code end + 1}; -1 if the event has no recognizable envelope
+     * (legacy rows, or events written by something else).
+     */
+    static long find(@NonNull byte[] event) {
+        int ts = timestampEnd(event);
+        if (ts < 0 || ts + 1 >= event.length || event[ts] != ',') return -1;
+        int start = ts + 1;
+        if (!startsWith(event, start, FIRST_KEY)) return -1;
+        int i = start;
+        for (int n = 0; n < MAX_MEMBERS; n++) {
+            boolean last = startsWith(event, i, LAST_KEY);
+            int next = skipMember(event, i, event.length);
+            if (next < 0 || next >= event.length || event[next] != ',') return -1;
+            if (last) return ((long) start << 32) | next;
+            i = next + 1;
+        }
+        return -1;
+    }
+
+    /** The event without the members at {@code range} (from {@link #find}) and their trailing comma. */
+    @NonNull
+    static byte[] strip(@NonNull byte[] event, long range) {
+        int start = (int) (range >>> 32);
+        int end = (int) range + 1;
+        byte[] out = new byte[event.length - (end - start)];
+        System.arraycopy(event, 0, out, 0, start);
+        System.arraycopy(event, end, out, start, event.length - end);
+        return out;
+    }
+
+    /** Inverse of {@link #strip}: puts {@code members} back after the timestamp. */
+    @NonNull
+    static byte[] restore(@NonNull byte[] stripped, @NonNull byte[] members) {
+        int ts = timestampEnd(stripped);
+        if (ts < 0 || ts >= stripped.length || stripped[ts] != ',') return stripped;
+        int at = ts + 1;
+        byte[] out = new byte[stripped.length + members.length + 1];
+        System.arraycopy(stripped, 0, out, 0, at);
+        System.arraycopy(members, 0, out, at, members.length);
+        out[at + members.length] = ',';
+        System.arraycopy(stripped, at, out, at + members.length + 1, stripped.length - at);
+        return out;
+    }
+
+    /** Skips one {@code "key":value} member starting at its opening quote; returns the offset after it, or -1. */
+    static int skipMember(@NonNull byte[] b, int pos, int end) {
+        int i = skipString(b, pos, end);
+        if (i < 0 || i >= end || b[i] != ':') return -1;
+        return skipValue(b, i + 1, end);
+    }
+
+    private static int skipValue(byte[] b, int pos, int end) {
+        if (pos >= end) return -1;
+        byte c = b[pos];
+        if (c == '"') return skipString(b, pos, end);
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (int i = pos; i < end; i++) {
+                byte x = b[i];
+                if (x == '"') {
+                    i = skipString(b, i, end);
+                    if (i < 0) return -1;
+                    i--;
+                } else if (x == '{' || x == '[') {
+                    depth++;
+                } else if ((x == '}' || x == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        int i = pos;
+        while (i < end && b[i] != ',' && b[i] != '}' && b[i] != ']') i++;
+        return i == pos ? -1 : i;
+    }
+
+    private static int skipString(byte[] b, int pos, int end) {
+        if (pos >= end || b[pos] != '"') return -1;
+        for (int i = pos + 1; i < end; i++) {
+            if (b[i] == '\\') i++;
+            else if (b[i] == '"') return i + 1;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] b, int at, byte[] prefix) {
+        if (at + prefix.length > b.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[at + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
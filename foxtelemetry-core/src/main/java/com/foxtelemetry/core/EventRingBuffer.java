@@ -0,0 +1,75 @@
+package com.foxtelemetry.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer (Vyukov-style sequenced slots). Safe for any number of
+ * producers and consumers; producers never take a lock or allocate on the hot path.
+ */
+final class EventRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    EventRingBuffer(int capacity) {
+        int cap = 2;
+        while (cap < capacity && cap < (1 << 30)) cap <<= 1;
+        this.mask = cap - 1;
+        this.slots = new AtomicReferenceArray<>(cap);
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) sequences.set(i, i);
+    }
+
+    int capacity() { return mask + 1; }
+
+    /** Returns false when the buffer is full. */
+    boolean offer(E e) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(idx, e);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            pos = tail.get();
+        }
+    }
+
+    /** Returns null when the buffer is empty. */
+    E poll() {
+        long pos = head.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = slots.get(idx);
+                    slots.lazySet(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return e;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+            pos = head.get();
+        }
+    }
+
+    int size() {
+        long n = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(n, capacity()));
+    }
+
+    boolean isEmpty() { return size() == 0; }
+}
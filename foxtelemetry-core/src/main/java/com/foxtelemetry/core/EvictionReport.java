@@ -0,0 +1,29 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/** Events the queue discarded to stay within its limits, since the previous report. */
+public final class EvictionReport {
+    public final long sinceMillis;
+    public final long untilMillis;
+    /** Evicted events indexed by priority ({@link Priority#DEBUG} .. {@link Priority#CRASH}). */
+    @NonNull public final long[] byPriority;
+    /** Evicted because they exceeded {@link FoxTelemetryConfig#maxEventAgeMs}. */
+    public final long expired;
+    /** Evicted to get back under {@link FoxTelemetryConfig#maxQueueEvents} / {@link FoxTelemetryConfig#maxQueueBytes}. */
+    public final long overCapacity;
+    public final long bytes;
+
+    EvictionReport(long sinceMillis, long untilMillis, long[] byPriority, long expired, long overCapacity, long bytes) {
+        this.sinceMillis = sinceMillis;
+        this.untilMillis = untilMillis;
+        this.byPriority = byPriority;
+        this.expired = expired;
+        this.overCapacity = overCapacity;
+        this.bytes = bytes;
+    }
+
+    public long total() {
+        return expired + overCapacity;
+    }
+}
@@ -0,0 +1,208 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Coalesces flush triggers in process, so queueing an event costs a couple of atomic adds
+ * instead of a WorkManager round trip. A regular flush is handed to the {@link Target} when the
+ * events or payload bytes queued since the last hand-off reach the configured thresholds, when
+ * the first of them has waited {@link FoxTelemetryConfig#flushMaxLatencyMs}, or when the app's UI
+ * goes to the background ({@link #onBackground}, called by the platform adapter).
+ *
+ * <p>Urgent (crash and error) flushes are requested at most once until the urgent run reports
+ * that it started with {@link #onUrgentFlushStarted()} or ended with
+ * {@link #onUrgentFlushFinished()}.</p>
+ */
+public final class FlushScheduler {
+
+    /** Where flushes are handed off to; WorkManager in the SDK. */
+    public interface Target {
+        void flush();
+
+        /** Flush of the crash and error lanes only. */
+        void flushUrgent();
+
+        /** Events already stored in the queue. Only called from the timer thread. */
+        long storedEvents();
+    }
+
+    // Hand-off reasons, indexes into handOffs.
+    static final int REASON_EVENTS = 0;
+    static final int REASON_BYTES = 1;
+    static final int REASON_LATENCY = 2;
+    static final int REASON_BACKGROUND = 3;
+    static final int REASON_STARTUP = 4;
+
+    private static final long TIMER_KEEP_ALIVE_MS = 10_000;
+
+    private final Target target;
+    private final int eventThreshold;
+    private final long bytesThreshold;
+    private final long maxLatencyMs;
+    private final boolean flushOnBackground;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    // Bumped before every hand-off; a latency timer armed in an earlier generation is stale.
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean urgentRequested = new AtomicBoolean();
+    private final AtomicLongArray handOffs = new AtomicLongArray(REASON_STARTUP + 1);
+    private final AtomicLong urgentHandOffs = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public FlushScheduler(@NonNull FoxTelemetryConfig cfg, @NonNull Target target) {
+        this.target = target;
+        this.eventThreshold = cfg.flushEventThreshold;
+        this.bytesThreshold = cfg.flushBytesThreshold;
+        this.maxLatencyMs = cfg.flushMaxLatencyMs;
+        this.flushOnBackground = cfg.flushOnBackground;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                Thread t = new Thread(r, "FoxTelemetry-flush-timer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        // The thread only lives while a timer is armed.
+        timer.setKeepAliveTime(TIMER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /** Called for every event accepted by the queue. Never blocks. */
+    public void onEnqueued(int payloadBytes, boolean urgent) {
+        boolean handedOff = false;
+        if (urgent && urgentRequested.compareAndSet(false, true)) {
+            urgentHandOffs.incrementAndGet();
+            target.flushUrgent();
+            handedOff = true;
+        }
+
+        // Only the event that crosses a threshold hands off; later ones racing with its reset
+        // would otherwise see a stale count and hand off again.
+        int events = pendingEvents.incrementAndGet();
+        long bytes = pendingBytes.addAndGet(payloadBytes);
+        if (events == eventThreshold) {
+            handedOff |= handOff(REASON_EVENTS, -1);
+        } else if (bytes >= bytesThreshold && bytes - payloadBytes < bytesThreshold) {
+            handedOff |= handOff(REASON_BYTES, -1);
+        } else if (events == 1) {
+            armLatencyTimer();
+        }
+        if (!handedOff) coalesced.incrementAndGet();
+    }
+
+    /** The urgent run has started; crashes and errors queued from now on request another one. */
+    public void onUrgentFlushStarted() {
+        urgentRequested.set(false);
+    }
+
+    /**
+     * The urgent run has ended. A request made while it ran may not have queued a run of its
+     * own, so the next crash or error requests one.
+     */
+    public void onUrgentFlushFinished() {
+        urgentRequested.set(false);
+    }
+
+    /** Checks the stored backlog off the calling thread and flushes it if there is any. */
+    public void onStartup() {
+        timer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingEvents.get() > 0 || target.storedEvents() > 0) handOff(REASON_STARTUP, -1);
+            }
+        });
+    }
+
+    /** The app's UI went to the background; flushes what is pending unless that is turned off. */
+    public void onBackground() {
+        if (flushOnBackground && pendingEvents.get() > 0) handOff(REASON_BACKGROUND, -1);
+    }
+
+    @NonNull
+    public Stats stats() {
+        return new Stats(pendingEvents.get(), pendingBytes.get(), handOffs.get(REASON_EVENTS),
+                handOffs.get(REASON_BYTES), handOffs.get(REASON_LATENCY), handOffs.get(REASON_BACKGROUND),
+                handOffs.get(REASON_STARTUP), urgentHandOffs.get(), coalesced.get());
+    }
+
+    private void armLatencyTimer() {
+        final long armedIn = generation.get();
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                handOff(REASON_LATENCY, armedIn);
+            }
+        }, maxLatencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    // expectedGeneration < 0: unconditional; otherwise only if no hand-off happened since.
+    private boolean handOff(int reason, long expectedGeneration) {
+        if (expectedGeneration >= 0) {
+            if (!generation.compareAndSet(expectedGeneration, expectedGeneration + 1)) return false;
+        } else {
+            generation.incrementAndGet();
+        }
+        // Whoever resets a non-zero count owns the hand-off; racing threshold crossings collapse.
+        if (pendingEvents.getAndSet(0) == 0 && reason != REASON_STARTUP) return false;
+        pendingBytes.set(0);
+        handOffs.incrementAndGet(reason);
+        target.flush();
+        return true;
+    }
+
+    /** Snapshot of the scheduler, exposed through {@code FoxTelemetry.getFlushSchedulerStats()}. */
+    public static final class Stats {
+        /** Events and payload bytes queued since the last hand-off. */
+        public final int pendingEvents;
+        public final long pendingBytes;
+        /** Regular flushes handed off, by what triggered them. */
+        public final long byEventThreshold;
+        public final long byBytesThreshold;
+        public final long byMaxLatency;
+        public final long byBackground;
+        public final long byStartup;
+        /** Urgent (crash and error) flushes handed off. */
+        public final long urgent;
+        /** Events that did not cause a hand-off of their own. */
+        public final long coalesced;
+
+        Stats(int pendingEvents, long pendingBytes, long byEventThreshold, long byBytesThreshold,
+              long byMaxLatency, long byBackground, long byStartup, long urgent, long coalesced) {
+            this.pendingEvents = pendingEvents;
+            this.pendingBytes = pendingBytes;
+            this.byEventThreshold = byEventThreshold;
+            this.byBytesThreshold = byBytesThreshold;
+            this.byMaxLatency = byMaxLatency;
+            this.byBackground = byBackground;
+            this.byStartup = byStartup;
+            this.urgent = urgent;
+            this.coalesced = coalesced;
+        }
+
+        /** All hand-offs, regular and urgent. */
+        public long handOffs() {
+            return byEventThreshold + byBytesThreshold + byMaxLatency + byBackground + byStartup + urgent;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "FlushScheduler.Stats{pendingEvents=" + pendingEvents + ", pendingBytes=" + pendingBytes
+                    + ", byEventThreshold=" + byEventThreshold + ", byBytesThreshold=" + byBytesThreshold
+                    + ", byMaxLatency=" + byMaxLatency + ", byBackground=" + byBackground
+                    + ", byStartup=" + byStartup + ", urgent=" + urgent + ", coalesced=" + coalesced + "}";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/** Outcome of the most recent flush run, exposed through {@code FoxTelemetry.getLastFlushStats()}. */
+public final class FlushStats {
+
+    public static final FlushStats NONE = new FlushStats(0, 0, 0, 0, 0, 0, false, 0L);
+
+    /** Events accepted by the server during the run. */
+    public final int eventsSent;
+    /** Stored payload bytes of the accepted events (before framing/compression). */
+    public final long bytesSent;
+    /** Upload requests made, including rejected or failed ones. */
+    public final int requests;
+    /** Events the server rejected (individually, or alone as too large) and that were dead-lettered. */
+    public final int eventsDropped;
+    public final long durationMs;
+    /** Last HTTP status seen, or 0 if no request completed. */
+    public final int lastHttpStatus;
+    /** True if the run stopped because the queue was empty. */
+    public final boolean drained;
+    /** Wall-clock time the run finished, 0 if there has been no run yet. */
+    public final long finishedAtMillis;
+
+    public FlushStats(int eventsSent, long bytesSent, int requests, int eventsDropped, long durationMs,
+                      int lastHttpStatus, boolean drained, long finishedAtMillis) {
+        this.eventsSent = eventsSent;
+        this.bytesSent = bytesSent;
+        this.requests = requests;
+        this.eventsDropped = eventsDropped;
+        this.durationMs = durationMs;
+        this.lastHttpStatus = lastHttpStatus;
+        this.drained = drained;
+        this.finishedAtMillis = finishedAtMillis;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "FlushStats{eventsSent=" + eventsSent + ", bytesSent=" + bytesSent + ", requests=" + requests
+                + ", eventsDropped=" + eventsDropped + ", durationMs=" + durationMs
+                + ", lastHttpStatus=" + lastHttpStatus + ", drained=" + drained + "}";
+    }
+}
@@ -0,0 +1,413 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class FoxTelemetryConfig {
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+    public static final long DEFAULT_OVERFLOW_TIMEOUT_MS = 50;
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD_BYTES = 1024;
+    public static final long DEFAULT_ERROR_AGGREGATION_WINDOW_MS = 60_000;
+    public static final int DEFAULT_ERROR_AGGREGATION_MAX_ENTRIES = 128;
+    public static final long DEFAULT_LOG_REPORT_INTERVAL_MS = 60_000;
+    public static final int DEFAULT_MAX_QUEUE_EVENTS = 10_000;
+    public static final long DEFAULT_MAX_QUEUE_BYTES = 8L * 1024 * 1024;
+    public static final long DEFAULT_MAX_EVENT_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    public static final int DEFAULT_FLUSH_EVENT_THRESHOLD = 200;
+    public static final long DEFAULT_FLUSH_BYTES_THRESHOLD = 256L * 1024;
+    public static final long DEFAULT_FLUSH_MAX_LATENCY_MS = 5L * 60 * 1000;
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 2;
+    public static final int DEFAULT_UPLOAD_TIMEOUT_MS = 8_000;
+    public static final long DEFAULT_RETRY_BASE_DELAY_MS = 30_000;
+    public static final long DEFAULT_RETRY_MAX_DELAY_MS = 60L * 60 * 1000;
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURES = 5;
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MS = 30L * 60 * 1000;
+    public static final long DEFAULT_SDK_STATS_INTERVAL_MS = 0;
+    public static final int DEFAULT_BREADCRUMB_CAPACITY = 0;
+    public static final long DEFAULT_METRICS_INTERVAL_MS = 60_000;
+    public static final double DEFAULT_TRACE_SAMPLE_RATE = 0.1;
+    public static final int MAX_BREADCRUMB_CAPACITY = 1000;
+
+    @NonNull public final String projectId;
+    @NonNull public final String appId;
+    @NonNull public final String packageName;
+    @NonNull public final String endpoint;
+    @NonNull public final String ingestKey;
+    @Nullable public final String environment;
+    @Nullable public final String userId;
+
+    public final boolean enableCrashCapture;
+    public final int maxStackFrames;
+
+    /** Capacity of the in-memory buffer in front of the SQLite queue (rounded up to a power of two). */
+    public final int bufferCapacity;
+    @NonNull public final OverflowPolicy overflowPolicy;
+    /** Only used by {@link OverflowPolicy#BLOCK}. */
+    public final long overflowTimeoutMs;
+
+    /** Upload encoding; {@link WireFormat#AUTO} negotiates CBOR and falls back to JSON. */
+    @NonNull public final WireFormat wireFormat;
+    /**
+     * CBOR batches number repeated strings and send later copies as references (stringref tags
+     * 256/25), and leave out an error's {@code stacktrace} text when it has frames. The ingest
+     * side must understand stringref; JSON batches are unaffected.
+     */
+    public final boolean cborStringRefs;
+    /**
+     * Batches send the event envelope (install, environment, user, device...) once, with
+     * per-event overrides where it changed, and timestamps as offsets from a batch base. The
+     * ingest side must understand this layout; see {@link BatchEncoder}.
+     */
+    public final boolean batchEnvelope;
+    /** gzip level for upload bodies, 1 (fastest) to 9 (smallest); 0 disables compression. */
+    public final int compressionLevel;
+    /** Batches whose stored payloads total fewer bytes than this are sent uncompressed. */
+    public final int compressionThresholdBytes;
+
+    /** Repeats of the same error within this window are counted, not reported; 0 disables. */
+    public final long errorAggregationWindowMs;
+    /** Max distinct error fingerprints tracked at once (LRU). */
+    public final int errorAggregationMaxEntries;
+
+    /** Log calls below this level are not recorded. */
+    @NonNull public final LogLevel minLogLevel;
+    /** Per-tag minimum levels; a tag listed here ignores {@link #minLogLevel}. */
+    @NonNull public final Map<String, LogLevel> tagMinLevels;
+    /** Fraction (0..1) of log calls kept per level; levels not listed keep everything. */
+    @NonNull public final Map<LogLevel, Double> logSampleRates;
+    /** Consecutive identical messages on a tag become one "repeated N times" event. */
+    public final boolean collapseRepeatedLogs;
+    /** Sustained log events per second allowed per tag; 0 disables rate limiting. */
+    public final double logRateLimitPerSecond;
+    /** Events a tag may emit in a burst above the rate; 0 means one second's worth. */
+    public final int logBurst;
+    /** How often counts of filtered log calls are uploaded. */
+    public final long logReportIntervalMs;
+
+    /** Most events kept in the SQLite queue; lowest-priority, oldest events are evicted first. */
+    public final int maxQueueEvents;
+    /** Most payload bytes kept in the SQLite queue. */
+    public final long maxQueueBytes;
+    /** Events below ERROR priority older than this are evicted; 0 keeps them indefinitely. */
+    public final long maxEventAgeMs;
+
+    /** The regular (log backlog) flush waits for an unmetered network; crashes and errors never do. */
+    public final boolean logUploadRequiresUnmetered;
+
+    /** A flush is scheduled once this many events were queued since the last one. */
+    public final int flushEventThreshold;
+    /** ...or once this many payload bytes were queued. */
+    public final long flushBytesThreshold;
+    /** ...or at the latest this long after the first event queued since the last one. */
+    public final long flushMaxLatencyMs;
+    /** Schedule a flush for queued events when the app's UI goes to the background. */
+    public final boolean flushOnBackground;
+
+    /** Batches of one lane uploaded at the same time while draining a backlog. */
+    public final int uploadConcurrency;
+    /** Connect and read timeout of each upload request. */
+    public final int uploadTimeoutMs;
+    /** Upper bound of the randomized delay after the first failed flush; it doubles with each further failure... */
+    public final long retryBaseDelayMs;
+    /** ...up to this, which also caps how long a {@code Retry-After} answer is honoured. */
+    public final long retryMaxDelayMs;
+    /** Consecutive failed flushes that pause uploads (open the circuit breaker); 0 never pauses them. */
+    public final int circuitBreakerFailures;
+    /** How long uploads stay paused before a single probe batch is sent. */
+    public final long circuitBreakerOpenMs;
+    /** How often an {@code sdk_stats} event with the SDK's own metrics is queued; 0 never does. */
+    public final long sdkStatsIntervalMs;
+
+    /** Last log lines kept in memory and attached to error and crash events; 0 disables breadcrumbs. */
+    public final int breadcrumbCapacity;
+    /** With breadcrumbs on, log calls at or below this level are only kept as breadcrumbs, never queued. */
+    @NonNull public final LogLevel breadcrumbLevel;
+
+    /** How often a {@code metrics} event with the app's aggregated metrics is queued; 0 never does. */
+    public final long metricsIntervalMs;
+    /** Most distinct metric series (name + tags) kept in memory; later tag sets share an overflow series. */
+    public final int metricsMaxSeries;
+
+    /** Fraction (0..1) of traces recorded, decided when the root span starts; 0 disables tracing. */
+    public final double traceSampleRate;
+
+    public FoxTelemetryConfig(
+            @NonNull String projectId,
+            @NonNull String appId,
+            @NonNull String packageName,
+            @NonNull String endpoint,
+            @NonNull String ingestKey,
+            @Nullable String environment,
+            @Nullable String userId,
+            boolean enableCrashCapture,
+            int maxStackFrames
+    ) {
+        this(new Builder(projectId, appId, packageName, endpoint, ingestKey)
+                .setEnvironment(environment)
+                .setUserId(userId)
+                .setEnableCrashCapture(enableCrashCapture)
+                .setMaxStackFrames(maxStackFrames));
+    }
+
+    private FoxTelemetryConfig(Builder b) {
+        if (b.projectId == null || b.projectId.trim().isEmpty()) throw new IllegalArgumentException("projectId required");
+        if (b.appId == null || b.appId.trim().isEmpty()) throw new IllegalArgumentException("appId required");
+        if (b.packageName == null || b.packageName.trim().isEmpty()) throw new IllegalArgumentException("packageName required");
+        if (b.endpoint == null || b.endpoint.trim().isEmpty()) throw new IllegalArgumentException("endpoint required");
+        if (b.ingestKey == null || b.ingestKey.trim().isEmpty()) throw new IllegalArgumentException("ingestKey required");
+        if (b.overflowPolicy == null) throw new IllegalArgumentException("overflowPolicy required");
+        if (b.wireFormat == null) throw new IllegalArgumentException("wireFormat required");
+        if (b.minLogLevel == null) throw new IllegalArgumentException("minLogLevel required");
+        if (b.breadcrumbLevel == null) throw new IllegalArgumentException("breadcrumbLevel required");
+
+        this.projectId = b.projectId;
+        this.appId = b.appId;
+        this.packageName = b.packageName;
+        this.endpoint = b.endpoint;
+        this.ingestKey = b.ingestKey;
+        this.environment = b.environment;
+        this.userId = b.userId;
+        this.enableCrashCapture = b.enableCrashCapture;
+        this.maxStackFrames = Math.max(1, b.maxStackFrames);
+        this.bufferCapacity = Math.max(2, b.bufferCapacity);
+        this.overflowPolicy = b.overflowPolicy;
+        this.overflowTimeoutMs = Math.max(0, b.overflowTimeoutMs);
+        this.wireFormat = b.wireFormat;
+        this.cborStringRefs = b.cborStringRefs;
+        this.batchEnvelope = b.batchEnvelope;
+        this.compressionLevel = Math.max(0, Math.min(9, b.compressionLevel));
+        this.compressionThresholdBytes = Math.max(0, b.compressionThresholdBytes);
+        this.errorAggregationWindowMs = Math.max(0, b.errorAggregationWindowMs);
+        this.errorAggregationMaxEntries = Math.max(1, b.errorAggregationMaxEntries);
+        this.minLogLevel = b.minLogLevel;
+        this.tagMinLevels = Collections.unmodifiableMap(new HashMap<>(b.tagMinLevels));
+        this.logSampleRates = Collections.unmodifiableMap(new EnumMap<>(b.logSampleRates));
+        this.collapseRepeatedLogs = b.collapseRepeatedLogs;
+        this.logRateLimitPerSecond = Math.max(0, b.logRateLimitPerSecond);
+        this.logBurst = Math.max(0, b.logBurst);
+        this.logReportIntervalMs = Math.max(1_000, b.logReportIntervalMs);
+        this.maxQueueEvents = Math.max(1, b.maxQueueEvents);
+        this.maxQueueBytes = Math.max(1024, b.maxQueueBytes);
+        this.maxEventAgeMs = Math.max(0, b.maxEventAgeMs);
+        this.logUploadRequiresUnmetered = b.logUploadRequiresUnmetered;
+        this.flushEventThreshold = Math.max(1, b.flushEventThreshold);
+        this.flushBytesThreshold = Math.max(1024, b.flushBytesThreshold);
+        this.flushMaxLatencyMs = Math.max(1_000, b.flushMaxLatencyMs);
+        this.flushOnBackground = b.flushOnBackground;
+        this.uploadConcurrency = Math.max(1, Math.min(8, b.uploadConcurrency));
+        this.uploadTimeoutMs = Math.max(1_000, b.uploadTimeoutMs);
+        this.retryBaseDelayMs = Math.max(1_000, b.retryBaseDelayMs);
+        this.retryMaxDelayMs = Math.max(retryBaseDelayMs, b.retryMaxDelayMs);
+        this.circuitBreakerFailures = Math.max(0, b.circuitBreakerFailures);
+        this.circuitBreakerOpenMs = Math.max(1_000, b.circuitBreakerOpenMs);
+        this.sdkStatsIntervalMs = b.sdkStatsIntervalMs <= 0 ? 0 : Math.max(60_000, b.sdkStatsIntervalMs);
+        this.breadcrumbCapacity = Math.max(0, Math.min(MAX_BREADCRUMB_CAPACITY, b.breadcrumbCapacity));
+        this.breadcrumbLevel = b.breadcrumbLevel;
+        this.metricsIntervalMs = b.metricsIntervalMs <= 0 ? 0 : Math.max(10_000, b.metricsIntervalMs);
+        this.metricsMaxSeries = Math.max(1, Math.min(10_000, b.metricsMaxSeries));
+        this.traceSampleRate = Double.isNaN(b.traceSampleRate) ? 0 : Math.max(0, Math.min(1, b.traceSampleRate));
+    }
+
+    public FoxTelemetryConfig withUserId(@Nullable String newUserId) {
+        return toBuilder().setUserId(newUserId).build();
+    }
+
+    @NonNull
+    public Builder toBuilder() {
+        return new Builder(projectId, appId, packageName, endpoint, ingestKey)
+                .setEnvironment(environment)
+                .setUserId(userId)
+                .setEnableCrashCapture(enableCrashCapture)
+                .setMaxStackFrames(maxStackFrames)
+                .setBufferCapacity(bufferCapacity)
+                .setOverflowPolicy(overflowPolicy)
+                .setOverflowTimeoutMs(overflowTimeoutMs)
+                .setWireFormat(wireFormat)
+                .setCborStringRefs(cborStringRefs)
+                .setBatchEnvelope(batchEnvelope)
+                .setCompressionLevel(compressionLevel)
+                .setCompressionThresholdBytes(compressionThresholdBytes)
+                .setErrorAggregationWindowMs(errorAggregationWindowMs)
+                .setErrorAggregationMaxEntries(errorAggregationMaxEntries)
+                .setMinLogLevel(minLogLevel)
+                .setTagMinLevels(tagMinLevels)
+                .setLogSampleRates(logSampleRates)
+                .setCollapseRepeatedLogs(collapseRepeatedLogs)
+                .setLogRateLimit(logRateLimitPerSecond, logBurst)
+                .setLogReportIntervalMs(logReportIntervalMs)
+                .setMaxQueueEvents(maxQueueEvents)
+                .setMaxQueueBytes(maxQueueBytes)
+                .setMaxEventAgeMs(maxEventAgeMs)
+                .setLogUploadRequiresUnmetered(logUploadRequiresUnmetered)
+                .setFlushThresholds(flushEventThreshold, flushBytesThreshold)
+                .setFlushMaxLatencyMs(flushMaxLatencyMs)
+                .setFlushOnBackground(flushOnBackground)
+                .setUploadConcurrency(uploadConcurrency)
+                .setUploadTimeoutMs(uploadTimeoutMs)
+                .setRetryDelays(retryBaseDelayMs, retryMaxDelayMs)
+                .setCircuitBreaker(circuitBreakerFailures, circuitBreakerOpenMs)
+                .setSdkStatsIntervalMs(sdkStatsIntervalMs)
+                .setBreadcrumbs(breadcrumbCapacity, breadcrumbLevel)
+                .setMetricsIntervalMs(metricsIntervalMs)
+                .setMetricsMaxSeries(metricsMaxSeries)
+                .setTraceSampleRate(traceSampleRate);
+    }
+
+    public static final class Builder {
+        private final String projectId;
+        private final String appId;
+        private final String packageName;
+        private final String endpoint;
+        private final String ingestKey;
+        private String environment;
+        private String userId;
+        private boolean enableCrashCapture = true;
+        private int maxStackFrames = 80;
+        private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private long overflowTimeoutMs = DEFAULT_OVERFLOW_TIMEOUT_MS;
+        private WireFormat wireFormat = WireFormat.AUTO;
+        private boolean cborStringRefs;
+        private boolean batchEnvelope;
+        private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        private int compressionThresholdBytes = DEFAULT_COMPRESSION_THRESHOLD_BYTES;
+        private long errorAggregationWindowMs = DEFAULT_ERROR_AGGREGATION_WINDOW_MS;
+        private int errorAggregationMaxEntries = DEFAULT_ERROR_AGGREGATION_MAX_ENTRIES;
+        private LogLevel minLogLevel = LogLevel.DEBUG;
+        private final Map<String, LogLevel> tagMinLevels = new HashMap<>();
+        private final EnumMap<LogLevel, Double> logSampleRates = new EnumMap<>(LogLevel.class);
+        private boolean collapseRepeatedLogs = true;
+        private double logRateLimitPerSecond;
+        private int logBurst;
+        private long logReportIntervalMs = DEFAULT_LOG_REPORT_INTERVAL_MS;
+        private int maxQueueEvents = DEFAULT_MAX_QUEUE_EVENTS;
+        private long maxQueueBytes = DEFAULT_MAX_QUEUE_BYTES;
+        private long maxEventAgeMs = DEFAULT_MAX_EVENT_AGE_MS;
+        private boolean logUploadRequiresUnmetered;
+        private int flushEventThreshold = DEFAULT_FLUSH_EVENT_THRESHOLD;
+        private long flushBytesThreshold = DEFAULT_FLUSH_BYTES_THRESHOLD;
+        private long flushMaxLatencyMs = DEFAULT_FLUSH_MAX_LATENCY_MS;
+        private boolean flushOnBackground = true;
+        private int uploadConcurrency = DEFAULT_UPLOAD_CONCURRENCY;
+        private int uploadTimeoutMs = DEFAULT_UPLOAD_TIMEOUT_MS;
+        private long retryBaseDelayMs = DEFAULT_RETRY_BASE_DELAY_MS;
+        private long retryMaxDelayMs = DEFAULT_RETRY_MAX_DELAY_MS;
+        private int circuitBreakerFailures = DEFAULT_CIRCUIT_BREAKER_FAILURES;
+        private long circuitBreakerOpenMs = DEFAULT_CIRCUIT_BREAKER_OPEN_MS;
+        private long sdkStatsIntervalMs = DEFAULT_SDK_STATS_INTERVAL_MS;
+        private int breadcrumbCapacity = DEFAULT_BREADCRUMB_CAPACITY;
+        private LogLevel breadcrumbLevel = LogLevel.INFO;
+        private long metricsIntervalMs = DEFAULT_METRICS_INTERVAL_MS;
+        private int metricsMaxSeries = MetricRegistry.DEFAULT_MAX_SERIES;
+        private double traceSampleRate = DEFAULT_TRACE_SAMPLE_RATE;
+
+        public Builder(
+                @NonNull String projectId,
+                @NonNull String appId,
+                @NonNull String packageName,
+                @NonNull String endpoint,
+                @NonNull String ingestKey
+        ) {
+            this.projectId = projectId;
+            this.appId = appId;
+            this.packageName = packageName;
+            this.endpoint = endpoint;
+            this.ingestKey = ingestKey;
+        }
+
+        public Builder setEnvironment(@Nullable String environment) { this.environment = environment; return this; }
+        public Builder setUserId(@Nullable String userId) { this.userId = userId; return this; }
+        public Builder setEnableCrashCapture(boolean enable) { this.enableCrashCapture = enable; return this; }
+        public Builder setMaxStackFrames(int maxStackFrames) { this.maxStackFrames = maxStackFrames; return this; }
+        public Builder setBufferCapacity(int capacity) { this.bufferCapacity = capacity; return this; }
+        public Builder setOverflowPolicy(@NonNull OverflowPolicy policy) { this.overflowPolicy = policy; return this; }
+        public Builder setOverflowTimeoutMs(long timeoutMs) { this.overflowTimeoutMs = timeoutMs; return this; }
+        public Builder setWireFormat(@NonNull WireFormat format) { this.wireFormat = format; return this; }
+        public Builder setCborStringRefs(boolean enabled) { this.cborStringRefs = enabled; return this; }
+        public Builder setBatchEnvelope(boolean enabled) { this.batchEnvelope = enabled; return this; }
+        public Builder setCompressionLevel(int level) { this.compressionLevel = level; return this; }
+        public Builder setCompressionThresholdBytes(int bytes) { this.compressionThresholdBytes = bytes; return this; }
+        public Builder setErrorAggregationWindowMs(long windowMs) { this.errorAggregationWindowMs = windowMs; return this; }
+        public Builder setErrorAggregationMaxEntries(int maxEntries) { this.errorAggregationMaxEntries = maxEntries; return this; }
+        public Builder setMinLogLevel(@NonNull LogLevel level) { this.minLogLevel = level; return this; }
+        public Builder setTagMinLevel(@NonNull String tag, @NonNull LogLevel level) { this.tagMinLevels.put(tag, level); return this; }
+        public Builder setCollapseRepeatedLogs(boolean collapse) { this.collapseRepeatedLogs = collapse; return this; }
+        public Builder setLogReportIntervalMs(long intervalMs) { this.logReportIntervalMs = intervalMs; return this; }
+        public Builder setMaxQueueEvents(int maxEvents) { this.maxQueueEvents = maxEvents; return this; }
+        public Builder setMaxQueueBytes(long maxBytes) { this.maxQueueBytes = maxBytes; return this; }
+        public Builder setMaxEventAgeMs(long maxAgeMs) { this.maxEventAgeMs = maxAgeMs; return this; }
+        public Builder setLogUploadRequiresUnmetered(boolean unmetered) { this.logUploadRequiresUnmetered = unmetered; return this; }
+        public Builder setFlushMaxLatencyMs(long maxLatencyMs) { this.flushMaxLatencyMs = maxLatencyMs; return this; }
+        public Builder setFlushOnBackground(boolean onBackground) { this.flushOnBackground = onBackground; return this; }
+        public Builder setUploadConcurrency(int concurrency) { this.uploadConcurrency = concurrency; return this; }
+        public Builder setUploadTimeoutMs(int timeoutMs) { this.uploadTimeoutMs = timeoutMs; return this; }
+        public Builder setSdkStatsIntervalMs(long intervalMs) { this.sdkStatsIntervalMs = intervalMs; return this; }
+        public Builder setMetricsIntervalMs(long intervalMs) { this.metricsIntervalMs = intervalMs; return this; }
+        public Builder setMetricsMaxSeries(int maxSeries) { this.metricsMaxSeries = maxSeries; return this; }
+        public Builder setTraceSampleRate(double rate) { this.traceSampleRate = rate; return this; }
+
+        /** Keeps the last {@code capacity} log lines as breadcrumbs; calls up to {@code level} are not queued. */
+        public Builder setBreadcrumbs(int capacity, @NonNull LogLevel level) {
+            this.breadcrumbCapacity = capacity;
+            this.breadcrumbLevel = level;
+            return this;
+        }
+
+        /** Backoff after failed flushes: randomized up to {@code baseMs}, doubling per failure up to {@code maxMs}. */
+        public Builder setRetryDelays(long baseMs, long maxMs) {
+            this.retryBaseDelayMs = baseMs;
+            this.retryMaxDelayMs = maxMs;
+            return this;
+        }
+
+        /** Pauses uploads for {@code openMs} after {@code failures} consecutive failed flushes; 0 failures disables it. */
+        public Builder setCircuitBreaker(int failures, long openMs) {
+            this.circuitBreakerFailures = failures;
+            this.circuitBreakerOpenMs = openMs;
+            return this;
+        }
+
+        /** Queued events (or payload bytes) since the last flush that trigger the next one. */
+        public Builder setFlushThresholds(int events, long bytes) {
+            this.flushEventThreshold = events;
+            this.flushBytesThreshold = bytes;
+            return this;
+        }
+
+        public Builder setTagMinLevels(@NonNull Map<String, LogLevel> levels) {
+            this.tagMinLevels.clear();
+            this.tagMinLevels.putAll(levels);
+            return this;
+        }
+
+        /** Keeps {@code rate} (clamped to 0..1) of log calls at {@code level}, chosen at random. */
+        public Builder setLogSampleRate(@NonNull LogLevel level, double rate) {
+            this.logSampleRates.put(level, Math.max(0.0, Math.min(1.0, rate)));
+            return this;
+        }
+
+        public Builder setLogSampleRates(@NonNull Map<LogLevel, Double> rates) {
+            this.logSampleRates.clear();
+            for (Map.Entry<LogLevel, Double> e : rates.entrySet()) setLogSampleRate(e.getKey(), e.getValue());
+            return this;
+        }
+
+        /** Per-tag token bucket: {@code perSecond} sustained, up to {@code burst} at once. */
+        public Builder setLogRateLimit(double perSecond, int burst) {
+            this.logRateLimitPerSecond = perSecond;
+            this.logBurst = burst;
+            return this;
+        }
+
+        @NonNull
+        public FoxTelemetryConfig build() {
+            return new FoxTelemetryConfig(this);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streams a stored UTF-8 JSON payload into CBOR without building an object tree.
+ * Unescaped strings (the common case) are copied byte-for-byte; integers become CBOR ints.
+ * Objects and arrays are emitted as indefinite-length containers so no look-ahead is needed.
+ *
+ * <p>Optionally, text goes through a {@link CborStringTable} so repeats become references, and
+ * a {@code "stacktrace"} member is left out of objects that also have a non-empty
+ * {@code "frames"} array (the printed trace repeats what the frames already say). If there are
+ * no frames, the stacktrace is written at the end of its object instead.</p>
+ */
+final class JsonCborTranscoder {
+
+    private static final int MAX_DEPTH = 64;
+    private static final byte[] STACKTRACE = "stacktrace".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FRAMES = "frames".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] in;
+    private int pos;
+    private int end;
+    private CborWriter out;
+    private byte[] scratch = new byte[256];
+    private CborStringTable strings;
+    private boolean dropStackTraceText;
+
+    /** String table for the following calls (null writes every string in full). */
+    void setStringTable(CborStringTable table) {
+        this.strings = table;
+    }
+
+    void setDropStackTraceText(boolean drop) {
+        this.dropStackTraceText = drop;
+    }
+
+    /** Transcodes one complete JSON value. Throws {@link IOException} on malformed input. */
+    void transcode(@NonNull byte[] json, @NonNull CborWriter target) throws IOException {
+        transcode(json, json.length, target);
+    }
+
+    /** As {@link #transcode(byte[], CborWriter)} for the value in {@code json[0, length)}. */
+    void transcode(@NonNull byte[] json, int length, @NonNull CborWriter target) throws IOException {
+        this.in = json;
+        this.pos = 0;
+        this.end = length;
+        this.out = target;
+        try {
+            value(0);
+            skipWs();
+            if (pos != end) throw malformed();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw malformed();
+        } finally {
+            this.in = null;
+            this.out = null;
+        }
+    }
+
+    private void value(int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw malformed();
+        skipWs();
+        byte b = in[pos];
+        switch (b) {
+            case '{':
+                object(depth);
+                break;
+            case '[':
+                array(depth);
+                break;
+            case '"':
+                string();
+                break;
+            case 't':
+                literal("true");
+                out.writeBoolean(true);
+                break;
+            case 'f':
+                literal("false");
+                out.writeBoolean(false);
+                break;
+            case 'n':
+                literal("null");
+                out.writeNull();
+                break;
+            default:
+                number();
+        }
+    }
+
+    private void object(int depth) throws IOException {
+        pos++;
+        out.beginIndefiniteMap();
+        skipWs();
+        if (in[pos] == '}') {
+            pos++;
+            out.writeBreak();
+            return;
+        }
+        int stackTraceAt = -1;
+        boolean hasFrames = false;
+        for (;;) {
+            skipWs();
+            if (in[pos] != '"') throw malformed();
+            if (dropStackTraceText && stackTraceAt < 0 && keyIs(STACKTRACE)) {
+                // Decided once the whole object has been seen.
+                pos += STACKTRACE.length + 2;
+                skipWs();
+                if (in[pos++] != ':') throw malformed();
+                skipWs();
+                stackTraceAt = pos;
+                skipValue();
+            } else {
+                boolean frames = dropStackTraceText && keyIs(FRAMES);
+                string();
+                skipWs();
+                if (in[pos++] != ':') throw malformed();
+                if (frames) hasFrames = nonEmptyArrayAhead();
+                value(depth + 1);
+            }
+            skipWs();
+            byte b = in[pos++];
+            if (b == ',') continue;
+            if (b == '}') break;
+            throw malformed();
+        }
+        if (stackTraceAt >= 0 && !hasFrames) {
+            int resume = pos;
+            text(STACKTRACE, 0, STACKTRACE.length);
+            pos = stackTraceAt;
+            value(depth + 1);
+            pos = resume;
+        }
+        out.writeBreak();
+    }
+
+    /** True if the object key starting at {@code pos} (its opening quote) is exactly {@code key}. */
+    private boolean keyIs(byte[] key) {
+        int at = pos + 1;
+        if (at + key.length >= end || in[at + key.length] != '"') return false;
+        for (int i = 0; i < key.length; i++) {
+            if (in[at + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean nonEmptyArrayAhead() {
+        skipWs();
+        if (pos >= end || in[pos] != '[') return false;
+        for (int i = pos + 1; i < end; i++) {
+            byte b = in[i];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return b != ']';
+        }
+        return false;
+    }
+
+    /** Moves past one value without writing it; its contents are only checked for balance. */
+    private void skipValue() throws IOException {
+        int nest = 0;
+        for (;;) {
+            if (pos >= end) throw malformed();
+            byte c = in[pos];
+            if (c == '"') {
+                skipString();
+                if (nest == 0) return;
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                nest++;
+            } else if (c == '}' || c == ']') {
+                if (nest == 0) return;
+                if (--nest == 0) {
+                    pos++;
+                    return;
+                }
+            } else if (nest == 0 && (c == ',' || c == ' ' || c == '\n' || c == '\r' || c == '\t')) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void skipString() throws IOException {
+        for (int i = pos + 1; i < end; i++) {
+            byte b = in[i];
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                pos = i + 1;
+                return;
+            }
+        }
+        throw malformed();
+    }
+
+    private void text(byte[] utf8, int off, int len) {
+        if (strings != null) strings.writeText(out, utf8, off, len);
+        else out.writeTextUtf8(utf8, off, len);
+    }
+
+    private void array(int depth) throws IOException {
+        pos++;
+        out.beginIndefiniteArray();
+        skipWs();
+        if (in[pos] == ']') {
+            pos++;
+            out.writeBreak();
+            return;
+        }
+        for (;;) {
+            value(depth + 1);
+            skipWs();
+            byte b = in[pos++];
+            if (b == ',') continue;
+            if (b == ']') break;
+            throw malformed();
+        }
+        out.writeBreak();
+    }
+
+    private void string() throws IOException {
+        int start = ++pos;
+        for (int i = start; i < end; i++) {
+            byte b = in[i];
+            if (b == '"') {
+                text(in, start, i - start);
+                pos = i + 1;
+                return;
+            }
+            if (b == '\\') {
+                escapedString(start, i);
+                return;
+            }
+        }
+        throw malformed();
+    }
+
+    private void escapedString(int start, int firstEscape) throws IOException {
+        int n = 0;
+        int plain = firstEscape - start;
+        ensureScratch(plain + 16);
+        System.arraycopy(in, start, scratch, 0, plain);
+        n += plain;
+        int i = firstEscape;
+        for (;;) {
+            if (i >= end) throw malformed();
+            byte b = in[i++];
+            if (b == '"') break;
+            ensureScratch(n + 4);
+            if (b != '\\') {
+                scratch[n++] = b;
+                continue;
+            }
+            byte e = in[i++];
+            switch (e) {
+                case '"': scratch[n++] = '"'; break;
+                case '\\': scratch[n++] = '\\'; break;
+                case '/': scratch[n++] = '/'; break;
+                case 'b': scratch[n++] = '\b'; break;
+                case 'f': scratch[n++] = '\f'; break;
+                case 'n': scratch[n++] = '\n'; break;
+                case 'r': scratch[n++] = '\r'; break;
+                case 't': scratch[n++] = '\t'; break;
+                case 'u': {
+                    int cp = hex4(i);
+                    i += 4;
+                    if (Character.isHighSurrogate((char) cp) && i + 5 < end && in[i] == '\\' && in[i + 1] == 'u') {
+                        int low = hex4(i + 2);
+                        if (Character.isLowSurrogate((char) low)) {
+                            cp = Character.toCodePoint((char) cp, (char) low);
+                            i += 6;
+                        }
+                    }
+                    if (cp >= 0xD800 && cp <= 0xDFFF) cp = 0xFFFD;
+                    n = appendCodePoint(cp, n);
+                    break;
+                }
+                default:
+                    throw malformed();
+            }
+        }
+        pos = i;
+        text(scratch, 0, n);
+    }
+
+    private int appendCodePoint(int cp, int n) {
+        if (cp < 0x80) {
+            scratch[n++] = (byte) cp;
+        } else if (cp < 0x800) {
+            scratch[n++] = (byte) (0xC0 | (cp >> 6));
+            scratch[n++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            scratch[n++] = (byte) (0xE0 | (cp >> 12));
+            scratch[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            scratch[n++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            scratch[n++] = (byte) (0xF0 | (cp >> 18));
+            scratch[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            scratch[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            scratch[n++] = (byte) (0x80 | (cp & 0x3F));
+        }
+        return n;
+    }
+
+    private int hex4(int at) throws IOException {
+        if (at + 4 > end) throw malformed();
+        int v = 0;
+        for (int k = 0; k < 4; k++) {
+            int c = in[at + k];
+            int d;
+            if (c >= '0' && c <= '9') d = c - '0';
+            else if (c >= 'a' && c <= 'f') d = c - 'a' + 10;
+            else if (c >= 'A' && c <= 'F') d = c - 'A' + 10;
+            else throw malformed();
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    private void number() throws IOException {
+        int start = pos;
+        boolean integral = true;
+        while (pos < end) {
+            byte b = in[pos];
+            if ((b >= '0' && b <= '9') || b == '-') {
+                pos++;
+            } else if (b == '.' || b == 'e' || b == 'E' || b == '+') {
+                integral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        int count = pos - start;
+        if (count == 0) throw malformed();
+
+        // Up to 18 digits always fits in a long.
+        if (integral && count <= 18) {
+            boolean negative = in[start] == '-';
+            int i = negative ? start + 1 : start;
+            if (i == pos) throw malformed();
+            long v = 0;
+            for (; i < pos; i++) {
+                byte b = in[i];
+                if (b < '0' || b > '9') throw malformed();
+                v = v * 10 + (b - '0');
+            }
+            out.writeLong(negative ? -v : v);
+            return;
+        }
+        try {
+            out.writeDouble(Double.parseDouble(new String(in, start, count, StandardCharsets.US_ASCII)));
+        } catch (NumberFormatException e) {
+            throw malformed();
+        }
+    }
+
+    private void literal(String word) throws IOException {
+        int n = word.length();
+        if (pos + n > end) throw malformed();
+        for (int k = 0; k < n; k++) {
+            if (in[pos + k] != word.charAt(k)) throw malformed();
+        }
+        pos += n;
+    }
+
+    private void skipWs() {
+        while (pos < end) {
+            byte b = in[pos];
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') pos++;
+            else break;
+        }
+    }
+
+    private void ensureScratch(int size) {
+        if (size > scratch.length) scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, size));
+    }
+
+    private IOException malformed() {
+        return new IOException("Malformed JSON payload at offset " + pos);
+    }
+}
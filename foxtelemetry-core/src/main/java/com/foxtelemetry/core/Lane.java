@@ -0,0 +1,45 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Upload lanes over the queue's priorities. Each lane is read in its own id order, so a crash
+ * never waits behind a log backlog; {@link LaneScheduler} shares uploads between lanes by weight.
+ */
+public enum Lane {
+    CRASH(Priority.CRASH, Priority.CRASH, 6),
+    ERROR(Priority.ERROR, Priority.ERROR, 3),
+    LOG(Priority.DEBUG, Priority.WARN, 1);
+
+    final int minPriority;
+    final int maxPriority;
+    /** Share of batches this lane gets while several lanes have events. */
+    public final int weight;
+
+    Lane(int minPriority, int maxPriority, int weight) {
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.weight = weight;
+    }
+
+    /** Crash and error lanes are uploaded by expedited work; logs wait for the regular flush. */
+    public boolean isUrgent() {
+        return this != LOG;
+    }
+
+    boolean contains(int priority) {
+        return priority >= minPriority && priority <= maxPriority;
+    }
+
+    /**
+     * SQL condition selecting this lane's rows. Single-priority lanes use the (priority, id)
+     * index; the log lane, which holds most rows, walks the primary key instead ({@code +priority}
+     * keeps SQLite off the index) so it stops after the first page rather than sorting the lane.
+     */
+    @NonNull
+    String sqlFilter() {
+        return minPriority == maxPriority
+                ? "priority = " + minPriority
+                : "+priority BETWEEN " + minPriority + " AND " + maxPriority;
+    }
+}
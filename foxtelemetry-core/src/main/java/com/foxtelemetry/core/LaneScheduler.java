@@ -0,0 +1,45 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Smooth weighted round robin over upload lanes: with weights 6/3/1 and all lanes busy, ten
+ * consecutive batches go 6 to crashes, 3 to errors and 1 to logs, interleaved rather than in
+ * runs. Lanes found empty are skipped for the rest of the flush run. Not thread-safe.
+ */
+public final class LaneScheduler {
+
+    private final Lane[] lanes;
+    private final int[] current;
+    private final boolean[] exhausted;
+
+    public LaneScheduler(@NonNull Lane... lanes) {
+        this.lanes = lanes.clone();
+        this.current = new int[lanes.length];
+        this.exhausted = new boolean[lanes.length];
+    }
+
+    /** The lane to serve next, or null once every lane is exhausted. */
+    @Nullable
+    public Lane next() {
+        int total = 0;
+        int best = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            if (exhausted[i]) continue;
+            current[i] += lanes[i].weight;
+            total += lanes[i].weight;
+            if (best < 0 || current[i] > current[best]) best = i;
+        }
+        if (best < 0) return null;
+        current[best] -= total;
+        return lanes[best];
+    }
+
+    /** Stops serving {@code lane} in this run. */
+    public void exhausted(@NonNull Lane lane) {
+        for (int i = 0; i < lanes.length; i++) {
+            if (lanes[i] == lane) exhausted[i] = true;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row ranges of the queue currently handed out for upload. A lease covers the rows of its lane
+ * with ids in {@code (afterId, lastId]} until it is released (ack or nack) or expires, so
+ * concurrent runs (urgent and regular flushes, parallel uploads) never send the same rows twice.
+ * Not thread-safe; {@code EventQueue} calls it under its lock.
+ */
+final class LeaseTable {
+
+    static final class Lease {
+        @Nullable final Lane lane;
+        final long afterId;
+        final long lastId;
+        final long expiresAt;
+
+        Lease(@Nullable Lane lane, long afterId, long lastId, long expiresAt) {
+            this.lane = lane;
+            this.afterId = afterId;
+            this.lastId = lastId;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean covers(long id, int priority) {
+            return id > afterId && id <= lastId && (lane == null || lane.contains(priority));
+        }
+    }
+
+    private final List<Lease> active = new ArrayList<>();
+
+    /** The live lease holding the row, or null. */
+    @Nullable
+    Lease covering(long id, int priority, long now) {
+        for (int i = 0, n = active.size(); i < n; i++) {
+            Lease l = active.get(i);
+            if (l.expiresAt > now && l.covers(id, priority)) return l;
+        }
+        return null;
+    }
+
+    Lease acquire(@Nullable Lane lane, long afterId, long lastId, long expiresAt) {
+        Lease l = new Lease(lane, afterId, lastId, expiresAt);
+        active.add(l);
+        return l;
+    }
+
+    /** Returns false if the lease was already released or dropped as expired. */
+    boolean release(Lease lease) {
+        return active.remove(lease);
+    }
+
+    void expire(long now) {
+        for (int i = active.size() - 1; i >= 0; i--) {
+            if (active.get(i).expiresAt <= now) active.remove(i);
+        }
+    }
+
+    int size() {
+        return active.size();
+    }
+}
@@ -0,0 +1,287 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides whether a log call becomes an event, before anything is encoded. Checks run in order:
+ * minimum level (a per-tag level overrides the global one), collapsing of repeats of the last
+ * accepted message on the tag, sampling by level, then a per-tag token bucket. Everything is
+ * lock-free, and a rejected call allocates nothing: it only touches atomics and an existing
+ * per-tag state.
+ *
+ * <p>A collapsed run is handed to the {@link Sink} as one "repeated N times" entry when a
+ * different message is accepted for the tag or on {@link #drainRepeats}. Drops are counted and
+ * returned by {@link #drainReport} so they can be uploaded periodically.</p>
+ */
+public final class LogFilter {
+
+    /** Receives collapsed runs of identical messages. */
+    public interface Sink {
+        void onRepeated(@NonNull LogLevel level, @NonNull String tag, @NonNull String message,
+                        int repeats, long lastSeenMillis);
+    }
+
+    // Tags beyond this share one state so a tag-per-call pattern cannot grow the map unbounded.
+    static final int MAX_TRACKED_TAGS = 256;
+    private static final String OVERFLOW_TAG = "*";
+
+    private static final int CLOSED = -1;
+
+    /** Drop counts since the previous report. */
+    public static final class Report {
+        public final long sinceMillis;
+        public final long untilMillis;
+        public final long belowLevel;
+        public final long sampled;
+        public final long rateLimited;
+        public final long collapsed;
+        /** Per tag: {@code {sampled, rateLimited, collapsed}}; tags without drops are omitted. */
+        @NonNull public final Map<String, long[]> byTag;
+
+        Report(long sinceMillis, long untilMillis, long belowLevel, long sampled, long rateLimited,
+               long collapsed, Map<String, long[]> byTag) {
+            this.sinceMillis = sinceMillis;
+            this.untilMillis = untilMillis;
+            this.belowLevel = belowLevel;
+            this.sampled = sampled;
+            this.rateLimited = rateLimited;
+            this.collapsed = collapsed;
+            this.byTag = Collections.unmodifiableMap(byTag);
+        }
+
+        public long total() {
+            return belowLevel + sampled + rateLimited + collapsed;
+        }
+    }
+
+    /** A run of identical messages. {@code repeats} turns {@link #CLOSED} once the run is reported. */
+    private static final class Run {
+        final LogLevel level;
+        final String tag;
+        final String message;
+        final AtomicInteger repeats = new AtomicInteger();
+        volatile long lastSeenMillis;
+
+        Run(LogLevel level, String tag, String message) {
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+        }
+
+        boolean matches(LogLevel level, String tag, String message) {
+            return this.level == level && this.tag.equals(tag) && this.message.equals(message);
+        }
+
+        /** Counts one more repeat unless the run was already closed. */
+        boolean tryRepeat(long nowMillis) {
+            for (;;) {
+                int n = repeats.get();
+                if (n == CLOSED) return false;
+                if (repeats.compareAndSet(n, n + 1)) {
+                    lastSeenMillis = nowMillis;
+                    return true;
+                }
+            }
+        }
+
+        int close() {
+            return repeats.getAndSet(CLOSED);
+        }
+    }
+
+    private static final class TagState {
+        final String tag;
+        // GCRA form of a token bucket: the earliest time (ns) the bucket is full again.
+        final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        final AtomicReference<Run> run = new AtomicReference<>();
+        final AtomicLong sampled = new AtomicLong();
+        final AtomicLong rateLimited = new AtomicLong();
+        final AtomicLong collapsed = new AtomicLong();
+
+        TagState(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final LogLevel minLevel;
+    private final Map<String, LogLevel> tagMinLevels;
+    private final double[] sampleRates;
+    private final boolean collapse;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long reportIntervalMs;
+    private final Sink sink;
+
+    private final ConcurrentHashMap<String, TagState> tags = new ConcurrentHashMap<>();
+    private final TagState overflow;
+    private final AtomicLong belowLevel = new AtomicLong();
+    private final AtomicLong reportStart;
+    private volatile long nextReportAt;
+
+    public LogFilter(@NonNull FoxTelemetryConfig cfg, @NonNull Sink sink) {
+        this(cfg, sink, System.currentTimeMillis());
+    }
+
+    LogFilter(FoxTelemetryConfig cfg, Sink sink, long nowMillis) {
+        this.minLevel = cfg.minLogLevel;
+        this.tagMinLevels = cfg.tagMinLevels;
+        this.sampleRates = new double[LogLevel.values().length];
+        for (LogLevel l : LogLevel.values()) {
+            Double rate = cfg.logSampleRates.get(l);
+            sampleRates[l.ordinal()] = rate == null ? 1.0 : rate;
+        }
+        this.collapse = cfg.collapseRepeatedLogs;
+        if (cfg.logRateLimitPerSecond > 0) {
+            this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / cfg.logRateLimitPerSecond));
+            int burst = cfg.logBurst > 0 ? cfg.logBurst : (int) Math.max(1, Math.ceil(cfg.logRateLimitPerSecond));
+            this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        } else {
+            this.emissionIntervalNanos = 0;
+            this.burstToleranceNanos = 0;
+        }
+        this.reportIntervalMs = cfg.logReportIntervalMs;
+        this.sink = sink;
+        this.overflow = new TagState(OVERFLOW_TAG);
+        this.reportStart = new AtomicLong(nowMillis);
+        this.nextReportAt = nowMillis + reportIntervalMs;
+    }
+
+    /** True if the call should be encoded and queued. */
+    public boolean accept(@NonNull LogLevel level, @NonNull String tag, @NonNull String message) {
+        return accept(level, tag, message, System.nanoTime(), System.currentTimeMillis());
+    }
+
+    /** True if {@code level} passes the minimum level for {@code tag}; no counting or rate limiting. */
+    public boolean isLoggable(@NonNull LogLevel level, @NonNull String tag) {
+        LogLevel min = minLevel;
+        if (!tagMinLevels.isEmpty()) {
+            LogLevel forTag = tagMinLevels.get(tag);
+            if (forTag != null) min = forTag;
+        }
+        return level.isAtLeast(min);
+    }
+
+    // Package-private for tests.
+    boolean accept(LogLevel level, String tag, String message, long nowNanos, long nowMillis) {
+        if (!isLoggable(level, tag)) {
+            belowLevel.incrementAndGet();
+            return false;
+        }
+        TagState s = state(tag);
+
+        Run current = null;
+        if (collapse) {
+            current = s.run.get();
+            if (current != null && current.matches(level, tag, message) && current.tryRepeat(nowMillis)) {
+                s.collapsed.incrementAndGet();
+                return false;
+            }
+        }
+
+        double rate = sampleRates[level.ordinal()];
+        if (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            s.sampled.incrementAndGet();
+            return false;
+        }
+
+        if (emissionIntervalNanos > 0 && !takeToken(s, nowNanos)) {
+            s.rateLimited.incrementAndGet();
+            return false;
+        }
+
+        // Only an accepted message starts a run, so the rejected path never allocates.
+        if (collapse && s.run.compareAndSet(current, new Run(level, tag, message))) {
+            closeAndReport(current);
+        }
+        return true;
+    }
+
+    /** Reports every open run that has repeats, so counts are not held back indefinitely. */
+    public void drainRepeats() {
+        for (TagState s : tags.values()) drainRepeats(s);
+        drainRepeats(overflow);
+    }
+
+    /** True when {@link #drainReport} would return the periodic report; a single volatile read. */
+    public boolean isReportDue(long nowMillis) {
+        return nowMillis >= nextReportAt;
+    }
+
+    /**
+     * Returns drop counts since the last report and resets them, or null if the interval has not
+     * elapsed (unless {@code force}) or nothing was dropped.
+     */
+    @Nullable
+    public Report drainReport(long nowMillis, boolean force) {
+        if (!force && nowMillis < nextReportAt) return null;
+        nextReportAt = nowMillis + reportIntervalMs;
+        long since = reportStart.getAndSet(nowMillis);
+
+        long below = belowLevel.getAndSet(0);
+        long sampledTotal = 0, rateTotal = 0, collapsedTotal = 0;
+        Map<String, long[]> byTag = new LinkedHashMap<>();
+        for (TagState s : tags.values()) {
+            long[] c = takeCounts(s);
+            if (c != null) byTag.put(s.tag, c);
+        }
+        long[] o = takeCounts(overflow);
+        if (o != null) byTag.put(OVERFLOW_TAG, o);
+        for (long[] c : byTag.values()) {
+            sampledTotal += c[0];
+            rateTotal += c[1];
+            collapsedTotal += c[2];
+        }
+        if (below + sampledTotal + rateTotal + collapsedTotal == 0) return null;
+        return new Report(since, nowMillis, below, sampledTotal, rateTotal, collapsedTotal, byTag);
+    }
+
+    private TagState state(String tag) {
+        TagState s = tags.get(tag);
+        if (s != null) return s;
+        if (tags.size() >= MAX_TRACKED_TAGS) return overflow;
+        TagState created = new TagState(tag);
+        TagState raced = tags.putIfAbsent(tag, created);
+        return raced != null ? raced : created;
+    }
+
+    private boolean takeToken(TagState s, long now) {
+        for (;;) {
+            long tat = s.theoreticalArrival.get();
+            if (tat != Long.MIN_VALUE && now < tat - burstToleranceNanos) return false;
+            long next = (tat == Long.MIN_VALUE || tat < now ? now : tat) + emissionIntervalNanos;
+            if (s.theoreticalArrival.compareAndSet(tat, next)) return true;
+        }
+    }
+
+    private void drainRepeats(TagState s) {
+        Run r = s.run.get();
+        if (r != null && r.repeats.get() > 0 && s.run.compareAndSet(r, null)) {
+            closeAndReport(r);
+        }
+    }
+
+    private void closeAndReport(@Nullable Run r) {
+        if (r == null) return;
+        int n = r.close();
+        if (n > 0) sink.onRepeated(r.level, r.tag, r.message, n, r.lastSeenMillis);
+    }
+
+    @Nullable
+    private static long[] takeCounts(TagState s) {
+        long sampled = s.sampled.getAndSet(0);
+        long rate = s.rateLimited.getAndSet(0);
+        long collapsed = s.collapsed.getAndSet(0);
+        if (sampled + rate + collapsed == 0) return null;
+        return new long[]{sampled, rate, collapsed};
+    }
+}
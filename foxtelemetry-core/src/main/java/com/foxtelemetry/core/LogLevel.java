@@ -0,0 +1,13 @@
+package com.foxtelemetry.core;
+
+/** Severity of a log event, lowest first. {@link #name()} is the wire value. */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR;
+
+    public boolean isAtLeast(LogLevel other) {
+        return ordinal() >= other.ordinal();
+    }
+}
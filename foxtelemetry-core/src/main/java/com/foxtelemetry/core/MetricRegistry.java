@@ -0,0 +1,248 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App metrics aggregated in memory and reported as one {@code metrics} event per interval,
+ * instead of one log event per sample. A series is a metric name plus a set of tags given as
+ * alternating keys and values ({@code "method", "GET", "status", "200"}); tag order does not
+ * matter. Look a series up once and keep the handle: recording is then a striped add
+ * (counters), a volatile write (gauges) or a short locked sketch update (histograms).
+ *
+ * <p>Memory is bounded by {@link #setMaxSeries}: once that many series exist, new tag sets of a
+ * metric share one series tagged {@code overflow=true}, and new metric names share a single
+ * {@value #OVERFLOW_NAME} series per kind. Refused tag sets are counted in the report.</p>
+ */
+public final class MetricRegistry {
+
+    public static final int DEFAULT_MAX_SERIES = 1000;
+    public static final String OVERFLOW_NAME = "_overflow";
+    static final String[] OVERFLOW_TAGS = {"overflow", "true"};
+
+    static final char KIND_COUNTER = 'c';
+    static final char KIND_GAUGE = 'g';
+    static final char KIND_HISTOGRAM = 'h';
+
+    /** A series' identity; handles of the same series are the same object. */
+    abstract static class Series {
+        @NonNull final String name;
+        @NonNull final String[] tags; // sorted key/value pairs
+
+        Series(String name, String[] tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+
+        abstract char kind();
+    }
+
+    public static final class Counter extends Series {
+        private final StripedCounter total = new StripedCounter();
+        private long reported; // guarded by the registry's drain lock
+
+        Counter(String name, String[] tags) { super(name, tags); }
+
+        @Override char kind() { return KIND_COUNTER; }
+
+        public void increment() { total.increment(); }
+
+        public void add(long delta) { total.add(delta); }
+
+        long drainDelta() {
+            long sum = total.sum();
+            long delta = sum - reported;
+            reported = sum;
+            return delta;
+        }
+    }
+
+    public static final class Gauge extends Series {
+        private static final long UNSET = Double.doubleToRawLongBits(Double.NaN);
+        private final AtomicLong bits = new AtomicLong(UNSET);
+
+        Gauge(String name, String[] tags) { super(name, tags); }
+
+        @Override char kind() { return KIND_GAUGE; }
+
+        /** Last value wins; reported as is every interval once set. */
+        public void set(double value) { bits.set(Double.doubleToRawLongBits(value)); }
+
+        double value() { return Double.longBitsToDouble(bits.get()); }
+    }
+
+    public static final class Histogram extends Series {
+        private final double accuracy;
+        private QuantileSketch sketch; // guarded by this
+
+        Histogram(String name, String[] tags, double accuracy) {
+            super(name, tags);
+            this.accuracy = accuracy;
+            this.sketch = new QuantileSketch(accuracy);
+        }
+
+        @Override char kind() { return KIND_HISTOGRAM; }
+
+        public void record(double value) {
+            synchronized (this) {
+                sketch.add(value);
+            }
+        }
+
+        /** The sketch since the last drain, or null if nothing was recorded. */
+        @Nullable
+        QuantileSketch drain() {
+            synchronized (this) {
+                if (sketch.isEmpty()) return null;
+                QuantileSketch full = sketch;
+                sketch = new QuantileSketch(accuracy);
+                return full;
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Series> overflow = new ConcurrentHashMap<>();
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private final AtomicLong refusedSeries = new AtomicLong();
+    private final double histogramAccuracy;
+    private volatile int maxSeries = DEFAULT_MAX_SERIES;
+    private long windowStart; // guarded by this
+
+    public MetricRegistry() {
+        this(QuantileSketch.DEFAULT_RELATIVE_ACCURACY, System.currentTimeMillis());
+    }
+
+    MetricRegistry(double histogramAccuracy, long nowMillis) {
+        this.histogramAccuracy = histogramAccuracy;
+        this.windowStart = nowMillis;
+    }
+
+    /** Most distinct series kept; lowering it does not drop series that already exist. */
+    public void setMaxSeries(int max) {
+        maxSeries = Math.max(1, max);
+    }
+
+    @NonNull
+    public Counter counter(@NonNull String name, @NonNull String... tags) {
+        return (Counter) lookup(KIND_COUNTER, name, tags);
+    }
+
+    @NonNull
+    public Gauge gauge(@NonNull String name, @NonNull String... tags) {
+        return (Gauge) lookup(KIND_GAUGE, name, tags);
+    }
+
+    @NonNull
+    public Histogram histogram(@NonNull String name, @NonNull String... tags) {
+        return (Histogram) lookup(KIND_HISTOGRAM, name, tags);
+    }
+
+    public int seriesCount() {
+        return seriesCount.get();
+    }
+
+    private Series lookup(char kind, String name, String[] rawTags) {
+        String[] tags = canonicalTags(rawTags);
+        String key = key(kind, name, tags);
+        Series s = series.get(key);
+        if (s != null) return s;
+
+        if (seriesCount.incrementAndGet() > maxSeries) {
+            seriesCount.decrementAndGet();
+            refusedSeries.incrementAndGet();
+            return overflowSeries(kind, name);
+        }
+        Series created = create(kind, name, tags);
+        Series raced = series.putIfAbsent(key, created);
+        if (raced != null) {
+            seriesCount.decrementAndGet();
+            return raced;
+        }
+        return created;
+    }
+
+    private Series overflowSeries(char kind, String name) {
+        // Names are bounded too: past the limit, unknown names share one catch-all series.
+        if (overflow.size() >= maxSeries) name = OVERFLOW_NAME;
+        String key = key(kind, name, OVERFLOW_TAGS);
+        Series s = overflow.get(key);
+        if (s != null) return s;
+        Series created = create(kind, name, OVERFLOW_TAGS);
+        Series raced = overflow.putIfAbsent(key, created);
+        return raced != null ? raced : created;
+    }
+
+    private Series create(char kind, String name, String[] tags) {
+        switch (kind) {
+            case KIND_COUNTER: return new Counter(name, tags);
+            case KIND_GAUGE: return new Gauge(name, tags);
+            default: return new Histogram(name, tags, histogramAccuracy);
+        }
+    }
+
+    /**
+     * Everything recorded since the previous drain: counter deltas, current gauge values and the
+     * histograms' sketches (which start over). Series without activity are left out; null if
+     * there is nothing to report.
+     */
+    @Nullable
+    public synchronized MetricsReport drain(long nowMillis) {
+        List<MetricsReport.Entry> entries = new ArrayList<>();
+        drainInto(series, entries);
+        drainInto(overflow, entries);
+        long refused = refusedSeries.getAndSet(0);
+        long since = windowStart;
+        windowStart = nowMillis;
+        if (entries.isEmpty() && refused == 0) return null;
+        return new MetricsReport(since, nowMillis, entries, refused);
+    }
+
+    private static void drainInto(ConcurrentHashMap<String, Series> map, List<MetricsReport.Entry> out) {
+        for (Series s : map.values()) {
+            if (s instanceof Counter) {
+                long delta = ((Counter) s).drainDelta();
+                if (delta != 0) out.add(MetricsReport.Entry.counter(s.name, s.tags, delta));
+            } else if (s instanceof Gauge) {
+                double v = ((Gauge) s).value();
+                if (!Double.isNaN(v)) out.add(MetricsReport.Entry.gauge(s.name, s.tags, v));
+            } else {
+                QuantileSketch sketch = ((Histogram) s).drain();
+                if (sketch != null) out.add(MetricsReport.Entry.histogram(s.name, s.tags, sketch));
+            }
+        }
+    }
+
+    /** Copies {@code raw} into key/value pairs sorted by key; a trailing key without value is dropped. */
+    static String[] canonicalTags(String[] raw) {
+        int pairs = raw == null ? 0 : raw.length / 2;
+        String[] tags = new String[pairs * 2];
+        for (int i = 0; i < pairs; i++) {
+            String k = String.valueOf(raw[2 * i]);
+            String v = String.valueOf(raw[2 * i + 1]);
+            // Insertion sort: tag sets are small.
+            int j = i;
+            while (j > 0 && tags[2 * (j - 1)].compareTo(k) > 0) {
+                tags[2 * j] = tags[2 * (j - 1)];
+                tags[2 * j + 1] = tags[2 * (j - 1) + 1];
+                j--;
+            }
+            tags[2 * j] = k;
+            tags[2 * j + 1] = v;
+        }
+        return tags;
+    }
+
+    private static String key(char kind, String name, String[] tags) {
+        StringBuilder sb = new StringBuilder(name.length() + 16 * tags.length + 2);
+        sb.append(kind).append(name);
+        for (String t : tags) sb.append('\u0000').append(t);
+        return sb.toString();
+    }
+}
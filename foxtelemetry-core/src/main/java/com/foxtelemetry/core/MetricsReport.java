@@ -0,0 +1,56 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/** What a {@link MetricRegistry} aggregated between {@link #sinceMillis} and {@link #untilMillis}. */
+public final class MetricsReport {
+
+    /** One series: a counter delta, a gauge value or a histogram sketch. */
+    public static final class Entry {
+        @NonNull public final String name;
+        /** Sorted key/value pairs. */
+        @NonNull public final String[] tags;
+        /** "counter", "gauge" or "histogram". */
+        @NonNull public final String kind;
+        /** Counter delta or gauge value; unused for histograms. */
+        public final double value;
+        @Nullable public final QuantileSketch sketch;
+
+        private Entry(String name, String[] tags, String kind, double value, QuantileSketch sketch) {
+            this.name = name;
+            this.tags = tags;
+            this.kind = kind;
+            this.value = value;
+            this.sketch = sketch;
+        }
+
+        static Entry counter(String name, String[] tags, long delta) {
+            return new Entry(name, tags, "counter", delta, null);
+        }
+
+        static Entry gauge(String name, String[] tags, double value) {
+            return new Entry(name, tags, "gauge", value, null);
+        }
+
+        static Entry histogram(String name, String[] tags, QuantileSketch sketch) {
+            return new Entry(name, tags, "histogram", 0, sketch);
+        }
+    }
+
+    public final long sinceMillis;
+    public final long untilMillis;
+    @NonNull public final List<Entry> entries;
+    /** New tag sets recorded into an overflow series because of the series limit. */
+    public final long refusedSeries;
+
+    MetricsReport(long sinceMillis, long untilMillis, List<Entry> entries, long refusedSeries) {
+        this.sinceMillis = sinceMillis;
+        this.untilMillis = untilMillis;
+        this.entries = Collections.unmodifiableList(entries);
+        this.refusedSeries = refusedSeries;
+    }
+}
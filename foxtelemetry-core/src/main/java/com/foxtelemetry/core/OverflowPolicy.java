@@ -0,0 +1,13 @@
+package com.foxtelemetry.core;
+
+/**
+ * What the in-memory enqueue buffer does when producers outrun the background writer.
+ */
+public enum OverflowPolicy {
+    /** Evict the oldest buffered event to make room for the new one. */
+    DROP_OLDEST,
+    /** Discard the new event and keep what is already buffered. */
+    DROP_NEWEST,
+    /** Wait up to the configured timeout for room, then discard the new event. */
+    BLOCK
+}
@@ -0,0 +1,121 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds log calls, reported errors, custom events and finished traces made while initialization
+ * runs in the background, so nothing needs a config, the install ID or the database on the
+ * caller's thread. Entries keep their original timestamps and are replayed once, in order, by {@link #drainTo}; after that the
+ * buffer is closed and {@code add} calls return false so callers take the normal path.
+ */
+public final class PreInitBuffer {
+
+    /** Receives the buffered calls when initialization completes. */
+    public interface Replay {
+        void log(@NonNull LogLevel level, @NonNull String tag, @NonNull String message, long timestamp);
+
+        void error(@NonNull Throwable t, @NonNull String contextTag, long timestamp);
+
+        void event(@NonNull EventBuilder event, long timestamp);
+
+        void trace(@NonNull Trace trace);
+    }
+
+    private static final class Entry {
+        final LogLevel level; // null for errors, events and traces
+        final String tag;
+        final String message;
+        final Throwable throwable;
+        final EventBuilder event;
+        final Trace trace;
+        final long timestamp;
+
+        Entry(LogLevel level, String tag, String message, Throwable throwable, EventBuilder event, Trace trace,
+              long timestamp) {
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+            this.throwable = throwable;
+            this.event = event;
+            this.trace = trace;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final int capacity;
+    private final List<Entry> entries = new ArrayList<>(); // guarded by this
+    private boolean closed; // guarded by this
+    private int dropped; // guarded by this
+
+    public PreInitBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /** Buffers a log call; false if the buffer was already drained. */
+    public boolean log(@NonNull LogLevel level, @NonNull String tag, @NonNull String message, long timestamp) {
+        return add(new Entry(level, tag, message, null, null, null, timestamp));
+    }
+
+    /** Buffers a reported error; false if the buffer was already drained. */
+    public boolean error(@NonNull Throwable t, @NonNull String contextTag, long timestamp) {
+        return add(new Entry(null, contextTag, null, t, null, null, timestamp));
+    }
+
+    /** Buffers a custom event, which must be an unpooled {@link EventBuilder#copy()}; false if drained. */
+    public boolean event(@NonNull EventBuilder event, long timestamp) {
+        return add(new Entry(null, null, null, null, event, null, timestamp));
+    }
+
+    /** Buffers a completed trace; false if the buffer was already drained. */
+    public boolean trace(@NonNull Trace trace) {
+        return add(new Entry(null, null, null, null, null, trace, trace.startWallMillis));
+    }
+
+    private synchronized boolean add(Entry e) {
+        if (closed) return false;
+        // Full: keep the oldest calls, they tend to explain what the app was doing at startup.
+        if (entries.size() < capacity) entries.add(e);
+        else dropped++;
+        return true;
+    }
+
+    /**
+     * Replays what the buffer holds, then closes it; returns how many calls did not fit. Calls
+     * made while the replay runs are still buffered and replayed after the earlier ones, so the
+     * buffer only closes once it is empty and nothing overtakes a buffered call.
+     */
+    public int drainTo(@NonNull Replay replay) {
+        while (true) {
+            List<Entry> taken;
+            synchronized (this) {
+                if (closed) return 0;
+                if (entries.isEmpty()) {
+                    closed = true;
+                    return dropped;
+                }
+                taken = new ArrayList<>(entries);
+                entries.clear();
+            }
+            for (int i = 0, n = taken.size(); i < n; i++) {
+                Entry e = taken.get(i);
+                if (e.level != null) replay.log(e.level, e.tag, e.message, e.timestamp);
+                else if (e.event != null) replay.event(e.event, e.timestamp);
+                else if (e.trace != null) replay.trace(e.trace);
+                else replay.error(e.throwable, e.tag, e.timestamp);
+            }
+        }
+    }
+
+    /** Closes the buffer and discards its contents, e.g. when there is no config to init with. */
+    public synchronized void discard() {
+        closed = true;
+        entries.clear();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
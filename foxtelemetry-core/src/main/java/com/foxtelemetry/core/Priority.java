@@ -0,0 +1,24 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/** Queue priorities, lowest first; higher ones are kept longer when space runs out. */
+public final class Priority {
+
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int ERROR = 3;
+    public static final int CRASH = 4;
+
+    private Priority() {}
+
+    public static int of(@NonNull LogLevel level) {
+        switch (level) {
+            case ERROR: return ERROR;
+            case WARN: return WARN;
+            case INFO: return INFO;
+            default: return DEBUG;
+        }
+    }
+}
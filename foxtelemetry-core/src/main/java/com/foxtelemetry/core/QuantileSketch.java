@@ -0,0 +1,213 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantees (DDSketch). A value {@code v} is
+ * counted in bucket {@code ceil(log_gamma |v|)}, so any quantile it returns is within
+ * {@link #relativeAccuracy()} of the true value. Two sketches with the same accuracy merge by
+ * adding bucket counts, which is how the ingest side can combine summaries from many devices
+ * and intervals without losing precision.
+ *
+ * <p>Bucket counts live in dense arrays that grow with the range of values seen, up to
+ * {@link #MAX_BINS} per sign; beyond that the lowest buckets are folded together, which only
+ * affects quantiles of the smallest values. Not thread-safe.</p>
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    public static final int MAX_BINS = 2048;
+    // Magnitudes below this are counted as zero.
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Store positive = new Store();
+    private final Store negative = new Store();
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("relativeAccuracy must be in (0, 1)");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    /** Counts {@code v}; NaN and infinite values are ignored. */
+    public void add(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return;
+        if (v > MIN_INDEXABLE) positive.add(index(v), 1);
+        else if (v < -MIN_INDEXABLE) negative.add(index(-v), 1);
+        else zeroCount++;
+        count++;
+        sum += v;
+        if (v < min) min = v;
+        if (v > max) max = v;
+    }
+
+    /** Adds the counts of {@code other}, which must have the same relative accuracy. */
+    public void merge(@NonNull QuantileSketch other) {
+        if (other.gamma != gamma) throw new IllegalArgumentException("sketches have different accuracy");
+        if (other.count == 0) return;
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** The value at quantile {@code q} (0..1), or NaN if the sketch is empty. */
+    public double quantile(double q) {
+        if (count == 0 || q < 0 || q > 1) return Double.NaN;
+        if (q == 0) return min;
+        if (q == 1) return max;
+        long rank = (long) (q * (count - 1));
+        double v;
+        if (rank < negative.total) {
+            // Most negative first: walk the negative buckets from the highest index down.
+            v = -value(negative.indexAtRankFromTop(rank));
+        } else if (rank < negative.total + zeroCount) {
+            v = 0;
+        } else {
+            v = value(positive.indexAtRank(rank - negative.total - zeroCount));
+        }
+        return Math.max(min, Math.min(max, v));
+    }
+
+    public long count() { return count; }
+    public double sum() { return sum; }
+    public double min() { return count == 0 ? Double.NaN : min; }
+    public double max() { return count == 0 ? Double.NaN : max; }
+    public boolean isEmpty() { return count == 0; }
+    public double relativeAccuracy() { return relativeAccuracy; }
+    public double gamma() { return gamma; }
+    public long zeroCount() { return zeroCount; }
+
+    /** Bucket counts of positive values; bucket {@code offset + i} holds {@code counts[i]}. */
+    @NonNull
+    public long[] positiveCounts() { return positive.trimmed(); }
+    public int positiveOffset() { return positive.firstNonEmpty(); }
+
+    /** Bucket counts of negative values, by magnitude, laid out like {@link #positiveCounts()}. */
+    @NonNull
+    public long[] negativeCounts() { return negative.trimmed(); }
+    public int negativeOffset() { return negative.firstNonEmpty(); }
+
+    int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    /** Representative value of bucket {@code index}: the point with equal relative error to both bounds. */
+    double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /** Dense bucket counts from {@code offset} upward; folds the lowest buckets beyond MAX_BINS. */
+    private static final class Store {
+        long[] counts;
+        int offset;
+        long total;
+
+        void add(int index, long n) {
+            if (counts == null) {
+                counts = new long[16];
+                offset = index - 8;
+            }
+            if (index < offset) {
+                // Past MAX_BINS below the highest bucket: count it in the lowest one kept.
+                index = Math.max(index, offset + counts.length - MAX_BINS);
+                if (index < offset) growDown(index);
+            } else if (index >= offset + counts.length) {
+                growUp(index);
+            }
+            counts[index - offset] += n;
+            total += n;
+        }
+
+        void merge(Store o) {
+            if (o.counts == null) return;
+            // Highest first, so folding (if any) happens once at the right place.
+            for (int i = o.counts.length - 1; i >= 0; i--) {
+                if (o.counts[i] != 0) add(o.offset + i, o.counts[i]);
+            }
+        }
+
+        private void growDown(int index) {
+            int newLength = Math.min(MAX_BINS, Math.max(counts.length * 2, offset + counts.length - index));
+            long[] n = new long[newLength];
+            int shift = newLength - counts.length;
+            System.arraycopy(counts, 0, n, shift, counts.length);
+            counts = n;
+            offset -= shift;
+        }
+
+        private void growUp(int index) {
+            int needed = index - offset + 1;
+            if (needed > MAX_BINS) {
+                // Fold everything below the new window into its lowest bucket.
+                int newOffset = index - MAX_BINS + 1;
+                long folded = 0;
+                long[] n = new long[MAX_BINS];
+                for (int i = 0; i < counts.length; i++) {
+                    int idx = offset + i;
+                    if (idx <= newOffset) folded += counts[i];
+                    else n[idx - newOffset] = counts[i];
+                }
+                n[0] += folded;
+                counts = n;
+                offset = newOffset;
+                return;
+            }
+            int newLength = Math.min(MAX_BINS, Math.max(counts.length * 2, needed));
+            counts = Arrays.copyOf(counts, newLength);
+        }
+
+        int indexAtRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) return offset + i;
+            }
+            return offset + counts.length - 1;
+        }
+
+        int indexAtRankFromTop(long rank) {
+            long seen = 0;
+            for (int i = counts.length - 1; i >= 0; i--) {
+                seen += counts[i];
+                if (seen > rank) return offset + i;
+            }
+            return offset;
+        }
+
+        int firstNonEmpty() {
+            if (counts == null) return 0;
+            for (int i = 0; i < counts.length; i++) if (counts[i] != 0) return offset + i;
+            return 0;
+        }
+
+        long[] trimmed() {
+            if (counts == null) return new long[0];
+            int from = 0;
+            int to = counts.length;
+            while (from < to && counts[from] == 0) from++;
+            while (to > from && counts[to - 1] == 0) to--;
+            return Arrays.copyOfRange(counts, from, to);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SDK's measurements of itself. Per-event paths (build, enqueue, filter) use striped
+ * counters and lock-free histograms so instrumenting them costs a few uncontended atomic adds;
+ * upload-side counters are plain atomics since there is at most one flush run at a time.
+ */
+public final class SdkMetrics {
+
+    /** Read at snapshot time; implemented by the queue. */
+    public interface QueueGauges {
+        long depth();
+
+        long storedBytes();
+
+        /** Events dropped by the in-memory buffer since start. */
+        long droppedCount();
+
+        /** Events evicted for the queue limits since start. */
+        long evictedCount();
+    }
+
+    // Indexes into statuses.
+    static final int STATUS_2XX = 0;
+    static final int STATUS_4XX = 1;
+    static final int STATUS_413 = 2;
+    static final int STATUS_429 = 3;
+    static final int STATUS_5XX = 4;
+    static final int STATUS_OTHER = 5;
+    static final int STATUS_FAILED = 6;
+
+    final LatencyHistogram eventBuild = new LatencyHistogram();
+    final LatencyHistogram enqueue = new LatencyHistogram();
+    final LatencyHistogram upload = new LatencyHistogram();
+    final StripedCounter eventsEnqueued = new StripedCounter();
+    final StripedCounter eventsFiltered = new StripedCounter();
+    final AtomicLong eventsDeadLettered = new AtomicLong();
+    final AtomicLong internalErrors = new AtomicLong();
+    final AtomicLong eventsUploaded = new AtomicLong();
+    final AtomicLong bytesUploaded = new AtomicLong();
+    final AtomicLong uploadRetries = new AtomicLong();
+    final AtomicLongArray statuses = new AtomicLongArray(STATUS_FAILED + 1);
+
+    public void recordEventBuild(long nanos) {
+        eventBuild.record(nanos);
+    }
+
+    /**
+     * An event handed to the queue; {@code nanos} is the time {@code enqueue} took, and
+     * {@code accepted} is false if the buffer dropped it.
+     */
+    public void recordEnqueue(long nanos, boolean accepted) {
+        enqueue.record(nanos);
+        if (accepted) eventsEnqueued.increment();
+    }
+
+    public void onFiltered() {
+        eventsFiltered.increment();
+    }
+
+    public void onInternalError() {
+        internalErrors.incrementAndGet();
+    }
+
+    /** One upload request; {@code status} is the HTTP status, or negative if none arrived. */
+    public void recordUpload(long nanos, int status) {
+        upload.record(nanos);
+        statuses.incrementAndGet(statusIndex(status));
+    }
+
+    public void onUploaded(int events, long bytes) {
+        eventsUploaded.addAndGet(events);
+        bytesUploaded.addAndGet(bytes);
+    }
+
+    public void onDeadLettered(int events) {
+        eventsDeadLettered.addAndGet(events);
+    }
+
+    public void onRetry() {
+        uploadRetries.incrementAndGet();
+    }
+
+    @NonNull
+    public SdkStats snapshot(@Nullable QueueGauges queue) {
+        return new SdkStats(this, queue, System.currentTimeMillis());
+    }
+
+    static int statusIndex(int status) {
+        if (status < 0) return STATUS_FAILED;
+        if (status == 413) return STATUS_413;
+        if (status == 429) return STATUS_429;
+        if (status >= 200 && status < 300) return STATUS_2XX;
+        if (status >= 400 && status < 500) return STATUS_4XX;
+        if (status >= 500 && status < 600) return STATUS_5XX;
+        return STATUS_OTHER;
+    }
+}
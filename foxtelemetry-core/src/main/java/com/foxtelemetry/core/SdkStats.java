@@ -0,0 +1,117 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Snapshot of the SDK's own overhead and health, exposed through {@code FoxTelemetry.getStats()}.
+ * Counters run from process start; queue figures are read when the snapshot is taken.
+ */
+public final class SdkStats {
+
+    /** Distribution of one measured duration. Percentiles are bucket bounds, within 25%. */
+    public static final class Latency {
+        public final long count;
+        public final long meanNanos;
+        public final long p50Nanos;
+        public final long p95Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        Latency(long count, long meanNanos, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "{count=" + count + ", mean=" + meanNanos + "ns, p50=" + p50Nanos + "ns, p95=" + p95Nanos
+                    + "ns, p99=" + p99Nanos + "ns, max=" + maxNanos + "ns}";
+        }
+    }
+
+    /** Encoding an event on the caller's thread. */
+    @NonNull public final Latency eventBuild;
+    /** Handing an encoded event to the queue's in-memory buffer. */
+    @NonNull public final Latency enqueue;
+    /** One upload request, from send to response (or failure). */
+    @NonNull public final Latency upload;
+
+    public final long eventsEnqueued;
+    /** Log calls dropped by level, sampling, rate limit or repeat collapsing. */
+    public final long eventsFiltered;
+    /** Events the in-memory buffer dropped because it was full. */
+    public final long eventsDroppedOverflow;
+    /** Events the queue evicted to stay within its size, byte and age limits. */
+    public final long eventsEvicted;
+    /** Events the server rejected, moved to the dead-letter table. */
+    public final long eventsDeadLettered;
+    /** Exceptions the SDK caught and swallowed instead of passing them to the app. */
+    public final long internalErrors;
+
+    /** Events and payload bytes stored in the queue. */
+    public final long queueDepth;
+    public final long queueBytes;
+
+    public final long eventsUploaded;
+    public final long bytesUploaded;
+    /** Flush runs that ended asking to be retried later. */
+    public final long uploadRetries;
+
+    /** Upload responses by status. */
+    public final long http2xx;
+    public final long http4xx;
+    /** 413 and 429 are counted here rather than in {@link #http4xx}. */
+    public final long http413;
+    public final long http429;
+    public final long http5xx;
+    /** Other statuses (1xx, 3xx). */
+    public final long httpOther;
+    /** Uploads that failed before any response arrived. */
+    public final long httpFailed;
+
+    public final long takenAtMillis;
+
+    SdkStats(SdkMetrics m, SdkMetrics.QueueGauges q, long takenAtMillis) {
+        this.eventBuild = m.eventBuild.snapshot();
+        this.enqueue = m.enqueue.snapshot();
+        this.upload = m.upload.snapshot();
+        this.eventsEnqueued = m.eventsEnqueued.sum();
+        this.eventsFiltered = m.eventsFiltered.sum();
+        this.eventsDroppedOverflow = q != null ? q.droppedCount() : 0;
+        this.eventsEvicted = q != null ? q.evictedCount() : 0;
+        this.eventsDeadLettered = m.eventsDeadLettered.get();
+        this.internalErrors = m.internalErrors.get();
+        this.queueDepth = q != null ? q.depth() : 0;
+        this.queueBytes = q != null ? q.storedBytes() : 0;
+        this.eventsUploaded = m.eventsUploaded.get();
+        this.bytesUploaded = m.bytesUploaded.get();
+        this.uploadRetries = m.uploadRetries.get();
+        this.http2xx = m.statuses.get(SdkMetrics.STATUS_2XX);
+        this.http4xx = m.statuses.get(SdkMetrics.STATUS_4XX);
+        this.http413 = m.statuses.get(SdkMetrics.STATUS_413);
+        this.http429 = m.statuses.get(SdkMetrics.STATUS_429);
+        this.http5xx = m.statuses.get(SdkMetrics.STATUS_5XX);
+        this.httpOther = m.statuses.get(SdkMetrics.STATUS_OTHER);
+        this.httpFailed = m.statuses.get(SdkMetrics.STATUS_FAILED);
+        this.takenAtMillis = takenAtMillis;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "SdkStats{eventBuild=" + eventBuild + ", enqueue=" + enqueue + ", upload=" + upload
+                + ", eventsEnqueued=" + eventsEnqueued + ", eventsFiltered=" + eventsFiltered
+                + ", eventsDroppedOverflow=" + eventsDroppedOverflow + ", eventsEvicted=" + eventsEvicted
+                + ", eventsDeadLettered=" + eventsDeadLettered + ", internalErrors=" + internalErrors
+                + ", queueDepth=" + queueDepth + ", queueBytes=" + queueBytes
+                + ", eventsUploaded=" + eventsUploaded + ", bytesUploaded=" + bytesUploaded
+                + ", uploadRetries=" + uploadRetries + ", http2xx=" + http2xx + ", http4xx=" + http4xx
+                + ", http413=" + http413 + ", http429=" + http429 + ", http5xx=" + http5xx
+                + ", httpOther=" + httpOther + ", httpFailed=" + httpFailed + "}";
+    }
+}
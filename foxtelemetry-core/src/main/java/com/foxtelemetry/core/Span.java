@@ -0,0 +1,91 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A timed operation in a trace, started with {@code FoxTelemetry.startSpan} or
+ * {@link #startChild}. Whether a trace is recorded is decided once, when its root starts; spans
+ * of a trace that was not sampled are the shared {@link #NOOP} instance, whose methods do nothing.
+ *
+ * <p>Spans are recycled: do not use one after {@link #end()}, and start children before their
+ * parent ends. A trace is sent as one event once all of its spans have ended.</p>
+ */
+public final class Span {
+
+    /** Stand-in for spans of unsampled traces. */
+    public static final Span NOOP = new Span(null);
+
+    static final int MAX_TAGS = 8;
+
+    private final Tracer tracer;
+    Trace trace; // null when not started, ended, or NOOP
+    long spanId;
+    long parentId;
+    String name;
+    long startNanos;
+    boolean error;
+    int tagCount;
+    final String[] tagKeys = new String[MAX_TAGS];
+    final String[] tagValues = new String[MAX_TAGS];
+
+    Span(@Nullable Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** A span for a sub-operation; NOOP if this span is not recorded. */
+    @NonNull
+    public Span startChild(@NonNull String name) {
+        Trace t = trace;
+        if (t == null || tracer == null) return NOOP;
+        return tracer.startChild(name, t, spanId);
+    }
+
+    /** Adds a tag (at most {@value #MAX_TAGS} per span; a key set twice keeps the last value). */
+    @NonNull
+    public Span setTag(@NonNull String key, @Nullable String value) {
+        if (trace == null || key == null) return this;
+        for (int i = 0; i < tagCount; i++) {
+            if (tagKeys[i].equals(key)) {
+                tagValues[i] = value;
+                return this;
+            }
+        }
+        if (tagCount < MAX_TAGS) {
+            tagKeys[tagCount] = key;
+            tagValues[tagCount++] = value;
+        }
+        return this;
+    }
+
+    /** Marks the operation as failed. */
+    @NonNull
+    public Span setError() {
+        if (trace != null) error = true;
+        return this;
+    }
+
+    public boolean isSampled() {
+        return trace != null;
+    }
+
+    /** Stops the clock; the span's data moves into its trace and the span is recycled. */
+    public void end() {
+        Trace t = trace;
+        if (t == null || tracer == null) return;
+        long now = tracer.nanos();
+        trace = null;
+        t.finish(this, now);
+        tracer.recycle(this);
+    }
+
+    void reset() {
+        for (int i = 0; i < tagCount; i++) {
+            tagKeys[i] = null;
+            tagValues[i] = null;
+        }
+        tagCount = 0;
+        name = null;
+        error = false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.foxtelemetry.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sum spread over padded cells picked by thread id, so threads counting at the same time rarely
+ * hit the same cache line (LongAdder needs API 24). Reads add up all cells and are not atomic
+ * with respect to concurrent adds.
+ */
+final class StripedCounter {
+
+    // One counter per 64-byte line: use every 8th long.
+    private static final int PAD = 8;
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    StripedCounter() {
+        int n = 1;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        while (n < cpus && n < MAX_STRIPES) n <<= 1;
+        this.mask = n - 1;
+        this.cells = new AtomicLongArray(n * PAD);
+    }
+
+    void add(long delta) {
+        cells.getAndAdd(stripe() * PAD, delta);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0, n = cells.length(); i < n; i += PAD) sum += cells.get(i);
+        return sum;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & mask;
+    }
+}
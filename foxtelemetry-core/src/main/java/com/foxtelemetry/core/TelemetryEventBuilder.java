@@ -0,0 +1,104 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Builds encoded event payloads (UTF-8 JSON bytes) ready to be queued and uploaded as-is.
+ * The constant envelope is encoded once and reused until the config, install ID or device changes.
+ */
+public final class TelemetryEventBuilder {
+
+    private static volatile DeviceInfo device = new DeviceInfo(null, null, 0, null);
+    private static volatile EventEnvelope envelope;
+    private static volatile BreadcrumbRing breadcrumbs;
+
+    private TelemetryEventBuilder() {}
+
+    /** Set by the platform adapter before the first event is built. */
+    public static void setDeviceInfo(@NonNull DeviceInfo info) {
+        device = info;
+        envelope = null;
+    }
+
+    /** Ring whose log lines are attached to error and crash events; null (the default) attaches none. */
+    public static void setBreadcrumbs(@Nullable BreadcrumbRing ring) {
+        breadcrumbs = ring;
+    }
+
+    @Nullable
+    static BreadcrumbRing breadcrumbs() {
+        return breadcrumbs;
+    }
+
+    public static byte[] buildErrorEvent(FoxTelemetryConfig cfg, String installId, Throwable t, String contextTag) {
+        return EventEncoder.get().encodeError(
+                envelope(cfg, installId), System.currentTimeMillis(), t, contextTag, cfg.maxStackFrames,
+                0L, 0, 0L, 0L, breadcrumbs);
+    }
+
+    /** First occurrence of an error, tagged with its fingerprint and carrying the current breadcrumbs. */
+    public static byte[] buildErrorEvent(FoxTelemetryConfig cfg, String installId, Throwable t, String contextTag,
+                                         long fingerprint, long timestamp) {
+        return EventEncoder.get().encodeError(
+                envelope(cfg, installId), timestamp, t, contextTag, cfg.maxStackFrames,
+                fingerprint, 1, timestamp, timestamp, breadcrumbs);
+    }
+
+    /** One event standing for all repeats of an error suppressed within an aggregation window. */
+    public static byte[] buildErrorSummary(FoxTelemetryConfig cfg, String installId, ErrorAggregator.Summary s) {
+        return EventEncoder.get().encodeError(
+                envelope(cfg, installId), s.lastSeen, s.throwable, s.contextTag, cfg.maxStackFrames,
+                s.fingerprint, s.occurrences, s.firstSeen, s.lastSeen);
+    }
+
+    public static byte[] buildLogEvent(FoxTelemetryConfig cfg, String installId, String level, String tag, String message) {
+        return EventEncoder.get().encodeLog(
+                envelope(cfg, installId), System.currentTimeMillis(), level, tag, message);
+    }
+
+    public static byte[] buildLogEvent(FoxTelemetryConfig cfg, String installId, String level, String tag, String message,
+                                       long timestamp) {
+        return EventEncoder.get().encodeLog(envelope(cfg, installId), timestamp, level, tag, message);
+    }
+
+    public static byte[] buildEvent(FoxTelemetryConfig cfg, String installId, EventBuilder event, long timestamp) {
+        return EventEncoder.get().encodeEvent(envelope(cfg, installId), timestamp, event);
+    }
+
+    /** One event standing for a run of identical log calls collapsed by {@link LogFilter}. */
+    public static byte[] buildRepeatedLogEvent(FoxTelemetryConfig cfg, String installId, LogLevel level, String tag,
+                                               String message, int repeats, long lastSeen) {
+        return EventEncoder.get().encodeLog(
+                envelope(cfg, installId), lastSeen, level.name(), tag, message, repeats);
+    }
+
+    public static byte[] buildLogFilterReport(FoxTelemetryConfig cfg, String installId, LogFilter.Report report) {
+        return EventEncoder.get().encodeLogFilterReport(envelope(cfg, installId), report);
+    }
+
+    public static byte[] buildEvictionReport(FoxTelemetryConfig cfg, String installId, EvictionReport report) {
+        return EventEncoder.get().encodeEvictionReport(envelope(cfg, installId), report);
+    }
+
+    public static byte[] buildSdkStats(FoxTelemetryConfig cfg, String installId, SdkStats stats) {
+        return EventEncoder.get().encodeSdkStats(envelope(cfg, installId), stats);
+    }
+
+    public static byte[] buildMetricsReport(FoxTelemetryConfig cfg, String installId, MetricsReport report) {
+        return EventEncoder.get().encodeMetrics(envelope(cfg, installId), report);
+    }
+
+    public static byte[] buildTrace(FoxTelemetryConfig cfg, String installId, Trace trace) {
+        return EventEncoder.get().encodeTrace(envelope(cfg, installId), trace);
+    }
+
+    static EventEnvelope envelope(FoxTelemetryConfig cfg, String installId) {
+        EventEnvelope env = envelope;
+        if (env == null || !env.isFor(cfg, installId)) {
+            env = EventEnvelope.create(cfg, installId, device);
+            envelope = env;
+        }
+        return env;
+    }
+}
@@ -0,0 +1,96 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * The finished spans of one sampled trace, kept in parallel arrays and handed to the
+ * {@link Tracer.Sink} once the last open span ends. Read-only from then on.
+ */
+public final class Trace {
+
+    /** Spans kept per trace; later ones are only counted. */
+    public static final int MAX_SPANS = 256;
+
+    private final Tracer.Sink sink;
+    final long traceId;
+    /** Wall-clock time the root span started, the event's timestamp. */
+    public final long startWallMillis;
+    final long startNanos;
+
+    // guarded by this until the trace is complete
+    private int open;
+    private boolean complete;
+    int size;
+    int dropped;
+    long[] spanIds = new long[8];
+    long[] parentIds = new long[8];
+    long[] startOffsets = new long[8]; // nanos after the root's start
+    long[] durations = new long[8];
+    String[] names = new String[8];
+    boolean[] errors = new boolean[8];
+    String[][] tags = new String[8][];
+
+    Trace(@NonNull Tracer.Sink sink, long traceId, long startWallMillis, long startNanos) {
+        this.sink = sink;
+        this.traceId = traceId;
+        this.startWallMillis = startWallMillis;
+        this.startNanos = startNanos;
+    }
+
+    /** Counts a newly started span; false if the trace has already been handed off. */
+    synchronized boolean open() {
+        if (complete) return false;
+        open++;
+        return true;
+    }
+
+    void finish(Span s, long endNanos) {
+        synchronized (this) {
+            if (size < MAX_SPANS) {
+                if (size == spanIds.length) grow();
+                int i = size++;
+                spanIds[i] = s.spanId;
+                parentIds[i] = s.parentId;
+                startOffsets[i] = s.startNanos - startNanos;
+                durations[i] = Math.max(0, endNanos - s.startNanos);
+                names[i] = s.name;
+                errors[i] = s.error;
+                if (s.tagCount > 0) {
+                    String[] t = new String[s.tagCount * 2];
+                    for (int k = 0; k < s.tagCount; k++) {
+                        t[2 * k] = s.tagKeys[k];
+                        t[2 * k + 1] = s.tagValues[k];
+                    }
+                    tags[i] = t;
+                }
+            } else {
+                dropped++;
+            }
+            if (--open > 0) return;
+            complete = true;
+        }
+        sink.emit(this);
+    }
+
+    public int spanCount() {
+        return size;
+    }
+
+    @NonNull
+    public String spanName(int i) {
+        return names[i];
+    }
+
+    private void grow() {
+        int n = Math.min(MAX_SPANS, size * 2);
+        spanIds = Arrays.copyOf(spanIds, n);
+        parentIds = Arrays.copyOf(parentIds, n);
+        startOffsets = Arrays.copyOf(startOffsets, n);
+        durations = Arrays.copyOf(durations, n);
+        names = Arrays.copyOf(names, n);
+        errors = Arrays.copyOf(errors, n);
+        tags = Arrays.copyOf(tags, n);
+    }
+}
@@ -0,0 +1,98 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Starts {@link Span}s and decides, once per trace at the root, whether it is recorded (head
+ * sampling). An unsampled root costs one random draw and returns {@link Span#NOOP}; its children
+ * are NOOP as well. Sampled spans come from a small pool and their data is moved into the
+ * {@link Trace} when they end, so the span objects are reused.
+ */
+public final class Tracer {
+
+    /** Monotonic time source in nanoseconds ({@code SystemClock.elapsedRealtimeNanos} on Android). */
+    public interface Clock {
+        long nanos();
+    }
+
+    /** Receives each trace once all of its spans have ended. */
+    public interface Sink {
+        void emit(@NonNull Trace trace);
+    }
+
+    private static final int POOL_SIZE = 16;
+
+    private final Clock clock;
+    private final Sink sink;
+    private final AtomicReferenceArray<Span> pool = new AtomicReferenceArray<>(POOL_SIZE);
+    private volatile double sampleRate;
+
+    public Tracer(@NonNull Clock clock, @NonNull Sink sink, double sampleRate) {
+        this.clock = clock;
+        this.sink = sink;
+        setSampleRate(sampleRate);
+    }
+
+    /** Fraction (0..1) of new traces that are recorded; traces already started keep their decision. */
+    public void setSampleRate(double rate) {
+        sampleRate = Double.isNaN(rate) ? 0 : Math.max(0, Math.min(1, rate));
+    }
+
+    /** Starts the root span of a new trace, or returns {@link Span#NOOP} if it is not sampled. */
+    @NonNull
+    public Span startSpan(@NonNull String name) {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) return Span.NOOP;
+        long now = clock.nanos();
+        Trace trace = new Trace(sink, nonZeroId(), System.currentTimeMillis(), now);
+        trace.open();
+        return start(name, trace, 0L, now);
+    }
+
+    Span startChild(String name, Trace trace, long parentId) {
+        if (!trace.open()) return Span.NOOP;
+        return start(name, trace, parentId, clock.nanos());
+    }
+
+    long nanos() {
+        return clock.nanos();
+    }
+
+    private Span start(String name, Trace trace, long parentId, long now) {
+        Span s = obtain();
+        s.name = name;
+        s.spanId = nonZeroId();
+        s.parentId = parentId;
+        s.startNanos = now;
+        s.trace = trace;
+        return s;
+    }
+
+    private Span obtain() {
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            Span s = pool.getAndSet((start + i) & (POOL_SIZE - 1), null);
+            if (s != null) return s;
+        }
+        return new Span(this);
+    }
+
+    void recycle(Span s) {
+        s.reset();
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (pool.compareAndSet((start + i) & (POOL_SIZE - 1), null, s)) return;
+        }
+    }
+
+    private static long nonZeroId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+}
@@ -0,0 +1,151 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Decides when uploads may resume after failed flushes, so a fleet hit by the same ingest outage
+ * does not retry in lockstep. After the n-th consecutive failure the next attempt waits a random
+ * time between 0 and {@code min(retryMaxDelayMs, retryBaseDelayMs * 2^(n-1))} ("full jitter"),
+ * or the server's {@code Retry-After} if that is longer.
+ *
+ * <p>After {@link FoxTelemetryConfig#circuitBreakerFailures} failures in a row the breaker opens:
+ * uploads pause for between half and all of {@link FoxTelemetryConfig#circuitBreakerOpenMs},
+ * then a single batch probes the server. Its success closes the breaker; its failure pauses
+ * uploads again.</p>
+ *
+ * <p>The state lives in a small file (the no-backup files dir on Android), so neither a process
+ * restart nor a flush run in another process forgets an ongoing backoff. Times are wall-clock
+ * milliseconds; a wait is never longer than the longest configured delay, whatever the clock did.</p>
+ */
+public final class UploadBackoff {
+
+    static final String FILE_NAME = "foxtelemetry-backoff";
+
+    private static final int MAGIC = 0x464F5842; // "FOXB"
+
+    private final long baseMs;
+    private final long maxMs;
+    private final int breakerFailures;
+    private final long openMs;
+    @Nullable private final File file;
+    private final Random random;
+
+    // Guarded by this.
+    private int failures;
+    private boolean open;
+    private long retryAt;
+
+    /** Keeps its state in {@code dir}; null keeps it in memory only. */
+    public UploadBackoff(@NonNull FoxTelemetryConfig cfg, @Nullable File dir) {
+        this(cfg, dir != null ? new File(dir, FILE_NAME) : null, new Random());
+    }
+
+    UploadBackoff(@NonNull FoxTelemetryConfig cfg, @Nullable File file, @NonNull Random random) {
+        this.baseMs = cfg.retryBaseDelayMs;
+        this.maxMs = cfg.retryMaxDelayMs;
+        this.breakerFailures = cfg.circuitBreakerFailures;
+        this.openMs = cfg.circuitBreakerOpenMs;
+        this.file = file;
+        this.random = random;
+        load();
+    }
+
+    /**
+     * Milliseconds until uploads may resume; 0 if they may now. Reads the stored state again, as
+     * a run in another process may have changed it.
+     */
+    public synchronized long delayMs(long now) {
+        load();
+        long wait = retryAt - now;
+        if (wait <= 0) return 0;
+        // A wall clock set back must not stretch the wait.
+        return Math.min(wait, Math.max(maxMs, openMs));
+    }
+
+    /** The breaker is open: once {@link #delayMs} reaches 0, send a single probe batch. */
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    public synchronized int consecutiveFailures() {
+        return failures;
+    }
+
+    /** The server accepted a batch: backoff is reset and the breaker closed. */
+    public synchronized void onSuccess() {
+        if (failures == 0 && !open && retryAt == 0) return;
+        failures = 0;
+        open = false;
+        retryAt = 0;
+        save();
+    }
+
+    /**
+     * A flush failed for a reason worth retrying (no response, 429 or 5xx). {@code retryAfterMs}
+     * is the server's {@code Retry-After}, or -1 without one. Returns the delay before the next
+     * attempt, also reported by {@link #delayMs} from now on.
+     */
+    public synchronized long onFailure(long now, long retryAfterMs) {
+        if (failures < Integer.MAX_VALUE) failures++;
+        long ceiling = baseMs;
+        for (int i = 1; i < failures && ceiling < maxMs; i++) ceiling *= 2;
+        long delay = randomUpTo(Math.min(ceiling, maxMs));
+        if (retryAfterMs > 0) delay = Math.max(delay, Math.min(retryAfterMs, maxMs));
+        if (open || (breakerFailures > 0 && failures >= breakerFailures)) {
+            // Spread over the second half of the pause, so a fleet that opened together does not probe together.
+            open = true;
+            delay = Math.max(delay, openMs / 2 + randomUpTo(openMs - openMs / 2));
+        }
+        retryAt = now + delay;
+        save();
+        return delay;
+    }
+
+    private long randomUpTo(long bound) {
+        return (long) (random.nextDouble() * (bound + 1));
+    }
+
+    private void load() {
+        if (file == null) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) return;
+            int f = in.readInt();
+            boolean o = in.readBoolean();
+            long at = in.readLong();
+            failures = Math.max(0, f);
+            open = o;
+            retryAt = at;
+        } catch (FileNotFoundException e) {
+            failures = 0;
+            open = false;
+            retryAt = 0;
+        } catch (IOException ignored) {
+            // Torn or foreign content: keep what this process knows.
+        }
+    }
+
+    // Written aside and renamed over, so a reader never sees half a record.
+    private void save() {
+        if (file == null) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(failures);
+            out.writeBoolean(open);
+            out.writeLong(retryAt);
+        } catch (IOException e) {
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+}
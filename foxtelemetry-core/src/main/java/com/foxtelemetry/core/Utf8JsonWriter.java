@@ -0,0 +1,351 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+/**
+ * Minimal streaming JSON writer that encodes straight into a reusable UTF-8 byte buffer.
+ * No intermediate {@code String}/{@code JSONObject} is built; the buffer is recycled
+ * between events via {@link #reset()}.
+ */
+final class Utf8JsonWriter {
+
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    /** Buffers that grew past this (huge stack traces) are not kept around after {@link #reset()}. */
+    private static final int MAX_RETAINED = 64 * 1024;
+
+    private final int initialCapacity;
+    private byte[] buf;
+    private int len;
+
+    private boolean[] needsComma = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    private final StringValueWriter stringValueWriter = new StringValueWriter();
+
+    Utf8JsonWriter(int initialCapacity) {
+        this.initialCapacity = Math.max(64, initialCapacity);
+        this.buf = new byte[this.initialCapacity];
+    }
+
+    void reset() {
+        if (buf.length > MAX_RETAINED) buf = new byte[initialCapacity];
+        len = 0;
+        depth = 0;
+        needsComma[0] = false;
+        afterName = false;
+    }
+
+    int size() { return len; }
+
+    @NonNull
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    void writeTo(@NonNull OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    void writeTo(@NonNull ByteBuffer out) {
+        out.put(buf, 0, len);
+    }
+
+    void updateChecksum(@NonNull Checksum checksum) {
+        checksum.update(buf, 0, len);
+    }
+
+    Utf8JsonWriter beginObject() {
+        beforeValue();
+        put('{');
+        push();
+        return this;
+    }
+
+    Utf8JsonWriter endObject() {
+        depth--;
+        put('}');
+        return this;
+    }
+
+    Utf8JsonWriter beginArray() {
+        beforeValue();
+        put('[');
+        push();
+        return this;
+    }
+
+    Utf8JsonWriter endArray() {
+        depth--;
+        put(']');
+        return this;
+    }
+
+    Utf8JsonWriter name(@NonNull String name) {
+        if (needsComma[depth]) put(',');
+        needsComma[depth] = true;
+        writeQuoted(name);
+        put(':');
+        afterName = true;
+        return this;
+    }
+
+    Utf8JsonWriter value(@Nullable String value) {
+        beforeValue();
+        if (value == null) putBytes(NULL, 0, NULL.length);
+        else writeQuoted(value);
+        return this;
+    }
+
+    Utf8JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    Utf8JsonWriter value(double value) {
+        beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            putBytes(NULL, 0, NULL.length);
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    Utf8JsonWriter value(boolean value) {
+        beforeValue();
+        byte[] b = value ? TRUE : FALSE;
+        putBytes(b, 0, b.length);
+        return this;
+    }
+
+    /** Writes an already-encoded JSON value (object, array or scalar) verbatim. */
+    Utf8JsonWriter rawValue(@NonNull byte[] json, int off, int count) {
+        beforeValue();
+        putBytes(json, off, count);
+        return this;
+    }
+
+    /**
+     * Splices pre-encoded object members ({@code "a":1,"b":2}) into the current object.
+     * Used for the constant event envelope.
+     */
+    Utf8JsonWriter rawMembers(@NonNull byte[] members) {
+        if (members.length == 0) return this;
+        if (needsComma[depth]) put(',');
+        needsComma[depth] = true;
+        putBytes(members, 0, members.length);
+        return this;
+    }
+
+    /**
+     * Opens a string value whose contents are streamed through the returned {@link Writer}
+     * (escaped on the fly). Close it with {@link #endStringValue()}.
+     */
+    @NonNull
+    Writer beginStringValue() {
+        beforeValue();
+        put('"');
+        stringValueWriter.pendingHigh = 0;
+        return stringValueWriter;
+    }
+
+    Utf8JsonWriter endStringValue() {
+        if (stringValueWriter.pendingHigh != 0) {
+            writeReplacementChar();
+            stringValueWriter.pendingHigh = 0;
+        }
+        put('"');
+        return this;
+    }
+
+    // ---- internals ----
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (needsComma[depth]) put(',');
+        needsComma[depth] = true;
+    }
+
+    private void push() {
+        depth++;
+        if (depth == needsComma.length) needsComma = Arrays.copyOf(needsComma, depth * 2);
+        needsComma[depth] = false;
+    }
+
+    private void writeQuoted(String s) {
+        put('"');
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, s.charAt(++i)));
+            } else {
+                writeEscapedChar(c);
+            }
+        }
+        put('"');
+    }
+
+    private void writeEscapedChar(char c) {
+        if (c < 0x80) {
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put(c);
+            } else if (c >= 0x20) {
+                put(c);
+            } else {
+                put('\\');
+                switch (c) {
+                    case '\n': put('n'); break;
+                    case '\r': put('r'); break;
+                    case '\t': put('t'); break;
+                    case '\b': put('b'); break;
+                    case '\f': put('f'); break;
+                    default:
+                        put('u');
+                        put('0');
+                        put('0');
+                        put(HEX[c >> 4]);
+                        put(HEX[c & 0xF]);
+                }
+            }
+        } else if (c < 0x800) {
+            put(0xC0 | (c >> 6));
+            put(0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            writeReplacementChar();
+        } else {
+            put(0xE0 | (c >> 12));
+            put(0x80 | ((c >> 6) & 0x3F));
+            put(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void writeCodePoint(int cp) {
+        put(0xF0 | (cp >> 18));
+        put(0x80 | ((cp >> 12) & 0x3F));
+        put(0x80 | ((cp >> 6) & 0x3F));
+        put(0x80 | (cp & 0x3F));
+    }
+
+    private void writeReplacementChar() {
+        put(0xEF);
+        put(0xBF);
+        put(0xBD);
+    }
+
+    private void writeLong(long v) {
+        if (v == Long.MIN_VALUE) {
+            putBytes(LONG_MIN, 0, LONG_MIN.length);
+            return;
+        }
+        ensure(20);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int start = len;
+        do {
+            buf[len++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void writeAscii(String s) {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) buf[len++] = (byte) s.charAt(i);
+    }
+
+    private void put(int b) {
+        if (len == buf.length) grow(1);
+        buf[len++] = (byte) b;
+    }
+
+    private void putBytes(byte[] src, int off, int count) {
+        ensure(count);
+        System.arraycopy(src, off, buf, len, count);
+        len += count;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) grow(extra);
+    }
+
+    private void grow(int extra) {
+        int needed = len + extra;
+        int cap = Math.max(buf.length * 2, needed);
+        buf = Arrays.copyOf(buf, cap);
+    }
+
+    /** Escapes whatever is written to it into the enclosing string value. */
+    private final class StringValueWriter extends Writer {
+        char pendingHigh;
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(@NonNull char[] cbuf, int off, int count) {
+            ensure(count);
+            for (int i = off, end = off + count; i < end; i++) writeChar(cbuf[i]);
+        }
+
+        @Override
+        public void write(@NonNull String str, int off, int count) {
+            ensure(count);
+            for (int i = off, end = off + count; i < end; i++) writeChar(str.charAt(i));
+        }
+
+        private void writeChar(char c) {
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(c)) {
+                    writeCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                writeReplacementChar();
+            }
+            if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else {
+                writeEscapedChar(c);
+            }
+        }
+
+        @Override public void flush() {}
+        @Override public void close() {}
+    }
+}
@@ -0,0 +1,26 @@
+package com.foxtelemetry.core;
+
+import androidx.annotation.NonNull;
+
+/** Upload body encoding. See {@link BatchEncoder} for the layout of each format. */
+public enum WireFormat {
+    /** UTF-8 JSON; always accepted by the ingest API and used as the fallback. */
+    JSON("application/json; charset=utf-8"),
+    /** Compact binary (CBOR, RFC 8949) with the same logical structure as {@link #JSON}. */
+    CBOR("application/cbor"),
+    /** Send JSON until the server advertises CBOR support via {@code Accept-Post}, then switch. */
+    AUTO(null);
+
+    private final String contentType;
+
+    WireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /** Concrete media type; not defined for {@link #AUTO}. */
+    @NonNull
+    public String contentType() {
+        if (contentType == null) throw new IllegalStateException("AUTO has no content type");
+        return contentType;
+    }
+}
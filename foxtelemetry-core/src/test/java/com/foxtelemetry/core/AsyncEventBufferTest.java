@@ -0,0 +1,136 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncEventBufferTest {
+
+    @Test
+    public void flushToDiskCommitsEverythingFromManyProducers() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        AsyncEventBuffer<Integer> buffer = new AsyncEventBuffer<>(64, OverflowPolicy.BLOCK, 5_000, sink);
+
+        int producers = 4;
+        int perProducer = 5_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) buffer.offer(base + i);
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        buffer.flushToDisk();
+
+        assertEquals(0, buffer.droppedCount());
+        assertEquals(producers * perProducer, sink.count());
+        assertTrue("writer should group rows", sink.maxBatch() > 1);
+        buffer.close();
+    }
+
+    @Test
+    public void dropNewestKeepsBufferedEvents() {
+        BlockingSink sink = new BlockingSink();
+        AsyncEventBuffer<Integer> buffer = new AsyncEventBuffer<>(2, OverflowPolicy.DROP_NEWEST, 0, sink);
+        sink.awaitWriterParked(buffer);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.droppedCount());
+
+        sink.release();
+        buffer.flushToDisk();
+        assertEquals(List.of(1, 2), sink.seen());
+        buffer.close();
+    }
+
+    @Test
+    public void dropOldestKeepsNewestEvents() {
+        BlockingSink sink = new BlockingSink();
+        AsyncEventBuffer<Integer> buffer = new AsyncEventBuffer<>(2, OverflowPolicy.DROP_OLDEST, 0, sink);
+        sink.awaitWriterParked(buffer);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertTrue(buffer.offer(3));
+        assertEquals(1, buffer.droppedCount());
+
+        sink.release();
+        buffer.flushToDisk();
+        assertEquals(List.of(2, 3), sink.seen());
+        buffer.close();
+    }
+
+    @Test
+    public void blockGivesUpAfterTimeout() {
+        BlockingSink sink = new BlockingSink();
+        AsyncEventBuffer<Integer> buffer = new AsyncEventBuffer<>(2, OverflowPolicy.BLOCK, 20, sink);
+        sink.awaitWriterParked(buffer);
+
+        buffer.offer(1);
+        buffer.offer(2);
+        long start = System.nanoTime();
+        assertFalse(buffer.offer(3));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        sink.release();
+        buffer.close();
+    }
+
+    private static final class RecordingSink implements AsyncEventBuffer.Sink<Integer> {
+        private final List<Integer> rows = Collections.synchronizedList(new ArrayList<>());
+        private volatile int maxBatch;
+
+        @Override
+        public void write(List<Integer> batch) {
+            rows.addAll(batch);
+            maxBatch = Math.max(maxBatch, batch.size());
+        }
+
+        int count() { return rows.size(); }
+        int maxBatch() { return maxBatch; }
+    }
+
+    /** Holds the writer inside its first write so the ring can be filled deterministically. */
+    private static final class BlockingSink implements AsyncEventBuffer.Sink<Integer> {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean primed;
+
+        @Override
+        public void write(List<Integer> batch) throws Exception {
+            if (!primed) {
+                primed = true;
+                entered.countDown();
+                released.await(10, TimeUnit.SECONDS);
+                return;
+            }
+            seen.addAll(batch);
+        }
+
+        void awaitWriterParked(AsyncEventBuffer<Integer> buffer) {
+            buffer.offer(-1);
+            try {
+                assertTrue(entered.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        void release() { released.countDown(); }
+
+        List<Integer> seen() { return new ArrayList<>(seen); }
+    }
+}
@@ -0,0 +1,357 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Round-trip suite for the batch wire formats; the CBOR side doubles as a spec check for ingest. */
+public class BatchEncoderTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key")
+            .setEnvironment("staging")
+            .build();
+    private static final FoxTelemetryConfig REFS_CFG = CFG.toBuilder().setCborStringRefs(true).build();
+    private static final FoxTelemetryConfig HOISTED_CFG = CFG.toBuilder().setBatchEnvelope(true).build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    @Test
+    public void cborAndJsonDecodeToTheSameDocument() throws Exception {
+        List<byte[]> events = sampleEvents();
+
+        Map<String, Object> fromJson = normalizeMap(new JSONObject(
+                new String(encode(WireFormat.JSON, events), StandardCharsets.UTF_8)).toMap());
+        Map<String, Object> fromCbor = CborDecoder.decodeBatch(encode(WireFormat.CBOR, events));
+
+        assertEquals(fromJson, fromCbor);
+        assertEquals(events.size(), ((List<?>) fromCbor.get("events")).size());
+    }
+
+    @Test
+    public void jsonSplicesStoredPayloadsVerbatim() throws Exception {
+        byte[] a = EventEncoder.get().encodeLog(ENVELOPE, 1L, "DEBUG", "A", "one");
+        byte[] b = EventEncoder.get().encodeLog(ENVELOPE, 2L, "WARN", "B", "two");
+
+        String body = new String(encode(WireFormat.JSON, Arrays.asList(a, b)), StandardCharsets.UTF_8);
+        assertTrue(body.contains(new String(a, StandardCharsets.UTF_8) + "," + new String(b, StandardCharsets.UTF_8)));
+        assertEquals("proj_1", new JSONObject(body).getString("projectId"));
+    }
+
+    @Test
+    public void cborIsSmallerThanJson() throws Exception {
+        List<byte[]> events = sampleEvents();
+        int json = encode(WireFormat.JSON, events).length;
+        int cbor = encode(WireFormat.CBOR, events).length;
+        assertTrue("cbor=" + cbor + " json=" + json, cbor < json);
+    }
+
+    @Test
+    public void stringRefsDecodeToTheSameDocumentWithoutRedundantStackTraces() throws Exception {
+        List<byte[]> events = new ArrayList<>(sampleEvents());
+        events.add(EventEncoder.get().encodeError(ENVELOPE, 1_700_000_000_003L, new IllegalStateException("boom"),
+                "CHECKOUT", 20));
+        // Frameless errors keep their stacktrace text.
+        events.add("{\"type\":\"error\",\"stacktrace\":\"java.lang.Error: x\",\"frames\":[],\"n\":1}"
+                .getBytes(StandardCharsets.UTF_8));
+
+        Map<String, Object> fromJson = normalizeMap(new JSONObject(
+                new String(encode(WireFormat.JSON, events), StandardCharsets.UTF_8)).toMap());
+        byte[] body = encode(WireFormat.CBOR, events, REFS_CFG);
+        Map<String, Object> fromCbor = CborDecoder.decodeBatch(body);
+
+        assertEquals(withoutStackTraceText(fromJson), fromCbor);
+        List<?> decoded = (List<?>) fromCbor.get("events");
+        assertFalse(((Map<?, ?>) decoded.get(2)).containsKey("stacktrace"));
+        assertEquals("java.lang.Error: x", ((Map<?, ?>) decoded.get(4)).get("stacktrace"));
+        assertTrue(body.length < encode(WireFormat.CBOR, events).length);
+    }
+
+    @Test
+    public void stringRefsShrinkErrorHeavyBatches() throws Exception {
+        List<byte[]> events = new ArrayList<>();
+        EventEncoder enc = EventEncoder.get();
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 0) {
+                events.add(enc.encodeError(ENVELOPE, 1_700_000_000_000L + i, deepThrowable(i % 3, 30 + i % 7),
+                        "CHECKOUT", CFG.maxStackFrames));
+            } else {
+                events.add(enc.encodeLog(ENVELOPE, 1_700_000_000_000L + i, "INFO", "NET",
+                        "GET /v1/orders/" + i + " -> 200"));
+            }
+        }
+        byte[] cbor = encode(WireFormat.CBOR, events);
+        byte[] refs = encode(WireFormat.CBOR, events, REFS_CFG);
+
+        assertTrue("refs=" + refs.length + " cbor=" + cbor.length, refs.length * 3 < cbor.length);
+        assertTrue(gzip(refs) < gzip(cbor));
+        assertEquals(events.size(), ((List<?>) CborDecoder.decodeBatch(refs).get("events")).size());
+    }
+
+    @Test
+    public void malformedStoredPayloadDoesNotLeaveDanglingStringRefs() throws Exception {
+        byte[] good = EventEncoder.get().encodeLog(ENVELOPE, 1L, "INFO", "SOME_TAG", "some message");
+        // Adds strings to the table before failing; later events must not refer to them.
+        byte[] bad = "{\"type\":\"log\",\"tag\":\"SOME_TAG\",\"message\":\"some message\",".getBytes(StandardCharsets.UTF_8);
+
+        BatchEncoder encoder = new BatchEncoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(out, WireFormat.CBOR, REFS_CFG, Arrays.asList(bad, good, bad, good));
+
+        assertEquals(2, encoder.skippedCount());
+        List<?> decoded = (List<?>) CborDecoder.decodeBatch(out.toByteArray()).get("events");
+        assertEquals(2, decoded.size());
+        assertEquals("some message", ((Map<?, ?>) decoded.get(0)).get("message"));
+        assertEquals(decoded.get(0), decoded.get(1));
+    }
+
+    @Test
+    public void hoistedEnvelopeExpandsToTheOriginalEvents() throws Exception {
+        List<byte[]> events = new ArrayList<>(sampleEvents());
+        // A user change mid-batch, then an envelope without userId or installId.
+        FoxTelemetryConfig other = CFG.withUserId("user-2");
+        events.add(EventEncoder.get().encodeLog(EventEnvelope.create(other, "install-1",
+                new DeviceInfo("google", "Pixel 8", 34, "14")), 1_699_999_999_000L, "INFO", "APP", "u2"));
+        events.add(EventEncoder.get().encodeLog(EventEnvelope.create(CFG, null,
+                new DeviceInfo("google", "Pixel 8", 34, "14")), 1_700_000_000_010L, "INFO", "APP", "anon"));
+        // Kept whole: no envelope to hoist.
+        events.add("{\"timestamp\":5,\"type\":\"log\",\"message\":\"legacy\"}".getBytes(StandardCharsets.UTF_8));
+
+        List<Object> expected = new ArrayList<>();
+        for (byte[] e : events) expected.add(normalize(new JSONObject(new String(e, StandardCharsets.UTF_8)).toMap()));
+
+        Map<String, Object> json = normalizeMap(new JSONObject(
+                new String(encode(WireFormat.JSON, events, HOISTED_CFG), StandardCharsets.UTF_8)).toMap());
+        Map<String, Object> cbor = CborDecoder.decodeBatch(encode(WireFormat.CBOR, events, HOISTED_CFG));
+
+        assertEquals(json, cbor);
+        assertEquals(expected, expand(json));
+        Map<?, ?> shared = (Map<?, ?>) json.get("envelope");
+        assertFalse(shared.containsKey("projectId"));
+        assertEquals("install-1", shared.get("installId"));
+        List<?> sent = (List<?>) json.get("events");
+        assertEquals(1_700_000_000_000L, json.get("baseTimestamp"));
+        assertEquals(1L, ((Map<?, ?>) sent.get(1)).get("dt"));
+        assertEquals(-1_000L, ((Map<?, ?>) sent.get(3)).get("dt"));
+        assertEquals("user-2", ((Map<?, ?>) sent.get(3)).get("userId"));
+        assertFalse(((Map<?, ?>) sent.get(3)).containsKey("device"));
+        assertTrue(((Map<?, ?>) sent.get(4)).containsKey("installId"));
+        assertNull(((Map<?, ?>) sent.get(4)).get("installId"));
+    }
+
+    @Test
+    public void hoistedEnvelopeShrinksLogBatches() throws Exception {
+        List<byte[]> events = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            events.add(EventEncoder.get().encodeLog(ENVELOPE, 1_700_000_000_000L + i * 37L, "INFO", "NET",
+                    "GET /v1/orders/" + i + " -> 200"));
+        }
+        int json = encode(WireFormat.JSON, events).length;
+        int hoistedJson = encode(WireFormat.JSON, events, HOISTED_CFG).length;
+        int cbor = encode(WireFormat.CBOR, events).length;
+        int hoistedCbor = encode(WireFormat.CBOR, events, HOISTED_CFG).length;
+
+        assertTrue(hoistedJson * 2 < json);
+        assertTrue(hoistedCbor * 2 < cbor);
+        assertEquals(0, ((List<?>) CborDecoder.decodeBatch(encode(WireFormat.CBOR, new ArrayList<>(), HOISTED_CFG))
+                .get("events")).size());
+    }
+
+    @Test
+    public void legacyOrgJsonPayloadsTranscode() throws Exception {
+        // Rows written by the old JSONObject path use escaped slashes and \\u escapes.
+        String legacy = "{\"type\":\"log\",\"message\":\"a\\/b \\u00e9\\ud83e\\udd8a \\\"q\\\"\","
+                + "\"n\":-42,\"big\":12345678901234567890,\"f\":1.5,\"e\":2.5E-3,"
+                + "\"ok\":true,\"nil\":null,\"arr\":[],\"obj\":{} }";
+
+        Map<String, Object> decoded = decodeSingle(legacy.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("a/b \u00e9\uD83E\uDD8A \"q\"", decoded.get("message"));
+        assertEquals(-42L, decoded.get("n"));
+        assertEquals(1.2345678901234567E19, (Double) decoded.get("big"), 1e4);
+        assertEquals(1.5, decoded.get("f"));
+        assertEquals(2.5E-3, (Double) decoded.get("e"), 0.0);
+        assertEquals(Boolean.TRUE, decoded.get("ok"));
+        assertTrue(decoded.containsKey("nil"));
+        assertNull(decoded.get("nil"));
+        assertEquals(new ArrayList<>(), decoded.get("arr"));
+        assertEquals(new LinkedHashMap<>(), decoded.get("obj"));
+    }
+
+    @Test
+    public void malformedStoredPayloadIsSkipped() throws Exception {
+        byte[] good = EventEncoder.get().encodeLog(ENVELOPE, 1L, "INFO", "T", "ok");
+        byte[] bad = "{\"type\":\"log\",".getBytes(StandardCharsets.UTF_8);
+
+        BatchEncoder encoder = new BatchEncoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(out, WireFormat.CBOR, CFG, Arrays.asList(good, bad, good));
+
+        assertEquals(1, encoder.skippedCount());
+        assertEquals(2, ((List<?>) CborDecoder.decodeBatch(out.toByteArray()).get("events")).size());
+    }
+
+    @Test
+    public void scalarEncodingsRoundTrip() throws Exception {
+        long[] longs = {0, 23, 24, 255, 256, 65535, 65536, 4294967295L, 4294967296L,
+                Long.MAX_VALUE, -1, -24, -25, -256, -257, Long.MIN_VALUE};
+        for (long v : longs) {
+            CborWriter w = new CborWriter(16);
+            w.writeLong(v);
+            assertEquals(v, CborDecoder.decode(w.toByteArray()));
+        }
+        double[] doubles = {0.5, -1.25, 3.141592653589793, 1e300, Double.NEGATIVE_INFINITY};
+        for (double v : doubles) {
+            CborWriter w = new CborWriter(16);
+            w.writeDouble(v);
+            assertEquals(v, (Double) CborDecoder.decode(w.toByteArray()), 0.0);
+        }
+        CborWriter w = new CborWriter(16);
+        w.writeText("h\u00e9llo \uD83E\uDD8A");
+        assertEquals("h\u00e9llo \uD83E\uDD8A", CborDecoder.decode(w.toByteArray()));
+        assertArrayEquals(new byte[]{0x63, 'a', 'b', 'c'}, new CborWriter(4).writeText("abc").toByteArray());
+    }
+
+    private static List<byte[]> sampleEvents() {
+        EventEncoder enc = EventEncoder.get();
+        Exception nested = new IllegalStateException("boom \"quoted\"\n\tline",
+                new RuntimeException("root cause \u00fc"));
+        return Arrays.asList(
+                enc.encodeLog(ENVELOPE, 1_700_000_000_000L, "INFO", "APP", "Started"),
+                enc.encodeLog(ENVELOPE, 1_700_000_000_001L, "DEBUG", "NET", "GET /a?b=c \uD83E\uDD8A"),
+                enc.encodeError(ENVELOPE, 1_700_000_000_002L, nested, "CHECKOUT", 20));
+    }
+
+    private static byte[] encode(WireFormat format, List<byte[]> events) throws Exception {
+        return encode(format, events, CFG);
+    }
+
+    private static byte[] encode(WireFormat format, List<byte[]> events, FoxTelemetryConfig cfg) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchEncoder().write(out, format, cfg, events);
+        return out.toByteArray();
+    }
+
+    private static int gzip(byte[] body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.size();
+    }
+
+    /** Real frames from a few distinct call paths, with a cause, like crashes from one app. */
+    private static Throwable deepThrowable(int path, int depth) {
+        if (depth > 0) {
+            switch (path) {
+                case 0: return viaRepository(depth - 1);
+                case 1: return viaViewModel(depth - 1);
+                default: return deepThrowable(path, depth - 1);
+            }
+        }
+        return new IllegalStateException("Checkout failed for order 81723",
+                new java.io.IOException("timeout after 8000 ms"));
+    }
+
+    private static Throwable viaRepository(int depth) {
+        return deepThrowable(1, depth);
+    }
+
+    private static Throwable viaViewModel(int depth) {
+        return deepThrowable(2, depth);
+    }
+
+    // What the ingest side does with a hoisted batch: top-level keys, then the shared envelope,
+    // then the event's overrides (null removes a member), and dt back to an absolute timestamp.
+    private static List<Object> expand(Map<String, Object> batch) {
+        List<Object> out = new ArrayList<>();
+        for (Object o : (List<?>) batch.get("events")) {
+            Map<?, ?> sent = (Map<?, ?>) o;
+            if (!sent.containsKey("dt")) {
+                out.add(sent);
+                continue;
+            }
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("timestamp", (Long) batch.get("baseTimestamp") + (Long) sent.get("dt"));
+            e.put("projectId", batch.get("projectId"));
+            e.put("appId", batch.get("appId"));
+            e.put("packageName", batch.get("packageName"));
+            for (Map.Entry<?, ?> m : ((Map<?, ?>) batch.get("envelope")).entrySet()) e.put((String) m.getKey(), m.getValue());
+            for (Map.Entry<?, ?> m : sent.entrySet()) {
+                if (m.getKey().equals("dt")) continue;
+                if (m.getValue() == null) e.remove(m.getKey());
+                else e.put((String) m.getKey(), m.getValue());
+            }
+            out.add(e);
+        }
+        return out;
+    }
+
+    // The document the ingest side gets with string refs: no stacktrace text next to frames.
+    @SuppressWarnings("unchecked")
+    private static <T> T withoutStackTraceText(T v) {
+        if (v instanceof Map) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            Map<String, Object> m = (Map<String, Object>) v;
+            boolean frames = m.get("frames") instanceof List && !((List<?>) m.get("frames")).isEmpty();
+            Object stackTrace = null;
+            for (Map.Entry<String, Object> e : m.entrySet()) {
+                if (e.getKey().equals("stacktrace")) {
+                    stackTrace = e.getValue();
+                    continue;
+                }
+                out.put(e.getKey(), withoutStackTraceText(e.getValue()));
+            }
+            if (stackTrace != null && !frames) out.put("stacktrace", stackTrace);
+            return (T) out;
+        }
+        if (v instanceof List) {
+            List<Object> out = new ArrayList<>();
+            for (Object o : (List<?>) v) out.add(withoutStackTraceText(o));
+            return (T) out;
+        }
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decodeSingle(byte[] json) throws Exception {
+        CborWriter w = new CborWriter(64);
+        new JsonCborTranscoder().transcode(json, w);
+        return (Map<String, Object>) CborDecoder.decode(w.toByteArray());
+    }
+
+    // org.json picks Integer/Long/BigInteger/BigDecimal per value; CBOR gives Long/Double.
+    private static Object normalize(Object v) {
+        if (v instanceof Map) return normalizeMap((Map<?, ?>) v);
+        if (v instanceof List) {
+            List<Object> out = new ArrayList<>();
+            for (Object o : (List<?>) v) out.add(normalize(o));
+            return out;
+        }
+        if (v instanceof Integer || v instanceof Long || v instanceof BigInteger) return ((Number) v).longValue();
+        if (v instanceof BigDecimal || v instanceof Float) return ((Number) v).doubleValue();
+        return v;
+    }
+
+    private static Map<String, Object> normalizeMap(Map<?, ?> m) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> e : m.entrySet()) out.put(String.valueOf(e.getKey()), normalize(e.getValue()));
+        return out;
+    }
+}
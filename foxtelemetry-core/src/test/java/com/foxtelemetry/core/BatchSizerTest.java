@@ -0,0 +1,43 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchSizerTest {
+
+    @Test
+    public void growsWhileFastAndFullyUsed() {
+        BatchSizer sizer = new BatchSizer(1_000, 100_000, 10_000, 1_000);
+        long before = sizer.budgetBytes();
+        sizer.onSuccess(before, 100);
+        assertTrue(sizer.budgetBytes() > before);
+
+        for (int i = 0; i < 100; i++) sizer.onSuccess(sizer.budgetBytes(), 100);
+        assertEquals(100_000, sizer.budgetBytes());
+    }
+
+    @Test
+    public void doesNotGrowOnSmallTailBatches() {
+        BatchSizer sizer = new BatchSizer(1_000, 100_000, 10_000, 1_000);
+        sizer.onSuccess(500, 10);
+        assertEquals(10_000, sizer.budgetBytes());
+    }
+
+    @Test
+    public void shrinksOnSlowUploadsFailuresAnd413() {
+        BatchSizer sizer = new BatchSizer(1_000, 100_000, 64_000, 1_000);
+        sizer.onSuccess(64_000, 5_000);
+        assertEquals(32_000, sizer.budgetBytes());
+
+        sizer.onTooLarge(20_000);
+        assertEquals(10_000, sizer.budgetBytes());
+
+        sizer.onFailure();
+        assertEquals(5_000, sizer.budgetBytes());
+
+        for (int i = 0; i < 10; i++) sizer.onFailure();
+        assertEquals(1_000, sizer.budgetBytes());
+    }
+}
@@ -0,0 +1,112 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BreadcrumbRingTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void keepsTheLastLinesOldestFirst() {
+        BreadcrumbRing ring = new BreadcrumbRing(3);
+        assertEquals(0, ring.forEach((ts, level, tag, message) -> { }));
+
+        for (int i = 1; i <= 5; i++) ring.add(LogLevel.INFO, "Main", "line " + i, i * 10L);
+
+        List<String> seen = new ArrayList<>();
+        assertEquals(3, ring.forEach((ts, level, tag, message) -> seen.add(message + "@" + ts)));
+        assertEquals(3, ring.size());
+        assertEquals("line 3@30", seen.get(0));
+        assertEquals("line 4@40", seen.get(1));
+        assertEquals("line 5@50", seen.get(2));
+    }
+
+    @Test
+    public void concurrentWritersNeverMixFieldsOfDifferentLines() throws Exception {
+        final BreadcrumbRing ring = new BreadcrumbRing(64);
+        final int threads = 4;
+        final int perThread = 50_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger torn = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final String tag = "T" + t;
+            Thread th = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) ring.add(LogLevel.DEBUG, tag, tag + ":" + i, i);
+            });
+            th.start();
+            writers.add(th);
+        }
+        start.countDown();
+        while (writers.get(0).isAlive()) {
+            ring.forEach((ts, level, tag, message) -> {
+                if (!message.equals(tag + ":" + ts)) torn.incrementAndGet();
+            });
+        }
+        for (Thread th : writers) th.join();
+
+        assertEquals(0, torn.get());
+        assertEquals(64, ring.forEach((ts, level, tag, message) -> { }));
+    }
+
+    @Test
+    public void errorEventsCarryTheBreadcrumbs() throws Exception {
+        BreadcrumbRing ring = new BreadcrumbRing(8);
+        ring.add(LogLevel.INFO, "Cart", "opened", 100L);
+        ring.add(LogLevel.DEBUG, "Net", "GET /cart -> 500", 110L);
+
+        byte[] encoded = EventEncoder.get().encodeError(ENVELOPE, 120L, new IllegalStateException("boom"), "checkout",
+                20, 0L, 0, 0L, 0L, ring);
+        JSONArray crumbs = new JSONObject(new String(encoded, StandardCharsets.UTF_8)).getJSONArray("breadcrumbs");
+        assertEquals(2, crumbs.length());
+        JSONObject last = crumbs.getJSONObject(1);
+        assertEquals(110L, last.getLong("timestamp"));
+        assertEquals("DEBUG", last.getString("level"));
+        assertEquals("Net", last.getString("tag"));
+        assertEquals("GET /cart -> 500", last.getString("message"));
+
+        byte[] plain = EventEncoder.get().encodeError(ENVELOPE, 120L, new IllegalStateException("boom"), "checkout", 20);
+        assertFalse(new JSONObject(new String(plain, StandardCharsets.UTF_8)).has("breadcrumbs"));
+    }
+
+    @Test
+    public void crashJournalDropsBreadcrumbsBeforeFrames() throws Exception {
+        BreadcrumbRing ring = new BreadcrumbRing(1000);
+        StringBuilder line = new StringBuilder();
+        while (line.length() < EventEncoder.MAX_BREADCRUMB_CHARS) line.append("0123456789");
+        for (int i = 0; i < 1000; i++) ring.add(LogLevel.INFO, "Spam", line.toString(), i);
+
+        CrashJournal journal = new CrashJournal(new File(tmp.getRoot(), CrashJournal.FILE_NAME));
+        assertTrue(journal.record(ENVELOPE, new IllegalStateException("boom"), 20, 1L, ring));
+
+        JSONObject event = new JSONObject(new String(journal.readPending(), StandardCharsets.UTF_8));
+        assertFalse(event.has("breadcrumbs"));
+        assertTrue(event.getJSONObject("exception").getJSONArray("frames").length() > 0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CrashJournalTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void crashSurvivesRestartUntilCleared() throws Exception {
+        File file = new File(tmp.getRoot(), CrashJournal.FILE_NAME);
+        CrashJournal journal = new CrashJournal(file);
+        assertNull(journal.readPending());
+        assertEquals(CrashJournal.FILE_SIZE, file.length());
+
+        assertTrue(journal.record(ENVELOPE, new IllegalStateException("boom"), 20, 1234L));
+        assertFalse("only the first crash is kept", journal.record(ENVELOPE, new RuntimeException(), 20, 5678L));
+
+        // Next process start.
+        CrashJournal reopened = new CrashJournal(file);
+        byte[] payload = reopened.readPending();
+        assertNotNull(payload);
+        JSONObject event = new JSONObject(new String(payload, StandardCharsets.UTF_8));
+        assertEquals("error", event.getString("type"));
+        assertEquals("UNCAUGHT_EXCEPTION", event.getString("context"));
+        assertEquals(1234L, event.getLong("timestamp"));
+        assertEquals("java.lang.IllegalStateException", event.getJSONObject("exception").getString("name"));
+        assertEquals("proj_1", event.getString("projectId"));
+
+        reopened.clear();
+        assertNull(new CrashJournal(file).readPending());
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws Exception {
+        File file = new File(tmp.getRoot(), CrashJournal.FILE_NAME);
+        assertTrue(new CrashJournal(file).record(ENVELOPE, new IllegalStateException("boom"), 20, 1L));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(40);
+            raf.write(raf.read() ^ 0x55);
+        }
+        assertNull(new CrashJournal(file).readPending());
+    }
+
+    @Test
+    public void oversizedTraceIsTrimmedToFit() throws Exception {
+        CrashJournal journal = new CrashJournal(new File(tmp.getRoot(), CrashJournal.FILE_NAME));
+        StringBuilder huge = new StringBuilder();
+        for (int i = 0; i < 200; i++) huge.append("0123456789");
+        Throwable t = new RuntimeException(huge.toString());
+        StackTraceElement[] frames = new StackTraceElement[2_000];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new StackTraceElement("com.example.VeryLongClassName" + i, "recurse", "Deep.java", i);
+        }
+        t.setStackTrace(frames);
+
+        assertTrue(journal.record(ENVELOPE, t, 2_000, 1L));
+        assertNotNull(journal.readPending());
+    }
+
+    @Test
+    public void crashWhileAnotherThreadHoldsQueueLock() throws Exception {
+        final Object queueLock = new Object();
+        final CountDownLatch lockHeld = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        AsyncEventBuffer<byte[]> buffer = new AsyncEventBuffer<>(64, OverflowPolicy.DROP_OLDEST, 0,
+                new AsyncEventBuffer.Sink<byte[]>() {
+                    @Override
+                    public void write(List<byte[]> batch) {
+                        synchronized (queueLock) { /* stands in for the SQLite write */ }
+                    }
+                });
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (queueLock) {
+                    lockHeld.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        });
+        holder.start();
+        assertTrue(lockHeld.await(5, TimeUnit.SECONDS));
+        buffer.offer(new byte[]{'{', '}'});
+
+        File file = new File(tmp.getRoot(), CrashJournal.FILE_NAME);
+        CrashJournal journal = new CrashJournal(file);
+        assertTrue(journal.record(ENVELOPE, new IllegalStateException("crash"), 80, 1L));
+        assertFalse("flush must give up while the lock is held", buffer.flushToDisk(200));
+        assertNotNull(new CrashJournal(file).readPending());
+
+        release.countDown();
+        holder.join();
+        buffer.close();
+    }
+}
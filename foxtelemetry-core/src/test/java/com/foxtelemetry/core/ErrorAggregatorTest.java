@@ -0,0 +1,86 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ErrorAggregatorTest {
+
+    @Test
+    public void fingerprintIgnoresMessageButNotThrowSite() {
+        long[] fp = new long[3];
+        String[] messages = {"id=1", "id=2", "id=1"};
+        for (int i = 0; i < 3; i++) {
+            // Same caller line for all three so only the throw site differs.
+            fp[i] = ErrorAggregator.fingerprint(throwAt(i < 2 ? 1 : 2, messages[i]), ErrorAggregator.FINGERPRINT_FRAMES);
+        }
+        assertEquals(fp[0], fp[1]);
+        assertNotEquals(fp[0], fp[2]);
+    }
+
+    @Test
+    public void stormCollapsesIntoOneEventPlusOneSummary() {
+        ErrorAggregator agg = new ErrorAggregator(1_000, 16);
+        int emitted = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Throwable t = throwAt(1, "loop " + i);
+            long fp = ErrorAggregator.fingerprint(t, ErrorAggregator.FINGERPRINT_FRAMES);
+            if (agg.record(fp, t, "HOT_LOOP", 100 + i / 100)) emitted++;
+        }
+        assertEquals(1, emitted);
+        assertTrue(agg.drain(500, false).isEmpty());
+
+        List<ErrorAggregator.Summary> summaries = agg.drain(2_000, false);
+        assertEquals(1, summaries.size());
+        ErrorAggregator.Summary s = summaries.get(0);
+        assertEquals(9_999, s.occurrences);
+        assertEquals(100, s.firstSeen);
+        assertEquals(199, s.lastSeen);
+        assertEquals("HOT_LOOP", s.contextTag);
+    }
+
+    @Test
+    public void nextOccurrenceAfterWindowIsReportedAgain() {
+        ErrorAggregator agg = new ErrorAggregator(1_000, 16);
+        Throwable t = throwAt(1, "x");
+        long fp = ErrorAggregator.fingerprint(t, ErrorAggregator.FINGERPRINT_FRAMES);
+
+        assertTrue(agg.record(fp, t, null, 0));
+        assertFalse(agg.record(fp, t, null, 10));
+        assertTrue(agg.record(fp, t, null, 1_500));
+        assertEquals(1, agg.drain(1_500, true).get(0).occurrences);
+    }
+
+    @Test
+    public void evictedFingerprintKeepsItsCount() {
+        ErrorAggregator agg = new ErrorAggregator(60_000, 1);
+        Throwable first = throwAt(1, "a");
+        Throwable second = throwAt(2, "b");
+        long fp1 = ErrorAggregator.fingerprint(first, ErrorAggregator.FINGERPRINT_FRAMES);
+        long fp2 = ErrorAggregator.fingerprint(second, ErrorAggregator.FINGERPRINT_FRAMES);
+
+        agg.record(fp1, first, null, 0);
+        agg.record(fp1, first, null, 1);
+        agg.record(fp1, first, null, 2);
+        agg.record(fp2, second, null, 3);
+
+        List<ErrorAggregator.Summary> out = agg.drain(4, false);
+        assertEquals(1, out.size());
+        assertEquals(fp1, out.get(0).fingerprint);
+        assertEquals(2, out.get(0).occurrences);
+    }
+
+    private static Throwable throwAt(int site, String message) {
+        try {
+            if (site == 1) throw new IllegalStateException(message);
+            throw new IllegalStateException(message);
+        } catch (IllegalStateException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventBuilderTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    /** Encodes the event the way the SDK's sink does. */
+    private static final class Capture implements EventBuilder.Sink {
+        byte[] last;
+        int count;
+
+        @Override
+        public void emit(EventBuilder event) {
+            last = EventEncoder.get().encodeEvent(ENVELOPE, 1234L, event);
+            count++;
+        }
+    }
+
+    @Test
+    public void attributesKeepTheirTypes() throws Exception {
+        Capture sink = new Capture();
+        EventBuilder.obtain("checkout", sink)
+                .put("items", 3)
+                .put("total", 42.5)
+                .put("coupon", true)
+                .put("currency", "EUR")
+                .put("note", (String) null)
+                .put("ratio", Double.NaN)
+                .emit();
+
+        JSONObject json = new JSONObject(new String(sink.last, StandardCharsets.UTF_8));
+        assertEquals("event", json.getString("type"));
+        assertEquals("checkout", json.getString("name"));
+        assertEquals(1234L, json.getLong("timestamp"));
+        assertEquals("proj_1", json.getString("projectId"));
+        JSONObject attrs = json.getJSONObject("attrs");
+        assertEquals(3, attrs.get("items"));
+        assertEquals(42.5, attrs.getDouble("total"), 0);
+        assertEquals(Boolean.TRUE, attrs.get("coupon"));
+        assertEquals("EUR", attrs.get("currency"));
+        assertTrue(attrs.isNull("note"));
+        assertTrue(attrs.isNull("ratio"));
+    }
+
+    @Test
+    public void aKeyPutTwiceKeepsTheLastValue() throws Exception {
+        Capture sink = new Capture();
+        EventBuilder.obtain("retry", sink).put("attempt", 1).put("attempt", "final").emit();
+
+        JSONObject attrs = new JSONObject(new String(sink.last, StandardCharsets.UTF_8)).getJSONObject("attrs");
+        assertEquals(1, attrs.length());
+        assertEquals("final", attrs.get("attempt"));
+    }
+
+    @Test
+    public void attributesBeyondTheLimitAreIgnored() throws Exception {
+        Capture sink = new Capture();
+        EventBuilder b = EventBuilder.obtain("wide", sink);
+        for (int i = 0; i < EventBuilder.MAX_ATTRIBUTES + 10; i++) b.put("k" + i, i);
+        assertEquals(EventBuilder.MAX_ATTRIBUTES, b.size());
+        b.emit();
+
+        JSONObject attrs = new JSONObject(new String(sink.last, StandardCharsets.UTF_8)).getJSONObject("attrs");
+        assertEquals(EventBuilder.MAX_ATTRIBUTES, attrs.length());
+        assertFalse(attrs.has("k" + EventBuilder.MAX_ATTRIBUTES));
+    }
+
+    @Test
+    public void emittedBuildersAreReusedEmptyAndCopiesAreNot() {
+        Capture sink = new Capture();
+        EventBuilder first = EventBuilder.obtain("a", sink).put("x", "kept alive?");
+        EventBuilder copy = first.copy();
+        first.emit();
+
+        EventBuilder second = EventBuilder.obtain("b", sink);
+        assertSame(first, second);
+        assertEquals("b", second.name());
+        assertEquals(0, second.size());
+        second.discard();
+
+        assertEquals(1, sink.count);
+        assertEquals("a", copy.name());
+        assertEquals("kept alive?", copy.stringValue(0));
+    }
+}
@@ -0,0 +1,145 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventEncoderTest {
+
+    private static final DeviceInfo DEVICE = new DeviceInfo("google", "Pixel 8", 34, "14");
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key")
+            .setEnvironment("production")
+            .setUserId("user-\"42\"")
+            .build();
+    private static final String INSTALL_ID = "5f1c0c4e-8a5e-4c56-9d43-0d6b8f7e1a11";
+    private static final EventEnvelope ENVELOPE = EventEnvelope.create(CFG, INSTALL_ID, DEVICE);
+
+    @Test
+    public void logEventMatchesJsonObjectPath() throws Exception {
+        String message = "tab\there \"quoted\" \\ \u00fcn\u00efc\u00f6d\u00e9 \uD83E\uDD8A ctrl\u0001";
+        byte[] encoded = EventEncoder.get().encodeLog(ENVELOPE, 1234L, "INFO", "APP", message);
+
+        JSONObject expected = legacyLogEvent(1234L, "INFO", "APP", message);
+        JSONObject actual = new JSONObject(new String(encoded, StandardCharsets.UTF_8));
+        assertTrue(actual.toString(), expected.similar(actual));
+    }
+
+    @Test
+    public void errorEventMatchesJsonObjectPath() throws Exception {
+        Exception t = new IllegalStateException("outer \uD83E\uDD8A", new IllegalArgumentException());
+
+        byte[] encoded = EventEncoder.get().encodeError(ENVELOPE, 99L, t, "CTX", 5);
+
+        JSONObject expected = legacyErrorEvent(99L, t, "CTX", 5);
+        JSONObject actual = new JSONObject(new String(encoded, StandardCharsets.UTF_8));
+        assertTrue(actual.toString(), expected.similar(actual));
+    }
+
+    @Test
+    public void envelopeIsStrippedAndRestoredByteForByte() throws Exception {
+        EventEncoder enc = EventEncoder.get();
+        byte[][] events = {
+                enc.encodeLog(ENVELOPE, 1234L, "INFO", "APP", "hello"),
+                enc.encodeError(ENVELOPE, -5L, new IllegalStateException("x"), "CTX", 5),
+                enc.encodeEvent(ENVELOPE, 7L, EventBuilder.obtain("checkout", e -> { }).put("items", 3)),
+                enc.encodeLog(EventEnvelope.create(CFG.withUserId(null), null, new DeviceInfo(null, "M}{\"", 21, null)),
+                        1L, "WARN", "T", "m"),
+        };
+        for (byte[] event : events) {
+            long range = EventEnvelope.find(event);
+            assertTrue(new String(event, StandardCharsets.UTF_8), range >= 0);
+            byte[] stripped = EventEnvelope.strip(event, range);
+            byte[] members = java.util.Arrays.copyOfRange(event, (int) (range >>> 32), (int) range);
+
+            JSONObject json = new JSONObject(new String(stripped, StandardCharsets.UTF_8));
+            assertFalse(json.has("projectId") || json.has("device"));
+            assertTrue(json.has("timestamp") && json.has("type"));
+            assertTrue(stripped.length + 80 < event.length);
+            assertArrayEquals(event, EventEnvelope.restore(stripped, members));
+        }
+        assertEquals(-5L, EventEnvelope.timestamp(events[1], EventEnvelope.timestampEnd(events[1])));
+
+        // Legacy rows (JSONObject era, other member order) are left alone.
+        String legacy = "{\"projectId\":\"p\",\"timestamp\":1,\"type\":\"log\"}";
+        assertEquals(-1, EventEnvelope.find(legacy.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, EventEnvelope.find("{\"timestamp\":1,\"type\":\"log\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // The pre-encoder implementation, kept here as the reference for equivalence.
+
+    private static JSONObject legacyBase(long timestamp) throws Exception {
+        JSONObject root = new JSONObject();
+        root.put("timestamp", timestamp);
+        root.put("projectId", CFG.projectId);
+        root.put("appId", CFG.appId);
+        root.put("packageName", CFG.packageName);
+        root.put("installId", INSTALL_ID);
+        if (CFG.environment != null) root.put("environment", CFG.environment);
+        if (CFG.userId != null) root.put("userId", CFG.userId);
+
+        JSONObject device = new JSONObject();
+        device.put("brand", DEVICE.brand);
+        device.put("model", DEVICE.model);
+        device.put("sdkInt", DEVICE.sdkInt);
+        device.put("release", DEVICE.release);
+        root.put("device", device);
+        return root;
+    }
+
+    private static JSONObject legacyLogEvent(long timestamp, String level, String tag, String message) throws Exception {
+        JSONObject root = legacyBase(timestamp);
+        root.put("type", "log");
+        root.put("level", level);
+        root.put("tag", tag);
+        root.put("message", message);
+        return root;
+    }
+
+    private static JSONObject legacyErrorEvent(long timestamp, Throwable t, String contextTag, int maxFrames) throws Exception {
+        JSONObject root = legacyBase(timestamp);
+        root.put("type", "error");
+        root.put("context", contextTag);
+        root.put("exception", legacyThrowable(t, maxFrames));
+        return root;
+    }
+
+    private static JSONObject legacyThrowable(Throwable t, int maxFrames) throws Exception {
+        JSONObject ex = new JSONObject();
+        ex.put("name", t.getClass().getName());
+        ex.put("message", t.getMessage());
+
+        StringWriter sw = new StringWriter();
+        t.printStackTrace(new PrintWriter(sw));
+        ex.put("stacktrace", sw.toString());
+
+        StackTraceElement[] st = t.getStackTrace();
+        int n = Math.min(st.length, maxFrames);
+        JSONArray frames = new JSONArray();
+        for (int i = 0; i < n; i++) {
+            StackTraceElement e = st[i];
+            JSONObject f = new JSONObject();
+            f.put("class", e.getClassName());
+            f.put("method", e.getMethodName());
+            f.put("file", e.getFileName());
+            f.put("line", e.getLineNumber());
+            f.put("native", e.isNativeMethod());
+            frames.put(f);
+        }
+        ex.put("frames", frames);
+
+        if (t.getCause() != null && t.getCause() != t) {
+            ex.put("cause", legacyThrowable(t.getCause(), maxFrames));
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,167 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlushSchedulerTest {
+
+    private static final class CountingTarget implements FlushScheduler.Target {
+        final AtomicInteger flushes = new AtomicInteger();
+        final AtomicInteger urgent = new AtomicInteger();
+        final CountDownLatch firstFlush = new CountDownLatch(1);
+        volatile long stored;
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+            firstFlush.countDown();
+        }
+
+        @Override public void flushUrgent() { urgent.incrementAndGet(); }
+        @Override public long storedEvents() { return stored; }
+    }
+
+    private static FoxTelemetryConfig.Builder cfg() {
+        return new FoxTelemetryConfig.Builder(
+                "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key");
+    }
+
+    @Test
+    public void eventsAreCoalescedUntilTheCountThreshold() {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().setFlushThresholds(10, 1 << 20).build(), target);
+
+        for (int i = 0; i < 95; i++) s.onEnqueued(100, false);
+
+        FlushScheduler.Stats stats = s.stats();
+        assertEquals(9, target.flushes.get());
+        assertEquals(9, stats.byEventThreshold);
+        assertEquals(5, stats.pendingEvents);
+        assertEquals(500, stats.pendingBytes);
+        assertEquals(86, stats.coalesced);
+    }
+
+    @Test
+    public void byteThresholdTriggersBeforeTheCount() {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().setFlushThresholds(1_000, 4_096).build(), target);
+
+        s.onEnqueued(3_000, false);
+        assertEquals(0, target.flushes.get());
+        s.onEnqueued(2_000, false);
+        assertEquals(1, target.flushes.get());
+        assertEquals(1, s.stats().byBytesThreshold);
+        assertEquals(0, s.stats().pendingBytes);
+    }
+
+    @Test
+    public void quietQueueIsFlushedAfterMaxLatency() throws Exception {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().setFlushMaxLatencyMs(1_000).build(), target);
+
+        s.onEnqueued(100, false);
+        s.onEnqueued(100, false);
+        assertTrue(target.firstFlush.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, target.flushes.get());
+        assertEquals(1, s.stats().byMaxLatency);
+        assertEquals(0, s.stats().pendingEvents);
+    }
+
+    @Test
+    public void urgentFlushIsRequestedOnceUntilTheRunStarts() {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().build(), target);
+
+        for (int i = 0; i < 50; i++) s.onEnqueued(100, true);
+        assertEquals(1, target.urgent.get());
+
+        s.onUrgentFlushStarted();
+        s.onEnqueued(100, true);
+        assertEquals(2, target.urgent.get());
+        assertEquals(2, s.stats().urgent);
+        assertEquals(49, s.stats().coalesced);
+    }
+
+    @Test
+    public void errorQueuedDuringTheUrgentRunIsNotStuckAfterIt() {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().build(), target);
+
+        s.onEnqueued(100, true);
+        s.onUrgentFlushStarted();
+        // Queued while the run uploads; the hand-off may be dropped by the running unique work.
+        s.onEnqueued(100, true);
+        s.onEnqueued(100, true);
+        assertEquals(2, target.urgent.get());
+
+        s.onUrgentFlushFinished();
+        s.onEnqueued(100, true);
+        assertEquals(3, target.urgent.get());
+    }
+
+    @Test
+    public void backgroundingFlushesPendingEvents() {
+        CountingTarget target = new CountingTarget();
+        FlushScheduler s = new FlushScheduler(cfg().build(), target);
+
+        s.onBackground();
+        assertEquals("nothing pending", 0, target.flushes.get());
+
+        s.onEnqueued(100, false);
+        s.onBackground();
+        assertEquals(1, target.flushes.get());
+        assertEquals(1, s.stats().byBackground);
+
+        FlushScheduler off = new FlushScheduler(cfg().setFlushOnBackground(false).build(), target);
+        off.onEnqueued(100, false);
+        off.onBackground();
+        assertEquals(1, target.flushes.get());
+    }
+
+    @Test
+    public void startupFlushesOnlyAStoredBacklog() throws Exception {
+        CountingTarget empty = new CountingTarget();
+        new FlushScheduler(cfg().build(), empty).onStartup();
+
+        CountingTarget backlog = new CountingTarget();
+        backlog.stored = 42;
+        FlushScheduler s = new FlushScheduler(cfg().build(), backlog);
+        s.onStartup();
+
+        assertTrue(backlog.firstFlush.await(5, TimeUnit.SECONDS));
+        assertEquals(1, s.stats().byStartup);
+        assertEquals(0, empty.flushes.get());
+    }
+
+    @Test
+    public void concurrentEnqueuesHandOffOncePerThreshold() throws Exception {
+        final CountingTarget target = new CountingTarget();
+        final FlushScheduler s = new FlushScheduler(cfg().setFlushThresholds(100, 1 << 30).build(), target);
+        final int threads = 4;
+        final int perThread = 50_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) s.onEnqueued(200, false);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+
+        FlushScheduler.Stats stats = s.stats();
+        int total = threads * perThread;
+        // Crossings that race collapse into one hand-off, so there can only be fewer.
+        assertTrue(stats.byEventThreshold >= 1 && stats.byEventThreshold <= total / 100);
+        assertEquals(total, stats.coalesced + stats.byEventThreshold);
+    }
+}
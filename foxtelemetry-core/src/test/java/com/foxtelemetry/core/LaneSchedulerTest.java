@@ -0,0 +1,50 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LaneSchedulerTest {
+
+    @Test
+    public void busyLanesShareBatchesByWeightInterleaved() {
+        LaneScheduler s = new LaneScheduler(Lane.values());
+        List<Lane> picks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) picks.add(s.next());
+
+        assertEquals(6, count(picks, Lane.CRASH));
+        assertEquals(3, count(picks, Lane.ERROR));
+        assertEquals(1, count(picks, Lane.LOG));
+        // Smooth: the log lane is not starved to the very end, crashes do not run back to back 6 times.
+        assertEquals(Arrays.asList(Lane.CRASH, Lane.ERROR, Lane.CRASH, Lane.CRASH, Lane.ERROR),
+                picks.subList(0, 5));
+    }
+
+    @Test
+    public void exhaustedLanesAreSkipped() {
+        LaneScheduler s = new LaneScheduler(Lane.values());
+        s.exhausted(Lane.CRASH);
+        s.exhausted(Lane.ERROR);
+        for (int i = 0; i < 5; i++) assertEquals(Lane.LOG, s.next());
+        s.exhausted(Lane.LOG);
+        assertNull(s.next());
+    }
+
+    @Test
+    public void urgentRunsNeverServeLogs() {
+        LaneScheduler s = new LaneScheduler(Lane.CRASH, Lane.ERROR);
+        for (int i = 0; i < 20; i++) assertTrue(s.next().isUrgent());
+    }
+
+    private static int count(List<Lane> picks, Lane lane) {
+        int n = 0;
+        for (Lane l : picks) if (l == lane) n++;
+        return n;
+    }
+}
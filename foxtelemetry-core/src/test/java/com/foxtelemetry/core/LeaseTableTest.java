@@ -0,0 +1,53 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeaseTableTest {
+
+    @Test
+    public void leaseCoversOnlyItsRangeAndLane() {
+        LeaseTable t = new LeaseTable();
+        LeaseTable.Lease log = t.acquire(Lane.LOG, 10, 20, 1_000);
+
+        assertNull("afterId is exclusive", t.covering(10, Priority.INFO, 0));
+        assertSame(log, t.covering(11, Priority.INFO, 0));
+        assertSame(log, t.covering(20, Priority.DEBUG, 0));
+        assertNull(t.covering(21, Priority.INFO, 0));
+        // An error row inside the log batch's id range belongs to the error lane.
+        assertNull(t.covering(15, Priority.ERROR, 0));
+
+        LeaseTable.Lease all = t.acquire(null, 30, 40, 1_000);
+        assertSame(all, t.covering(35, Priority.CRASH, 0));
+    }
+
+    @Test
+    public void expiredLeasesStopCoveringAndAreDropped() {
+        LeaseTable t = new LeaseTable();
+        LeaseTable.Lease lease = t.acquire(Lane.CRASH, 0, 5, 1_000);
+
+        assertNotNull(t.covering(3, Priority.CRASH, 999));
+        assertNull(t.covering(3, Priority.CRASH, 1_000));
+        t.expire(1_000);
+        assertEquals(0, t.size());
+        assertFalse("a late ack finds nothing to release", t.release(lease));
+    }
+
+    @Test
+    public void releaseFreesTheRows() {
+        LeaseTable t = new LeaseTable();
+        LeaseTable.Lease a = t.acquire(Lane.ERROR, 0, 5, 1_000);
+        LeaseTable.Lease b = t.acquire(Lane.ERROR, 5, 9, 1_000);
+
+        assertTrue(t.release(a));
+        assertNull(t.covering(3, Priority.ERROR, 0));
+        assertSame(b, t.covering(7, Priority.ERROR, 0));
+        assertEquals(1, t.size());
+    }
+}
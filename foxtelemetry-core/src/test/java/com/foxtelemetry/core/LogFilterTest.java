@@ -0,0 +1,111 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogFilterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final List<String> repeats = new ArrayList<>();
+    private final LogFilter.Sink sink = new LogFilter.Sink() {
+        @Override
+        public void onRepeated(LogLevel level, String tag, String message, int n, long lastSeenMillis) {
+            repeats.add(level + "/" + tag + "/" + message + " x" + n + " @" + lastSeenMillis);
+        }
+    };
+
+    private static FoxTelemetryConfig.Builder builder() {
+        return new FoxTelemetryConfig.Builder("p", "a", "com.example", "https://example.invalid", "k");
+    }
+
+    @Test
+    public void tagLevelOverridesGlobalMinimum() {
+        LogFilter f = new LogFilter(builder()
+                .setMinLogLevel(LogLevel.WARN)
+                .setTagMinLevel("NET", LogLevel.DEBUG)
+                .setTagMinLevel("UI", LogLevel.ERROR)
+                .build(), sink, 0);
+
+        assertFalse(f.accept(LogLevel.INFO, "APP", "a", 0, 0));
+        assertTrue(f.accept(LogLevel.WARN, "APP", "b", 0, 0));
+        assertTrue(f.accept(LogLevel.DEBUG, "NET", "c", 0, 0));
+        assertFalse(f.accept(LogLevel.WARN, "UI", "d", 0, 0));
+        assertTrue(f.accept(LogLevel.ERROR, "UI", "e", 0, 0));
+
+        LogFilter.Report r = f.drainReport(1, true);
+        assertEquals(2, r.belowLevel);
+        assertNull(f.drainReport(2, true));
+    }
+
+    @Test
+    public void tokenBucketAllowsBurstThenSustainedRate() {
+        LogFilter f = new LogFilter(builder().setLogRateLimit(10, 5).build(), sink, 0);
+
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (f.accept(LogLevel.INFO, "CHATTY", "m" + i, 0, 0)) accepted++;
+        }
+        assertEquals(5, accepted);
+        // Other tags have their own bucket.
+        assertTrue(f.accept(LogLevel.INFO, "QUIET", "x", 0, 0));
+
+        // One token every 100 ms afterwards.
+        assertFalse(f.accept(LogLevel.INFO, "CHATTY", "late", 50 * MS, 0));
+        assertTrue(f.accept(LogLevel.INFO, "CHATTY", "later", 100 * MS, 0));
+        assertFalse(f.accept(LogLevel.INFO, "CHATTY", "again", 150 * MS, 0));
+
+        LogFilter.Report r = f.drainReport(1, true);
+        assertEquals(97, r.rateLimited);
+        assertEquals(97, r.byTag.get("CHATTY")[1]);
+    }
+
+    @Test
+    public void consecutiveIdenticalMessagesCollapse() {
+        LogFilter f = new LogFilter(builder().build(), sink, 0);
+
+        assertTrue(f.accept(LogLevel.INFO, "NET", "retrying", 0, 10));
+        for (int i = 1; i <= 4; i++) assertFalse(f.accept(LogLevel.INFO, "NET", "retrying", 0, 10 + i));
+        assertTrue(repeats.isEmpty());
+
+        assertTrue(f.accept(LogLevel.INFO, "NET", "connected", 0, 20));
+        assertEquals(1, repeats.size());
+        assertEquals("INFO/NET/retrying x4 @14", repeats.get(0));
+
+        assertTrue(f.accept(LogLevel.WARN, "NET", "connected", 0, 21));
+        assertEquals(1, repeats.size());
+
+        assertFalse(f.accept(LogLevel.WARN, "NET", "connected", 0, 22));
+        f.drainRepeats();
+        assertEquals("WARN/NET/connected x1 @22", repeats.get(1));
+        assertTrue(f.accept(LogLevel.WARN, "NET", "connected", 0, 23));
+    }
+
+    @Test
+    public void samplingDropsAreCountedPerTag() {
+        LogFilter f = new LogFilter(builder()
+                .setLogSampleRate(LogLevel.DEBUG, 0.0)
+                .setCollapseRepeatedLogs(false)
+                .setLogReportIntervalMs(60_000)
+                .build(), sink, 0);
+
+        for (int i = 0; i < 10; i++) assertFalse(f.accept(LogLevel.DEBUG, "DB", "q", 0, 0));
+        assertTrue(f.accept(LogLevel.INFO, "DB", "q", 0, 0));
+
+        assertFalse(f.isReportDue(59_999));
+        assertNull(f.drainReport(59_999, false));
+        assertTrue(f.isReportDue(60_000));
+        LogFilter.Report r = f.drainReport(60_000, false);
+        assertEquals(10, r.sampled);
+        assertEquals(10, r.byTag.get("DB")[0]);
+        assertEquals(0, r.sinceMillis);
+        assertEquals(60_000, r.untilMillis);
+    }
+}
@@ -0,0 +1,157 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MetricRegistryTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    @Test
+    public void tagOrderDoesNotMatterAndKindsAreSeparate() {
+        MetricRegistry r = new MetricRegistry(0.01, 0L);
+        MetricRegistry.Counter a = r.counter("http.requests", "method", "GET", "status", "200");
+        MetricRegistry.Counter b = r.counter("http.requests", "status", "200", "method", "GET");
+        assertSame(a, b);
+        assertNotSame(a, r.counter("http.requests", "status", "500", "method", "GET"));
+        r.gauge("http.requests", "method", "GET", "status", "200");
+        assertEquals(3, r.seriesCount());
+    }
+
+    @Test
+    public void drainReportsDeltasGaugesAndSketchesOfTheInterval() {
+        MetricRegistry r = new MetricRegistry(0.01, 1_000L);
+        MetricRegistry.Counter requests = r.counter("requests");
+        MetricRegistry.Gauge depth = r.gauge("depth");
+        MetricRegistry.Histogram latency = r.histogram("latency");
+        r.gauge("never.set");
+
+        requests.add(5);
+        depth.set(12.5);
+        for (int i = 1; i <= 100; i++) latency.record(i);
+
+        MetricsReport first = r.drain(2_000L);
+        assertEquals(1_000L, first.sinceMillis);
+        assertEquals(2_000L, first.untilMillis);
+        assertEquals(3, first.entries.size());
+        assertEquals(5, (long) entry(first, "requests").value);
+        assertEquals(12.5, entry(first, "depth").value, 0);
+        QuantileSketch sketch = entry(first, "latency").sketch;
+        assertEquals(100, sketch.count());
+        assertEquals(50, sketch.quantile(0.5), 1);
+
+        requests.increment();
+        MetricsReport second = r.drain(3_000L);
+        assertEquals(2_000L, second.sinceMillis);
+        assertEquals(2, second.entries.size()); // the counter delta and the gauge, no histogram samples
+        assertEquals(1, (long) entry(second, "requests").value);
+
+        MetricRegistry empty = new MetricRegistry(0.01, 0L);
+        empty.counter("unused");
+        assertNull(empty.drain(1L));
+    }
+
+    @Test
+    public void seriesBeyondTheLimitShareAnOverflowSeries() {
+        MetricRegistry r = new MetricRegistry(0.01, 0L);
+        r.setMaxSeries(3);
+        for (int i = 0; i < 3; i++) r.counter("screen.views", "screen", "s" + i).increment();
+        MetricRegistry.Counter over1 = r.counter("screen.views", "screen", "s3");
+        MetricRegistry.Counter over2 = r.counter("screen.views", "screen", "s4");
+        assertSame(over1, over2);
+        over1.add(2);
+        over2.add(3);
+        assertEquals(3, r.seriesCount());
+
+        // Unknown names stop getting their own overflow series too.
+        for (int i = 0; i < 10; i++) r.counter("dynamic." + i).increment();
+
+        MetricsReport report = r.drain(1L);
+        assertEquals(12, report.refusedSeries);
+        MetricsReport.Entry overflow = entry(report, "screen.views", "overflow", "true");
+        assertEquals(5, (long) overflow.value);
+        MetricsReport.Entry catchAll = entry(report, MetricRegistry.OVERFLOW_NAME, "overflow", "true");
+        assertEquals(8, (long) catchAll.value); // 10 names, 2 got overflow series of their own
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        final MetricRegistry r = new MetricRegistry(0.01, 0L);
+        final int threads = 4;
+        final int perThread = 100_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread th = new Thread(() -> {
+                MetricRegistry.Counter c = r.counter("events", "source", "test");
+                MetricRegistry.Histogram h = r.histogram("size");
+                for (int i = 0; i < perThread; i++) {
+                    c.increment();
+                    if ((i & 15) == 0) h.record(i);
+                }
+            });
+            th.start();
+            workers.add(th);
+        }
+        for (Thread th : workers) th.join();
+
+        MetricsReport report = r.drain(1L);
+        assertEquals(threads * perThread, (long) entry(report, "events", "source", "test").value);
+        assertEquals(threads * perThread / 16, entry(report, "size").sketch.count());
+    }
+
+    @Test
+    public void metricsEventCarriesMergeableSketches() throws Exception {
+        MetricRegistry r = new MetricRegistry(0.01, 10L);
+        r.counter("orders", "currency", "EUR").add(3);
+        MetricRegistry.Histogram h = r.histogram("latency.ms");
+        h.record(0);
+        h.record(12.5);
+        h.record(80);
+
+        byte[] encoded = EventEncoder.get().encodeMetrics(ENVELOPE, r.drain(20L));
+        JSONObject json = new JSONObject(new String(encoded, StandardCharsets.UTF_8));
+        assertEquals("metrics", json.getString("type"));
+        assertEquals(10L, json.getLong("since"));
+        assertEquals(20L, json.getLong("until"));
+        JSONArray series = json.getJSONArray("series");
+        assertEquals(2, series.length());
+        for (int i = 0; i < series.length(); i++) {
+            JSONObject s = series.getJSONObject(i);
+            if (s.getString("kind").equals("counter")) {
+                assertEquals("orders", s.getString("name"));
+                assertEquals("EUR", s.getJSONObject("tags").getString("currency"));
+                assertEquals(3, s.getLong("value"));
+            } else {
+                assertEquals("histogram", s.getString("kind"));
+                assertEquals(3, s.getLong("count"));
+                assertEquals(80, s.getDouble("max"), 0);
+                JSONObject sketch = s.getJSONObject("sketch");
+                assertEquals(1, sketch.getLong("zero"));
+                long binned = 0;
+                JSONArray pos = sketch.getJSONArray("pos");
+                for (int b = 0; b < pos.length(); b++) binned += pos.getLong(b);
+                assertEquals(2, binned);
+            }
+        }
+    }
+
+    private static MetricsReport.Entry entry(MetricsReport report, String name, String... tags) {
+        for (MetricsReport.Entry e : report.entries) {
+            if (e.name.equals(name) && java.util.Arrays.equals(e.tags, tags)) return e;
+        }
+        throw new AssertionError("no series " + name);
+    }
+}
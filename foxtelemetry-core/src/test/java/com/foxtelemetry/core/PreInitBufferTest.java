@@ -0,0 +1,138 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PreInitBufferTest {
+
+    @Test
+    public void replaysCallsInOrderWithTheirTimestamps() {
+        PreInitBuffer b = new PreInitBuffer(8);
+        IllegalStateException error = new IllegalStateException("boom");
+        assertTrue(b.log(LogLevel.INFO, "Main", "starting", 100));
+        assertTrue(b.error(error, "startup", 110));
+        assertTrue(b.log(LogLevel.WARN, "Main", "slow", 120));
+        EventBuilder event = EventBuilder.obtain("launch", e -> { }).put("coldStart", true);
+        assertTrue(b.event(event.copy(), 130));
+        event.discard();
+
+        Recorder r = new Recorder();
+        assertEquals(0, b.drainTo(r));
+        assertEquals(4, r.calls.size());
+        assertEquals("log INFO Main starting 100", r.calls.get(0));
+        assertEquals("error boom startup 110", r.calls.get(1));
+        assertEquals("log WARN Main slow 120", r.calls.get(2));
+        assertEquals("event launch coldStart=true 130", r.calls.get(3));
+        assertTrue(b.isClosed());
+    }
+
+    @Test
+    public void closedBufferRefusesCallsSoTheyTakeTheNormalPath() {
+        PreInitBuffer b = new PreInitBuffer(8);
+        b.drainTo(new Recorder());
+        assertFalse(b.log(LogLevel.INFO, "t", "m", 1));
+        assertFalse(b.error(new RuntimeException(), "c", 1));
+        assertEquals("drains only once", 0, b.drainTo(new Recorder()));
+
+        PreInitBuffer discarded = new PreInitBuffer(8);
+        discarded.log(LogLevel.INFO, "t", "m", 1);
+        discarded.discard();
+        Recorder r = new Recorder();
+        discarded.drainTo(r);
+        assertTrue(r.calls.isEmpty());
+        assertFalse(discarded.log(LogLevel.INFO, "t", "m", 2));
+    }
+
+    @Test
+    public void keepsTheOldestCallsWhenFull() {
+        PreInitBuffer b = new PreInitBuffer(2);
+        for (int i = 0; i < 5; i++) assertTrue(b.log(LogLevel.DEBUG, "t", "m" + i, i));
+
+        Recorder r = new Recorder();
+        assertEquals(3, b.drainTo(r));
+        assertEquals("log DEBUG t m0 0", r.calls.get(0));
+        assertEquals("log DEBUG t m1 1", r.calls.get(1));
+    }
+
+    @Test
+    public void callsMadeDuringTheReplayQueueBehindIt() {
+        final PreInitBuffer b = new PreInitBuffer(8);
+        b.log(LogLevel.INFO, "t", "first", 1);
+        b.log(LogLevel.INFO, "t", "second", 2);
+        final Recorder r = new Recorder() {
+            @Override
+            public void log(LogLevel level, String tag, String message, long timestamp) {
+                super.log(level, tag, message, timestamp);
+                // Another thread logging while init replays: buffered, not sent ahead.
+                if (message.equals("first")) assertTrue(b.log(LogLevel.INFO, "t", "third", 3));
+            }
+        };
+        b.drainTo(r);
+        assertEquals(3, r.calls.size());
+        assertEquals("log INFO t third 3", r.calls.get(2));
+        assertTrue(b.isClosed());
+        assertFalse(b.log(LogLevel.INFO, "t", "fourth", 4));
+    }
+
+    @Test
+    public void noCallIsLostWhileInitDrainsConcurrently() throws Exception {
+        final PreInitBuffer b = new PreInitBuffer(1_000_000);
+        final AtomicInteger direct = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final int threads = 4;
+        final int perThread = 20_000;
+        Thread[] callers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            callers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (!b.log(LogLevel.INFO, "t", "m", i)) direct.incrementAndGet();
+                }
+            });
+            callers[t].start();
+        }
+        start.countDown();
+        Thread.sleep(2);
+        Recorder r = new Recorder();
+        b.drainTo(r);
+        for (Thread t : callers) t.join();
+
+        assertEquals(threads * perThread, r.calls.size() + direct.get());
+    }
+
+    private static class Recorder implements PreInitBuffer.Replay {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void log(LogLevel level, String tag, String message, long timestamp) {
+            calls.add("log " + level + " " + tag + " " + message + " " + timestamp);
+        }
+
+        @Override
+        public void error(Throwable t, String contextTag, long timestamp) {
+            calls.add("error " + t.getMessage() + " " + contextTag + " " + timestamp);
+        }
+
+        @Override
+        public void event(EventBuilder event, long timestamp) {
+            calls.add("event " + event.name() + " " + event.key(0) + "=" + event.booleanValue(0) + " " + timestamp);
+        }
+
+        @Override
+        public void trace(Trace trace) {
+            calls.add("trace " + trace.spanName(0) + " " + trace.startWallMillis);
+        }
+    }
+}
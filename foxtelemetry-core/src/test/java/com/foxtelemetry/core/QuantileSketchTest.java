@@ -0,0 +1,91 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99};
+
+    @Test
+    public void quantilesAreWithinTheRelativeAccuracy() {
+        Random rnd = new Random(42);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like latencies: spans several orders of magnitude.
+            values[i] = Math.exp(3 + 1.5 * rnd.nextGaussian());
+            sketch.add(values[i]);
+        }
+        assertQuantiles(values, sketch, 0.01);
+        assertEquals(values.length, sketch.count());
+    }
+
+    @Test
+    public void mergedSketchEqualsOneSketchOfAllValues() {
+        Random rnd = new Random(7);
+        QuantileSketch a = new QuantileSketch();
+        QuantileSketch b = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 0; i < 20_000; i++) {
+            double v = rnd.nextDouble() * 1000 - 200;
+            (i % 3 == 0 ? a : b).add(v);
+            all.add(v);
+        }
+        a.merge(b);
+        assertEquals(all.count(), a.count());
+        assertEquals(all.zeroCount(), a.zeroCount());
+        assertTrue(Arrays.equals(all.positiveCounts(), a.positiveCounts()));
+        assertTrue(Arrays.equals(all.negativeCounts(), a.negativeCounts()));
+        for (double q : QUANTILES) assertEquals(all.quantile(q), a.quantile(q), 0);
+    }
+
+    @Test
+    public void handlesNegativeAndZeroValues() {
+        double[] values = new double[2001];
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i - 1000;
+            sketch.add(values[i]);
+        }
+        assertEquals(1, sketch.zeroCount());
+        assertEquals(-1000, sketch.min(), 0);
+        assertEquals(1000, sketch.max(), 0);
+        assertEquals(0, sketch.quantile(0.5), 0);
+        assertQuantiles(values, sketch, 0.01);
+    }
+
+    @Test
+    public void bucketCountStaysBoundedForHugeRanges() {
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        for (int e = -9; e <= 300; e++) sketch.add(Math.pow(10, e));
+        assertTrue(sketch.positiveCounts().length <= QuantileSketch.MAX_BINS);
+        assertEquals(310, sketch.count());
+        // The top of the range is unaffected by folding the lowest buckets.
+        assertEquals(1e299, sketch.quantile(0.999), 1e299 * 0.01);
+    }
+
+    @Test
+    public void emptySketchAndNonFiniteValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    private static void assertQuantiles(double[] values, QuantileSketch sketch, double accuracy) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double expected = sorted[(int) (q * (sorted.length - 1))];
+            double actual = sketch.quantile(q);
+            assertEquals("q=" + q, expected, actual, Math.abs(expected) * accuracy + 1e-9);
+        }
+    }
+}
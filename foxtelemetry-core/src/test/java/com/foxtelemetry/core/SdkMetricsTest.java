@@ -0,0 +1,147 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SdkMetricsTest {
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        long previousUpper = -1;
+        for (int b = 0; b < LatencyHistogram.BUCKETS - 1; b++) {
+            long upper = LatencyHistogram.upperBound(b);
+            assertEquals("bucket " + b + " starts after the previous one", b, LatencyHistogram.bucket(previousUpper + 1));
+            assertEquals(b, LatencyHistogram.bucket(upper));
+            previousUpper = upper;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesAreWithinAQuarter() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++) h.record(v * 1_000);
+
+        SdkStats.Latency l = h.snapshot();
+        assertEquals(10_000, l.count);
+        assertEquals(5_000_500, l.meanNanos);
+        assertEquals(10_000_000, l.maxNanos);
+        assertWithin(5_000_000, l.p50Nanos);
+        assertWithin(9_500_000, l.p95Nanos);
+        assertWithin(9_900_000, l.p99Nanos);
+    }
+
+    @Test
+    public void countersAddUpAcrossThreads() throws Exception {
+        final SdkMetrics m = new SdkMetrics();
+        final int threads = 8;
+        final int perThread = 50_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    m.recordEventBuild(i);
+                    m.recordEnqueue(i, i % 10 != 0);
+                    m.onFiltered();
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread t : workers) t.join();
+
+        SdkStats s = m.snapshot(null);
+        assertEquals(threads * perThread, s.eventBuild.count);
+        assertEquals(threads * perThread, s.enqueue.count);
+        assertEquals(threads * perThread * 9 / 10, s.eventsEnqueued);
+        assertEquals(threads * perThread, s.eventsFiltered);
+    }
+
+    @Test
+    public void uploadsAreCountedByStatus() {
+        SdkMetrics m = new SdkMetrics();
+        int[] statuses = {200, 202, 204, 400, 413, 429, 500, 503, 302, -1};
+        for (int status : statuses) m.recordUpload(1_000_000, status);
+        m.onUploaded(40, 4_000);
+        m.onDeadLettered(2);
+        m.onRetry();
+
+        SdkStats s = m.snapshot(new Gauges(120, 64_000, 3, 7));
+        assertEquals(3, s.http2xx);
+        assertEquals(1, s.http4xx);
+        assertEquals(1, s.http413);
+        assertEquals(1, s.http429);
+        assertEquals(2, s.http5xx);
+        assertEquals(1, s.httpOther);
+        assertEquals(1, s.httpFailed);
+        assertEquals(statuses.length, s.upload.count);
+        assertEquals(40, s.eventsUploaded);
+        assertEquals(4_000, s.bytesUploaded);
+        assertEquals(2, s.eventsDeadLettered);
+        assertEquals(1, s.uploadRetries);
+        assertEquals(120, s.queueDepth);
+        assertEquals(64_000, s.queueBytes);
+        assertEquals(3, s.eventsDroppedOverflow);
+        assertEquals(7, s.eventsEvicted);
+    }
+
+    @Test
+    public void statsEventIsCompact() throws Exception {
+        SdkMetrics m = new SdkMetrics();
+        m.recordEventBuild(2_500);
+        m.recordEnqueue(800, true);
+        m.recordUpload(120_000_000, 200);
+        FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder(
+                "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+        EventEnvelope env = EventEnvelope.create(cfg, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+        byte[] encoded = EventEncoder.get().encodeSdkStats(env, m.snapshot(new Gauges(5, 500, 0, 0)));
+        JSONObject json = new JSONObject(new String(encoded, StandardCharsets.UTF_8));
+
+        assertEquals("sdk_stats", json.getString("type"));
+        assertEquals(1, json.getLong("enqueued"));
+        assertEquals(5, json.getLong("queueDepth"));
+        JSONObject http = json.getJSONObject("http");
+        assertEquals(1, http.getLong("2xx"));
+        assertFalse("statuses never seen are left out", http.has("5xx"));
+        assertEquals(1, json.getJSONObject("latencyUs").getJSONArray("upload").getLong(0));
+        assertWithin(120_000, json.getJSONObject("latencyUs").getJSONArray("upload").getLong(1));
+        assertTrue(encoded.length + " bytes", encoded.length < 700);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " vs " + expected, actual >= expected * 3 / 4 && actual <= expected * 5 / 4);
+    }
+
+    private static final class Gauges implements SdkMetrics.QueueGauges {
+        private final long depth;
+        private final long bytes;
+        private final long dropped;
+        private final long evicted;
+
+        Gauges(long depth, long bytes, long dropped, long evicted) {
+            this.depth = depth;
+            this.bytes = bytes;
+            this.dropped = dropped;
+            this.evicted = evicted;
+        }
+
+        @Override public long depth() { return depth; }
+        @Override public long storedBytes() { return bytes; }
+        @Override public long droppedCount() { return dropped; }
+        @Override public long evictedCount() { return evicted; }
+    }
+}
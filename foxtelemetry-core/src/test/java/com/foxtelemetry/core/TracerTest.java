@@ -0,0 +1,108 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj_1", "app_1", "com.example", "https://example.invalid/ingest", "key").build();
+    private static final EventEnvelope ENVELOPE =
+            EventEnvelope.create(CFG, "install-1", new DeviceInfo("google", "Pixel 8", 34, "14"));
+
+    private long now = 1_000_000L;
+    private final List<Trace> emitted = new ArrayList<>();
+    private final Tracer tracer = new Tracer(() -> now, emitted::add, 1.0);
+
+    @Test
+    public void traceIsEmittedOnceWhenItsLastSpanEnds() throws Exception {
+        Span root = tracer.startSpan("screen.load").setTag("screen", "cart");
+        now += 2_000_000;
+        Span fetch = root.startChild("http.get").setTag("path", "/cart");
+        now += 30_000_000;
+        root.end(); // the child is still open
+        assertTrue(emitted.isEmpty());
+        now += 5_000_000;
+        fetch.setError().end();
+        fetch.end(); // second end is ignored
+
+        assertEquals(1, emitted.size());
+        JSONObject json = new JSONObject(new String(
+                EventEncoder.get().encodeTrace(ENVELOPE, emitted.get(0)), StandardCharsets.UTF_8));
+        assertEquals("trace", json.getString("type"));
+        JSONArray spans = json.getJSONArray("spans");
+        assertEquals(2, spans.length());
+
+        JSONObject r = spans.getJSONObject(0);
+        JSONObject c = spans.getJSONObject(1);
+        assertEquals("screen.load", r.getString("name"));
+        assertFalse(r.has("parent"));
+        assertEquals(0, r.getLong("start"));
+        assertEquals(32_000, r.getLong("dur"));
+        assertEquals("cart", r.getJSONObject("tags").getString("screen"));
+
+        assertEquals("http.get", c.getString("name"));
+        assertEquals(r.getString("id"), c.getString("parent"));
+        assertEquals(2_000, c.getLong("start"));
+        assertEquals(35_000, c.getLong("dur"));
+        assertTrue(c.getBoolean("error"));
+        assertEquals(16, json.getString("traceId").length());
+    }
+
+    @Test
+    public void unsampledTracesAreNoopsAllTheWayDown() {
+        tracer.setSampleRate(0);
+        Span root = tracer.startSpan("screen.load");
+        assertSame(Span.NOOP, root);
+        assertFalse(root.isSampled());
+        assertSame(Span.NOOP, root.startChild("child").setTag("k", "v").setError());
+        root.end();
+        assertTrue(emitted.isEmpty());
+    }
+
+    @Test
+    public void headSamplingKeepsRoughlyTheConfiguredFraction() {
+        tracer.setSampleRate(0.25);
+        int sampled = 0;
+        for (int i = 0; i < 20_000; i++) {
+            Span s = tracer.startSpan("op");
+            if (s.isSampled()) sampled++;
+            s.end();
+        }
+        assertEquals(sampled, emitted.size());
+        assertEquals(5_000, sampled, 400);
+    }
+
+    @Test
+    public void endedSpansAreRecycled() {
+        Span first = tracer.startSpan("a").setTag("k", "v");
+        first.end();
+        Span second = tracer.startSpan("b");
+        assertSame(first, second);
+        second.end();
+        assertEquals("a", emitted.get(0).spanName(0));
+        assertEquals("b", emitted.get(1).spanName(0));
+    }
+
+    @Test
+    public void spansBeyondTheLimitAreCounted() throws Exception {
+        Span root = tracer.startSpan("batch");
+        for (int i = 0; i < Trace.MAX_SPANS + 9; i++) root.startChild("item").end();
+        root.end();
+
+        JSONObject json = new JSONObject(new String(
+                EventEncoder.get().encodeTrace(ENVELOPE, emitted.get(0)), StandardCharsets.UTF_8));
+        assertEquals(Trace.MAX_SPANS, json.getJSONArray("spans").length());
+        assertEquals(10, json.getInt("droppedSpans"));
+    }
+}
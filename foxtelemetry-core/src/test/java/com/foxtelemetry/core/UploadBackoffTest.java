@@ -0,0 +1,141 @@
+package com.foxtelemetry.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UploadBackoffTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder("p", "a", "com.example", "https://x", "k")
+            .setRetryDelays(1_000, 60_000)
+            .setCircuitBreaker(5, 600_000)
+            .build();
+
+    @Test
+    public void delaysAreFullJitterUnderADoublingCap() {
+        Set<Long> seen = new HashSet<>();
+        for (int run = 0; run < 200; run++) {
+            UploadBackoff backoff = new UploadBackoff(cfg, null, new Random(run));
+            long cap = 1_000;
+            for (int failure = 1; failure <= 4; failure++) {
+                long delay = backoff.onFailure(NOW, -1);
+                assertTrue(delay + " > " + cap, delay >= 0 && delay <= cap);
+                assertEquals(delay, backoff.delayMs(NOW));
+                seen.add(delay);
+                cap *= 2;
+            }
+            assertFalse(backoff.isOpen());
+        }
+        assertTrue("delays are spread: " + seen.size(), seen.size() > 500);
+    }
+
+    @Test
+    public void capLimitsLongOutages() {
+        FoxTelemetryConfig noBreaker = cfg.toBuilder().setCircuitBreaker(0, 600_000).build();
+        UploadBackoff backoff = new UploadBackoff(noBreaker, null, new Random(1));
+        for (int i = 0; i < 100; i++) assertTrue(backoff.onFailure(NOW, -1) <= 60_000);
+        assertFalse(backoff.isOpen());
+        assertEquals(100, backoff.consecutiveFailures());
+    }
+
+    @Test
+    public void retryAfterIsHonouredUpToTheCap() {
+        UploadBackoff backoff = new UploadBackoff(cfg, null, new Random(1));
+        assertEquals(30_000, backoff.onFailure(NOW, 30_000));
+        assertEquals(60_000, backoff.onFailure(NOW, 24L * 60 * 60 * 1000));
+        backoff.onSuccess();
+        assertEquals(0, backoff.delayMs(NOW));
+        assertEquals(0, backoff.consecutiveFailures());
+    }
+
+    @Test
+    public void breakerOpensAfterRepeatedFailuresAndOneProbeClosesIt() {
+        UploadBackoff backoff = new UploadBackoff(cfg, null, new Random(7));
+        for (int i = 0; i < 4; i++) backoff.onFailure(NOW, -1);
+        assertFalse(backoff.isOpen());
+
+        long pause = backoff.onFailure(NOW, -1);
+        assertTrue(backoff.isOpen());
+        assertTrue(pause + " ms", pause >= 300_000 && pause <= 600_000);
+        assertEquals(pause, backoff.delayMs(NOW));
+        assertEquals(0, backoff.delayMs(NOW + pause));
+
+        // The probe fails: paused again, still open.
+        long again = backoff.onFailure(NOW + pause, -1);
+        assertTrue(again >= 300_000);
+        assertTrue(backoff.isOpen());
+
+        backoff.onSuccess();
+        assertFalse(backoff.isOpen());
+        assertEquals(0, backoff.delayMs(NOW + pause));
+    }
+
+    @Test
+    public void stateSurvivesARestartAndIsSharedThroughTheFile() throws Exception {
+        File file = new File(tmp.getRoot(), UploadBackoff.FILE_NAME);
+        UploadBackoff first = new UploadBackoff(cfg, file, new Random(3));
+        long pause = 0;
+        for (int i = 0; i < 5; i++) pause = first.onFailure(NOW, -1);
+        assertTrue(first.isOpen());
+
+        UploadBackoff restarted = new UploadBackoff(cfg, file, new Random(4));
+        assertTrue(restarted.isOpen());
+        assertEquals(5, restarted.consecutiveFailures());
+        assertEquals(pause - 1_000, restarted.delayMs(NOW + 1_000));
+
+        // Another process's probe succeeded; the next check here sees it.
+        restarted.onSuccess();
+        assertEquals(0, first.delayMs(NOW + 1_000));
+        assertFalse(first.isOpen());
+    }
+
+    @Test
+    public void clockSetBackDoesNotStretchTheWait() {
+        UploadBackoff backoff = new UploadBackoff(cfg, null, new Random(5));
+        backoff.onFailure(NOW, 60_000);
+        assertEquals(600_000, backoff.delayMs(NOW - 24L * 60 * 60 * 1000));
+    }
+
+    @Test
+    public void unreadableFileStartsClean() throws Exception {
+        File file = new File(tmp.getRoot(), UploadBackoff.FILE_NAME);
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        UploadBackoff backoff = new UploadBackoff(cfg, file, new Random(6));
+        assertEquals(0, backoff.delayMs(NOW));
+        assertFalse(backoff.isOpen());
+    }
+
+    @Test
+    public void fleetFailingTogetherDoesNotRetryTogether() {
+        FoxTelemetryConfig defaults = new FoxTelemetryConfig.Builder("p", "a", "com.example", "https://x", "k").build();
+        int devices = 10_000;
+        Map<Long, Integer> perSecond = new HashMap<>();
+        int busiest = 0;
+        for (int d = 0; d < devices; d++) {
+            UploadBackoff backoff = new UploadBackoff(defaults, null, new Random(d));
+            long at = NOW;
+            for (int i = 0; i < 6; i++) at += backoff.onFailure(at, -1);
+            int n = perSecond.merge(at / 1_000, 1, Integer::sum);
+            busiest = Math.max(busiest, n);
+        }
+        // In lockstep (fixed delays) every device would hit the same second.
+        assertTrue("busiest second " + busiest, busiest < devices / 100);
+    }
+}
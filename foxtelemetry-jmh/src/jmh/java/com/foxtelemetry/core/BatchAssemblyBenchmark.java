@@ -0,0 +1,74 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One flush run's batching without SQLite or the network: pick lanes by weight, lease a range,
+ * fill it up to the adaptive byte budget, encode the body and settle the lease.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchAssemblyBenchmark {
+
+    private static final int EVENTS_PER_LANE = 400;
+
+    private FoxTelemetryConfig cfg;
+    private final List<List<byte[]>> lanes = new ArrayList<>();
+    private final BatchEncoder encoder = new BatchEncoder();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+    private final List<byte[]> batch = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        cfg = Fixtures.config(WireFormat.CBOR);
+        for (int i = 0; i < Lane.values().length; i++) lanes.add(Fixtures.storedEvents(cfg, EVENTS_PER_LANE));
+    }
+
+    /** Drains every lane once; returns the number of batches. */
+    @Benchmark
+    public int flushRun() throws IOException {
+        LaneScheduler scheduler = new LaneScheduler(Lane.values());
+        BatchSizer sizer = new BatchSizer();
+        LeaseTable leases = new LeaseTable();
+        int[] read = new int[lanes.size()];
+        int batches = 0;
+        Lane lane;
+        while ((lane = scheduler.next()) != null) {
+            List<byte[]> events = lanes.get(lane.ordinal());
+            int from = read[lane.ordinal()];
+            if (from == events.size()) {
+                scheduler.exhausted(lane);
+                continue;
+            }
+            long budget = sizer.budgetBytes();
+            long bytes = 0;
+            batch.clear();
+            int to = from;
+            while (to < events.size() && (batch.isEmpty() || bytes + events.get(to).length <= budget)) {
+                bytes += events.get(to).length;
+                batch.add(events.get(to++));
+            }
+            LeaseTable.Lease lease = leases.acquire(lane, from, to, Long.MAX_VALUE);
+            out.reset();
+            encoder.write(out, cfg.wireFormat, cfg, batch);
+            leases.release(lease);
+            sizer.onSuccess(out.size(), 50);
+            read[lane.ordinal()] = to;
+            batches++;
+        }
+        return batches;
+    }
+}
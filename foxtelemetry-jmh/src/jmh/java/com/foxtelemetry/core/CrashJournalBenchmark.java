@@ -0,0 +1,113 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the uncaught-exception handler spends writing the crash into the mapped journal. A journal
+ * takes one crash per process, so every call gets a fresh one on the same preallocated file; the
+ * mapping is not timed. {@code queueInsert} is the path the handler took before the journal:
+ * encode the error event, then commit it to the queue's SQLite file before the process dies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CrashJournalBenchmark {
+
+    // The queue's v2 table and insert, as in QueueSchema.
+    private static final String CREATE = "CREATE TABLE IF NOT EXISTS events (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, payload BLOB NOT NULL, size INTEGER NOT NULL," +
+            " priority INTEGER NOT NULL DEFAULT 0, created_at INTEGER NOT NULL DEFAULT 0)";
+    private static final String INSERT = "INSERT INTO events (payload, size, priority, created_at) VALUES (?, ?, ?, ?)";
+
+    /**
+     * The queue database through plain JDBC: {@code EventQueue} needs Android's SQLite, so this
+     * stands in for its {@code enqueue} + {@code flushToDisk} minus the hop to the writer thread.
+     */
+    @State(Scope.Thread)
+    public static class Queue {
+        File dir;
+        Connection connection;
+        PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void open() throws Exception {
+            dir = Files.createTempDirectory("foxtelemetry-crash-queue").toFile();
+            connection = DriverManager.getConnection("jdbc:sqlite:" + new File(dir, "foxtelemetry.db").getAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute(CREATE);
+            }
+            connection.setAutoCommit(false);
+            insert = connection.prepareStatement(INSERT);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            insert.close();
+            connection.close();
+            File[] files = dir.listFiles();
+            if (files != null) for (File f : files) f.delete();
+            dir.delete();
+        }
+    }
+
+    private FoxTelemetryConfig cfg;
+    private EventEnvelope envelope;
+    private Throwable crash;
+    private File file;
+    private CrashJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cfg = Fixtures.config(WireFormat.JSON);
+        envelope = Fixtures.envelope(cfg);
+        crash = Fixtures.throwable();
+        file = Files.createTempFile("foxtelemetry-crash", ".journal").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void map() throws IOException {
+        journal = new CrashJournal(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public boolean record() {
+        return journal.record(envelope, crash, cfg.maxStackFrames, 1_700_000_000_000L);
+    }
+
+    @Benchmark
+    public int queueInsert(Queue queue) throws SQLException {
+        long now = 1_700_000_000_000L;
+        byte[] event = EventEncoder.get().encodeError(envelope, now, crash, "UNCAUGHT_EXCEPTION", cfg.maxStackFrames);
+        queue.insert.setBytes(1, event);
+        queue.insert.setInt(2, event.length);
+        queue.insert.setInt(3, Priority.CRASH);
+        queue.insert.setLong(4, now);
+        int rows = queue.insert.executeUpdate();
+        queue.connection.commit();
+        return rows;
+    }
+}
@@ -0,0 +1,81 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enqueue throughput of the in-memory buffer in front of the queue, with a sink that only counts
+ * (SQLite is not on the JVM path), plus the whole log call: filter, encode, offer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnqueueBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Buffer {
+        final AtomicLong written = new AtomicLong();
+        AsyncEventBuffer<byte[]> buffer;
+        FoxTelemetryConfig cfg;
+        LogFilter filter;
+        byte[] event;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cfg = Fixtures.config(WireFormat.JSON);
+            filter = new LogFilter(cfg, new LogFilter.Sink() {
+                @Override
+                public void onRepeated(LogLevel level, String tag, String message, int repeats, long lastSeenMillis) {}
+            });
+            event = Fixtures.storedEvents(cfg, 1).get(0);
+            TelemetryEventBuilder.setDeviceInfo(Fixtures.DEVICE);
+            buffer = new AsyncEventBuffer<>(cfg.bufferCapacity, OverflowPolicy.BLOCK, cfg.overflowTimeoutMs,
+                    new AsyncEventBuffer.Sink<byte[]>() {
+                        @Override
+                        public void write(List<byte[]> batch) {
+                            written.addAndGet(batch.size());
+                        }
+                    });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            buffer.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int i;
+    }
+
+    @Benchmark
+    public boolean offer(Buffer b) {
+        return b.buffer.offer(b.event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean offerContended(Buffer b) {
+        return b.buffer.offer(b.event);
+    }
+
+    /** What {@code FoxTelemetry.i} costs the caller, minus the flush scheduler's counters. */
+    @Benchmark
+    public boolean logCall(Buffer b, Counter c) {
+        String message = "GET /v1/orders/" + (c.i++ & 1023) + " -> 200";
+        if (!b.filter.accept(LogLevel.INFO, "Network", message)) return false;
+        return b.buffer.offer(TelemetryEventBuilder.buildLogEvent(b.cfg, Fixtures.INSTALL_ID, "INFO", "Network", message));
+    }
+}
@@ -0,0 +1,137 @@
+package com.foxtelemetry.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building one encoded event, as {@code FoxTelemetry.i/e/event} do on the caller's thread. The
+ * {@code jsonObject*} baselines build the same events the way the SDK did before the streaming
+ * encoder: a {@link JSONObject} tree, then {@code toString().getBytes(UTF_8)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBuildBenchmark {
+
+    private FoxTelemetryConfig cfg;
+    private Throwable error;
+    private final EventBuilder.Sink sink = e -> encoded = TelemetryEventBuilder.buildEvent(cfg, Fixtures.INSTALL_ID, e, 0L);
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        cfg = Fixtures.config(WireFormat.JSON);
+        error = Fixtures.throwable();
+        TelemetryEventBuilder.setDeviceInfo(Fixtures.DEVICE);
+    }
+
+    @Benchmark
+    public byte[] logEvent() {
+        return TelemetryEventBuilder.buildLogEvent(cfg, Fixtures.INSTALL_ID, "INFO", "Network",
+                "GET /v1/orders/81723 -> 200 in 143 ms");
+    }
+
+    @Benchmark
+    public byte[] errorEvent() {
+        return TelemetryEventBuilder.buildErrorEvent(cfg, Fixtures.INSTALL_ID, error, "checkout");
+    }
+
+    @Benchmark
+    public byte[] customEvent() {
+        EventBuilder.obtain("checkout", sink).put("items", 3).put("total", 42.5)
+                .put("coupon", true).put("currency", "EUR").emit();
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] jsonObjectLogEvent() throws JSONException {
+        JSONObject root = jsonBase();
+        root.put("type", "log");
+        root.put("level", "INFO");
+        root.put("tag", "Network");
+        root.put("message", "GET /v1/orders/81723 -> 200 in 143 ms");
+        return root.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jsonObjectErrorEvent() throws JSONException {
+        JSONObject root = jsonBase();
+        root.put("type", "error");
+        root.put("context", "checkout");
+        root.put("exception", jsonThrowable(error, cfg.maxStackFrames));
+        return root.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jsonObjectCustomEvent() throws JSONException {
+        JSONObject root = jsonBase();
+        root.put("type", "event");
+        root.put("name", "checkout");
+        JSONObject attrs = new JSONObject();
+        attrs.put("items", 3);
+        attrs.put("total", 42.5);
+        attrs.put("coupon", true);
+        attrs.put("currency", "EUR");
+        root.put("attrs", attrs);
+        return root.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The envelope fields, rebuilt for every event as the JSONObject path did.
+    private JSONObject jsonBase() throws JSONException {
+        JSONObject root = new JSONObject();
+        root.put("timestamp", System.currentTimeMillis());
+        root.put("projectId", cfg.projectId);
+        root.put("appId", cfg.appId);
+        root.put("packageName", cfg.packageName);
+        root.put("installId", Fixtures.INSTALL_ID);
+        if (cfg.environment != null) root.put("environment", cfg.environment);
+        if (cfg.userId != null) root.put("userId", cfg.userId);
+
+        JSONObject device = new JSONObject();
+        device.put("brand", Fixtures.DEVICE.brand);
+        device.put("model", Fixtures.DEVICE.model);
+        device.put("sdkInt", Fixtures.DEVICE.sdkInt);
+        device.put("release", Fixtures.DEVICE.release);
+        root.put("device", device);
+        return root;
+    }
+
+    private static JSONObject jsonThrowable(Throwable t, int maxFrames) throws JSONException {
+        JSONObject ex = new JSONObject();
+        ex.put("name", t.getClass().getName());
+        ex.put("message", t.getMessage());
+
+        StringWriter sw = new StringWriter();
+        t.printStackTrace(new PrintWriter(sw));
+        ex.put("stacktrace", sw.toString());
+
+        StackTraceElement[] st = t.getStackTrace();
+        JSONArray frames = new JSONArray();
+        for (int i = 0, n = Math.min(st.length, maxFrames); i < n; i++) {
+            JSONObject f = new JSONObject();
+            f.put("class", st[i].getClassName());
+            f.put("method", st[i].getMethodName());
+            f.put("file", st[i].getFileName());
+            f.put("line", st[i].getLineNumber());
+            f.put("native", st[i].isNativeMethod());
+            frames.put(f);
+        }
+        ex.put("frames", frames);
+
+        if (t.getCause() != null && t.getCause() != t) ex.put("cause", jsonThrowable(t.getCause(), maxFrames));
+        return ex;
+    }
+}
@@ -0,0 +1,57 @@
+package com.foxtelemetry.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Config and payloads shared by the benchmarks; sizes are close to what a real app queues. */
+final class Fixtures {
+
+    static final String INSTALL_ID = "5f0c6f9e-6d7e-4b1e-9a43-0d5b8e4b7c21";
+    static final DeviceInfo DEVICE = new DeviceInfo("google", "Pixel 7", 34, "14");
+
+    private Fixtures() {}
+
+    static FoxTelemetryConfig config(WireFormat format) {
+        return new FoxTelemetryConfig.Builder(
+                "proj_bench", "app_bench", "com.example.bench", "https://ingest.example.com", "key_bench")
+                .setEnvironment("production")
+                .setUserId("user-1234")
+                .setWireFormat(format)
+                .build();
+    }
+
+    static EventEnvelope envelope(FoxTelemetryConfig cfg) {
+        return EventEnvelope.create(cfg, INSTALL_ID, DEVICE);
+    }
+
+    /** A throwable with a realistic stack depth and a cause. */
+    static Throwable throwable() {
+        return nest(24);
+    }
+
+    private static Throwable nest(int depth) {
+        if (depth == 0) {
+            return new IllegalStateException("Checkout failed for order 81723",
+                    new java.io.IOException("timeout after 8000 ms"));
+        }
+        return nest(depth - 1);
+    }
+
+    /** {@code count} stored events, as the queue would hand them to a batch: mostly logs, some errors. */
+    static List<byte[]> storedEvents(FoxTelemetryConfig cfg, int count) {
+        EventEncoder encoder = EventEncoder.get();
+        EventEnvelope env = envelope(cfg);
+        Throwable t = throwable();
+        long now = 1_700_000_000_000L;
+        List<byte[]> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 9) {
+                events.add(encoder.encodeError(env, now + i, t, "checkout", cfg.maxStackFrames));
+            } else {
+                events.add(encoder.encodeLog(env, now + i, "INFO", "Network",
+                        "GET /v1/orders/" + i + " -> 200 in " + (i % 300) + " ms"));
+            }
+        }
+        return events;
+    }
+}
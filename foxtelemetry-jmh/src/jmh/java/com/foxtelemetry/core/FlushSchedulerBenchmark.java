@@ -0,0 +1,44 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The flush scheduler's share of every enqueue, with the default thresholds and a target that
+ * does nothing: mostly counters, and one hand-off per threshold crossing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlushSchedulerBenchmark {
+
+    private FlushScheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        scheduler = new FlushScheduler(Fixtures.config(WireFormat.JSON), new FlushScheduler.Target() {
+            @Override public void flush() {}
+            @Override public void flushUrgent() {}
+            @Override public long storedEvents() { return 0; }
+        });
+    }
+
+    @Benchmark
+    public void onEnqueued() {
+        scheduler.onEnqueued(400, false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void onEnqueuedContended() {
+        scheduler.onEnqueued(400, false);
+    }
+}
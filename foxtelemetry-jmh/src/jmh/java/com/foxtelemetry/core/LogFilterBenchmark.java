@@ -0,0 +1,56 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A log call the filter turns away, for each reason; these should not allocate. The clock is held
+ * still so the rate-limited tag never earns a new token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogFilterBenchmark {
+
+    private LogFilter filter;
+
+    @Setup
+    public void setUp() {
+        filter = new LogFilter(Fixtures.config(WireFormat.JSON).toBuilder()
+                .setMinLogLevel(LogLevel.INFO)
+                .setLogSampleRate(LogLevel.WARN, 0.0)
+                .setLogRateLimit(1, 1)
+                .build(), new LogFilter.Sink() {
+            @Override
+            public void onRepeated(LogLevel level, String tag, String message, int repeats, long lastSeenMillis) {}
+        }, 0);
+        filter.accept(LogLevel.ERROR, "Network", "retrying", 0, 0); // spends the burst, starts a run
+    }
+
+    @Benchmark
+    public boolean belowLevel() {
+        return filter.accept(LogLevel.DEBUG, "Network", "socket read 512 bytes", 0, 0);
+    }
+
+    @Benchmark
+    public boolean collapsed() {
+        return filter.accept(LogLevel.ERROR, "Network", "retrying", 0, 0);
+    }
+
+    @Benchmark
+    public boolean sampledOut() {
+        return filter.accept(LogLevel.WARN, "Network", "slow response", 0, 0);
+    }
+
+    @Benchmark
+    public boolean rateLimited() {
+        return filter.accept(LogLevel.ERROR, "Network", "connection reset", 0, 0);
+    }
+}
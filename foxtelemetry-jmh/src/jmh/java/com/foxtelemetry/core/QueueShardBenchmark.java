@@ -0,0 +1,103 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commits from three writers, standing in for three app processes, into one shared queue
+ * database (before sharding) or one file per writer ({@code QueueShards} in :foxtelemetry). Plain
+ * SQLite through JDBC with the queue's table and insert; the Android driver is not on the JVM path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(3)
+public class QueueShardBenchmark {
+
+    // The queue's v2 table and insert, as in QueueSchema.
+    private static final String CREATE = "CREATE TABLE IF NOT EXISTS events (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, payload BLOB NOT NULL, size INTEGER NOT NULL," +
+            " priority INTEGER NOT NULL DEFAULT 0, created_at INTEGER NOT NULL DEFAULT 0)";
+    private static final String INSERT = "INSERT INTO events (payload, size, priority, created_at) VALUES (?, ?, ?, ?)";
+
+    @State(Scope.Benchmark)
+    public static class Layout {
+        @Param({"shared", "sharded"})
+        public String layout;
+
+        final AtomicInteger writers = new AtomicInteger();
+        File dir;
+        byte[] event;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dir = Files.createTempDirectory("foxtelemetry-shards").toFile();
+            event = Fixtures.storedEvents(Fixtures.config(WireFormat.JSON), 1).get(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            File[] files = dir.listFiles();
+            if (files != null) for (File f : files) f.delete();
+            dir.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        Connection connection;
+        PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void open(Layout l) throws SQLException {
+            int n = l.writers.getAndIncrement();
+            String name = l.layout.equals("shared") ? "foxtelemetry.db" : "foxtelemetry-w" + n + ".db";
+            connection = DriverManager.getConnection("jdbc:sqlite:" + new File(l.dir, name).getAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                st.execute("PRAGMA busy_timeout=30000");
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute(CREATE);
+            }
+            connection.setAutoCommit(false);
+            insert = connection.prepareStatement(INSERT);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            insert.close();
+            connection.close();
+        }
+    }
+
+    /** One group commit of the queue's writer thread: {@link AsyncEventBuffer#MAX_WRITE_BATCH} events. */
+    @Benchmark
+    public int groupCommit(Layout l, Writer w) throws SQLException {
+        for (int i = 0; i < AsyncEventBuffer.MAX_WRITE_BATCH; i++) {
+            w.insert.setBytes(1, l.event);
+            w.insert.setLong(2, l.event.length);
+            w.insert.setLong(3, Priority.INFO);
+            w.insert.setLong(4, 1_700_000_000_000L + i);
+            w.insert.executeUpdate();
+        }
+        w.connection.commit();
+        return AsyncEventBuffer.MAX_WRITE_BATCH;
+    }
+}
@@ -0,0 +1,131 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One group commit of events followed by the ack that deletes them, in the queue's v1 access
+ * pattern (rollback journal, a statement compiled per call, a COUNT(*) after every delete) and its
+ * v2 one (WAL, reused statements, counts kept in memory). Plain SQLite through JDBC, as in
+ * {@link QueueShardBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueStorageBenchmark {
+
+    // The tables and statements of QueueSchema (v1 and v2).
+    private static final String CREATE_V1 =
+            "CREATE TABLE IF NOT EXISTS events (id INTEGER PRIMARY KEY AUTOINCREMENT, payload TEXT NOT NULL)";
+    private static final String CREATE_V2 = "CREATE TABLE IF NOT EXISTS events (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, payload BLOB NOT NULL, size INTEGER NOT NULL," +
+            " priority INTEGER NOT NULL DEFAULT 0, created_at INTEGER NOT NULL DEFAULT 0)";
+    private static final String INDEX_V2 = "CREATE INDEX IF NOT EXISTS events_priority ON events (priority, id)";
+    private static final String INSERT_V1 = "INSERT INTO events (payload) VALUES (?)";
+    private static final String INSERT_V2 = "INSERT INTO events (payload, size, priority, created_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_UP_TO = "DELETE FROM events WHERE id <= ?";
+    private static final String LAST_ID = "SELECT MAX(id) FROM events";
+
+    @Param({"v1", "v2"})
+    public String schema;
+
+    private File dir;
+    private Connection connection;
+    private PreparedStatement insert;
+    private PreparedStatement delete;
+    private byte[] event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("foxtelemetry-queue").toFile();
+        event = Fixtures.storedEvents(Fixtures.config(WireFormat.JSON), 1).get(0);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + new File(dir, "foxtelemetry.db").getAbsolutePath());
+        try (Statement st = connection.createStatement()) {
+            if (v2()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute(CREATE_V2);
+                st.execute(INDEX_V2);
+            } else {
+                st.execute(CREATE_V1);
+            }
+        }
+        if (v2()) {
+            insert = connection.prepareStatement(INSERT_V2);
+            delete = connection.prepareStatement(DELETE_UP_TO);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (insert != null) insert.close();
+        if (delete != null) delete.close();
+        connection.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    /** {@link AsyncEventBuffer#MAX_WRITE_BATCH} events written in one transaction, then acked. */
+    @Benchmark
+    public long writeAndAck() throws SQLException {
+        connection.setAutoCommit(false);
+        for (int i = 0; i < AsyncEventBuffer.MAX_WRITE_BATCH; i++) {
+            if (v2()) {
+                insert.setBytes(1, event);
+                insert.setLong(2, event.length);
+                insert.setLong(3, Priority.INFO);
+                insert.setLong(4, 1_700_000_000_000L + i);
+                insert.executeUpdate();
+            } else {
+                try (PreparedStatement st = connection.prepareStatement(INSERT_V1)) {
+                    st.setBytes(1, event);
+                    st.executeUpdate();
+                }
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return ack(query(LAST_ID));
+    }
+
+    private long ack(long lastId) throws SQLException {
+        if (v2()) {
+            delete.setLong(1, lastId);
+            return delete.executeUpdate();
+        }
+        try (PreparedStatement st = connection.prepareStatement(DELETE_UP_TO)) {
+            st.setLong(1, lastId);
+            st.executeUpdate();
+        }
+        return query("SELECT COUNT(*) FROM events"); // v1 sizeEstimate after every batch
+    }
+
+    private long query(String sql) throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private boolean v2() {
+        return schema.equals("v2");
+    }
+}
@@ -0,0 +1,36 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/** What the SDK's own metrics add to each enqueue, from one thread and from several. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SdkMetricsBenchmark {
+
+    private final SdkMetrics metrics = new SdkMetrics();
+
+    @State(Scope.Thread)
+    public static class Latency {
+        long nanos;
+    }
+
+    @Benchmark
+    public void recordEnqueue(Latency l) {
+        metrics.recordEnqueue(l.nanos++ & 0xFFFF, true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordEnqueueContended(Latency l) {
+        metrics.recordEnqueue(l.nanos++ & 0xFFFF, true);
+    }
+}
@@ -0,0 +1,51 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Writing a batch of stored events in each wire format, as the upload does for its request body. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    public WireFormat format;
+
+    @Param({"50", "500"})
+    public int events;
+
+    /** {@link FoxTelemetryConfig#cborStringRefs}; no effect on JSON. */
+    @Param({"false", "true"})
+    public boolean stringRefs;
+
+    private FoxTelemetryConfig cfg;
+    private List<byte[]> batch;
+    private final BatchEncoder encoder = new BatchEncoder();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+
+    @Setup
+    public void setUp() {
+        cfg = Fixtures.config(format).toBuilder().setCborStringRefs(stringRefs).build();
+        batch = Fixtures.storedEvents(cfg, events);
+    }
+
+    /** Returns the body size so it also shows up in the results next to the time. */
+    @Benchmark
+    public int writeBatch() throws IOException {
+        out.reset();
+        encoder.write(out, format, cfg, batch);
+        return out.size();
+    }
+}
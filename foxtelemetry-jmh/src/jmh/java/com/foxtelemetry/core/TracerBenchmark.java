@@ -0,0 +1,51 @@
+package com.foxtelemetry.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A root span with one tagged child, unsampled (should not allocate) and sampled (pooled spans,
+ * plus the trace handed to a sink that drops it).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TracerBenchmark {
+
+    private Tracer unsampled;
+    private Tracer sampled;
+
+    @Setup
+    public void setUp() {
+        Tracer.Sink drop = new Tracer.Sink() {
+            @Override
+            public void emit(Trace trace) {}
+        };
+        unsampled = new Tracer(System::nanoTime, drop, 0.0);
+        sampled = new Tracer(System::nanoTime, drop, 1.0);
+    }
+
+    @Benchmark
+    public Span unsampledSpan() {
+        return trace(unsampled);
+    }
+
+    @Benchmark
+    public Span sampledSpan() {
+        return trace(sampled);
+    }
+
+    private static Span trace(Tracer tracer) {
+        Span root = tracer.startSpan("screen.load");
+        root.startChild("db.query").setTag("table", "orders").end();
+        root.end();
+        return root;
+    }
+}
@@ -0,0 +1,137 @@
+package com.foxtelemetry;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.EventQueue;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+import com.foxtelemetry.net.IngestResponse;
+import com.foxtelemetry.net.IngestTransport;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The deferred path the init provider takes: {@link FoxTelemetry#initAsync} on the main thread,
+ * then a log call before the background init has finished, which must still reach the queue (or
+ * an upload); and a deferred init whose storage setup fails. Run with
+ * {@code ./gradlew :foxtelemetry:connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING) // the failed init needs an SDK that is not initialized yet
+public class DeferredInitTest {
+
+    private final Queue<String> uploaded = new ConcurrentLinkedQueue<>();
+
+    @After
+    public void tearDown() {
+        FoxTelemetry.setIngestTransport(null);
+    }
+
+    @Test
+    public void abortedInitReleasesWaitersAndCanBeRetried() {
+        Assume.assumeFalse("initialized by an earlier test", FoxTelemetry.isInitialized());
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder(
+                "proj_test", "app_test", ctx.getPackageName(), "https://example.invalid/ingest", "key")
+                .build();
+        // As before the first unlock on a direct-boot device: credential storage is unavailable.
+        Context locked = new ContextWrapper(ctx) {
+            @Override
+            public Context getApplicationContext() {
+                return this;
+            }
+
+            @Override
+            public SharedPreferences getSharedPreferences(String name, int mode) {
+                throw new IllegalStateException("credential storage is locked");
+            }
+        };
+
+        FoxTelemetry.initAsync(locked, cfg);
+        FoxTelemetry.i("DeferredInitTest", "dropped with the failed init");
+        long t0 = SystemClock.elapsedRealtime();
+        assertFalse(FoxTelemetry.awaitInit(60_000));
+        assertTrue("waiters released by the failure", SystemClock.elapsedRealtime() - t0 < 60_000);
+        assertNull(FoxTelemetry.getConfig());
+
+        FoxTelemetry.initAsync(ctx, cfg);
+        assertTrue("a later init succeeds", FoxTelemetry.awaitInit(10_000));
+    }
+
+    @Test
+    public void callsBeforeInitCompletesAreKept() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final Context ctx = instrumentation.getTargetContext();
+        final FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder(
+                "proj_test", "app_test", ctx.getPackageName(), "https://example.invalid/ingest", "key")
+                .build();
+        final String marker = "logged before init completed " + System.nanoTime();
+        // A startup flush may upload the event before we look at the queue.
+        FoxTelemetry.setIngestTransport(new IngestTransport() {
+            @Override
+            public IngestResponse send(@NonNull FoxTelemetryConfig c, @NonNull EventBatch batch) {
+                for (byte[] event : batch) uploaded.add(new String(event, StandardCharsets.UTF_8));
+                return IngestResponse.of(200);
+            }
+        });
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                FoxTelemetry.initAsync(ctx, cfg);
+                FoxTelemetry.i("DeferredInitTest", marker);
+            }
+        });
+        assertTrue("deferred init completes", FoxTelemetry.awaitInit(10_000));
+        assertTrue(FoxTelemetry.getQueue().flushToDisk(10_000));
+
+        assertTrue(marker, queued(FoxTelemetry.getQueue(), marker) || contains(uploaded, marker));
+    }
+
+    /** Whether a queued event contains {@code text}; leases the whole queue, then hands it back. */
+    private static boolean queued(EventQueue queue, String text) throws Exception {
+        List<EventQueue.Batch> leased = new ArrayList<>();
+        try {
+            while (true) {
+                EventQueue.Batch batch = queue.openBatch(500);
+                if (batch.isEmpty()) return false;
+                leased.add(batch);
+                for (byte[] event : batch) {
+                    if (new String(event, StandardCharsets.UTF_8).contains(text)) return true;
+                }
+            }
+        } finally {
+            for (EventQueue.Batch batch : leased) queue.nack(batch);
+        }
+    }
+
+    private static boolean contains(Iterable<String> events, String text) {
+        for (String event : events) {
+            if (event.contains(text)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.foxtelemetry.core;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** {@link EventQueue} on the device's SQLite. Run with {@code ./gradlew :foxtelemetry:connectedAndroidTest}. */
+@RunWith(AndroidJUnit4.class)
+public class EventQueueTest {
+
+    private static final String DB_NAME = "foxtelemetry-queue-test.db";
+    private static final DeviceInfo DEVICE = new DeviceInfo("google", "Pixel 8", 34, "14");
+
+    private Context ctx;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        ctx.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void eventsAfterARolledBackWriteKeepTheirEnvelope() throws Exception {
+        FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder(
+                "proj_test", "app_test", ctx.getPackageName(), "https://example.invalid/ingest", "key").build();
+        EventQueue queue = EventQueue.ownShard(ctx, cfg, DB_NAME);
+        EventEnvelope envelope = EventEnvelope.create(cfg, "install-1", DEVICE);
+        byte[] lost = EventEncoder.get().encodeLog(envelope, 1L, "INFO", "NET", "written while the disk was full");
+        byte[] kept = EventEncoder.get().encodeLog(envelope, 2L, "INFO", "NET", "written afterwards");
+        queue.depth(); // creates the schema
+
+        // Fails the write after its envelope row went in, so both are rolled back.
+        SQLiteDatabase other = SQLiteDatabase.openDatabase(
+                ctx.getDatabasePath(DB_NAME).getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            other.execSQL("CREATE TRIGGER fail_insert BEFORE INSERT ON events"
+                    + " BEGIN SELECT RAISE(ABORT, 'disk full'); END");
+            queue.enqueue(lost);
+            queue.flushToDisk();
+            assertEquals(1, queue.droppedCount());
+            other.execSQL("DROP TRIGGER fail_insert");
+        } finally {
+            other.close();
+        }
+
+        queue.enqueue(kept);
+        queue.flushToDisk();
+        EventQueue.Batch batch = queue.openBatch(10);
+        List<byte[]> sent = new ArrayList<>();
+        for (byte[] event : batch) sent.add(event);
+        assertEquals(1, sent.size());
+        assertArrayEquals(kept, sent.get(0));
+        assertEquals(0, queue.deadLetterCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.foxtelemetry.core;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+/**
+ * Calling-thread cost of startup: an eager {@code init} opens the install ID store, the queue
+ * database and the crash journal before returning, while {@code preInit} + {@code initAsync}
+ * only allocate the pre-init buffer and start the thread that does that work. Nothing is
+ * asserted; the numbers go to logcat and the benchmark JSON. File caches are warm after the
+ * first iteration, so cold-start I/O is understated for both. Run with
+ * {@code ./gradlew :foxtelemetry:connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String DB_NAME = "foxtelemetry-startup.db";
+    private static final String JOURNAL_NAME = "foxtelemetry-startup.journal";
+    private static final int PRE_INIT_CAPACITY = 256;
+
+    @Rule
+    public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context ctx;
+    private FoxTelemetryConfig cfg;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        cfg = new FoxTelemetryConfig.Builder(
+                "proj_test", "app_test", ctx.getPackageName(), "https://example.invalid/ingest", "key").build();
+        reset();
+    }
+
+    @After
+    public void tearDown() {
+        reset();
+    }
+
+    @Test
+    public void eagerInit() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            EventQueue queue = openStorage();
+            state.pauseTiming();
+            queue.close();
+            reset();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void deferredInit() throws InterruptedException {
+        BenchmarkState state = benchmarkRule.getState();
+        final EventQueue[] opened = new EventQueue[1];
+        while (state.keepRunning()) {
+            new PreInitBuffer(PRE_INIT_CAPACITY);
+            Thread init = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    opened[0] = openStorage();
+                }
+            }, "FoxTelemetry-init");
+            init.start();
+            state.pauseTiming();
+            init.join();
+            opened[0].close();
+            reset();
+            state.resumeTiming();
+        }
+    }
+
+    /** The storage setup {@code init} runs before it returns. */
+    private EventQueue openStorage() {
+        InstallIdStore.getOrCreateInstallId(ctx);
+        EventQueue queue = EventQueue.ownShard(ctx, cfg, DB_NAME);
+        queue.depth(); // opens the database and creates the schema
+        CrashJournal.open(ctx.getNoBackupFilesDir(), JOURNAL_NAME);
+        return queue;
+    }
+
+    private void reset() {
+        ctx.deleteDatabase(DB_NAME);
+        new File(ctx.getNoBackupFilesDir(), JOURNAL_NAME).delete();
+    }
+}
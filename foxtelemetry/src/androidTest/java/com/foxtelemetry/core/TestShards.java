@@ -0,0 +1,17 @@
+package com.foxtelemetry.core;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+/** Opens queue shards as another process would, for tests outside this package. */
+public final class TestShards {
+
+    private TestShards() {}
+
+    /** A writable queue on {@code dbName}, as if this process owned that shard. */
+    @NonNull
+    public static EventQueue writable(@NonNull Context context, @NonNull FoxTelemetryConfig cfg, @NonNull String dbName) {
+        return EventQueue.ownShard(context, cfg, dbName);
+    }
+}
@@ -0,0 +1,146 @@
+package com.foxtelemetry.work;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.foxtelemetry.core.EventQueue;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+import com.foxtelemetry.core.Lane;
+import com.foxtelemetry.core.OverflowPolicy;
+import com.foxtelemetry.core.QueueShards;
+import com.foxtelemetry.core.TestShards;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two queue shards written while two flush loops drain {@link QueueShards#all()} the way
+ * {@link FlushWorker} does, each wave under its lane's {@link FlushLock}: every event must be
+ * uploaded exactly once. Run with {@code ./gradlew :foxtelemetry:connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShardedFlushTest {
+
+    private static final String[] SHARDS = {"foxtelemetry-drain-a.db", "foxtelemetry-drain-b.db"};
+    private static final int EVENTS_PER_SHARD = 3_000;
+    private static final int DRAINERS = 2;
+    private static final int[] PRIORITIES = {EventQueue.PRIORITY_INFO, EventQueue.PRIORITY_ERROR, EventQueue.PRIORITY_CRASH};
+
+    private Context ctx;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        for (String name : SHARDS) ctx.deleteDatabase(name);
+    }
+
+    @After
+    public void tearDown() {
+        for (String name : SHARDS) ctx.deleteDatabase(name);
+    }
+
+    @Test
+    public void concurrentDrainsUploadEveryEventOnce() throws Exception {
+        FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder(
+                "proj_test", "app_test", ctx.getPackageName(), "https://example.invalid/ingest", "key")
+                .setOverflowPolicy(OverflowPolicy.BLOCK)
+                .setOverflowTimeoutMs(30_000)
+                .build();
+        final EventQueue[] queues = new EventQueue[SHARDS.length];
+        for (int s = 0; s < SHARDS.length; s++) queues[s] = TestShards.writable(ctx, cfg, SHARDS[s]);
+        // Drains as the process owning the first shard: the second is opened drain-only.
+        final QueueShards shards = new QueueShards(ctx, cfg, queues[0]);
+        final File lockDir = ctx.getNoBackupFilesDir();
+
+        final Map<String, Boolean> uploaded = new ConcurrentHashMap<>();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger writing = new AtomicInteger(SHARDS.length);
+        final List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int s = 0; s < SHARDS.length; s++) {
+            final int shard = s;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < EVENTS_PER_SHARD; i++) {
+                        byte[] event = (shard + ":" + i).getBytes(StandardCharsets.UTF_8);
+                        if (!queues[shard].enqueue(event, PRIORITIES[i % PRIORITIES.length])) {
+                            throw new AssertionError("event " + shard + ":" + i + " not accepted");
+                        }
+                    }
+                    queues[shard].flushToDisk();
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                } finally {
+                    writing.decrementAndGet();
+                }
+            }));
+        }
+        for (int d = 0; d < DRAINERS; d++) {
+            threads.add(new Thread(() -> {
+                try {
+                    // Stops at the first empty pass that began after the writers had committed everything.
+                    while (true) {
+                        boolean writersDone = writing.get() == 0;
+                        if (!drainOnce(shards, lockDir, uploaded, duplicates) && writersDone) break;
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join(120_000);
+
+        assertTrue(String.valueOf(failures), failures.isEmpty());
+        assertEquals("uploaded twice", 0, duplicates.get());
+        assertEquals(SHARDS.length * EVENTS_PER_SHARD, uploaded.size());
+        for (EventQueue q : queues) assertTrue(q.dbName(), q.openBatch(1).isEmpty());
+    }
+
+    /** One pass over every lane of our shards, as a flush run's waves; false if nothing was left. */
+    private static boolean drainOnce(QueueShards shards, File lockDir, Map<String, Boolean> uploaded,
+                                     AtomicInteger duplicates) throws Exception {
+        boolean found = false;
+        for (Lane lane : Lane.values()) {
+            FlushLock lock = FlushLock.acquire(lockDir, lane, 10_000);
+            assertTrue("lane lock of " + lane, lock != null);
+            try {
+                for (EventQueue q : shards.all()) {
+                    if (!q.dbName().startsWith("foxtelemetry-drain-")) continue; // the app's own queue
+                    EventQueue.Batch batch = q.openBatch(lane, Long.MIN_VALUE, Long.MAX_VALUE, 100);
+                    if (batch.isEmpty()) continue;
+                    found = true;
+                    for (byte[] event : batch) {
+                        if (uploaded.put(new String(event, StandardCharsets.UTF_8), Boolean.TRUE) != null) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    q.ack(batch);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        return found;
+    }
+}
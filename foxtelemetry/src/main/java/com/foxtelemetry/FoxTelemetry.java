@@ -1,37 +1,97 @@
 package com.foxtelemetry;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.work.Constraints;
+import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
 import androidx.work.WorkManager;
 
+import com.foxtelemetry.core.BreadcrumbRing;
 import com.foxtelemetry.core.CrashHandler;
+import com.foxtelemetry.core.CrashJournal;
+import com.foxtelemetry.core.DeviceInfo;
+import com.foxtelemetry.core.ErrorAggregator;
+import com.foxtelemetry.core.EventBuilder;
 import com.foxtelemetry.core.EventQueue;
+import com.foxtelemetry.core.EvictionReport;
+import com.foxtelemetry.core.FlushScheduler;
+import com.foxtelemetry.core.FlushStats;
 import com.foxtelemetry.core.FoxTelemetryConfig;
 import com.foxtelemetry.core.InstallIdStore;
+import com.foxtelemetry.core.LogFilter;
+import com.foxtelemetry.core.LogLevel;
+import com.foxtelemetry.core.MetricRegistry;
+import com.foxtelemetry.core.MetricsReport;
+import com.foxtelemetry.core.PreInitBuffer;
+import com.foxtelemetry.core.QueueShards;
+import com.foxtelemetry.core.SdkMetrics;
+import com.foxtelemetry.core.SdkStats;
+import com.foxtelemetry.core.Span;
 import com.foxtelemetry.core.TelemetryEventBuilder;
+import com.foxtelemetry.core.Trace;
+import com.foxtelemetry.core.Tracer;
+import com.foxtelemetry.core.UploadBackoff;
+import com.foxtelemetry.net.IngestClient;
+import com.foxtelemetry.net.IngestTransport;
 import com.foxtelemetry.work.FlushWorker;
 
-import org.json.JSONObject;
-
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class FoxTelemetry {
 
     private static final String INTERNAL_TAG = "FoxTelemetry";
     private static final String WORK_NAME = "foxtelemetry-flush";
+    private static final String URGENT_WORK_NAME = "foxtelemetry-flush-urgent";
+    // The runs that resume uploads after a backoff; at most one of each is pending.
+    private static final String BACKOFF_WORK_NAME = "foxtelemetry-flush-backoff";
+    private static final String URGENT_BACKOFF_WORK_NAME = "foxtelemetry-flush-urgent-backoff";
+    private static final long IMPORT_TIMEOUT_MS = 2_000;
+    // Calls buffered while a deferred init runs; later ones are counted and dropped.
+    private static final int PRE_INIT_CAPACITY = 256;
 
     private static final AtomicBoolean initialized = new AtomicBoolean(false);
+    private static final AtomicBoolean crashHookInstalled = new AtomicBoolean(false);
+    // Counted down when the pending deferred init completes or is cancelled; replaced by preInit.
+    private static volatile CountDownLatch initDone = new CountDownLatch(1);
+    // Set once init has replayed the pre-init buffer; until then calls go to the buffer.
+    private static volatile boolean ready;
 
     private static volatile FoxTelemetryConfig config;
     private static volatile String installId;
     private static volatile EventQueue queue;
+    private static volatile QueueShards queueShards;
+    private static volatile ErrorAggregator errorAggregator;
+    private static volatile LogFilter logFilter;
+    private static volatile BreadcrumbRing breadcrumbs;
+    private static volatile CrashJournal crashJournal;
+    private static volatile FlushScheduler flushScheduler;
+    private static volatile UploadBackoff uploadBackoff;
+    private static volatile IngestTransport transport = IngestClient.INSTANCE;
+    private static volatile PreInitBuffer preInit;
+
+    private static final SdkMetrics metrics = new SdkMetrics();
+    private static volatile long lastSdkStatsAt;
+    // App metrics; usable before init, reported once there is a config and a queue.
+    private static final MetricRegistry metricRegistry = new MetricRegistry();
+    private static volatile long lastMetricsAt;
+    // Usable before init with the default sample rate; init applies the configured one.
+    private static final Tracer tracer = new Tracer(SystemClock::elapsedRealtimeNanos, FoxTelemetry::onTraceFinished,
+            FoxTelemetryConfig.DEFAULT_TRACE_SAMPLE_RATE);
 
     private FoxTelemetry() {}
 
@@ -41,23 +101,126 @@ public final class FoxTelemetry {
         if (cfg == null) throw new IllegalArgumentException("config is null");
 
         Context app = context.getApplicationContext();
-        config = cfg;
 
+        TelemetryEventBuilder.setDeviceInfo(
+                new DeviceInfo(Build.BRAND, Build.MODEL, Build.VERSION.SDK_INT, Build.VERSION.RELEASE));
         if (installId == null) installId = InstallIdStore.getOrCreateInstallId(app);
-        if (queue == null) queue = new EventQueue(app);
+        if (queue == null) queue = new EventQueue(app, cfg);
+        if (queueShards == null) queueShards = new QueueShards(app, cfg, queue);
+        // Only once storage is set up: if that throws, the init can be cancelled or retried.
+        config = cfg;
+        if (errorAggregator == null && cfg.errorAggregationWindowMs > 0) {
+            errorAggregator = new ErrorAggregator(cfg.errorAggregationWindowMs, cfg.errorAggregationMaxEntries);
+        }
+
+        if (logFilter == null) logFilter = new LogFilter(cfg, REPEAT_SINK);
+        if (breadcrumbs == null && cfg.breadcrumbCapacity > 0) {
+            BreadcrumbRing ring = new BreadcrumbRing(cfg.breadcrumbCapacity);
+            TelemetryEventBuilder.setBreadcrumbs(ring);
+            breadcrumbs = ring;
+        }
 
         if (initialized.compareAndSet(false, true)) {
+            lastSdkStatsAt = System.currentTimeMillis();
+            lastMetricsAt = lastSdkStatsAt;
+            metricRegistry.setMaxSeries(cfg.metricsMaxSeries);
+            tracer.setSampleRate(cfg.traceSampleRate);
+            uploadBackoff = new UploadBackoff(cfg, app.getNoBackupFilesDir());
+            FlushScheduler scheduler = new FlushScheduler(cfg, new WorkManagerTarget(app));
+            flushScheduler = scheduler;
+            if (cfg.flushOnBackground) app.registerComponentCallbacks(new BackgroundCallbacks(scheduler));
+            scheduler.onStartup();
+
+            CrashJournal journal = CrashJournal.open(app.getNoBackupFilesDir(),
+                    QueueShards.crashJournalNameForCurrentProcess(app));
+            if (journal != null) importPreviousCrash(journal, queue);
             if (cfg.enableCrashCapture) {
-                Thread.UncaughtExceptionHandler prev = Thread.getDefaultUncaughtExceptionHandler();
-                Thread.setDefaultUncaughtExceptionHandler(new CrashHandler(prev));
+                crashJournal = journal;
+                installCrashHook();
             }
         }
 
-        flushAsync(app);
+        // Callers keep buffering until the replay is done, so none overtakes a buffered call.
+        PreInitBuffer pending = preInit;
+        if (pending != null) {
+            int lost = pending.drainTo(REPLAY);
+            if (lost > 0) Log.w(INTERNAL_TAG, lost + " calls made before init completed were dropped");
+        }
+        ready = true;
+        preInit = null;
+        initDone.countDown();
+    }
+
+    /**
+     * First half of a deferred init, cheap enough for the main thread: calls made until
+     * {@link #init} completes are kept in memory (with their timestamps) and a crash hook is
+     * installed. Follow it with {@link #init} on a background thread, or {@link #cancelPreInit}.
+     */
+    public static void preInit() {
+        if (config != null || preInit != null) return;
+        initDone = new CountDownLatch(1);
+        preInit = new PreInitBuffer(PRE_INIT_CAPACITY);
+        installCrashHook();
+    }
+
+    /**
+     * Ends a {@link #preInit} that will not be followed by an init (or whose init failed),
+     * dropping what it buffered and releasing {@link #awaitInit} callers.
+     */
+    public static void cancelPreInit() {
+        if (ready) return;
+        PreInitBuffer pending = preInit;
+        preInit = null;
+        if (pending != null) pending.discard();
+        initDone.countDown();
+    }
+
+    /**
+     * Lazy init: {@link #preInit} on the calling thread, then the install ID read, database
+     * setup and scheduling on a background thread.
+     */
+    public static void initAsync(@NonNull Context context, @NonNull final FoxTelemetryConfig cfg) {
+        if (context == null) throw new IllegalArgumentException("context is null");
+        if (cfg == null) throw new IllegalArgumentException("config is null");
+        final Context app = context.getApplicationContext();
+        preInit();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    init(app, cfg);
+                } catch (RuntimeException e) {
+                    Log.e(INTERNAL_TAG, "Deferred init failed", e);
+                    cancelPreInit();
+                }
+            }
+        }, "FoxTelemetry-init").start();
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for a deferred init that is still running; returns whether
+     * the SDK is initialized. Returns at once if no init is pending.
+     */
+    public static boolean awaitInit(long timeoutMs) {
+        if (isInitialized()) return true;
+        if (preInit == null) return false;
+        try {
+            initDone.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return isInitialized();
+    }
+
+    private static void installCrashHook() {
+        if (!crashHookInstalled.compareAndSet(false, true)) return;
+        Thread.UncaughtExceptionHandler prev = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new CrashHandler(prev));
     }
 
     public static boolean isInitialized() {
-        return config != null && queue != null;
+        return ready;
     }
 
     public static void setUserId(@Nullable String userId) {
@@ -66,12 +229,91 @@ public final class FoxTelemetry {
         config = cfg.withUserId(userId);
     }
 
-    public static void d(@NonNull String tag, @NonNull String message) { emitLog("DEBUG", tag, message); }
-    public static void i(@NonNull String tag, @NonNull String message) { emitLog("INFO", tag, message); }
-    public static void w(@NonNull String tag, @NonNull String message) { emitLog("WARN", tag, message); }
-    public static void e(@NonNull String tag, @NonNull String message) { emitLog("ERROR", tag, message); }
+    public static void d(@NonNull String tag, @NonNull String message) { emitLog(LogLevel.DEBUG, tag, message); }
+    public static void i(@NonNull String tag, @NonNull String message) { emitLog(LogLevel.INFO, tag, message); }
+    public static void w(@NonNull String tag, @NonNull String message) { emitLog(LogLevel.WARN, tag, message); }
+    public static void e(@NonNull String tag, @NonNull String message) { emitLog(LogLevel.ERROR, tag, message); }
+
+    /**
+     * Starts a custom event with typed attributes; finish it with {@link EventBuilder#emit()}.
+     * Builders are pooled, so do not keep a reference after emitting.
+     */
+    @NonNull
+    public static EventBuilder event(@NonNull String name) {
+        return EventBuilder.obtain(name, EVENT_SINK);
+    }
+
+    /**
+     * Counter of the series {@code name} + {@code tags} (alternating keys and values), aggregated
+     * in memory and sent as part of a periodic {@code metrics} event. Keep the returned handle.
+     */
+    @NonNull
+    public static MetricRegistry.Counter counter(@NonNull String name, @NonNull String... tags) {
+        return metricRegistry.counter(name, tags);
+    }
+
+    /** Gauge of the series {@code name} + {@code tags}; the last value set is reported each interval. */
+    @NonNull
+    public static MetricRegistry.Gauge gauge(@NonNull String name, @NonNull String... tags) {
+        return metricRegistry.gauge(name, tags);
+    }
+
+    /** Histogram of the series {@code name} + {@code tags}, reported as a mergeable quantile sketch. */
+    @NonNull
+    public static MetricRegistry.Histogram histogram(@NonNull String name, @NonNull String... tags) {
+        return metricRegistry.histogram(name, tags);
+    }
 
+    @NonNull
+    public static MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Starts the root span of a new trace, timed with {@code SystemClock.elapsedRealtimeNanos}.
+     * Whether the trace is recorded is decided here ({@code traceSampleRate}); if it is not, the
+     * shared no-op span is returned. The trace is sent as one event once all its spans have ended.
+     */
+    @NonNull
+    public static Span startSpan(@NonNull String name) {
+        return tracer.startSpan(name);
+    }
+
+    /**
+     * Reports a caught exception. Repeats of the same error (same fingerprint) within the
+     * aggregation window are only counted and later reported as one event with an occurrence count.
+     */
     public static void report(@NonNull Throwable t, @NonNull String contextTag) {
+        long now = System.currentTimeMillis();
+        PreInitBuffer pending = preInit;
+        if (pending != null && t != null && !isInitialized() && pending.error(t, contextTag, now)) return;
+        reportInternal(t, contextTag, true, now);
+    }
+
+    /**
+     * Crash path: never aggregated. The crash goes to the memory-mapped {@link CrashJournal}
+     * (imported on next start) so nothing here waits on the queue; the queue is only used if the
+     * journal is unavailable. Pending repeat counts are handed to the buffer as well.
+     */
+    public static void reportUncaught(@NonNull Throwable t) {
+        FoxTelemetryConfig cfg = config;
+        CrashJournal journal = crashJournal;
+        boolean journaled = cfg != null && journal != null && journal.record(cfg, installId, t);
+        emitPendingErrorSummaries(true);
+        emitPendingLogReports(true);
+        if (!journaled) reportInternal(t, "UNCAUGHT_EXCEPTION", false, System.currentTimeMillis());
+    }
+
+    private static void importPreviousCrash(CrashJournal journal, EventQueue q) {
+        byte[] crash = journal.readPending();
+        if (crash == null) return;
+        // Only clear the slot once the event is committed, so a failed import is retried.
+        if (enqueue(q, crash, EventQueue.PRIORITY_CRASH, true) && q.flushToDisk(IMPORT_TIMEOUT_MS)) {
+            journal.clear();
+        }
+    }
+
+    private static void reportInternal(Throwable t, String contextTag, boolean aggregate, long now) {
         FoxTelemetryConfig cfg = config;
         EventQueue q = queue;
         if (cfg == null || q == null) {
@@ -81,48 +323,413 @@ public final class FoxTelemetry {
         if (t == null) return;
 
         try {
-            JSONObject event = TelemetryEventBuilder.buildErrorEvent(cfg, installId, t, contextTag);
-            q.enqueue(event);
-            flushAsync(q.getContext());
+            long fingerprint = ErrorAggregator.fingerprint(t, ErrorAggregator.FINGERPRINT_FRAMES);
+            ErrorAggregator agg = errorAggregator;
+            if (aggregate && agg != null) {
+                emitSummaries(cfg, q, agg.drain(now, false));
+                if (!agg.record(fingerprint, t, contextTag, now)) return;
+            }
+
+            long t0 = System.nanoTime();
+            byte[] event = TelemetryEventBuilder.buildErrorEvent(cfg, installId, t, contextTag, fingerprint, now);
+            metrics.recordEventBuild(System.nanoTime() - t0);
+            enqueue(q, event, aggregate ? EventQueue.PRIORITY_ERROR : EventQueue.PRIORITY_CRASH, true);
         } catch (Exception ex) {
+            metrics.onInternalError();
             Log.e(INTERNAL_TAG, "Failed to build/enqueue error event", ex);
         }
     }
 
-    private static void emitLog(String level, String tag, String message) {
+    /** Enqueues summaries for suppressed error repeats; {@code force} also closes open windows. */
+    public static void emitPendingErrorSummaries(boolean force) {
+        FoxTelemetryConfig cfg = config;
+        EventQueue q = queue;
+        ErrorAggregator agg = errorAggregator;
+        if (cfg == null || q == null || agg == null) return;
+        try {
+            emitSummaries(cfg, q, agg.drain(System.currentTimeMillis(), force));
+        } catch (Exception ex) {
+            metrics.onInternalError();
+            Log.e(INTERNAL_TAG, "Failed to enqueue error summaries", ex);
+        }
+    }
+
+    private static void emitSummaries(FoxTelemetryConfig cfg, EventQueue q, List<ErrorAggregator.Summary> summaries) {
+        for (int i = 0, n = summaries.size(); i < n; i++) {
+            byte[] event = TelemetryEventBuilder.buildErrorSummary(cfg, installId, summaries.get(i));
+            enqueue(q, event, EventQueue.PRIORITY_ERROR, false);
+        }
+    }
+
+    private static void emitLog(LogLevel level, String tag, String message) {
+        PreInitBuffer pending = null;
+        if (!isInitialized()) {
+            pending = preInit;
+            if (pending == null) return;
+        }
+
+        switch (level) {
+            case ERROR: Log.e(tag, message); break;
+            case WARN: Log.w(tag, message); break;
+            case INFO: Log.i(tag, message); break;
+            default: Log.d(tag, message); break;
+        }
+
+        long now = System.currentTimeMillis();
+        // False once init has drained the buffer; the call then goes to the queue directly.
+        if (pending != null && pending.log(level, tag, message, now)) return;
+        recordLog(level, tag, message, now);
+    }
+
+    /** Filters, encodes and queues a log call; logcat output has already happened. */
+    private static void recordLog(LogLevel level, String tag, String message, long timestamp) {
+        FoxTelemetryConfig cfg = config;
+        EventQueue q = queue;
+        if (cfg == null || q == null) return;
+
+        LogFilter filter = logFilter;
+        BreadcrumbRing ring = breadcrumbs;
+        if (ring != null && (filter == null || filter.isLoggable(level, tag))) {
+            ring.add(level, tag, message, timestamp);
+            // Low levels only live in the ring: no encoding, no queue, no disk write.
+            if (cfg.breadcrumbLevel.isAtLeast(level)) return;
+        }
+        if (filter != null) {
+            if (filter.isReportDue(System.currentTimeMillis())) emitPendingLogReports(false);
+            if (!filter.accept(level, tag, message)) {
+                metrics.onFiltered();
+                return;
+            }
+        }
+
+        try {
+            long t0 = System.nanoTime();
+            byte[] event = TelemetryEventBuilder.buildLogEvent(cfg, installId, level.name(), tag, message, timestamp);
+            metrics.recordEventBuild(System.nanoTime() - t0);
+            enqueue(q, event, EventQueue.priorityOf(level), false);
+        } catch (Exception e) {
+            metrics.onInternalError();
+        }
+    }
+
+    private static void recordEvent(EventBuilder e, long timestamp) {
+        FoxTelemetryConfig cfg = config;
+        EventQueue q = queue;
+        if (cfg == null || q == null) return;
+        try {
+            long t0 = System.nanoTime();
+            byte[] event = TelemetryEventBuilder.buildEvent(cfg, installId, e, timestamp);
+            metrics.recordEventBuild(System.nanoTime() - t0);
+            enqueue(q, event, EventQueue.PRIORITY_INFO, false);
+        } catch (Exception ex) {
+            metrics.onInternalError();
+        }
+    }
+
+    private static void onTraceFinished(Trace trace) {
+        if (!isInitialized()) {
+            PreInitBuffer pending = preInit;
+            if (pending == null) return;
+            if (pending.trace(trace)) return;
+        }
+        recordTrace(trace);
+    }
+
+    private static void recordTrace(Trace trace) {
         FoxTelemetryConfig cfg = config;
         EventQueue q = queue;
         if (cfg == null || q == null) return;
+        try {
+            long t0 = System.nanoTime();
+            byte[] event = TelemetryEventBuilder.buildTrace(cfg, installId, trace);
+            metrics.recordEventBuild(System.nanoTime() - t0);
+            enqueue(q, event, EventQueue.PRIORITY_INFO, false);
+        } catch (Exception ex) {
+            metrics.onInternalError();
+        }
+    }
+
+    private static final EventBuilder.Sink EVENT_SINK = new EventBuilder.Sink() {
+        @Override
+        public void emit(@NonNull EventBuilder event) {
+            long now = System.currentTimeMillis();
+            if (!isInitialized()) {
+                PreInitBuffer pending = preInit;
+                if (pending == null) return;
+                // The builder goes back to the pool after this call, so buffer a copy.
+                if (pending.event(event.copy(), now)) return;
+            }
+            recordEvent(event, now);
+        }
+    };
+
+    /**
+     * Every event goes through here so the {@link FlushScheduler} sees it; {@code urgent} asks for
+     * an upload of the crash and error lanes.
+     */
+    private static boolean enqueue(EventQueue q, byte[] event, int priority, boolean urgent) {
+        long t0 = System.nanoTime();
+        boolean accepted = q.enqueue(event, priority);
+        metrics.recordEnqueue(System.nanoTime() - t0, accepted);
+        if (!accepted) return false;
+        FlushScheduler scheduler = flushScheduler;
+        if (scheduler != null) scheduler.onEnqueued(event.length, urgent);
+        return true;
+    }
+
+    private static final PreInitBuffer.Replay REPLAY = new PreInitBuffer.Replay() {
+        @Override
+        public void log(@NonNull LogLevel level, @NonNull String tag, @NonNull String message, long timestamp) {
+            recordLog(level, tag, message, timestamp);
+        }
+
+        @Override
+        public void error(@NonNull Throwable t, @NonNull String contextTag, long timestamp) {
+            reportInternal(t, contextTag, true, timestamp);
+        }
+
+        @Override
+        public void event(@NonNull EventBuilder event, long timestamp) {
+            recordEvent(event, timestamp);
+        }
+
+        @Override
+        public void trace(@NonNull Trace trace) {
+            recordTrace(trace);
+        }
+    };
+
+    private static final LogFilter.Sink REPEAT_SINK = new LogFilter.Sink() {
+        @Override
+        public void onRepeated(@NonNull LogLevel level, @NonNull String tag, @NonNull String message,
+                               int repeats, long lastSeenMillis) {
+            FoxTelemetryConfig cfg = config;
+            EventQueue q = queue;
+            if (cfg == null || q == null) return;
+            try {
+                enqueue(q, TelemetryEventBuilder.buildRepeatedLogEvent(
+                        cfg, installId, level, tag, message, repeats, lastSeenMillis), EventQueue.priorityOf(level), false);
+            } catch (Exception e) {
+                metrics.onInternalError();
+            }
+        }
+    };
 
-        if ("ERROR".equals(level)) Log.e(tag, message);
-        else if ("WARN".equals(level)) Log.w(tag, message);
-        else if ("INFO".equals(level)) Log.i(tag, message);
-        else Log.d(tag, message);
+    /**
+     * Enqueues "repeated N times" events for open runs and, when due (or {@code force}), a
+     * {@code log_filter} event with the counts of filtered log calls.
+     */
+    public static void emitPendingLogReports(boolean force) {
+        FoxTelemetryConfig cfg = config;
+        EventQueue q = queue;
+        LogFilter filter = logFilter;
+        if (cfg == null || q == null || filter == null) return;
+        try {
+            long now = System.currentTimeMillis();
+            if (!force && !filter.isReportDue(now)) return;
+            filter.drainRepeats();
+            LogFilter.Report report = filter.drainReport(now, force);
+            if (report != null) {
+                enqueue(q, TelemetryEventBuilder.buildLogFilterReport(cfg, installId, report), EventQueue.PRIORITY_WARN, false);
+            }
+        } catch (Exception ex) {
+            metrics.onInternalError();
+            Log.e(INTERNAL_TAG, "Failed to enqueue log filter report", ex);
+        }
+    }
+
+    /**
+     * Enqueues everything that is reported periodically rather than per call: error summaries,
+     * log filter counts, queue evictions and, when due, SDK stats and app metrics. Called before each flush run.
+     */
+    public static void emitPendingReports() {
+        emitPendingErrorSummaries(false);
+        emitPendingLogReports(true);
 
+        FoxTelemetryConfig cfg = config;
+        EventQueue q = queue;
+        if (cfg == null || q == null) return;
         try {
-            JSONObject event = TelemetryEventBuilder.buildLogEvent(cfg, installId, level, tag, message);
-            q.enqueue(event);
-        } catch (Exception ignored) {}
+            EvictionReport evicted = q.drainEvictionReport();
+            if (evicted != null) {
+                enqueue(q, TelemetryEventBuilder.buildEvictionReport(cfg, installId, evicted), EventQueue.PRIORITY_WARN, false);
+            }
+        } catch (Exception ex) {
+            metrics.onInternalError();
+            Log.e(INTERNAL_TAG, "Failed to enqueue eviction report", ex);
+        }
+
+        long now = System.currentTimeMillis();
+        if (cfg.sdkStatsIntervalMs > 0 && now - lastSdkStatsAt >= cfg.sdkStatsIntervalMs) {
+            lastSdkStatsAt = now;
+            try {
+                enqueue(q, TelemetryEventBuilder.buildSdkStats(cfg, installId, metrics.snapshot(q)), EventQueue.PRIORITY_INFO, false);
+            } catch (Exception ex) {
+                metrics.onInternalError();
+                Log.e(INTERNAL_TAG, "Failed to enqueue SDK stats", ex);
+            }
+        }
+
+        if (cfg.metricsIntervalMs > 0 && now - lastMetricsAt >= cfg.metricsIntervalMs) {
+            lastMetricsAt = now;
+            try {
+                MetricsReport report = metricRegistry.drain(now);
+                if (report != null) {
+                    enqueue(q, TelemetryEventBuilder.buildMetricsReport(cfg, installId, report), EventQueue.PRIORITY_INFO, false);
+                }
+            } catch (Exception ex) {
+                metrics.onInternalError();
+                Log.e(INTERNAL_TAG, "Failed to enqueue metrics", ex);
+            }
+        }
     }
 
     /** Request a background flush via WorkManager. */
     public static void flushAsync(@NonNull Context context) {
         if (context == null) return;
+        enqueueFlush(context, ExistingWorkPolicy.KEEP);
+    }
+
+    /**
+     * Uploads the crash and error lanes as soon as there is any network, as expedited work where
+     * the platform allows it. The log backlog is left to the regular flush.
+     */
+    public static void flushUrgent(@NonNull Context context) {
+        if (context == null) return;
+        // Appended, not kept: a crash queued while an urgent run is uploading gets a run after it.
+        enqueueUrgentFlush(context, URGENT_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, 0);
+    }
+
+    /** Flush triggers coalesced and handed to WorkManager so far; null before init. */
+    @Nullable
+    public static FlushScheduler.Stats getFlushSchedulerStats() {
+        FlushScheduler scheduler = flushScheduler;
+        return scheduler != null ? scheduler.stats() : null;
+    }
+
+    /**
+     * Replaces how batches are uploaded, e.g. with an in-memory transport in tests or a client
+     * built on the app's own HTTP stack; null restores the default {@link IngestClient}.
+     */
+    public static void setIngestTransport(@Nullable IngestTransport t) {
+        transport = t != null ? t : IngestClient.INSTANCE;
+    }
+
+    /**
+     * The SDK's own overhead and health: event build and enqueue times, queue depth, drops,
+     * upload latency and HTTP statuses. Counters run from process start.
+     */
+    @NonNull
+    public static SdkStats getStats() {
+        return metrics.snapshot(queue);
+    }
+
+    /** What the most recent flush run uploaded; {@link FlushStats#NONE} before the first run. */
+    @NonNull
+    public static FlushStats getLastFlushStats() {
+        return FlushWorker.getLastRunStats();
+    }
 
+    // The regular flush carries the log backlog, so it waits for better conditions than urgent work.
+    private static void enqueueFlush(Context context, ExistingWorkPolicy policy) {
+        enqueueFlush(context, WORK_NAME, policy, 0);
+    }
+
+    private static void enqueueFlush(Context context, String name, ExistingWorkPolicy policy, long delayMs) {
+        FoxTelemetryConfig cfg = config;
+        boolean unmetered = cfg != null && cfg.logUploadRequiresUnmetered;
         Constraints constraints = new Constraints.Builder()
-                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiredNetworkType(unmetered ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
                 .build();
 
         OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(FlushWorker.class)
                 .setConstraints(constraints)
+                .setInitialDelay(Math.max(0, delayMs), TimeUnit.MILLISECONDS)
+                .build();
+
+        WorkManager.getInstance(context.getApplicationContext())
+                .enqueueUniqueWork(name, policy, req);
+    }
+
+    private static void enqueueUrgentFlush(Context context, String name, ExistingWorkPolicy policy, long delayMs) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
                 .build();
 
+        OneTimeWorkRequest.Builder req = new OneTimeWorkRequest.Builder(FlushWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder().putBoolean(FlushWorker.KEY_URGENT, true).build());
+        if (delayMs > 0) {
+            // Expedited work cannot be delayed.
+            req.setInitialDelay(delayMs, TimeUnit.MILLISECONDS);
+        } else if (Build.VERSION.SDK_INT >= 31) {
+            // Below API 31 expedited work runs as a foreground service, which needs a notification.
+            req.setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST);
+        }
+
         WorkManager.getInstance(context.getApplicationContext())
-                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, req);
+                .enqueueUniqueWork(name, policy, req.build());
+    }
+
+    private static final class WorkManagerTarget implements FlushScheduler.Target {
+        private final Context context;
+
+        WorkManagerTarget(Context context) {
+            this.context = context;
+        }
+
+        @Override public void flush() { enqueueFlush(context, ExistingWorkPolicy.KEEP); }
+        @Override public void flushUrgent() { FoxTelemetry.flushUrgent(context); }
+
+        @Override
+        public long storedEvents() {
+            EventQueue q = queue;
+            return q != null ? q.depth() : 0;
+        }
+    }
+
+    private static final class BackgroundCallbacks implements ComponentCallbacks2 {
+        private final FlushScheduler scheduler;
+
+        BackgroundCallbacks(FlushScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            // Levels at and above UI_HIDDEN are only sent to a backgrounded app.
+            if (level >= TRIM_MEMORY_UI_HIDDEN) scheduler.onBackground();
+        }
+
+        @Override public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+        @Override public void onLowMemory() {}
     }
 
     // Internal access for worker
     public static FoxTelemetryConfig getConfig() { return config; }
     public static EventQueue getQueue() { return queue; }
+    /** This process's queue and the shards left by the app's other processes, for the flush worker. */
+    public static QueueShards getQueueShards() { return queueShards; }
+    public static FlushScheduler getFlushScheduler() { return flushScheduler; }
+    public static IngestTransport getIngestTransport() { return transport; }
+    public static SdkMetrics getMetrics() { return metrics; }
+    public static UploadBackoff getUploadBackoff() { return uploadBackoff; }
+    /** Queues another flush run after the current one, for a worker that ran out of time budget. */
+    public static void scheduleFollowUpFlush(@NonNull Context context) {
+        enqueueFlush(context, ExistingWorkPolicy.APPEND_OR_REPLACE);
+    }
+    /**
+     * Queues the run that resumes uploads {@code delayMs} from now, for a worker that has to back
+     * off. It replaces the one queued before, so one resume run of each kind is pending however
+     * many runs back off; an {@code urgent} one only needs a network and uploads crashes and errors.
+     */
+    public static void scheduleFlushAfter(@NonNull Context context, long delayMs, boolean urgent) {
+        if (urgent) {
+            enqueueUrgentFlush(context, URGENT_BACKOFF_WORK_NAME, ExistingWorkPolicy.REPLACE, delayMs);
+        } else {
+            enqueueFlush(context, BACKOFF_WORK_NAME, ExistingWorkPolicy.REPLACE, delayMs);
+        }
+    }
     static String getInstallId() { return installId; }
 }
@@ -11,6 +11,8 @@ import org.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.Locale;
 
 public final class ConfigLoader {
 
@@ -37,20 +39,82 @@ public final class ConfigLoader {
                 String ingestKey = fox.getString("ingestKey");
                 String environment = fox.optString("environment", null);
 
-                return new FoxTelemetryConfig(
-                        projectId,
-                        appId,
-                        packageName,
-                        endpoint,
-                        ingestKey,
-                        environment,
-                        null,
-                        true,
-                        80
-                );
+                FoxTelemetryConfig.Builder b = new FoxTelemetryConfig.Builder(projectId, appId, packageName, endpoint, ingestKey)
+                        .setEnvironment(environment)
+                        .setBufferCapacity(fox.optInt("bufferCapacity", FoxTelemetryConfig.DEFAULT_BUFFER_CAPACITY))
+                        .setOverflowTimeoutMs(fox.optLong("overflowTimeoutMs", FoxTelemetryConfig.DEFAULT_OVERFLOW_TIMEOUT_MS))
+                        .setCborStringRefs(fox.optBoolean("cborStringRefs", false))
+                        .setBatchEnvelope(fox.optBoolean("batchEnvelope", false))
+                        .setCompressionLevel(fox.optInt("compressionLevel", FoxTelemetryConfig.DEFAULT_COMPRESSION_LEVEL))
+                        .setCompressionThresholdBytes(fox.optInt("compressionThresholdBytes",
+                                FoxTelemetryConfig.DEFAULT_COMPRESSION_THRESHOLD_BYTES))
+                        .setErrorAggregationWindowMs(fox.optLong("errorAggregationWindowMs",
+                                FoxTelemetryConfig.DEFAULT_ERROR_AGGREGATION_WINDOW_MS))
+                        .setErrorAggregationMaxEntries(fox.optInt("errorAggregationMaxEntries",
+                                FoxTelemetryConfig.DEFAULT_ERROR_AGGREGATION_MAX_ENTRIES))
+                        .setCollapseRepeatedLogs(fox.optBoolean("collapseRepeatedLogs", true))
+                        .setLogRateLimit(fox.optDouble("logRateLimitPerSecond", 0), fox.optInt("logBurst", 0))
+                        .setLogReportIntervalMs(fox.optLong("logReportIntervalMs",
+                                FoxTelemetryConfig.DEFAULT_LOG_REPORT_INTERVAL_MS))
+                        .setMaxQueueEvents(fox.optInt("maxQueueEvents", FoxTelemetryConfig.DEFAULT_MAX_QUEUE_EVENTS))
+                        .setMaxQueueBytes(fox.optLong("maxQueueBytes", FoxTelemetryConfig.DEFAULT_MAX_QUEUE_BYTES))
+                        .setMaxEventAgeMs(fox.optLong("maxEventAgeMs", FoxTelemetryConfig.DEFAULT_MAX_EVENT_AGE_MS))
+                        .setLogUploadRequiresUnmetered(fox.optBoolean("logUploadRequiresUnmetered", false))
+                        .setFlushThresholds(
+                                fox.optInt("flushEventThreshold", FoxTelemetryConfig.DEFAULT_FLUSH_EVENT_THRESHOLD),
+                                fox.optLong("flushBytesThreshold", FoxTelemetryConfig.DEFAULT_FLUSH_BYTES_THRESHOLD))
+                        .setFlushMaxLatencyMs(fox.optLong("flushMaxLatencyMs", FoxTelemetryConfig.DEFAULT_FLUSH_MAX_LATENCY_MS))
+                        .setFlushOnBackground(fox.optBoolean("flushOnBackground", true))
+                        .setUploadConcurrency(fox.optInt("uploadConcurrency", FoxTelemetryConfig.DEFAULT_UPLOAD_CONCURRENCY))
+                        .setUploadTimeoutMs(fox.optInt("uploadTimeoutMs", FoxTelemetryConfig.DEFAULT_UPLOAD_TIMEOUT_MS))
+                        .setRetryDelays(
+                                fox.optLong("retryBaseDelayMs", FoxTelemetryConfig.DEFAULT_RETRY_BASE_DELAY_MS),
+                                fox.optLong("retryMaxDelayMs", FoxTelemetryConfig.DEFAULT_RETRY_MAX_DELAY_MS))
+                        .setCircuitBreaker(
+                                fox.optInt("circuitBreakerFailures", FoxTelemetryConfig.DEFAULT_CIRCUIT_BREAKER_FAILURES),
+                                fox.optLong("circuitBreakerOpenMs", FoxTelemetryConfig.DEFAULT_CIRCUIT_BREAKER_OPEN_MS))
+                        .setSdkStatsIntervalMs(fox.optLong("sdkStatsIntervalMs", FoxTelemetryConfig.DEFAULT_SDK_STATS_INTERVAL_MS))
+                        .setMetricsIntervalMs(fox.optLong("metricsIntervalMs", FoxTelemetryConfig.DEFAULT_METRICS_INTERVAL_MS))
+                        .setMetricsMaxSeries(fox.optInt("metricsMaxSeries", MetricRegistry.DEFAULT_MAX_SERIES))
+                        .setTraceSampleRate(fox.optDouble("traceSampleRate", FoxTelemetryConfig.DEFAULT_TRACE_SAMPLE_RATE));
+
+                String overflow = fox.optString("overflowPolicy", null);
+                if (overflow != null) b.setOverflowPolicy(OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT)));
+
+                String wire = fox.optString("wireFormat", null);
+                if (wire != null) b.setWireFormat(WireFormat.valueOf(wire.trim().toUpperCase(Locale.ROOT)));
+
+                String minLevel = fox.optString("minLogLevel", null);
+                if (minLevel != null) b.setMinLogLevel(level(minLevel));
+
+                String crumbLevel = fox.optString("breadcrumbLevel", null);
+                b.setBreadcrumbs(fox.optInt("breadcrumbCapacity", FoxTelemetryConfig.DEFAULT_BREADCRUMB_CAPACITY),
+                        crumbLevel != null ? level(crumbLevel) : LogLevel.INFO);
+
+                JSONObject tagLevels = fox.optJSONObject("tagMinLevels");
+                if (tagLevels != null) {
+                    for (Iterator<String> it = tagLevels.keys(); it.hasNext(); ) {
+                        String tag = it.next();
+                        b.setTagMinLevel(tag, level(tagLevels.getString(tag)));
+                    }
+                }
+
+                JSONObject sampleRates = fox.optJSONObject("logSampleRates");
+                if (sampleRates != null) {
+                    for (Iterator<String> it = sampleRates.keys(); it.hasNext(); ) {
+                        String lvl = it.next();
+                        b.setLogSampleRate(level(lvl), sampleRates.getDouble(lvl));
+                    }
+                }
+
+                return b.build();
             }
         } catch (Exception e) {
             return null;
         }
     }
+
+    private static LogLevel level(String name) {
+        return LogLevel.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
 }
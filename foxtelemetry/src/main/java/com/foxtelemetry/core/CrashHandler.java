@@ -4,6 +4,11 @@ import com.foxtelemetry.FoxTelemetry;
 
 public final class CrashHandler implements Thread.UncaughtExceptionHandler {
 
+    // Upper bound on how long a crash may wait for buffered events to reach SQLite.
+    private static final long FLUSH_TIMEOUT_MS = 500;
+    // How long a crash during a deferred init waits for it, so the crash can still be journaled.
+    private static final long INIT_WAIT_MS = 500;
+
     private final Thread.UncaughtExceptionHandler previous;
 
     public CrashHandler(Thread.UncaughtExceptionHandler previous) {
@@ -13,7 +18,16 @@ public final class CrashHandler implements Thread.UncaughtExceptionHandler {
     @Override
     public void uncaughtException(Thread thread, Throwable throwable) {
         try {
-            FoxTelemetry.report(throwable, "UNCAUGHT_EXCEPTION");
+            FoxTelemetry.awaitInit(INIT_WAIT_MS);
+            // Installed before the config is known on deferred init; it may turn capture off.
+            FoxTelemetryConfig cfg = FoxTelemetry.getConfig();
+            if (cfg != null && cfg.enableCrashCapture) {
+                // Writes the crash to the mapped journal first; no locks are taken on this thread.
+                FoxTelemetry.reportUncaught(throwable);
+                // Best effort for the events still buffered; bounded so a held queue lock cannot hang us.
+                EventQueue q = FoxTelemetry.getQueue();
+                if (q != null) q.flushToDisk(FLUSH_TIMEOUT_MS);
+            }
         } catch (Throwable ignored) {
             // never throw from crash handler
         }
@@ -4,83 +4,906 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
-
-import org.json.JSONObject;
+import androidx.annotation.Nullable;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Persistent queue backed by SQLite so events survive app restarts and
  * intermittent network/API downtime.
+ *
+ * <p>{@link #enqueue} never touches disk: events go into a lock-free in-memory buffer and a
+ * background writer commits them to SQLite in batches, one transaction per batch. Call
+ * {@link #flushToDisk()} when the buffered events must be durable (flushing, shutdown).</p>
+ *
+ * <p>The database runs in WAL mode; inserts and deletes reuse compiled statements, and the
+ * number of stored events and their payload bytes are tracked in memory, so {@link #depth()}
+ * and {@link #storedBytes()} never query the table. Schema: {@link QueueSchema}.</p>
+ *
+ * <p>Size, byte and age limits are enforced inside each write transaction. Eviction takes the
+ * oldest DEBUG/INFO events first, then WARN; ERROR and then CRASH events are only evicted once
+ * nothing else is left, and never for age. Evictions are counted for {@link #drainEvictionReport}.</p>
+ *
+ * <p>Batches are leases: {@link #openBatch(Lane, long, long, int)} hands out an exact id range
+ * that no other batch gets until it is settled ({@link #ack}, {@link #nack}, {@link #settle}) or
+ * {@link #LEASE_MS} passes. Events the server rejects individually move to a capped dead-letter
+ * table rather than being retried.</p>
+ *
+ * <p>Events are stored without their envelope (see {@link EventEnvelope}): the writer moves it to
+ * a small table that each row refers to, and reading a batch puts it back. Rows from before
+ * schema v4 are stored, and read, as they are.</p>
+ *
+ * <p>Each process writes its own database file, a shard (see {@link QueueShards}), so writers of
+ * different processes never wait on each other's locks. The flush worker drains the shards of
+ * other processes through drain-only instances ({@link #openShard}); the owning process notices
+ * their deletes before it evicts for the size limits.</p>
  */
-public final class EventQueue {
+public final class EventQueue implements SdkMetrics.QueueGauges {
+
+    /** Event priorities, lowest first; aliases of {@link Priority}. */
+    public static final int PRIORITY_DEBUG = Priority.DEBUG;
+    public static final int PRIORITY_INFO = Priority.INFO;
+    public static final int PRIORITY_WARN = Priority.WARN;
+    public static final int PRIORITY_ERROR = Priority.ERROR;
+    public static final int PRIORITY_CRASH = Priority.CRASH;
+
+    public static int priorityOf(@NonNull LogLevel level) {
+        return Priority.of(level);
+    }
 
-    private static final String DB_NAME = "foxtelemetry.db";
-    private static final int DB_VERSION = 1;
-    private static final String TABLE_EVENTS = "events";
+    private static final String TABLE_EVENTS = QueueSchema.TABLE_EVENTS;
+    private static final int READ_PAGE_SIZE = 64;
+
+    // Priority ranges evicted in this order; within a range the oldest go first.
+    private static final int[][] EVICTION_TIERS = {
+            {PRIORITY_DEBUG, PRIORITY_INFO}, {PRIORITY_WARN, PRIORITY_WARN},
+            {PRIORITY_ERROR, PRIORITY_ERROR}, {PRIORITY_CRASH, PRIORITY_CRASH},
+    };
+    private static final int EVICTION_PAGE = 256;
+    // Evicting down to 90% of a limit keeps eviction off most writes once the queue is full.
+    private static final int LOW_WATERMARK_PERCENT = 90;
+    private static final long AGE_CHECK_INTERVAL_MS = 60_000;
+    /** How long an unsettled batch keeps its rows away from other batches. */
+    public static final long LEASE_MS = 2 * 60_000;
+    private static final int DEAD_LETTER_CAP = 200;
+    private static final String MISSING_ENVELOPE_REASON = "missing envelope";
 
     private final Context context;
+    private final String installId;
+    private final String dbName;
     private final DB helper;
     private final Object lock = new Object();
+    // Null for a drain-only shard of another process.
+    @Nullable private final AsyncEventBuffer<Pending> buffer;
+
+    // Guarded by lock; compiled on first use against the writable connection.
+    private SQLiteDatabase statementsDb;
+    private SQLiteStatement insertStmt;
+    private SQLiteStatement insertStrippedStmt;
+    private SQLiteStatement insertEnvelopeStmt;
+    private SQLiteStatement envelopeIdStmt;
+    private SQLiteStatement dataVersionStmt;
+    private long dataVersion = -1; // guarded by lock
+    private SQLiteStatement deleteUpToStmt;
+    private SQLiteStatement deleteByIdStmt;
+    private SQLiteStatement deadLetterStmt;
+    // Batch removal by id range, per lane; the last slot serves batches without a lane.
+    private final SQLiteStatement[] deleteRangeStmts = new SQLiteStatement[Lane.values().length + 1];
+
+    private final int maxEvents;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private long nextAgeCheckAt; // guarded by lock
+    private final LeaseTable leases = new LeaseTable(); // guarded by lock
+    private final long[] candidateIds = new long[EVICTION_PAGE];
+    private final long[] candidateSizes = new long[EVICTION_PAGE];
+    private final int[] candidatePriorities = new int[EVICTION_PAGE];
 
-    public EventQueue(@NonNull Context context) {
+    // Eviction counters since the last report, guarded by lock.
+    private final long[] evictedByPriority = new long[PRIORITY_CRASH + 1];
+    private long evictedExpired;
+    private long evictedOverCapacity;
+    private long evictedBytes;
+    private long evictionSince = System.currentTimeMillis();
+    private final AtomicLong evictedTotal = new AtomicLong();
+
+    // Envelopes, guarded by lock: the one most recently written, and those read back by id.
+    private byte[] lastEnvelope;
+    private long lastEnvelopeId;
+    private final HashMap<Long, byte[]> envelopesById = new HashMap<>();
+
+    // Totals of the stored rows; loaded once, then maintained by insertAll/remove/drop.
+    private final AtomicLong depth = new AtomicLong(-1);
+    private final AtomicLong bytes = new AtomicLong();
+
+    /** An event waiting in the in-memory buffer. */
+    private static final class Pending {
+        final byte[] payload;
+        final int priority;
+        final long createdAt;
+
+        Pending(byte[] payload, int priority, long createdAt) {
+            this.payload = payload;
+            this.priority = priority;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /** The queue of the calling process, in its own shard. */
+    public EventQueue(@NonNull Context context, @NonNull FoxTelemetryConfig cfg) {
+        this(context, cfg, QueueShards.dbNameForCurrentProcess(context), true);
+    }
+
+    private EventQueue(Context context, FoxTelemetryConfig cfg, String dbName, boolean writable) {
         this.context = context.getApplicationContext();
-        this.helper = new DB(this.context);
-        migrateFromLegacyFileIfPresent();
+        this.installId = InstallIdStore.getOrCreateInstallId(this.context);
+        this.dbName = dbName;
+        this.helper = new DB(this.context, dbName);
+        this.maxEvents = cfg.maxQueueEvents;
+        this.maxBytes = cfg.maxQueueBytes;
+        this.maxAgeMs = cfg.maxEventAgeMs;
+        if (writable) {
+            if (QueueShards.MAIN_DB.equals(dbName)) migrateFromLegacyFileIfPresent();
+            this.buffer = new AsyncEventBuffer<>(
+                    cfg.bufferCapacity, cfg.overflowPolicy, cfg.overflowTimeoutMs, this::insertAll);
+        } else {
+            this.buffer = null;
+        }
     }
 
-    public Context getContext() { return context; }
+    /**
+     * Another process's shard, for draining only: batches can be opened and settled, but
+     * {@link #enqueue} throws and there is no background writer.
+     */
+    @NonNull
+    static EventQueue openShard(@NonNull Context context, @NonNull FoxTelemetryConfig cfg, @NonNull String dbName) {
+        return new EventQueue(context, cfg, dbName, false);
+    }
+
+    /** The shard {@code dbName} as the process owning it has it, writer included; for tests. */
+    @NonNull
+    static EventQueue ownShard(@NonNull Context context, @NonNull FoxTelemetryConfig cfg, @NonNull String dbName) {
+        return new EventQueue(context, cfg, dbName, true);
+    }
 
-    public void enqueue(@NonNull JSONObject event) throws Exception {
+    /** Stops the writer after a final drain and closes the database; for tests. */
+    void close() {
+        if (buffer != null) buffer.close();
         synchronized (lock) {
-            SQLiteDatabase db = helper.getWritableDatabase();
-            db.execSQL(
-                    "INSERT INTO " + TABLE_EVENTS + " (payload) VALUES (?)",
-                    new Object[]{event.toString()});
+            helper.close();
         }
     }
 
-    public List<JSONObject> peek(int max) throws Exception {
+    public Context getContext() { return context; }
+
+    /** Database file of this shard. */
+    @NonNull
+    public String dbName() { return dbName; }
+
+    /**
+     * Hands an encoded event (UTF-8 JSON, see {@link EventEncoder}) to the background writer.
+     * Returns false if the buffer was full and the configured {@link OverflowPolicy} discarded it.
+     */
+    public boolean enqueue(@NonNull byte[] event) {
+        return enqueue(event, PRIORITY_INFO);
+    }
+
+    /** As {@link #enqueue(byte[])}, stored with one of the {@code PRIORITY_*} values. */
+    public boolean enqueue(@NonNull byte[] event, int priority) {
+        if (buffer == null) throw new IllegalStateException("Shard " + dbName + " belongs to another process");
+        return buffer.offer(new Pending(event, priority, System.currentTimeMillis()));
+    }
+
+    /** Blocks until every event enqueued before this call has been committed to SQLite. */
+    public void flushToDisk() {
+        if (buffer != null) buffer.flushToDisk();
+    }
+
+    /** Bounded {@link #flushToDisk()} for the crash path; returns false if it timed out. */
+    public boolean flushToDisk(long timeoutMs) {
+        return buffer == null || buffer.flushToDisk(timeoutMs);
+    }
+
+    /** Events discarded by the overflow policy (or a failed write) since process start. */
+    @Override
+    public long droppedCount() {
+        return buffer != null ? buffer.droppedCount() : 0;
+    }
+
+    /** Returns the oldest stored payloads as they were encoded, envelope included. */
+    public List<byte[]> peek(int max) throws Exception {
         synchronized (lock) {
-            List<JSONObject> out = new ArrayList<>();
+            List<byte[]> out = new ArrayList<>();
             if (max <= 0) return out;
 
             SQLiteDatabase db = helper.getReadableDatabase();
-            String sql = "SELECT payload FROM " + TABLE_EVENTS + " ORDER BY id ASC LIMIT " + max;
+            String sql = "SELECT payload, envelope_id FROM " + TABLE_EVENTS + " ORDER BY id ASC LIMIT " + max;
             try (Cursor c = db.rawQuery(sql, null)) {
                 while (c.moveToNext()) {
-                    String json = c.getString(0);
-                    if (json == null) continue;
-                    out.add(new JSONObject(json));
+                    byte[] payload = c.getBlob(0);
+                    if (payload == null) continue;
+                    out.add(c.isNull(1) ? payload : withEnvelope(db, payload, c.getLong(1)));
                 }
             }
             return out;
         }
     }
 
-    public void drop(int n) throws Exception {
+    /**
+     * Describes the oldest {@code maxEvents} stored events without loading them. Payloads are
+     * read page by page while the batch is iterated, so uploads stream in bounded memory.
+     */
+    @NonNull
+    public Batch openBatch(int maxEvents) throws Exception {
+        return openBatch(Long.MAX_VALUE, maxEvents);
+    }
+
+    /**
+     * Like {@link #openBatch(int)} but also stops before the stored payload bytes would exceed
+     * {@code maxBytes}. The batch always contains at least one event if the queue is not empty.
+     */
+    @NonNull
+    public Batch openBatch(long maxBytes, int maxEvents) throws Exception {
+        return openBatch(null, maxBytes, maxEvents);
+    }
+
+    /** Like {@link #openBatch(long, int)} restricted to one lane ({@code null}: all events). */
+    @NonNull
+    public Batch openBatch(@Nullable Lane lane, long maxBytes, int maxEvents) throws Exception {
+        return openBatch(lane, Long.MIN_VALUE, maxBytes, maxEvents);
+    }
+
+    /**
+     * Like {@link #openBatch(Lane, long, int)} but only with events stored after {@code afterId},
+     * typically the {@link Batch#lastId()} of a batch still in flight. Rows leased to another
+     * batch are skipped, and the batch stops at the next leased row, so its id range is exact:
+     * it is leased in turn until settled.
+     */
+    @NonNull
+    public Batch openBatch(@Nullable Lane lane, long afterId, long maxBytes, int maxEvents) throws Exception {
+        synchronized (lock) {
+            if (maxEvents <= 0) return new Batch(lane, afterId, new long[0], new int[0], 0, 0, null);
+            long now = SystemClock.elapsedRealtime();
+            leases.expire(now);
+            SQLiteDatabase db = helper.getReadableDatabase();
+            long[] ids = new long[Math.min(maxEvents, READ_PAGE_SIZE)];
+            int[] sizes = new int[ids.length];
+            int count = 0;
+            long bytes = 0;
+            long from = afterId;
+            boolean more = true;
+            List<long[]> orphans = null; // {id, size} of rows whose envelope is gone
+            while (count == 0 && more) {
+                String sql = "SELECT id, size, priority, " + QueueSchema.MISSING_ENVELOPE + " FROM " + TABLE_EVENTS +
+                        where(lane, "id > " + from) + " ORDER BY id ASC LIMIT " + maxEvents;
+                try (Cursor c = db.rawQuery(sql, null)) {
+                    more = false;
+                    while (c.moveToNext()) {
+                        long id = c.getLong(0);
+                        long len = c.getLong(1);
+                        LeaseTable.Lease held = leases.covering(id, c.getInt(2), now);
+                        if (held != null) {
+                            if (count > 0) break;
+                            // A lease of this lane (or of all lanes) holds every row up to its end.
+                            from = held.lane == null || held.lane == lane ? Math.max(id, held.lastId) : id;
+                            more = true;
+                            break;
+                        }
+                        if (c.getInt(3) != 0) {
+                            if (orphans == null) orphans = new ArrayList<>();
+                            orphans.add(new long[]{id, len});
+                            continue;
+                        }
+                        if (count > 0 && bytes + len > maxBytes) break;
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, Math.min(maxEvents, count * 2));
+                            sizes = Arrays.copyOf(sizes, ids.length);
+                        }
+                        sizes[count] = (int) len;
+                        ids[count++] = id;
+                        bytes += len;
+                    }
+                }
+                if (orphans != null && !orphans.isEmpty()) {
+                    // Gone before the batch is handed out, so its id range only holds sendable rows.
+                    deadLetter(orphans, MISSING_ENVELOPE_REASON);
+                    orphans.clear();
+                    if (count == 0) more = true;
+                }
+            }
+            if (count == 0) return new Batch(lane, from, new long[0], new int[0], 0, 0, null);
+            long lastId = ids[count - 1];
+            LeaseTable.Lease lease = leases.acquire(lane, from, lastId, now + LEASE_MS);
+            return new Batch(lane, from, ids, sizes, count, bytes, lease);
+        }
+    }
+
+    /** Deletes the rows of a batch after the server accepted all of them; same as {@link #ack}. */
+    public void remove(@NonNull Batch batch) throws Exception {
+        ack(batch);
+    }
+
+    /** The server accepted every event of the batch: delete its rows and end the lease. */
+    public void ack(@NonNull Batch batch) throws Exception {
+        if (batch.size == 0) return;
+        synchronized (lock) {
+            prepareStatements(helper.getWritableDatabase());
+            SQLiteStatement delete = deleteRangeStmts[batch.lane == null ? Lane.values().length : batch.lane.ordinal()];
+            delete.bindLong(1, batch.afterId);
+            delete.bindLong(2, batch.lastId);
+            applyDelete(delete, batch.size, batch.payloadBytes);
+            release(batch);
+        }
+    }
+
+    /** The batch was not delivered: its rows stay queued and become available to the next batch. */
+    public void nack(@NonNull Batch batch) {
+        synchronized (lock) {
+            release(batch);
+        }
+    }
+
+    /**
+     * Applies a per-event result: accepted events are deleted, rejected ones moved to the
+     * dead-letter table with their reason, and events to retry stay queued. Ends the lease.
+     */
+    public void settle(@NonNull Batch batch, @NonNull BatchOutcome outcome) throws Exception {
+        if (outcome.allAccepted()) {
+            ack(batch);
+            return;
+        }
+        if (batch.size == 0) return;
         synchronized (lock) {
-            if (n <= 0) return;
             SQLiteDatabase db = helper.getWritableDatabase();
-            String sql = "DELETE FROM " + TABLE_EVENTS +
-                    " WHERE id IN (SELECT id FROM " + TABLE_EVENTS + " ORDER BY id ASC LIMIT " + n + ")";
-            db.execSQL(sql);
+            prepareStatements(db);
+            long deadAt = System.currentTimeMillis();
+            long removed = 0;
+            long removedBytes = 0;
+            boolean committed = false;
+            db.beginTransactionNonExclusive();
+            try {
+                for (int i = 0; i < batch.size; i++) {
+                    if (outcome.isRetry(i)) continue;
+                    long id = batch.ids[i];
+                    if (outcome.isRejected(i)) {
+                        String reason = outcome.reason(i);
+                        if (reason != null) deadLetterStmt.bindString(1, reason);
+                        else deadLetterStmt.bindNull(1);
+                        deadLetterStmt.bindLong(2, deadAt);
+                        deadLetterStmt.bindLong(3, id);
+                        deadLetterStmt.executeInsert();
+                    }
+                    deleteByIdStmt.bindLong(1, id);
+                    if (deleteByIdStmt.executeUpdateDelete() == 1) { // 0 if evicted meanwhile
+                        removed++;
+                        removedBytes += batch.sizes[i];
+                    }
+                }
+                if (outcome.rejectedCount() > 0) {
+                    db.execSQL(QueueSchema.TRIM_DEAD_LETTERS, new Object[]{DEAD_LETTER_CAP});
+                }
+                db.setTransactionSuccessful();
+                committed = true;
+            } finally {
+                deadLetterStmt.clearBindings();
+                deleteByIdStmt.clearBindings();
+                db.endTransaction();
+            }
+            if (committed && depth.get() >= 0) {
+                depth.addAndGet(-removed);
+                bytes.addAndGet(-removedBytes);
+            }
+            release(batch);
+        }
+    }
+
+    // Caller holds lock. Moves rows ({id, size}) the server never saw to the dead letters.
+    private void deadLetter(List<long[]> rows, String reason) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        prepareStatements(db);
+        long deadAt = System.currentTimeMillis();
+        long removed = 0;
+        long removedBytes = 0;
+        boolean committed = false;
+        db.beginTransactionNonExclusive();
+        try {
+            for (int i = 0, n = rows.size(); i < n; i++) {
+                long[] row = rows.get(i);
+                deadLetterStmt.bindString(1, reason);
+                deadLetterStmt.bindLong(2, deadAt);
+                deadLetterStmt.bindLong(3, row[0]);
+                deadLetterStmt.executeInsert();
+                deleteByIdStmt.bindLong(1, row[0]);
+                if (deleteByIdStmt.executeUpdateDelete() == 1) {
+                    removed++;
+                    removedBytes += row[1];
+                }
+            }
+            db.execSQL(QueueSchema.TRIM_DEAD_LETTERS, new Object[]{DEAD_LETTER_CAP});
+            db.setTransactionSuccessful();
+            committed = true;
+        } finally {
+            deadLetterStmt.clearBindings();
+            deleteByIdStmt.clearBindings();
+            db.endTransaction();
+        }
+        if (committed && depth.get() >= 0) {
+            depth.addAndGet(-removed);
+            bytes.addAndGet(-removedBytes);
+        }
+    }
+
+    /** Events the server rejected and that were kept for inspection (at most the newest 200). */
+    public long deadLetterCount() {
+        synchronized (lock) {
+            try (Cursor c = helper.getReadableDatabase().rawQuery(QueueSchema.COUNT_DEAD_LETTERS, null)) {
+                return c.moveToFirst() ? c.getLong(0) : 0;
+            }
+        }
+    }
+
+    // Caller holds lock.
+    private void release(Batch batch) {
+        if (batch.lease != null) leases.release(batch.lease);
+    }
+
+    /** Deletes the {@code n} oldest stored events. */
+    public void drop(int n) throws Exception {
+        if (n <= 0) return;
+        synchronized (lock) {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            long lastId = -1;
+            String sql = "SELECT id FROM " + TABLE_EVENTS + " ORDER BY id ASC LIMIT 1 OFFSET " + (n - 1);
+            try (Cursor c = db.rawQuery(sql, null)) {
+                if (c.moveToFirst()) lastId = c.getLong(0);
+            }
+            if (lastId < 0) lastId = Long.MAX_VALUE; // fewer than n rows: drop them all
+            long count = -1;
+            long size = 0;
+            try (Cursor c = db.rawQuery(QueueSchema.TOTALS_UP_TO, new String[]{Long.toString(lastId)})) {
+                if (c.moveToFirst()) {
+                    count = c.getLong(0);
+                    size = c.getLong(1);
+                }
+            }
+            prepareStatements(helper.getWritableDatabase());
+            deleteUpToStmt.bindLong(1, lastId);
+            applyDelete(deleteUpToStmt, count, size);
         }
     }
 
+    /** Stored plus buffered events; O(1). */
     public int sizeEstimate() {
+        long pending = buffer != null ? buffer.pending() : 0;
+        return (int) Math.min(Integer.MAX_VALUE, pending + depth());
+    }
+
+    /** Number of events committed to SQLite; O(1) after the first call. */
+    @Override
+    public long depth() {
+        long d = depth.get();
+        if (d >= 0) return d;
+        synchronized (lock) {
+            loadTotals();
+            return depth.get();
+        }
+    }
+
+    /** Payload bytes of the events committed to SQLite; O(1) after the first call. */
+    @Override
+    public long storedBytes() {
+        if (depth.get() < 0) depth();
+        return bytes.get();
+    }
+
+    /** Events evicted for the size, byte and age limits since the queue was opened. */
+    @Override
+    public long evictedCount() {
+        return evictedTotal.get();
+    }
+
+    /**
+     * Returns what was evicted since the previous call and resets the counters, or null if
+     * nothing was.
+     */
+    @Nullable
+    public EvictionReport drainEvictionReport() {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            if (evictedExpired + evictedOverCapacity == 0) return null;
+            EvictionReport r = new EvictionReport(evictionSince, now, evictedByPriority.clone(),
+                    evictedExpired, evictedOverCapacity, evictedBytes);
+            Arrays.fill(evictedByPriority, 0);
+            evictedExpired = 0;
+            evictedOverCapacity = 0;
+            evictedBytes = 0;
+            evictionSince = now;
+            return r;
+        }
+    }
+
+    /** Group commit: one transaction for the whole batch drained by the writer, limits included. */
+    private void insertAll(@NonNull List<Pending> events) {
+        synchronized (lock) {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            prepareStatements(db);
+            Eviction eviction = new Eviction();
+            long added = 0;
+            try {
+                db.beginTransactionNonExclusive();
+                try {
+                    // Inside the transaction, so this runs on the connection that does our own writes.
+                    if (depth.get() < 0 || changedByOtherProcess()) loadTotals();
+                    for (int i = 0, n = events.size(); i < n; i++) {
+                        Pending e = events.get(i);
+                        byte[] payload = e.payload;
+                        SQLiteStatement insert = insertStmt;
+                        long range = EventEnvelope.find(payload);
+                        if (range >= 0) {
+                            long envelopeId = envelopeId(db, payload, (int) (range >>> 32), (int) range);
+                            payload = EventEnvelope.strip(payload, range);
+                            insert = insertStrippedStmt;
+                            insert.bindLong(5, envelopeId);
+                        }
+                        insert.bindBlob(1, payload);
+                        insert.bindLong(2, payload.length);
+                        insert.bindLong(3, e.priority);
+                        insert.bindLong(4, e.createdAt);
+                        insert.executeInsert();
+                        added += payload.length;
+                    }
+                    enforceLimits(db, depth.get() + events.size(), bytes.get() + added, eviction);
+                    db.setTransactionSuccessful();
+                } finally {
+                    insertStmt.clearBindings();
+                    insertStrippedStmt.clearBindings();
+                    db.endTransaction();
+                }
+            } catch (RuntimeException e) {
+                // Rolled back: the envelope this transaction wrote may be gone with it, and later
+                // events must not be stored against its id.
+                depth.set(-1);
+                lastEnvelope = null;
+                lastEnvelopeId = 0;
+                envelopesById.clear();
+                throw e;
+            }
+            if (eviction.recounted) {
+                loadTotals();
+            } else {
+                depth.addAndGet(events.size() - eviction.events);
+                bytes.addAndGet(added - eviction.bytes);
+            }
+            eviction.addTo(this);
+        }
+    }
+
+    // Caller holds lock, inside the write transaction. Envelopes change rarely (config, user,
+    // install ID), so nearly every event matches the last one and costs one byte comparison.
+    private long envelopeId(SQLiteDatabase db, byte[] event, int start, int end) {
+        byte[] last = lastEnvelope;
+        if (last != null && last.length == end - start) {
+            int i = 0;
+            while (i < last.length && last[i] == event[start + i]) i++;
+            if (i == last.length) return lastEnvelopeId;
+        }
+        byte[] members = Arrays.copyOfRange(event, start, end);
+        try {
+            insertEnvelopeStmt.bindBlob(1, members);
+            boolean created = insertEnvelopeStmt.executeInsert() != -1;
+            envelopeIdStmt.bindBlob(1, members);
+            long id = envelopeIdStmt.simpleQueryForLong();
+            if (created) {
+                // Rows of this transaction already refer to their envelope, so only stale ones go.
+                db.execSQL(QueueSchema.PRUNE_ENVELOPES, new Object[]{id});
+                envelopesById.clear();
+            }
+            lastEnvelope = members;
+            lastEnvelopeId = id;
+            return id;
+        } finally {
+            insertEnvelopeStmt.clearBindings();
+            envelopeIdStmt.clearBindings();
+        }
+    }
+
+    // Caller holds lock.
+    private byte[] withEnvelope(SQLiteDatabase db, byte[] stripped, long envelopeId) {
+        byte[] members = envelopesById.get(envelopeId);
+        if (members == null) {
+            try (Cursor c = db.rawQuery(QueueSchema.ENVELOPE_MEMBERS, new String[]{Long.toString(envelopeId)})) {
+                if (c.moveToFirst()) members = c.getBlob(0);
+            }
+            // openBatch dead-letters such rows; an event must never go out without its envelope.
+            if (members == null) throw new IllegalStateException("Missing envelope " + envelopeId);
+            envelopesById.put(envelopeId, members);
+        }
+        return EventEnvelope.restore(stripped, members);
+    }
+
+    /**
+     * True if another connection (the flush worker of another process) committed to this shard
+     * since the last check. Without {@code PRAGMA data_version} (SQLite before 3.8.8, API 21-22)
+     * this stays false and only the recount before eviction catches such changes.
+     */
+    // Caller holds lock and has prepared the statements.
+    private boolean changedByOtherProcess() {
+        if (dataVersionStmt == null) return false;
+        long v;
+        try {
+            v = dataVersionStmt.simpleQueryForLong();
+        } catch (RuntimeException unsupported) {
+            dataVersionStmt.close();
+            dataVersionStmt = null;
+            return false;
+        }
+        boolean changed = dataVersion >= 0 && v != dataVersion;
+        dataVersion = v;
+        return changed;
+    }
+
+    /** Evictions made inside one write transaction; only counted once it commits. */
+    private static final class Eviction {
+        final long[] byPriority = new long[PRIORITY_CRASH + 1];
+        long events;
+        long bytes;
+        long expired;
+        // The totals were counted again inside the transaction; reload them after the commit.
+        boolean recounted;
+
+        void add(int priority, long count, long size, boolean age) {
+            byPriority[Math.max(0, Math.min(PRIORITY_CRASH, priority))] += count;
+            events += count;
+            bytes += size;
+            if (age) expired += count;
+        }
+
+        void addTo(EventQueue q) {
+            if (events == 0) return;
+            for (int i = 0; i < byPriority.length; i++) q.evictedByPriority[i] += byPriority[i];
+            q.evictedExpired += expired;
+            q.evictedOverCapacity += events - expired;
+            q.evictedBytes += bytes;
+            q.evictedTotal.addAndGet(events);
+        }
+    }
+
+    // Caller holds lock, inside the write transaction; depth/bytes are the totals after the insert.
+    private void enforceLimits(SQLiteDatabase db, long depth, long bytes, Eviction out) {
+        long now = System.currentTimeMillis();
+        if (maxAgeMs > 0 && now >= nextAgeCheckAt) {
+            nextAgeCheckAt = now + AGE_CHECK_INTERVAL_MS;
+            evictExpired(db, now - maxAgeMs, out);
+        }
+        if (depth - out.events <= maxEvents && bytes - out.bytes <= maxBytes) return;
+
+        // The totals may predate another process's flush; never evict on stale numbers.
+        try (Cursor c = db.rawQuery(QueueSchema.TOTALS, null)) {
+            if (c.moveToFirst()) {
+                depth = c.getLong(0) + out.events;
+                bytes = c.getLong(1) + out.bytes;
+                out.recounted = true;
+            }
+        }
+        if (depth - out.events <= maxEvents && bytes - out.bytes <= maxBytes) return;
+
+        long targetEvents = maxEvents * LOW_WATERMARK_PERCENT / 100;
+        long targetBytes = maxBytes * LOW_WATERMARK_PERCENT / 100;
+        SQLiteStatement deleteById = deleteByIdStmt;
+        for (int[] tier : EVICTION_TIERS) {
+            while (depth - out.events > targetEvents || bytes - out.bytes > targetBytes) {
+                // Read a page of candidates first; rows are not deleted under an open cursor.
+                int found = 0;
+                String sql = QueueSchema.EVICTION_CANDIDATES + EVICTION_PAGE;
+                try (Cursor c = db.rawQuery(sql, new String[]{Integer.toString(tier[0]), Integer.toString(tier[1])})) {
+                    long pendingEvents = out.events;
+                    long pendingBytes = out.bytes;
+                    while ((depth - pendingEvents > targetEvents || bytes - pendingBytes > targetBytes)
+                            && c.moveToNext()) {
+                        candidateIds[found] = c.getLong(0);
+                        candidateSizes[found] = c.getLong(1);
+                        candidatePriorities[found] = c.getInt(2);
+                        pendingEvents++;
+                        pendingBytes += candidateSizes[found];
+                        found++;
+                    }
+                }
+                if (found == 0) break; // tier exhausted, move to the next one
+                for (int i = 0; i < found; i++) {
+                    deleteById.bindLong(1, candidateIds[i]);
+                    deleteById.executeUpdateDelete();
+                    out.add(candidatePriorities[i], 1, candidateSizes[i], false);
+                }
+                deleteById.clearBindings();
+            }
+        }
+    }
+
+    private void evictExpired(SQLiteDatabase db, long cutoff, Eviction out) {
+        try (Cursor c = db.rawQuery(QueueSchema.OLDEST_CREATED_AT, null)) {
+            if (!c.moveToFirst() || c.getLong(0) >= cutoff) return;
+        }
+        String[] args = {Long.toString(cutoff), Integer.toString(PRIORITY_ERROR)};
+        boolean any = false;
+        try (Cursor c = db.rawQuery(QueueSchema.EXPIRED_BY_PRIORITY, args)) {
+            while (c.moveToNext()) {
+                out.add(c.getInt(0), c.getLong(1), c.getLong(2), true);
+                any = true;
+            }
+        }
+        if (any) db.execSQL(QueueSchema.DELETE_EXPIRED, new Object[]{cutoff, PRIORITY_ERROR});
+    }
+
+    // Caller holds lock and has bound the statement; count < 0 means unknown, so the totals are reloaded.
+    private void applyDelete(SQLiteStatement delete, long count, long size) {
+        int deleted = delete.executeUpdateDelete();
+        delete.clearBindings();
+        if (depth.get() < 0) return;
+        if (count < 0 || deleted != count) {
+            loadTotals();
+        } else {
+            depth.addAndGet(-count);
+            bytes.addAndGet(-size);
+        }
+    }
+
+    private static String where(@Nullable Lane lane, @Nullable String condition) {
+        if (lane == null) return condition == null ? "" : " WHERE " + condition;
+        return " WHERE " + lane.sqlFilter() + (condition == null ? "" : " AND " + condition);
+    }
+
+    // Caller holds lock. Compiled statements belong to a connection; recompile if it changed.
+    private void prepareStatements(SQLiteDatabase db) {
+        if (db != statementsDb) {
+            if (insertStmt != null) insertStmt.close();
+            if (insertStrippedStmt != null) insertStrippedStmt.close();
+            if (insertEnvelopeStmt != null) insertEnvelopeStmt.close();
+            if (envelopeIdStmt != null) envelopeIdStmt.close();
+            if (dataVersionStmt != null) dataVersionStmt.close();
+            if (deleteUpToStmt != null) deleteUpToStmt.close();
+            if (deleteByIdStmt != null) deleteByIdStmt.close();
+            if (deadLetterStmt != null) deadLetterStmt.close();
+            for (SQLiteStatement st : deleteRangeStmts) {
+                if (st != null) st.close();
+            }
+            insertStmt = db.compileStatement(QueueSchema.INSERT);
+            insertStrippedStmt = db.compileStatement(QueueSchema.INSERT_STRIPPED);
+            insertEnvelopeStmt = db.compileStatement(QueueSchema.INSERT_ENVELOPE);
+            envelopeIdStmt = db.compileStatement(QueueSchema.ENVELOPE_ID);
+            dataVersionStmt = db.compileStatement(QueueSchema.DATA_VERSION);
+            dataVersion = -1;
+            deleteUpToStmt = db.compileStatement(QueueSchema.DELETE_UP_TO);
+            deleteByIdStmt = db.compileStatement(QueueSchema.DELETE_BY_ID);
+            deadLetterStmt = db.compileStatement(QueueSchema.INSERT_DEAD_LETTER);
+            for (Lane lane : Lane.values()) {
+                deleteRangeStmts[lane.ordinal()] =
+                        db.compileStatement(QueueSchema.DELETE_RANGE + " AND " + lane.sqlFilter());
+            }
+            deleteRangeStmts[Lane.values().length] = db.compileStatement(QueueSchema.DELETE_RANGE);
+            statementsDb = db;
+        }
+    }
+
+    // Caller holds lock. The only full scan: once per process.
+    private void loadTotals() {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        try (Cursor c = db.rawQuery(QueueSchema.TOTALS, null)) {
+            if (c.moveToFirst()) {
+                bytes.set(c.getLong(1));
+                depth.set(c.getLong(0));
+            }
+        }
+    }
+
+    // Keyset pagination: one short read per page, no cursor held open across network I/O.
+    private long readPage(@Nullable Lane lane, long afterId, long lastId, List<byte[]> out) {
         synchronized (lock) {
             SQLiteDatabase db = helper.getReadableDatabase();
-            try (Cursor c = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_EVENTS, null)) {
-                if (c.moveToFirst()) return c.getInt(0);
-            } catch (Exception ignored) {}
-            return 0;
+            String sql = "SELECT id, payload, envelope_id FROM " + TABLE_EVENTS + where(lane, "id > ? AND id <= ?") +
+                    " ORDER BY id ASC LIMIT " + READ_PAGE_SIZE;
+            try (Cursor c = db.rawQuery(sql, new String[]{Long.toString(afterId), Long.toString(lastId)})) {
+                long last = afterId;
+                while (c.moveToNext()) {
+                    last = c.getLong(0);
+                    byte[] payload = c.getBlob(1);
+                    if (payload == null) continue;
+                    out.add(c.isNull(2) ? payload : withEnvelope(db, payload, c.getLong(2)));
+                }
+                return c.getCount() < READ_PAGE_SIZE ? lastId : last;
+            }
+        }
+    }
+
+    /**
+     * The stored events of a lane with ids in {@code (afterId, lastId]}, leased until settled; see
+     * {@link #openBatch(Lane, long, long, int)}.
+     */
+    public final class Batch implements EventBatch {
+        @Nullable private final Lane lane;
+        private final long afterId;
+        private final long[] ids;
+        private final int[] sizes;
+        private final int size;
+        private final long lastId;
+        private final long payloadBytes;
+        @Nullable private final LeaseTable.Lease lease;
+
+        Batch(@Nullable Lane lane, long afterId, long[] ids, int[] sizes, int size, long payloadBytes,
+              @Nullable LeaseTable.Lease lease) {
+            this.lane = lane;
+            this.afterId = afterId;
+            this.ids = ids;
+            this.sizes = sizes;
+            this.size = size;
+            this.lastId = size > 0 ? ids[size - 1] : afterId;
+            this.payloadBytes = payloadBytes;
+            this.lease = lease;
+        }
+
+        /** The queue (shard) the batch belongs to; settle the batch there. */
+        @NonNull
+        public EventQueue queue() { return EventQueue.this; }
+
+        @Override public int size() { return size; }
+        @Override public long payloadBytes() { return payloadBytes; }
+        public boolean isEmpty() { return size == 0; }
+        /** Id of the newest event in the batch; pass it to open the next disjoint batch. */
+        public long lastId() { return lastId; }
+
+        /**
+         * Install, shard (except the main one), first and last row id and count: the same rows
+         * always get the same id.
+         */
+        @Nullable
+        @Override
+        public String id() {
+            if (size == 0) return null;
+            String rows = ids[0] + "-" + lastId + ":" + size;
+            return QueueShards.MAIN_DB.equals(dbName) ? installId + ":" + rows : installId + ":" + dbName + ":" + rows;
+        }
+
+        @NonNull
+        @Override
+        public Iterator<byte[]> iterator() {
+            return new Iterator<byte[]>() {
+                private final List<byte[]> page = new ArrayList<>(READ_PAGE_SIZE);
+                private int index;
+                private long afterId = Batch.this.afterId;
+
+                @Override
+                public boolean hasNext() {
+                    if (index < page.size()) return true;
+                    if (size == 0 || afterId >= lastId) return false;
+                    page.clear();
+                    index = 0;
+                    try {
+                        afterId = readPage(lane, afterId, lastId, page);
+                    } catch (RuntimeException e) {
+                        throw new IllegalStateException("Failed to read queued events", e);
+                    }
+                    return !page.isEmpty();
+                }
+
+                @Override
+                public byte[] next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return page.get(index++);
+                }
+            };
         }
     }
 
@@ -94,12 +917,15 @@ public final class EventQueue {
 
         synchronized (lock) {
             try (BufferedReader br = new BufferedReader(new FileReader(legacy))) {
+                List<Pending> events = new ArrayList<>();
+                long createdAt = legacy.lastModified();
                 String line;
                 while ((line = br.readLine()) != null) {
                     line = line.trim();
                     if (line.isEmpty()) continue;
-                    enqueue(new JSONObject(line));
+                    events.add(new Pending(line.getBytes(StandardCharsets.UTF_8), PRIORITY_INFO, createdAt));
                 }
+                insertAll(events);
                 // delete after successful import
                 //noinspection ResultOfMethodCallIgnored
                 legacy.delete();
@@ -108,24 +934,33 @@ public final class EventQueue {
         }
     }
 
-    /** Simple SQLite helper for the queue table. */
+    /** SQLite helper for the queue table; upgrades migrate rows forward, see {@link QueueSchema}. */
     private static final class DB extends SQLiteOpenHelper {
-        DB(Context context) {
-            super(context, DB_NAME, null, DB_VERSION);
+        DB(Context context, String name) {
+            super(context, name, null, QueueSchema.VERSION);
+            // Readers (batch paging) no longer wait for the writer's group commits.
+            setWriteAheadLoggingEnabled(true);
         }
 
         @Override
         public void onCreate(SQLiteDatabase db) {
-            db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_EVENTS + " (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "payload TEXT NOT NULL)");
+            for (String sql : QueueSchema.CREATE_V2) db.execSQL(sql);
+            db.execSQL(QueueSchema.CREATE_DEAD_LETTERS);
+            for (String sql : QueueSchema.MIGRATE_V3_TO_V4) db.execSQL(sql);
         }
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-            // Future migrations can go here; for now, a simple recreate is safe.
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
-            onCreate(db);
+            // Runs inside the helper's transaction, so a failed step leaves v1 untouched.
+            if (oldVersion < 2) {
+                for (String sql : QueueSchema.MIGRATE_V1_TO_V2) db.execSQL(sql);
+            }
+            if (oldVersion < 3) {
+                for (String sql : QueueSchema.MIGRATE_V2_TO_V3) db.execSQL(sql);
+            }
+            if (oldVersion < 4) {
+                for (String sql : QueueSchema.MIGRATE_V3_TO_V4) db.execSQL(sql);
+            }
         }
     }
 }
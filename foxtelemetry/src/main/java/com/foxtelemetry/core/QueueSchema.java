@@ -0,0 +1,131 @@
+package com.foxtelemetry.core;
+
+/**
+ * SQL for the event queue database, kept apart from {@link EventQueue} so JVM tests can run the
+ * exact same statements (and migrations) against a plain SQLite driver.
+ *
+ * <p>Every entry of a migration array is a single statement, as {@code SQLiteDatabase.execSQL}
+ * requires. Migrations copy rows forward; queued events are never dropped on upgrade.</p>
+ */
+final class QueueSchema {
+
+    static final int VERSION = 4;
+    static final String TABLE_EVENTS = "events";
+    static final String TABLE_DEAD_LETTERS = "dead_letters";
+    static final String TABLE_ENVELOPES = "envelopes";
+
+    /** v1: payload stored as TEXT, no metadata. */
+    static final String CREATE_V1 = "CREATE TABLE IF NOT EXISTS " + TABLE_EVENTS + " (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "payload TEXT NOT NULL)";
+
+    /**
+     * v2: BLOB payload plus its byte size (so batches and byte totals never read payloads),
+     * priority (see {@link EventQueue#PRIORITY_DEBUG} and friends) and enqueue time.
+     */
+    static final String[] CREATE_V2 = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_EVENTS + " (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "payload BLOB NOT NULL," +
+                    "size INTEGER NOT NULL," +
+                    "priority INTEGER NOT NULL DEFAULT 0," +
+                    "created_at INTEGER NOT NULL DEFAULT 0)",
+            "CREATE INDEX IF NOT EXISTS events_priority ON " + TABLE_EVENTS + " (priority, id)",
+    };
+
+    /**
+     * v1 to v2. Priorities are recovered from the stored JSON: crashes and reported errors keep
+     * theirs, logs get their level's. IDs are preserved so upload order does not change.
+     */
+    static final String[] MIGRATE_V1_TO_V2 = {
+            "ALTER TABLE " + TABLE_EVENTS + " RENAME TO events_v1",
+            CREATE_V2[0],
+            CREATE_V2[1],
+            "INSERT INTO " + TABLE_EVENTS + " (id, payload, size, priority, created_at) " +
+                    "SELECT id, CAST(payload AS BLOB), length(CAST(payload AS BLOB)), " +
+                    "CASE" +
+                    " WHEN payload LIKE '%\"context\":\"UNCAUGHT_EXCEPTION\"%' THEN " + EventQueue.PRIORITY_CRASH +
+                    " WHEN payload LIKE '%\"type\":\"error\"%' THEN " + EventQueue.PRIORITY_ERROR +
+                    " WHEN payload LIKE '%\"level\":\"ERROR\"%' THEN " + EventQueue.PRIORITY_ERROR +
+                    " WHEN payload LIKE '%\"level\":\"WARN\"%' THEN " + EventQueue.PRIORITY_WARN +
+                    " WHEN payload LIKE '%\"level\":\"INFO\"%' THEN " + EventQueue.PRIORITY_INFO +
+                    " ELSE " + EventQueue.PRIORITY_DEBUG + " END, " +
+                    "CAST(strftime('%s','now') AS INTEGER) * 1000 " +
+                    "FROM events_v1 ORDER BY id",
+            "DROP TABLE events_v1",
+    };
+
+    /**
+     * v3: events the server rejected individually, kept (newest {@code DEAD_LETTER_CAP}) for
+     * inspection instead of being retried forever.
+     */
+    static final String CREATE_DEAD_LETTERS = "CREATE TABLE IF NOT EXISTS " + TABLE_DEAD_LETTERS + " (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "payload BLOB NOT NULL," +
+            "priority INTEGER NOT NULL," +
+            "reason TEXT," +
+            "created_at INTEGER NOT NULL," +
+            "dead_at INTEGER NOT NULL)";
+
+    /** v2 to v3 only adds a table. */
+    static final String[] MIGRATE_V2_TO_V3 = {CREATE_DEAD_LETTERS};
+
+    /**
+     * v4: the envelope every event repeats (see {@link EventEnvelope}) is stored once in
+     * {@code envelopes}; rows with an {@code envelope_id} hold the event without it. Rows
+     * without one (all rows from before v4) hold the complete event.
+     */
+    static final String CREATE_ENVELOPES = "CREATE TABLE IF NOT EXISTS " + TABLE_ENVELOPES + " (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "members BLOB NOT NULL UNIQUE)";
+
+    /** v3 to v4 adds the envelope table and nullable references to it; stored rows are kept as they are. */
+    static final String[] MIGRATE_V3_TO_V4 = {
+            CREATE_ENVELOPES,
+            "ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN envelope_id INTEGER",
+            "ALTER TABLE " + TABLE_DEAD_LETTERS + " ADD COLUMN envelope_id INTEGER",
+    };
+
+    static final String INSERT =
+            "INSERT INTO " + TABLE_EVENTS + " (payload, size, priority, created_at) VALUES (?, ?, ?, ?)";
+    static final String INSERT_STRIPPED = "INSERT INTO " + TABLE_EVENTS +
+            " (payload, size, priority, created_at, envelope_id) VALUES (?, ?, ?, ?, ?)";
+    static final String DELETE_UP_TO = "DELETE FROM " + TABLE_EVENTS + " WHERE id <= ?";
+    static final String DELETE_RANGE = "DELETE FROM " + TABLE_EVENTS + " WHERE id > ? AND id <= ?";
+    static final String TOTALS = "SELECT COUNT(*), COALESCE(SUM(size), 0) FROM " + TABLE_EVENTS;
+    static final String TOTALS_UP_TO = "SELECT COUNT(*), COALESCE(SUM(size), 0) FROM " + TABLE_EVENTS + " WHERE id <= ?";
+
+    // Eviction (see EventQueue#enforceLimits). Candidates come oldest first within a priority range.
+    static final String OLDEST_CREATED_AT = "SELECT created_at FROM " + TABLE_EVENTS + " ORDER BY id ASC LIMIT 1";
+    static final String EXPIRED_BY_PRIORITY = "SELECT priority, COUNT(*), COALESCE(SUM(size), 0) FROM " + TABLE_EVENTS +
+            " WHERE created_at < ? AND priority < ? GROUP BY priority";
+    static final String DELETE_EXPIRED = "DELETE FROM " + TABLE_EVENTS + " WHERE created_at < ? AND priority < ?";
+    static final String EVICTION_CANDIDATES = "SELECT id, size, priority FROM " + TABLE_EVENTS +
+            " WHERE priority BETWEEN ? AND ? ORDER BY id ASC LIMIT ";
+    static final String DELETE_BY_ID = "DELETE FROM " + TABLE_EVENTS + " WHERE id = ?";
+
+    // Dead letters: copy the row over (reason, dead_at, id), then delete it by id.
+    static final String INSERT_DEAD_LETTER = "INSERT INTO " + TABLE_DEAD_LETTERS +
+            " (payload, priority, reason, created_at, dead_at, envelope_id)" +
+            " SELECT payload, priority, ?, created_at, ?, envelope_id FROM " + TABLE_EVENTS + " WHERE id = ?";
+    static final String TRIM_DEAD_LETTERS = "DELETE FROM " + TABLE_DEAD_LETTERS +
+            " WHERE id <= (SELECT MAX(id) FROM " + TABLE_DEAD_LETTERS + ") - ?";
+    static final String COUNT_DEAD_LETTERS = "SELECT COUNT(*) FROM " + TABLE_DEAD_LETTERS;
+
+    /** Changes when another connection (e.g. another process) commits to the database. */
+    static final String DATA_VERSION = "PRAGMA data_version";
+
+    // Envelopes: looked up by content on insert, by id when events are read back.
+    static final String INSERT_ENVELOPE = "INSERT OR IGNORE INTO " + TABLE_ENVELOPES + " (members) VALUES (?)";
+    static final String ENVELOPE_ID = "SELECT id FROM " + TABLE_ENVELOPES + " WHERE members = ?";
+    static final String ENVELOPE_MEMBERS = "SELECT members FROM " + TABLE_ENVELOPES + " WHERE id = ?";
+    /** 1 for a row that refers to an envelope that is not stored, 0 otherwise; a column for batch scans. */
+    static final String MISSING_ENVELOPE = "(envelope_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM " +
+            TABLE_ENVELOPES + " v WHERE v.id = " + TABLE_EVENTS + ".envelope_id))";
+    /** Drops envelopes no queued or dead-lettered event refers to, except the one in use ({@code ?}). */
+    static final String PRUNE_ENVELOPES = "DELETE FROM " + TABLE_ENVELOPES + " WHERE id <> ?" +
+            " AND id NOT IN (SELECT envelope_id FROM " + TABLE_EVENTS + " WHERE envelope_id IS NOT NULL)" +
+            " AND id NOT IN (SELECT envelope_id FROM " + TABLE_DEAD_LETTERS + " WHERE envelope_id IS NOT NULL)";
+
+    private QueueSchema() {}
+}
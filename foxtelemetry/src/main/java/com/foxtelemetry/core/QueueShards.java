@@ -0,0 +1,156 @@
+package com.foxtelemetry.core;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The event queue is split into one SQLite file per process, so processes never contend for the
+ * same write lock. The main process keeps {@code foxtelemetry.db} (where events from before
+ * sharding already are); any other process {@code foo:bar} writes {@code foxtelemetry-bar.db}.
+ *
+ * <p>A flush drains all shards found on disk from wherever it runs: {@link #all()} returns the
+ * process's own queue plus a drain-only {@link EventQueue} per other shard, opened once and kept,
+ * so leases stay consistent between the flush runs of this process.</p>
+ *
+ * <p>The {@link CrashJournal} is kept per process the same way, so each crash is imported once,
+ * by the next start of the process that crashed.</p>
+ */
+public final class QueueShards {
+
+    static final String MAIN_DB = "foxtelemetry.db";
+    private static final String SHARD_PREFIX = "foxtelemetry-";
+    private static final String SHARD_SUFFIX = ".db";
+    private static final String JOURNAL_PREFIX = "foxtelemetry-crash";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TAG = "FoxTelemetryQueue";
+
+    private final Context context;
+    private final FoxTelemetryConfig cfg;
+    private final EventQueue own;
+    private final Map<String, EventQueue> others = new HashMap<>(); // guarded by this
+
+    public QueueShards(@NonNull Context context, @NonNull FoxTelemetryConfig cfg, @NonNull EventQueue own) {
+        this.context = context.getApplicationContext();
+        this.cfg = cfg;
+        this.own = own;
+    }
+
+    /** This process's queue first, then the shards of the other processes, by file name. */
+    @NonNull
+    public synchronized List<EventQueue> all() {
+        List<EventQueue> out = new ArrayList<>();
+        out.add(own);
+        File dir = context.getDatabasePath(MAIN_DB).getParentFile();
+        for (String name : shardNames(dir != null ? dir.list() : null)) {
+            if (name.equals(own.dbName())) continue;
+            EventQueue q = others.get(name);
+            if (q == null) {
+                try {
+                    q = EventQueue.openShard(context, cfg, name);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Cannot open queue shard " + name, e);
+                    continue;
+                }
+                others.put(name, q);
+            }
+            out.add(q);
+        }
+        return out;
+    }
+
+    /** Database file of the calling process's shard. */
+    @NonNull
+    static String dbNameForCurrentProcess(@NonNull Context context) {
+        return dbName(currentProcessName(), context.getApplicationInfo().processName);
+    }
+
+    /**
+     * File name of the calling process's {@link CrashJournal}, following its shard:
+     * {@code foxtelemetry-crash.journal} for the main process, {@code foxtelemetry-crash-bar.journal}
+     * for {@code foo:bar}.
+     */
+    @NonNull
+    public static String crashJournalNameForCurrentProcess(@NonNull Context context) {
+        return crashJournalName(dbNameForCurrentProcess(context));
+    }
+
+    @NonNull
+    static String crashJournalName(@NonNull String dbName) {
+        if (dbName.equals(MAIN_DB)) return JOURNAL_PREFIX + JOURNAL_SUFFIX;
+        return JOURNAL_PREFIX + "-" + dbName.substring(SHARD_PREFIX.length(), dbName.length() - SHARD_SUFFIX.length())
+                + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * {@code foxtelemetry.db} for the main process (or if the process is unknown), otherwise
+     * {@code foxtelemetry-<suffix>.db}, the suffix being the part after {@code ':'} of a private
+     * process name or the whole name of a global one.
+     */
+    @NonNull
+    static String dbName(@Nullable String processName, @Nullable String mainProcessName) {
+        if (processName == null || processName.isEmpty() || processName.equals(mainProcessName)) return MAIN_DB;
+        String suffix = processName;
+        if (mainProcessName != null && processName.startsWith(mainProcessName + ":")) {
+            suffix = processName.substring(mainProcessName.length() + 1);
+        }
+        StringBuilder sb = new StringBuilder(SHARD_PREFIX.length() + suffix.length() + SHARD_SUFFIX.length());
+        sb.append(SHARD_PREFIX);
+        for (int i = 0; i < suffix.length(); i++) {
+            char c = suffix.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '_' || c == '-';
+            sb.append(safe ? c : '_');
+        }
+        return sb.append(SHARD_SUFFIX).toString();
+    }
+
+    /** The queue databases among {@code files} (a directory listing), main first, then by name. */
+    @NonNull
+    static List<String> shardNames(@Nullable String[] files) {
+        List<String> shards = new ArrayList<>();
+        boolean main = false;
+        if (files != null) {
+            for (String f : files) {
+                if (f.equals(MAIN_DB)) {
+                    main = true;
+                } else if (f.startsWith(SHARD_PREFIX) && f.endsWith(SHARD_SUFFIX)
+                        && f.length() > SHARD_PREFIX.length() + SHARD_SUFFIX.length()) {
+                    shards.add(f);
+                }
+            }
+        }
+        Collections.sort(shards);
+        if (main) shards.add(0, MAIN_DB);
+        return shards;
+    }
+
+    @Nullable
+    private static String currentProcessName() {
+        if (Build.VERSION.SDK_INT >= 28) return Application.getProcessName();
+        // Before API 28 the name is only exposed through procfs.
+        try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buf = new byte[256];
+            int n = in.read(buf);
+            int end = 0;
+            while (end < n && buf[end] != 0) end++;
+            return end > 0 ? new String(buf, 0, end, StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Process;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -15,7 +16,11 @@ import com.foxtelemetry.core.ConfigLoader;
 import com.foxtelemetry.core.FoxTelemetryConfig;
 
 /**
- * Auto-initializes FoxTelemetry if app includes assets/foxtelemetry.json
+ * Auto-initializes FoxTelemetry if app includes assets/foxtelemetry.json.
+ *
+ * <p>{@link #onCreate} runs on the main thread before {@code Application.onCreate}, so it only
+ * calls {@link FoxTelemetry#preInit()}: calls are buffered in memory and crashes are hooked. The
+ * config, install ID, database and scheduling are set up on a background thread.</p>
  */
 public final class FoxTelemetryInitProvider extends ContentProvider {
 
@@ -26,23 +31,38 @@ public final class FoxTelemetryInitProvider extends ContentProvider {
         Context ctx = getContext();
         if (ctx == null) return true;
 
+        final Context app = ctx.getApplicationContext();
+        FoxTelemetry.preInit();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                initFromAssets(app);
+            }
+        }, "FoxTelemetry-init").start();
+        return true;
+    }
+
+    private static void initFromAssets(Context ctx) {
         FoxTelemetryConfig cfg = ConfigLoader.loadFromAssets(ctx, "foxtelemetry.json");
         if (cfg == null) {
             Log.i(TAG, "assets/foxtelemetry.json not found. Skipping auto-init.");
-            return true;
+            FoxTelemetry.cancelPreInit();
+            return;
         }
 
         try {
             if (!ctx.getPackageName().equals(cfg.packageName)) {
                 Log.w(TAG, "Package mismatch. Expected " + cfg.packageName + " but got " + ctx.getPackageName());
-                return true;
+                FoxTelemetry.cancelPreInit();
+                return;
             }
             FoxTelemetry.init(ctx, cfg);
             Log.i(TAG, "FoxTelemetry initialized.");
         } catch (Throwable t) {
             Log.e(TAG, "Auto-init failed", t);
+            FoxTelemetry.cancelPreInit();
         }
-        return true;
     }
 
     @Nullable @Override public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) { return null; }
@@ -1,62 +1,183 @@
 package com.foxtelemetry.net;
 
-import com.foxtelemetry.core.FoxTelemetryConfig;
+import androidx.annotation.NonNull;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.foxtelemetry.core.BatchEncoder;
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+import com.foxtelemetry.core.WireFormat;
 
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads batches to the ingest endpoint over HTTP; the default {@link IngestTransport}.
+ *
+ * <p>Format negotiation: with {@link WireFormat#AUTO} batches go out as JSON until a response
+ * advertises {@code application/cbor} in its {@code Accept-Post} header; from then on CBOR is
+ * used. A {@code 415 Unsupported Media Type} answer to a CBOR body switches back to JSON and
+ * the same batch is resent immediately.</p>
+ *
+ * <p>Bodies at or above {@link FoxTelemetryConfig#compressionThresholdBytes} are streamed from
+ * the queue through gzip into a chunked request ({@code Content-Encoding: gzip}), so memory per
+ * upload stays bounded by the queue page size and stream buffers, not by the batch size. Smaller
+ * batches are buffered and sent uncompressed with a fixed length.</p>
+ *
+ * <p>Connections are kept alive: the response is read to the end and closed, never
+ * {@code disconnect()}ed, so the platform's connection pool hands the socket to the next
+ * request (and to concurrent requests, one socket each).</p>
+ *
+ * <p>Every request carries the batch's {@link EventBatch#id()} as {@code X-Fox-Batch-Id}, so the
+ * server can ignore a batch it already stored, and a 2xx body may list rejected events
+ * (see {@link IngestResponse}). Error responses report their {@code Retry-After}, if any.</p>
+ */
+public final class IngestClient implements IngestTransport {
+
+    /** Shared instance; it holds no per-request state. */
+    public static final IngestClient INSTANCE = new IngestClient();
 
-public final class IngestClient {
+    private static final int CBOR_UNKNOWN = 0;
+    private static final int CBOR_SUPPORTED = 1;
+    private static final int CBOR_UNSUPPORTED = 2;
+
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+    // Responses carry at most a list of rejected events; anything longer is not read.
+    private static final int MAX_RESPONSE_BYTES = 64 * 1024;
+
+    // What the server told us about CBOR, for the lifetime of the process.
+    private static volatile int cborSupport = CBOR_UNKNOWN;
 
     private IngestClient() {}
 
-    public static int sendBatch(FoxTelemetryConfig cfg, List<JSONObject> events) throws Exception {
-        JSONObject payload = new JSONObject();
-        payload.put("projectId", cfg.projectId);
-        payload.put("appId", cfg.appId);
-        payload.put("packageName", cfg.packageName);
+    /** Sends already-encoded events through {@link #INSTANCE} and returns the HTTP status. */
+    public static int sendBatch(FoxTelemetryConfig cfg, EventBatch events) throws Exception {
+        return INSTANCE.send(cfg, events).status;
+    }
+
+    /** Sends already-encoded events; payload bytes are never re-parsed into objects. */
+    @NonNull
+    @Override
+    public IngestResponse send(@NonNull FoxTelemetryConfig cfg, @NonNull EventBatch events) throws Exception {
+        WireFormat format = resolveFormat(cfg.wireFormat);
+        IngestResponse response = post(cfg, events, format);
+        if (response.status == HttpURLConnection.HTTP_UNSUPPORTED_TYPE && format == WireFormat.CBOR) {
+            cborSupport = CBOR_UNSUPPORTED;
+            response = post(cfg, events, WireFormat.JSON);
+        }
+        return response;
+    }
+
+    static WireFormat resolveFormat(WireFormat preferred) {
+        int support = cborSupport;
+        switch (preferred) {
+            case CBOR:
+                return support == CBOR_UNSUPPORTED ? WireFormat.JSON : WireFormat.CBOR;
+            case AUTO:
+                return support == CBOR_SUPPORTED ? WireFormat.CBOR : WireFormat.JSON;
+            default:
+                return WireFormat.JSON;
+        }
+    }
 
-        JSONArray arr = new JSONArray();
-        for (JSONObject e : events) arr.put(e);
-        payload.put("events", arr);
+    private static IngestResponse post(FoxTelemetryConfig cfg, EventBatch events, WireFormat format) throws Exception {
+        boolean compress = cfg.compressionLevel > 0 && events.payloadBytes() >= cfg.compressionThresholdBytes;
+        BatchEncoder encoder = new BatchEncoder();
 
-        byte[] body = payload.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream small = null;
+        if (!compress) {
+            small = new ByteArrayOutputStream((int) Math.min(events.payloadBytes() + 256, cfg.compressionThresholdBytes + 256));
+            encoder.write(small, format, cfg, events);
+        }
 
         URL url = new URL(cfg.endpoint);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(8000);
-        conn.setReadTimeout(8000);
+        conn.setConnectTimeout(cfg.uploadTimeoutMs);
+        conn.setReadTimeout(cfg.uploadTimeoutMs);
         conn.setRequestMethod("POST");
         conn.setDoOutput(true);
+        if (compress) {
+            conn.setChunkedStreamingMode(0);
+            conn.setRequestProperty("Content-Encoding", "gzip");
+        } else {
+            conn.setFixedLengthStreamingMode(small.size());
+        }
 
-        conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        conn.setRequestProperty("Content-Type", format.contentType());
         conn.setRequestProperty("X-Fox-Ingest-Key", cfg.ingestKey);
         conn.setRequestProperty("Accept", "application/json");
+        String batchId = events.id();
+        if (batchId != null) conn.setRequestProperty("X-Fox-Batch-Id", batchId);
 
-        try (BufferedOutputStream os = new BufferedOutputStream(conn.getOutputStream())) {
-            os.write(body);
-            os.flush();
+        if (compress) {
+            try (OutputStream os = new LevelGzipOutputStream(
+                    new BufferedOutputStream(conn.getOutputStream(), STREAM_BUFFER_SIZE), cfg.compressionLevel)) {
+                encoder.write(os, format, cfg, events);
+                os.flush();
+            }
+        } else {
+            try (OutputStream os = conn.getOutputStream()) {
+                small.writeTo(os);
+                os.flush();
+            }
         }
 
         int code = conn.getResponseCode();
+        noteAcceptPost(conn.getHeaderField("Accept-Post"));
 
+        if (code >= 200 && code < 300) {
+            String body = drain(conn.getInputStream(), true);
+            return new IngestResponse(code, IngestResponse.parseOutcome(body, events.size()));
+        }
+        long retryAfter = IngestResponse.parseRetryAfter(conn.getHeaderField("Retry-After"),
+                conn.getHeaderFieldDate("Retry-After", -1), System.currentTimeMillis());
+        drain(code < 400 ? conn.getInputStream() : conn.getErrorStream(), false);
+        return IngestResponse.of(code, retryAfter);
+    }
+
+    // A fully read and closed body returns the socket to the keep-alive pool.
+    private static String drain(InputStream in, boolean keep) {
+        if (in == null) return null;
+        ByteArrayOutputStream body = keep ? new ByteArrayOutputStream() : null;
+        byte[] buf = new byte[512];
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(
-                    (code >= 200 && code < 400) ? conn.getInputStream() : conn.getErrorStream(),
-                    StandardCharsets.UTF_8
-            ));
-            while (br.readLine() != null) {}
-            br.close();
-        } catch (Exception ignored) {}
-
-        conn.disconnect();
-        return code;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                if (body != null && body.size() + n <= MAX_RESPONSE_BYTES) body.write(buf, 0, n);
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {}
+        }
+        return body != null ? new String(body.toByteArray(), StandardCharsets.UTF_8) : null;
+    }
+
+    // Package-private for tests.
+    static void resetNegotiation() {
+        cborSupport = CBOR_UNKNOWN;
+    }
+
+    static void noteAcceptPost(String acceptPost) {
+        if (acceptPost == null) return;
+        cborSupport = acceptPost.toLowerCase(Locale.ROOT).contains("application/cbor")
+                ? CBOR_SUPPORTED
+                : CBOR_UNSUPPORTED;
+    }
+
+    /** {@link GZIPOutputStream} with a configurable deflate level. */
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, STREAM_BUFFER_SIZE);
+            def.setLevel(level);
+        }
     }
 }
@@ -0,0 +1,105 @@
+package com.foxtelemetry.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.foxtelemetry.core.BatchOutcome;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * What an {@link IngestTransport} got back for one batch: the HTTP status and, for a 2xx, which
+ * events the server did not take. The ingest endpoint may answer with
+ * <pre>{"rejected": [{"index": 3, "reason": "invalid_timestamp", "retryable": false}, ...]}</pre>
+ * where {@code index} is the event's position in the batch; events not listed were accepted.
+ * Any other (or no) body means the whole batch was accepted. Error responses may carry the
+ * server's {@code Retry-After}.
+ */
+public final class IngestResponse {
+
+    /** Status of an upload that threw before a response arrived. */
+    public static final int STATUS_FAILED = -1;
+    public static final IngestResponse FAILED = new IngestResponse(STATUS_FAILED, BatchOutcome.ALL_ACCEPTED);
+
+    public final int status;
+    /** Per-event result; only meaningful for a 2xx {@link #status}. */
+    @NonNull public final BatchOutcome outcome;
+    /** How long the server asked clients to wait ({@code Retry-After}), or -1 if it did not say. */
+    public final long retryAfterMs;
+
+    public IngestResponse(int status, @NonNull BatchOutcome outcome) {
+        this(status, outcome, -1);
+    }
+
+    public IngestResponse(int status, @NonNull BatchOutcome outcome, long retryAfterMs) {
+        this.status = status;
+        this.outcome = outcome;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    @NonNull
+    public static IngestResponse of(int status) {
+        return new IngestResponse(status, BatchOutcome.ALL_ACCEPTED);
+    }
+
+    @NonNull
+    public static IngestResponse of(int status, long retryAfterMs) {
+        return new IngestResponse(status, BatchOutcome.ALL_ACCEPTED, retryAfterMs);
+    }
+
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * A {@code Retry-After} value in milliseconds: delay-seconds as they are, an HTTP date
+     * ({@code dateMs}, already parsed by the caller, -1 if it is not one) relative to {@code now}.
+     * Returns -1 for no or an unusable value.
+     */
+    static long parseRetryAfter(@Nullable String value, long dateMs, long now) {
+        if (value == null) return -1;
+        String v = value.trim();
+        if (!v.isEmpty() && v.length() <= 10) {
+            long seconds = 0;
+            int i = 0;
+            for (; i < v.length(); i++) {
+                char c = v.charAt(i);
+                if (c < '0' || c > '9') break;
+                seconds = seconds * 10 + (c - '0');
+            }
+            if (i == v.length()) return seconds * 1000;
+        }
+        return dateMs < 0 ? -1 : Math.max(0, dateMs - now);
+    }
+
+    /** Parses a 2xx response body; unknown or malformed bodies accept the whole batch. */
+    @NonNull
+    static BatchOutcome parseOutcome(@Nullable String body, int batchSize) {
+        if (body == null || body.isEmpty() || body.charAt(0) != '{') return BatchOutcome.ALL_ACCEPTED;
+        try {
+            JSONArray rejected = new JSONObject(body).optJSONArray("rejected");
+            if (rejected == null || rejected.length() == 0) return BatchOutcome.ALL_ACCEPTED;
+            BatchOutcome.Builder b = new BatchOutcome.Builder();
+            for (int i = 0; i < rejected.length(); i++) {
+                JSONObject r = rejected.optJSONObject(i);
+                if (r == null) continue;
+                int index = r.optInt("index", -1);
+                if (index < 0 || index >= batchSize) continue;
+                if (r.optBoolean("retryable", false)) b.retry(index);
+                else b.reject(index, r.optString("reason", null));
+            }
+            return b.build();
+        } catch (JSONException e) {
+            return BatchOutcome.ALL_ACCEPTED;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "IngestResponse{status=" + status + ", outcome=" + outcome
+                + (retryAfterMs >= 0 ? ", retryAfterMs=" + retryAfterMs : "") + "}";
+    }
+}
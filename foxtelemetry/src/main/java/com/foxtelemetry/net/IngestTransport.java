@@ -0,0 +1,24 @@
+package com.foxtelemetry.net;
+
+import androidx.annotation.NonNull;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+
+/**
+ * Delivers one batch of encoded events to the ingest side. {@link IngestClient} (HTTP) is the
+ * default; install another with {@code FoxTelemetry.setIngestTransport}.
+ *
+ * <p>Implementations must be safe to call from several threads at once: {@link ParallelUploader}
+ * sends disjoint batches concurrently through the same instance.</p>
+ */
+public interface IngestTransport {
+
+    /**
+     * Uploads the batch. A 2xx status means the batch was taken, except for the events its
+     * {@link IngestResponse#outcome} marks as rejected or to retry. Throwing is treated like a
+     * retryable failure.
+     */
+    @NonNull
+    IngestResponse send(@NonNull FoxTelemetryConfig cfg, @NonNull EventBatch batch) throws Exception;
+}
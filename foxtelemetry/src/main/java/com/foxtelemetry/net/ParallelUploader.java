@@ -0,0 +1,127 @@
+package com.foxtelemetry.net;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+import com.foxtelemetry.core.SdkMetrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends disjoint batches through one {@link IngestTransport}, up to {@code maxConcurrency} at a
+ * time. The calling thread uploads the first batch of each call itself, so a concurrency of one
+ * never starts a thread. Each request's latency and status go to the {@link SdkMetrics}, if given.
+ */
+public final class ParallelUploader implements Closeable {
+
+    private static final String TAG = "FoxTelemetryUpload";
+    private static final long IDLE_THREAD_MS = 10_000;
+
+    private final IngestTransport transport;
+    private final int maxConcurrency;
+    @Nullable private final SdkMetrics metrics;
+    private ThreadPoolExecutor pool; // created on first parallel call
+
+    public ParallelUploader(@NonNull IngestTransport transport, int maxConcurrency) {
+        this(transport, maxConcurrency, null);
+    }
+
+    public ParallelUploader(@NonNull IngestTransport transport, int maxConcurrency, @Nullable SdkMetrics metrics) {
+        this.transport = transport;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.metrics = metrics;
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Uploads every batch and returns the responses in the same order, {@link IngestResponse#FAILED}
+     * for batches whose upload threw. Returns once all uploads have finished.
+     */
+    @NonNull
+    public IngestResponse[] sendAll(@NonNull final FoxTelemetryConfig cfg, @NonNull List<? extends EventBatch> batches) {
+        int n = batches.size();
+        IngestResponse[] responses = new IngestResponse[n];
+        if (n == 0) return responses;
+
+        List<Future<IngestResponse>> pending = new ArrayList<>(n);
+        pending.add(null); // the first batch is sent on the calling thread
+        for (int i = 1; i < n; i++) {
+            final EventBatch batch = batches.get(i);
+            pending.add(pool().submit(() -> send(cfg, batch)));
+        }
+        responses[0] = sendQuietly(cfg, batches.get(0));
+        for (int i = 1; i < n; i++) {
+            try {
+                responses[i] = pending.get(i).get();
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Upload failed", e.getCause());
+                responses[i] = IngestResponse.FAILED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                responses[i] = IngestResponse.FAILED;
+            }
+        }
+        return responses;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    private IngestResponse sendQuietly(FoxTelemetryConfig cfg, EventBatch batch) {
+        try {
+            return send(cfg, batch);
+        } catch (Exception e) {
+            Log.w(TAG, "Upload failed", e);
+            return IngestResponse.FAILED;
+        }
+    }
+
+    private IngestResponse send(FoxTelemetryConfig cfg, EventBatch batch) throws Exception {
+        long t0 = System.nanoTime();
+        int status = IngestResponse.STATUS_FAILED;
+        try {
+            IngestResponse response = transport.send(cfg, batch);
+            status = response.status;
+            return response;
+        } finally {
+            if (metrics != null) metrics.recordUpload(System.nanoTime() - t0, status);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor pool() {
+        if (pool == null) {
+            final AtomicInteger ids = new AtomicInteger();
+            // The caller takes one batch, so maxConcurrency - 1 helpers; extra batches queue up.
+            int helpers = Math.max(1, maxConcurrency - 1);
+            pool = new ThreadPoolExecutor(helpers, helpers, IDLE_THREAD_MS, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable r) {
+                    Thread t = new Thread(r, "FoxTelemetry-upload-" + ids.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            pool.allowCoreThreadTimeOut(true);
+        }
+        return pool;
+    }
+}
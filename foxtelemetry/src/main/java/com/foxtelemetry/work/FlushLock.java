@@ -0,0 +1,95 @@
+package com.foxtelemetry.work;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.foxtelemetry.core.Lane;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Locale;
+
+/**
+ * Keeps flush runs of different processes off the same rows. WorkManager may start the worker in
+ * any process that initialized it, and batch leases only exclude other runs of the same process,
+ * so two processes draining the same shard would upload its events twice.
+ *
+ * <p>There is one lock per {@link Lane}, taken for a wave of batches and released once they are
+ * settled, so an urgent run uploading a crash never waits for a run working through the log
+ * backlog. Within a process the lock is shared by all runs: their leases already keep them apart.</p>
+ *
+ * <p>An exclusive lock on a file in the no-backup directory; the OS drops it if the holder dies.</p>
+ */
+final class FlushLock {
+
+    private static final String FILE_PREFIX = "foxtelemetry-flush-";
+    private static final String FILE_SUFFIX = ".lock";
+    private static final long POLL_MS = 100;
+
+    // Per lane, guarded by the class: the file this process locked, and how many runs hold it.
+    private static final RandomAccessFile[] files = new RandomAccessFile[Lane.values().length];
+    private static final int[] holders = new int[Lane.values().length];
+
+    private final Lane lane;
+    private boolean released; // guarded by the class
+
+    private FlushLock(Lane lane) {
+        this.lane = lane;
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} (0: no wait) for the lock of {@code lane}; null if a run in
+     * another process still holds it.
+     */
+    @Nullable
+    static FlushLock acquire(@NonNull File dir, @NonNull Lane lane, long timeoutMs)
+            throws IOException, InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        while (!tryAcquire(dir, lane)) {
+            if (SystemClock.elapsedRealtime() >= deadline) return null;
+            Thread.sleep(POLL_MS);
+        }
+        return new FlushLock(lane);
+    }
+
+    private static synchronized boolean tryAcquire(File dir, Lane lane) throws IOException {
+        int i = lane.ordinal();
+        if (holders[i] > 0) {
+            holders[i]++;
+            return true;
+        }
+        // Only opened while this process holds no lock on it: closing any descriptor of a file
+        // drops the process's locks on that file.
+        String name = FILE_PREFIX + lane.name().toLowerCase(Locale.ROOT) + FILE_SUFFIX;
+        RandomAccessFile file = new RandomAccessFile(new File(dir, name), "rw");
+        boolean locked = false;
+        try {
+            locked = file.getChannel().tryLock() != null;
+        } finally {
+            if (!locked) file.close();
+        }
+        if (!locked) return false;
+        files[i] = file;
+        holders[i] = 1;
+        return true;
+    }
+
+    void release() {
+        synchronized (FlushLock.class) {
+            if (released) return;
+            released = true;
+            int i = lane.ordinal();
+            if (--holders[i] > 0) return;
+            RandomAccessFile file = files[i];
+            files[i] = null;
+            try {
+                file.close(); // releases the file lock
+            } catch (IOException ignored) {
+                // The lock goes with the descriptor either way.
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.foxtelemetry.work;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -8,53 +9,261 @@ import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.foxtelemetry.FoxTelemetry;
+import com.foxtelemetry.core.BatchOutcome;
+import com.foxtelemetry.core.BatchSizer;
 import com.foxtelemetry.core.EventQueue;
+import com.foxtelemetry.core.FlushScheduler;
+import com.foxtelemetry.core.FlushStats;
 import com.foxtelemetry.core.FoxTelemetryConfig;
-import com.foxtelemetry.net.IngestClient;
-
-import org.json.JSONObject;
+import com.foxtelemetry.core.Lane;
+import com.foxtelemetry.core.LaneScheduler;
+import com.foxtelemetry.core.QueueShards;
+import com.foxtelemetry.core.SdkMetrics;
+import com.foxtelemetry.core.UploadBackoff;
+import com.foxtelemetry.net.IngestResponse;
+import com.foxtelemetry.net.ParallelUploader;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Drains the queue in consecutive batches until it is empty or the per-run time budget is
+ * spent, in which case a follow-up run is queued. Batches are sized in bytes by a shared
+ * {@link BatchSizer} that adapts to upload latency and 413 responses.
+ *
+ * <p>Each batch comes from one {@link Lane}; a {@link LaneScheduler} shares the run between
+ * crash, error and log lanes by weight. Runs started with {@link #KEY_URGENT} only serve the
+ * crash and error lanes.</p>
+ *
+ * <p>Each pick uploads up to {@link FoxTelemetryConfig#uploadConcurrency} disjoint batches of
+ * the lane at once through the installed {@code IngestTransport}. Batches are leases on exact
+ * row ranges and are settled one by one: accepted events are deleted, events the server rejects
+ * are dead-lettered, and failed or retryable ones go back to the queue.</p>
+ *
+ * <p>A run drains every process's queue shard (see {@link QueueShards}). Each wave holds the
+ * {@link FlushLock} of its lane, so runs started in different processes never upload the same
+ * rows. A lane locked by another process is left to that run: regular runs skip it at once,
+ * urgent runs wait up to 10 s for it first.</p>
+ *
+ * <p>When the server is unreachable or overloaded (no response, 429, 5xx), the run does not ask
+ * WorkManager for its fixed backoff: the shared {@link UploadBackoff} picks a jittered delay
+ * (at least the server's {@code Retry-After}) and a single resume run is scheduled for then. Runs
+ * that start earlier, from any trigger, upload nothing and schedule nothing more, except that an
+ * urgent one makes sure crashes resume at that time on any network. While its circuit breaker is open, the first
+ * run after the pause sends a single probe batch and only drains on once that is accepted.</p>
+ */
 public final class FlushWorker extends Worker {
 
+    /** Input flag: upload only the crash and error lanes. */
+    public static final String KEY_URGENT = "urgent";
+
     private static final String TAG = "FoxTelemetryFlush";
 
+    private static final long RUN_BUDGET_MS = 60_000;
+    private static final int MAX_EVENTS_PER_BATCH = 2_000;
+    private static final long LOCK_WAIT_MS = 10_000;
+
+    // Shared across runs so the learned size survives between WorkManager invocations.
+    private static final BatchSizer SIZER = new BatchSizer();
+    private static volatile FlushStats lastRun = FlushStats.NONE;
+
     public FlushWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
     }
 
+    @NonNull
+    public static FlushStats getLastRunStats() {
+        return lastRun;
+    }
+
     @NonNull
     @Override
     public Result doWork() {
         FoxTelemetryConfig cfg = FoxTelemetry.getConfig();
         EventQueue q = FoxTelemetry.getQueue();
+        UploadBackoff backoff = FoxTelemetry.getUploadBackoff();
 
-        if (cfg == null || q == null) {
+        if (cfg == null || q == null || backoff == null) {
             return Result.success();
         }
 
-        try {
-            List<JSONObject> batch = q.peek(50);
-            if (batch.isEmpty()) return Result.success();
+        long start = SystemClock.elapsedRealtime();
+        long deadline = start + RUN_BUDGET_MS;
+        int sent = 0;
+        long bytes = 0;
+        int requests = 0;
+        int dropped = 0;
+        int lastCode = 0;
+        boolean drained = false;
+        // After a 413 the rejected batch is split in half until the server accepts it.
+        long splitBytes = Long.MAX_VALUE;
+
+        boolean urgent = getInputData().getBoolean(KEY_URGENT, false);
+        LaneScheduler lanes = urgent
+                ? new LaneScheduler(Lane.CRASH, Lane.ERROR)
+                : new LaneScheduler(Lane.values());
 
-            int code = IngestClient.sendBatch(cfg, batch);
+        FlushScheduler scheduler = FoxTelemetry.getFlushScheduler();
+        if (urgent && scheduler != null) scheduler.onUrgentFlushStarted();
 
-            if (code >= 200 && code < 300) {
-                q.drop(batch.size());
+        SdkMetrics metrics = FoxTelemetry.getMetrics();
+        ParallelUploader uploader = new ParallelUploader(FoxTelemetry.getIngestTransport(), cfg.uploadConcurrency, metrics);
+        List<EventQueue.Batch> wave = new ArrayList<>(uploader.maxConcurrency());
+
+        try {
+            long wait = backoff.delayMs(System.currentTimeMillis());
+            if (wait > 0) {
+                // Backing off after failures: the resume run queued by the failed one covers this
+                // run. Crashes and errors get their own, so they do not wait for the log constraints.
+                if (urgent) FoxTelemetry.scheduleFlushAfter(getApplicationContext(), wait, true);
                 return Result.success();
             }
+            if (!urgent) FoxTelemetry.emitPendingReports();
+            q.flushToDisk();
+            QueueShards queueShards = FoxTelemetry.getQueueShards();
+            List<EventQueue> shards = queueShards != null ? queueShards.all() : Collections.singletonList(q);
 
-            if (code == 429 || (code >= 500 && code < 600)) {
-                return Result.retry();
-            }
+            File lockDir = getApplicationContext().getNoBackupFilesDir();
+            while (!isStopped()) {
+                if (SystemClock.elapsedRealtime() >= deadline) {
+                    FoxTelemetry.scheduleFollowUpFlush(getApplicationContext());
+                    return Result.success();
+                }
+
+                Lane lane = lanes.next();
+                if (lane == null) {
+                    drained = true;
+                    return Result.success();
+                }
+                FlushLock laneLock = FlushLock.acquire(lockDir, lane, urgent ? LOCK_WAIT_MS : 0);
+                if (laneLock == null) {
+                    // A run in another process is uploading this lane and drains it on.
+                    lanes.exhausted(lane);
+                    continue;
+                }
+                try {
+                    long budget = Math.min(SIZER.budgetBytes(), splitBytes);
+                    // Probing for a size the server accepts, or for whether it is back: one batch at a time.
+                    int parallel = splitBytes == Long.MAX_VALUE && !backoff.isOpen() ? uploader.maxConcurrency() : 1;
+                    wave.clear();
+                    for (int s = 0; s < shards.size() && wave.size() < parallel; s++) {
+                        EventQueue shard = shards.get(s);
+                        long afterId = Long.MIN_VALUE;
+                        while (wave.size() < parallel) {
+                            EventQueue.Batch batch = shard.openBatch(lane, afterId, budget, MAX_EVENTS_PER_BATCH);
+                            if (batch.isEmpty()) break;
+                            wave.add(batch);
+                            afterId = batch.lastId();
+                        }
+                    }
+                    // Only once the lane is empty in every shard.
+                    if (wave.isEmpty()) {
+                        lanes.exhausted(lane);
+                        continue;
+                    }
+
+                    long t0 = SystemClock.elapsedRealtime();
+                    IngestResponse[] responses = uploader.sendAll(cfg, wave);
+                    long latency = SystemClock.elapsedRealtime() - t0;
+                    requests += wave.size();
 
-            Log.w(TAG, "Non-retryable HTTP " + code);
+                    boolean retry = false;
+                    boolean unavailable = false;
+                    long retryAfterMs = -1;
+                    boolean accepted = false;
+                    long tooLarge = 0;
+                    int rejected = 0;
+                    for (int i = 0; i < responses.length; i++) {
+                        EventQueue.Batch batch = wave.get(i);
+                        IngestResponse response = responses[i];
+                        int code = response.status;
+                        if (code != IngestResponse.STATUS_FAILED) lastCode = code;
+
+                        if (response.isSuccess()) {
+                            // Rejected events are dead-lettered, retryable ones stay queued.
+                            BatchOutcome outcome = response.outcome;
+                            batch.queue().settle(batch, outcome);
+                            SIZER.onSuccess(batch.payloadBytes(), latency);
+                            accepted = true;
+                            int taken = batch.size() - outcome.rejectedCount() - outcome.retryCount();
+                            sent += taken;
+                            bytes += batch.payloadBytes();
+                            dropped += outcome.rejectedCount();
+                            metrics.onUploaded(taken, batch.payloadBytes());
+                            metrics.onDeadLettered(outcome.rejectedCount());
+                            if (outcome.retryCount() > 0) retry = true;
+                        } else if (code == 413 && batch.size() > 1) {
+                            // Shrink and retry right away; the lane's next batch is a prefix of this one.
+                            batch.queue().nack(batch);
+                            SIZER.onTooLarge(batch.payloadBytes());
+                            tooLarge = tooLarge == 0 ? batch.payloadBytes() : Math.min(tooLarge, batch.payloadBytes());
+                        } else if (code == 413) {
+                            Log.w(TAG, "Dead-lettering event rejected as too large (" + batch.payloadBytes() + " bytes)");
+                            batch.queue().settle(batch, BatchOutcome.rejectAll(1, "HTTP 413"));
+                            accepted = true;
+                            dropped++;
+                            metrics.onDeadLettered(1);
+                        } else {
+                            batch.queue().nack(batch);
+                            if (code == IngestResponse.STATUS_FAILED || code == 429 || (code >= 500 && code < 600)) {
+                                unavailable = true;
+                                retryAfterMs = Math.max(retryAfterMs, response.retryAfterMs);
+                            } else {
+                                rejected = code;
+                            }
+                        }
+                        // Settled: a failure from here on must not nack it again.
+                        wave.set(i, null);
+                    }
+                    if (tooLarge > 0) {
+                        splitBytes = tooLarge / 2;
+                    } else if (accepted) {
+                        splitBytes = Long.MAX_VALUE;
+                    }
+
+                    if (unavailable) {
+                        SIZER.onFailure();
+                        metrics.onRetry();
+                        long delay = backoff.onFailure(System.currentTimeMillis(), retryAfterMs);
+                        if (backoff.isOpen()) Log.w(TAG, "Uploads paused for " + delay + " ms after repeated failures");
+                        FoxTelemetry.scheduleFlushAfter(getApplicationContext(), delay, false);
+                        if (urgent) FoxTelemetry.scheduleFlushAfter(getApplicationContext(), delay, true);
+                        return Result.success();
+                    }
+                    if (accepted) backoff.onSuccess();
+                    if (retry) {
+                        // The server is up but asked for some events again; WorkManager's backoff is enough.
+                        SIZER.onFailure();
+                        metrics.onRetry();
+                        return Result.retry();
+                    }
+                    if (rejected != 0) {
+                        Log.w(TAG, "Non-retryable HTTP " + rejected);
+                        return Result.success();
+                    }
+                } finally {
+                    laneLock.release();
+                }
+            }
             return Result.success();
 
         } catch (Exception e) {
+            // Only the batches of the wave whose responses were not handled yet.
+            for (EventQueue.Batch batch : wave) {
+                if (batch != null) batch.queue().nack(batch);
+            }
+            SIZER.onFailure();
+            metrics.onInternalError();
+            metrics.onRetry();
             Log.w(TAG, "Flush failed, retrying", e);
             return Result.retry();
+        } finally {
+            uploader.close();
+            if (urgent && scheduler != null) scheduler.onUrgentFlushFinished();
+            lastRun = new FlushStats(sent, bytes, requests, dropped,
+                    SystemClock.elapsedRealtime() - start, lastCode, drained, System.currentTimeMillis());
         }
     }
 }
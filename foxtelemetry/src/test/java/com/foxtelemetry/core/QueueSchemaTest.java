@@ -0,0 +1,398 @@
+package com.foxtelemetry.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link QueueSchema} against plain SQLite (JDBC) as a stand-in for the Android driver:
+ * the v1 to v2 migration, the eviction queries, batch deletes and envelope storage (v4). The
+ * throughput of the v1 and v2 access patterns is measured by {@code QueueStorageBenchmark} in
+ * :foxtelemetry-jmh.
+ */
+public class QueueSchemaTest {
+
+    private static final int EVENTS = 2_000;
+    private static final int WRITE_BATCH = AsyncEventBuffer.MAX_WRITE_BATCH;
+    private static final int DELETE_BATCH = 500;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void migrationKeepsQueuedEventsAndOrder() throws Exception {
+        String[] legacy = {
+                "{\"timestamp\":1,\"type\":\"log\",\"level\":\"DEBUG\",\"message\":\"d\"}",
+                "{\"timestamp\":2,\"type\":\"log\",\"level\":\"INFO\",\"message\":\"caf\u00e9\"}",
+                "{\"timestamp\":3,\"type\":\"log\",\"level\":\"WARN\",\"message\":\"w\"}",
+                "{\"timestamp\":4,\"type\":\"log\",\"level\":\"ERROR\",\"message\":\"e\"}",
+                "{\"timestamp\":5,\"type\":\"error\",\"context\":\"CHECKOUT\",\"exception\":{}}",
+                "{\"timestamp\":6,\"type\":\"error\",\"context\":\"UNCAUGHT_EXCEPTION\",\"exception\":{}}",
+        };
+        int[] expectedPriority = {
+                EventQueue.PRIORITY_DEBUG, EventQueue.PRIORITY_INFO, EventQueue.PRIORITY_WARN,
+                EventQueue.PRIORITY_ERROR, EventQueue.PRIORITY_ERROR, EventQueue.PRIORITY_CRASH,
+        };
+
+        try (Connection c = open("migrate.db", false)) {
+            exec(c, QueueSchema.CREATE_V1);
+            // v1 rows were written both as TEXT (JSONObject era) and as bound byte[] (encoder era).
+            try (PreparedStatement text = c.prepareStatement("INSERT INTO events (payload) VALUES (?)")) {
+                for (int i = 0; i < legacy.length; i++) {
+                    if (i % 2 == 0) text.setString(1, legacy[i]);
+                    else text.setBytes(1, legacy[i].getBytes(StandardCharsets.UTF_8));
+                    text.executeUpdate();
+                }
+            }
+            exec(c, "DELETE FROM events WHERE id = 1"); // ids need not start at 1
+
+            c.setAutoCommit(false);
+            for (String sql : QueueSchema.MIGRATE_V1_TO_V2) exec(c, sql);
+            c.commit();
+            c.setAutoCommit(true);
+
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT id, payload, size, priority, created_at FROM events ORDER BY id")) {
+                for (int i = 1; i < legacy.length; i++) {
+                    assertTrue(rs.next());
+                    byte[] expected = legacy[i].getBytes(StandardCharsets.UTF_8);
+                    assertEquals(i + 1, rs.getLong(1));
+                    assertArrayEquals(expected, rs.getBytes(2));
+                    assertEquals(expected.length, rs.getLong(3));
+                    assertEquals(legacy[i], expectedPriority[i], rs.getInt(4));
+                    assertTrue(rs.getLong(5) > 0);
+                }
+                assertFalse(rs.next());
+            }
+
+            // New rows continue after the migrated ids.
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                bindEvent(insert, "{}".getBytes(StandardCharsets.UTF_8));
+                insert.executeUpdate();
+            }
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(QueueSchema.TOTALS)) {
+                assertTrue(rs.next());
+                assertEquals(legacy.length, rs.getLong(1));
+            }
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("SELECT MAX(id) FROM events")) {
+                assertTrue(rs.next());
+                assertEquals(legacy.length + 1, rs.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    public void evictionQueriesSparePrioritiesInOrder() throws Exception {
+        try (Connection c = open("evict.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            int[] priorities = {
+                    EventQueue.PRIORITY_CRASH, EventQueue.PRIORITY_INFO, EventQueue.PRIORITY_WARN,
+                    EventQueue.PRIORITY_DEBUG, EventQueue.PRIORITY_ERROR, EventQueue.PRIORITY_INFO,
+            };
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                for (int i = 0; i < priorities.length; i++) {
+                    insert.setBytes(1, new byte[10 + i]);
+                    insert.setLong(2, 10 + i);
+                    insert.setLong(3, priorities[i]);
+                    insert.setLong(4, 1_000L * i); // rows 0..2 are "old"
+                    insert.executeUpdate();
+                }
+            }
+
+            // DEBUG and INFO form one tier, oldest first.
+            try (PreparedStatement st = c.prepareStatement(QueueSchema.EVICTION_CANDIDATES + 10)) {
+                st.setInt(1, EventQueue.PRIORITY_DEBUG);
+                st.setInt(2, EventQueue.PRIORITY_INFO);
+                try (ResultSet rs = st.executeQuery()) {
+                    long[] ids = {2, 4, 6};
+                    for (long id : ids) {
+                        assertTrue(rs.next());
+                        assertEquals(id, rs.getLong(1));
+                        assertEquals(10 + id - 1, rs.getLong(2));
+                    }
+                    assertFalse(rs.next());
+                }
+            }
+
+            // Age eviction never touches ERROR or CRASH.
+            try (PreparedStatement st = c.prepareStatement(QueueSchema.EXPIRED_BY_PRIORITY)) {
+                st.setLong(1, 2_500);
+                st.setInt(2, EventQueue.PRIORITY_ERROR);
+                try (ResultSet rs = st.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(EventQueue.PRIORITY_INFO, rs.getInt(1));
+                    assertEquals(1, rs.getLong(2));
+                    assertTrue(rs.next());
+                    assertEquals(EventQueue.PRIORITY_WARN, rs.getInt(1));
+                    assertFalse(rs.next());
+                }
+            }
+            try (PreparedStatement st = c.prepareStatement(QueueSchema.DELETE_EXPIRED)) {
+                st.setLong(1, 2_500);
+                st.setInt(2, EventQueue.PRIORITY_ERROR);
+                assertEquals(2, st.executeUpdate());
+            }
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(QueueSchema.OLDEST_CREATED_AT)) {
+                assertTrue(rs.next());
+                assertEquals("the old crash survives", 0, rs.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    public void laneDeletesLeaveOtherLanesAlone() throws Exception {
+        try (Connection c = open("lanes.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            int[] priorities = {
+                    EventQueue.PRIORITY_DEBUG, EventQueue.PRIORITY_ERROR, EventQueue.PRIORITY_WARN,
+                    EventQueue.PRIORITY_CRASH, EventQueue.PRIORITY_INFO,
+            };
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                for (int p : priorities) {
+                    insert.setBytes(1, new byte[]{'{', '}'});
+                    insert.setLong(2, 2);
+                    insert.setLong(3, p);
+                    insert.setLong(4, 0);
+                    insert.executeUpdate();
+                }
+            }
+
+            // A log batch over ids (1, 5] must not take the error (2) or crash (4) with it, nor
+            // the earlier log batch (1) that may still be in flight.
+            try (PreparedStatement del = c.prepareStatement(QueueSchema.DELETE_RANGE + " AND " + Lane.LOG.sqlFilter())) {
+                del.setLong(1, 1);
+                del.setLong(2, 5);
+                assertEquals(2, del.executeUpdate());
+            }
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT id FROM events ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getLong(1));
+                assertTrue(rs.next());
+                assertEquals(2, rs.getLong(1));
+                assertTrue(rs.next());
+                assertEquals(4, rs.getLong(1));
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    public void rejectedEventsMoveToCappedDeadLetters() throws Exception {
+        try (Connection c = open("dead.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            for (String sql : QueueSchema.MIGRATE_V2_TO_V3) exec(c, sql);
+            for (String sql : QueueSchema.MIGRATE_V3_TO_V4) exec(c, sql);
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                for (int i = 0; i < 5; i++) {
+                    insert.setBytes(1, ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+                    insert.setLong(2, 7);
+                    insert.setLong(3, EventQueue.PRIORITY_INFO);
+                    insert.setLong(4, 100 + i);
+                    insert.executeUpdate();
+                }
+            }
+
+            try (PreparedStatement dead = c.prepareStatement(QueueSchema.INSERT_DEAD_LETTER);
+                 PreparedStatement delete = c.prepareStatement(QueueSchema.DELETE_BY_ID)) {
+                for (long id = 1; id <= 4; id++) {
+                    dead.setString(1, "invalid_" + id);
+                    dead.setLong(2, 999);
+                    dead.setLong(3, id);
+                    assertEquals(1, dead.executeUpdate());
+                    delete.setLong(1, id);
+                    assertEquals(1, delete.executeUpdate());
+                }
+            }
+            try (PreparedStatement trim = c.prepareStatement(QueueSchema.TRIM_DEAD_LETTERS)) {
+                trim.setLong(1, 2);
+                assertEquals(2, trim.executeUpdate());
+            }
+
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT payload, reason, created_at, dead_at FROM "
+                         + QueueSchema.TABLE_DEAD_LETTERS + " ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals("{\"n\":2}", new String(rs.getBytes(1), StandardCharsets.UTF_8));
+                assertEquals("invalid_3", rs.getString(2));
+                assertEquals(102, rs.getLong(3));
+                assertEquals(999, rs.getLong(4));
+                assertTrue(rs.next());
+                assertEquals("invalid_4", rs.getString(2));
+                assertFalse(rs.next());
+            }
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery(QueueSchema.TOTALS)) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    public void envelopesAreStoredOnceAndPrunedWhenUnused() throws Exception {
+        FoxTelemetryConfig cfg = new FoxTelemetryConfig.Builder("p", "a", "com.example", "https://x", "k")
+                .setEnvironment("production").setUserId("user-1").build();
+        DeviceInfo device = new DeviceInfo("google", "Pixel 8", 34, "14");
+        byte[] before = EventEncoder.get().encodeLog(EventEnvelope.create(cfg, "install", device),
+                1L, "INFO", "NET", "request finished in 42ms");
+        byte[] after = EventEncoder.get().encodeLog(EventEnvelope.create(cfg.withUserId("user-2"), "install", device),
+                2L, "INFO", "NET", "request finished in 42ms");
+
+        try (Connection c = open("envelopes.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            for (String sql : QueueSchema.MIGRATE_V2_TO_V3) exec(c, sql);
+            // A v3 row stays as it was.
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                bindEvent(insert, before);
+                insert.executeUpdate();
+            }
+            for (String sql : QueueSchema.MIGRATE_V3_TO_V4) exec(c, sql);
+
+            long first = storeStripped(c, before);
+            assertEquals(first, storeStripped(c, before));
+            long second = storeStripped(c, after);
+            assertTrue(second != first);
+
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT e.payload, e.size, v.members FROM events e" +
+                         " LEFT JOIN envelopes v ON v.id = e.envelope_id ORDER BY e.id")) {
+                assertTrue(rs.next());
+                assertArrayEquals(before, rs.getBytes(1));
+                for (byte[] expected : new byte[][]{before, before, after}) {
+                    assertTrue(rs.next());
+                    assertTrue(rs.getLong(2) < expected.length / 2);
+                    assertArrayEquals(expected, EventEnvelope.restore(rs.getBytes(1), rs.getBytes(3)));
+                }
+                assertFalse(rs.next());
+            }
+
+            // Once its rows are gone, the old envelope goes too; the current one is kept regardless.
+            exec(c, "DELETE FROM events WHERE envelope_id = " + first);
+            try (PreparedStatement prune = c.prepareStatement(QueueSchema.PRUNE_ENVELOPES)) {
+                prune.setLong(1, second);
+                assertEquals(1, prune.executeUpdate());
+                exec(c, "DELETE FROM events");
+                assertEquals(0, prune.executeUpdate());
+            }
+        }
+    }
+
+    @Test
+    public void batchScanFlagsRowsWhoseEnvelopeIsGone() throws Exception {
+        byte[] event = EventEncoder.get().encodeLog(
+                EventEnvelope.create(new FoxTelemetryConfig.Builder("p", "a", "com.example", "https://x", "k").build(),
+                        "install", new DeviceInfo("google", "Pixel 8", 34, "14")),
+                1L, "INFO", "NET", "request finished in 42ms");
+
+        try (Connection c = open("orphans.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            for (String sql : QueueSchema.MIGRATE_V2_TO_V3) exec(c, sql);
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT)) {
+                bindEvent(insert, event);
+                insert.executeUpdate();
+            }
+            for (String sql : QueueSchema.MIGRATE_V3_TO_V4) exec(c, sql);
+            long envelope = storeStripped(c, event);
+            storeStripped(c, event);
+            // As if the envelope row had been rolled back while its events were not.
+            exec(c, "DELETE FROM envelopes WHERE id = " + envelope);
+            exec(c, "INSERT INTO envelopes (members) VALUES (x'00')");
+
+            List<Long> missing = new ArrayList<>();
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT " + QueueSchema.MISSING_ENVELOPE + " FROM events ORDER BY id")) {
+                while (rs.next()) missing.add(rs.getLong(1));
+            }
+            assertEquals(Arrays.asList(0L, 1L, 1L), missing);
+        }
+    }
+
+    @Test
+    public void batchDeletesAccountForEveryRow() throws Exception {
+        try (Connection c = open("deletes.db", true)) {
+            for (String sql : QueueSchema.CREATE_V2) exec(c, sql);
+            long depth = 0;
+            try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT);
+                 PreparedStatement delete = c.prepareStatement(QueueSchema.DELETE_UP_TO)) {
+                c.setAutoCommit(false);
+                for (int i = 0; i < EVENTS; i++) {
+                    bindEvent(insert, "{}".getBytes(StandardCharsets.UTF_8));
+                    insert.executeUpdate();
+                    depth++;
+                    if ((i + 1) % WRITE_BATCH == 0) c.commit();
+                }
+                c.commit();
+                c.setAutoCommit(true);
+
+                // The queue keeps its depth from the delete counts instead of re-counting.
+                for (long last = DELETE_BATCH; last < EVENTS + DELETE_BATCH; last += DELETE_BATCH) {
+                    delete.setLong(1, last);
+                    depth -= delete.executeUpdate();
+                }
+            }
+            assertEquals(0, depth);
+            try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(QueueSchema.TOTALS)) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getLong(1));
+            }
+        }
+    }
+
+    // What EventQueue#insertAll does for an event with an envelope; returns the envelope id.
+    private static long storeStripped(Connection c, byte[] event) throws Exception {
+        long range = EventEnvelope.find(event);
+        byte[] members = Arrays.copyOfRange(event, (int) (range >>> 32), (int) range);
+        long id;
+        try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT_ENVELOPE);
+             PreparedStatement lookup = c.prepareStatement(QueueSchema.ENVELOPE_ID)) {
+            insert.setBytes(1, members);
+            insert.executeUpdate();
+            lookup.setBytes(1, members);
+            try (ResultSet rs = lookup.executeQuery()) {
+                assertTrue(rs.next());
+                id = rs.getLong(1);
+            }
+        }
+        try (PreparedStatement insert = c.prepareStatement(QueueSchema.INSERT_STRIPPED)) {
+            bindEvent(insert, EventEnvelope.strip(event, range));
+            insert.setLong(5, id);
+            insert.executeUpdate();
+        }
+        return id;
+    }
+
+    private Connection open(String name, boolean wal) throws Exception {
+        Connection c = DriverManager.getConnection("jdbc:sqlite:" + tmp.getRoot().getAbsolutePath() + "/" + name);
+        if (wal) exec(c, "PRAGMA journal_mode=WAL");
+        return c;
+    }
+
+    private static void bindEvent(PreparedStatement insert, byte[] payload) throws Exception {
+        insert.setBytes(1, payload);
+        insert.setLong(2, payload.length);
+        insert.setLong(3, EventQueue.PRIORITY_INFO);
+        insert.setLong(4, System.currentTimeMillis());
+    }
+
+    private static void exec(Connection c, String sql) throws Exception {
+        try (Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.foxtelemetry.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Shard and crash journal naming, and shard discovery. Draining real shards concurrently is
+ * covered on a device by {@code ShardedFlushTest}; write throughput by {@code QueueShardBenchmark}.
+ */
+public class QueueShardsTest {
+
+    @Test
+    public void mainProcessKeepsTheOriginalFile() {
+        assertEquals("foxtelemetry.db", QueueShards.dbName("com.example", "com.example"));
+        assertEquals("foxtelemetry.db", QueueShards.dbName(null, "com.example"));
+        assertEquals("foxtelemetry.db", QueueShards.dbName("", "com.example"));
+    }
+
+    @Test
+    public void otherProcessesGetSanitizedShardNames() {
+        assertEquals("foxtelemetry-sync.db", QueueShards.dbName("com.example:sync", "com.example"));
+        assertEquals("foxtelemetry-com.example.push.db", QueueShards.dbName("com.example.push", "com.example"));
+        assertEquals("foxtelemetry-a_b_c.db", QueueShards.dbName("com.example:a/b c", "com.example"));
+        assertEquals("foxtelemetry-com.example_remote.db", QueueShards.dbName("com.example:remote", null));
+    }
+
+    @Test
+    public void crashJournalIsNamedAfterTheShard() {
+        assertEquals("foxtelemetry-crash.journal", QueueShards.crashJournalName("foxtelemetry.db"));
+        assertEquals("foxtelemetry-crash-sync.journal",
+                QueueShards.crashJournalName(QueueShards.dbName("com.example:sync", "com.example")));
+        assertEquals("foxtelemetry-crash-com.example.push.journal",
+                QueueShards.crashJournalName(QueueShards.dbName("com.example.push", "com.example")));
+    }
+
+    @Test
+    public void shardNamesListsQueueFilesMainFirst() {
+        String[] files = {
+                "foxtelemetry-sync.db-wal", "foxtelemetry-sync.db", "other.db", "foxtelemetry.db-shm",
+                "foxtelemetry-a.db", "foxtelemetry.db", "foxtelemetry-.db", "foxtelemetry-sync.db-journal",
+        };
+        assertEquals(Arrays.asList("foxtelemetry.db", "foxtelemetry-a.db", "foxtelemetry-sync.db"),
+                QueueShards.shardNames(files));
+        assertEquals(Arrays.asList("foxtelemetry-a.db"), QueueShards.shardNames(new String[]{"foxtelemetry-a.db"}));
+        assertTrue(QueueShards.shardNames(null).isEmpty());
+    }
+}
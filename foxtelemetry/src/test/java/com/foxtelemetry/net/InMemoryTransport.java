@@ -0,0 +1,57 @@
+package com.foxtelemetry.net;
+
+import androidx.annotation.NonNull;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the ingest endpoint: keeps every uploaded payload in memory and answers with a
+ * fixed status after a simulated round trip.
+ */
+final class InMemoryTransport implements IngestTransport {
+
+    private final long latencyMs;
+    private final List<byte[]> received = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    volatile int status = 200;
+
+    InMemoryTransport(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public IngestResponse send(@NonNull FoxTelemetryConfig cfg, @NonNull EventBatch batch) throws Exception {
+        int now = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(now, Math::max);
+        try {
+            List<byte[]> copy = new ArrayList<>(batch.size());
+            for (byte[] event : batch) copy.add(event);
+            if (latencyMs > 0) Thread.sleep(latencyMs);
+            int code = status;
+            if (code >= 200 && code < 300) {
+                synchronized (received) {
+                    received.addAll(copy);
+                }
+            }
+            return IngestResponse.of(code);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    List<byte[]> received() {
+        synchronized (received) {
+            return new ArrayList<>(received);
+        }
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+}
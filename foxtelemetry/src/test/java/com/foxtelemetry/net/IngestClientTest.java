@@ -0,0 +1,325 @@
+package com.foxtelemetry.net;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+import com.foxtelemetry.core.UploadBackoff;
+import com.foxtelemetry.core.WireFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IngestClientTest {
+
+    private HttpServer server;
+    private volatile Request last;
+    private volatile int status = 200;
+    private volatile String acceptPost;
+    private volatile String responseBody;
+    private volatile String retryAfter;
+    private final List<String> contentTypes = new ArrayList<>();
+    private final Set<Integer> clientPorts = new HashSet<>();
+    private ExecutorService serverThreads;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        IngestClient.resetNegotiation();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ingest", this::handle);
+        serverThreads = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void largeBatchIsGzippedAndChunked() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).build();
+        ListBatch batch = events(500);
+
+        assertEquals(200, IngestClient.sendBatch(cfg, batch));
+
+        assertEquals("gzip", last.contentEncoding);
+        assertEquals("chunked", last.transferEncoding);
+        JSONObject body = new JSONObject(new String(last.body, StandardCharsets.UTF_8));
+        assertEquals(500, body.getJSONArray("events").length());
+        assertTrue("wire bytes " + last.wireBytes + " vs " + batch.payloadBytes(),
+                last.wireBytes * 5 < batch.payloadBytes());
+    }
+
+    @Test
+    public void smallBatchSkipsCompression() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).setCompressionThresholdBytes(64 * 1024).build();
+
+        assertEquals(200, IngestClient.sendBatch(cfg, events(3)));
+
+        assertNull(last.contentEncoding);
+        assertEquals(3, new JSONObject(new String(last.body, StandardCharsets.UTF_8)).getJSONArray("events").length());
+    }
+
+    @Test
+    public void autoSwitchesToCborAfterAcceptPostAndFallsBackOn415() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.AUTO).build();
+        acceptPost = "application/cbor, application/json";
+
+        IngestClient.sendBatch(cfg, events(2));
+        IngestClient.sendBatch(cfg, events(2));
+        status = 415;
+        acceptPost = null;
+        IngestClient.sendBatch(cfg, events(2));
+
+        assertEquals(List.of(
+                "application/json; charset=utf-8",
+                "application/cbor",
+                "application/cbor",
+                "application/json; charset=utf-8"), contentTypes);
+    }
+
+    @Test
+    public void connectionIsKeptAliveAcrossBatches() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).build();
+        for (int i = 0; i < 20; i++) assertEquals(200, IngestClient.sendBatch(cfg, events(i % 2 == 0 ? 3 : 500)));
+
+        assertEquals("client sockets used: " + clientPorts, 1, clientPorts.size());
+    }
+
+    @Test
+    public void parallelUploadsEachReuseTheirOwnConnection() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).build();
+        List<ListBatch> wave = new ArrayList<>();
+        for (int i = 0; i < 3; i++) wave.add(events(200));
+
+        try (ParallelUploader uploader = new ParallelUploader(IngestClient.INSTANCE, 3)) {
+            for (int round = 0; round < 10; round++) {
+                for (IngestResponse r : uploader.sendAll(cfg, wave)) assertEquals(200, r.status);
+            }
+        }
+        assertTrue("client sockets used: " + clientPorts, clientPorts.size() <= 3);
+    }
+
+    @Test
+    public void sendsBatchIdAndReadsPerEventRejections() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).build();
+        responseBody = "{\"rejected\":["
+                + "{\"index\":1,\"reason\":\"invalid_timestamp\",\"retryable\":false},"
+                + "{\"index\":3,\"retryable\":true},"
+                + "{\"index\":99,\"reason\":\"out of range\"}]}";
+        ListBatch batch = events(4);
+        batch.id = "install-1:10-13:4";
+
+        IngestResponse response = IngestClient.INSTANCE.send(cfg, batch);
+
+        assertEquals("install-1:10-13:4", last.batchId);
+        assertEquals(200, response.status);
+        assertTrue(response.outcome.isRejected(1));
+        assertEquals("invalid_timestamp", response.outcome.reason(1));
+        assertTrue(response.outcome.isRetry(3));
+        assertEquals(1, response.outcome.rejectedCount());
+        assertEquals(1, response.outcome.retryCount());
+        assertFalse(response.outcome.isRejected(0));
+    }
+
+    @Test
+    public void unknownResponseBodyAcceptsTheWholeBatch() throws Exception {
+        responseBody = "OK";
+        IngestResponse response = IngestClient.INSTANCE.send(config(WireFormat.JSON).build(), events(2));
+
+        assertTrue(response.outcome.allAccepted());
+        assertNull(last.batchId);
+    }
+
+    @Test
+    public void errorResponsesReportRetryAfterInSecondsOrAsADate() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON).build();
+        status = 503;
+        retryAfter = "120";
+        assertEquals(120_000, IngestClient.INSTANCE.send(cfg, events(1)).retryAfterMs);
+
+        status = 429;
+        retryAfter = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(90));
+        long ms = IngestClient.INSTANCE.send(cfg, events(1)).retryAfterMs;
+        assertTrue(ms + " ms", ms > 80_000 && ms <= 90_000);
+
+        retryAfter = "soon";
+        assertEquals(-1, IngestClient.INSTANCE.send(cfg, events(1)).retryAfterMs);
+        retryAfter = null;
+        assertEquals(-1, IngestClient.INSTANCE.send(cfg, events(1)).retryAfterMs);
+    }
+
+    /**
+     * Drives an {@link UploadBackoff} the way the flush worker does, on a simulated clock,
+     * against this server failing with 503 for 20 minutes: a few jittered retries, then the
+     * breaker opens and only single probes reach the server until one is accepted.
+     */
+    @Test
+    public void outageIsRiddenOutWithBackoffAndSingleProbes() throws Exception {
+        FoxTelemetryConfig cfg = config(WireFormat.JSON)
+                .setRetryDelays(1_000, 60_000)
+                .setCircuitBreaker(3, 300_000)
+                .build();
+        UploadBackoff backoff = new UploadBackoff(cfg, tmp.getRoot());
+        long start = 1_700_000_000_000L;
+        long outageEnd = start + 20 * 60_000;
+        status = 503;
+        retryAfter = "2";
+
+        long now = start;
+        int duringOutage = 0;
+        int probes = 0;
+        long lastAttempt = 0;
+        int delivered = 0;
+        while (delivered < 5) {
+            if (now >= outageEnd) {
+                status = 200;
+                retryAfter = null;
+            }
+            long wait = backoff.delayMs(now);
+            if (wait > 0) {
+                now += wait;
+                continue;
+            }
+            if (backoff.isOpen()) probes++;
+            if (now < outageEnd) {
+                assertTrue("attempts honour Retry-After", lastAttempt == 0 || now - lastAttempt >= 2_000);
+                duringOutage++;
+            }
+            lastAttempt = now;
+            IngestResponse response = IngestClient.INSTANCE.send(cfg, events(3));
+            if (response.isSuccess()) {
+                backoff.onSuccess();
+                delivered++;
+            } else {
+                assertEquals(2_000, response.retryAfterMs);
+                backoff.onFailure(now, response.retryAfterMs);
+            }
+        }
+
+        // Three failures open the breaker; after that at most one probe per 150-300 s pause.
+        assertTrue("requests during the outage: " + duringOutage, duringOutage <= 3 + 20 * 60 / 150);
+        assertTrue(probes >= 1);
+        assertTrue("recovered within one pause", now - outageEnd <= 300_000);
+        assertFalse(backoff.isOpen());
+        assertEquals(0, backoff.consecutiveFailures());
+    }
+
+    private FoxTelemetryConfig.Builder config(WireFormat format) {
+        return new FoxTelemetryConfig.Builder("proj", "app", "com.example",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/ingest", "key")
+                .setWireFormat(format);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        Request r = new Request();
+        r.contentEncoding = ex.getRequestHeaders().getFirst("Content-Encoding");
+        r.transferEncoding = ex.getRequestHeaders().getFirst("Transfer-Encoding");
+        r.batchId = ex.getRequestHeaders().getFirst("X-Fox-Batch-Id");
+        String type = ex.getRequestHeaders().getFirst("Content-Type");
+        synchronized (contentTypes) {
+            contentTypes.add(type);
+            clientPorts.add(ex.getRemoteAddress().getPort());
+        }
+        byte[] raw = readAll(ex.getRequestBody());
+        r.wireBytes = raw.length;
+        r.body = "gzip".equals(r.contentEncoding)
+                ? readAll(new GZIPInputStream(new ByteArrayInputStream(raw)))
+                : raw;
+        last = r;
+
+        int code = status == 415 && !"application/cbor".equals(type) ? 200 : status;
+        if (acceptPost != null) ex.getResponseHeaders().add("Accept-Post", acceptPost);
+        if (retryAfter != null) ex.getResponseHeaders().add("Retry-After", retryAfter);
+        String body = responseBody;
+        if (body == null) {
+            ex.sendResponseHeaders(code, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(code, bytes.length);
+            ex.getResponseBody().write(bytes);
+        }
+        ex.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private static ListBatch events(int n) {
+        List<byte[]> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(("{\"type\":\"error\",\"timestamp\":" + i + ",\"exception\":{\"stacktrace\":"
+                    + "\"java.lang.IllegalStateException\\n\\tat com.example.Foo.bar(Foo.java:10)"
+                    + "\\n\\tat com.example.Foo.baz(Foo.java:20)\\n\\tat android.os.Looper.loop(Looper.java:288)\"}}")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return new ListBatch(list);
+    }
+
+    private static final class Request {
+        String contentEncoding;
+        String transferEncoding;
+        String batchId;
+        int wireBytes;
+        byte[] body;
+    }
+
+    private static final class ListBatch implements EventBatch {
+        private final List<byte[]> events;
+        String id;
+
+        ListBatch(List<byte[]> events) {
+            this.events = events;
+        }
+
+        @Override public int size() { return events.size(); }
+
+        @Override
+        public long payloadBytes() {
+            long n = 0;
+            for (byte[] e : events) n += e.length;
+            return n;
+        }
+
+        @Override public Iterator<byte[]> iterator() { return events.iterator(); }
+        @Override public String id() { return id; }
+    }
+}
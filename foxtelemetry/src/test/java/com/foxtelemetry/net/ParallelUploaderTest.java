@@ -0,0 +1,113 @@
+package com.foxtelemetry.net;
+
+import androidx.annotation.NonNull;
+
+import com.foxtelemetry.core.EventBatch;
+import com.foxtelemetry.core.FoxTelemetryConfig;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelUploaderTest {
+
+    private static final FoxTelemetryConfig CFG = new FoxTelemetryConfig.Builder(
+            "proj", "app", "com.example", "https://example.invalid/ingest", "key").build();
+
+    @Test
+    public void statusesComeBackInBatchOrder() throws Exception {
+        IngestTransport transport = new IngestTransport() {
+            @Override
+            public IngestResponse send(@NonNull FoxTelemetryConfig cfg, @NonNull EventBatch batch) throws Exception {
+                String first = new String(batch.iterator().next(), StandardCharsets.UTF_8);
+                if (first.equals("3")) throw new IOException("connection reset");
+                return IngestResponse.of(first.equals("1") ? 503 : 200);
+            }
+        };
+        try (ParallelUploader uploader = new ParallelUploader(transport, 3)) {
+            IngestResponse[] responses = uploader.sendAll(CFG, batches(5, 1));
+            int[] codes = new int[responses.length];
+            for (int i = 0; i < responses.length; i++) codes[i] = responses[i].status;
+            assertArrayEquals(new int[]{200, 503, 200, IngestResponse.STATUS_FAILED, 200}, codes);
+        }
+    }
+
+    @Test
+    public void neverExceedsTheConcurrencyLimit() {
+        InMemoryTransport transport = new InMemoryTransport(5);
+        try (ParallelUploader uploader = new ParallelUploader(transport, 3)) {
+            uploader.sendAll(CFG, batches(12, 10));
+        }
+        assertTrue("max in flight " + transport.maxInFlight(), transport.maxInFlight() <= 3);
+        assertEquals(120, transport.received().size());
+    }
+
+    @Test
+    public void eachWaveOfTheBacklogIsInFlightAtOnce() throws Exception {
+        final int concurrency = 4;
+        // Only lets a batch through once the whole wave has reached the transport.
+        final CyclicBarrier wave = new CyclicBarrier(concurrency);
+        final AtomicInteger received = new AtomicInteger();
+        IngestTransport transport = new IngestTransport() {
+            @Override
+            public IngestResponse send(@NonNull FoxTelemetryConfig cfg, @NonNull EventBatch batch) throws Exception {
+                wave.await(10, TimeUnit.SECONDS);
+                received.addAndGet(batch.size());
+                return IngestResponse.of(200);
+            }
+        };
+        List<ListBatch> backlog = batches(32, 50);
+        // Waves of disjoint batches, as FlushWorker sends them.
+        try (ParallelUploader uploader = new ParallelUploader(transport, concurrency)) {
+            for (int i = 0; i < backlog.size(); i += concurrency) {
+                for (IngestResponse r : uploader.sendAll(CFG, backlog.subList(i, i + concurrency))) {
+                    assertEquals(200, r.status);
+                }
+            }
+        }
+        assertEquals(32 * 50, received.get());
+    }
+
+    private static List<ListBatch> batches(int count, int eventsEach) {
+        List<ListBatch> out = new ArrayList<>(count);
+        for (int b = 0; b < count; b++) {
+            List<byte[]> events = new ArrayList<>(eventsEach);
+            events.add(Integer.toString(b).getBytes(StandardCharsets.UTF_8));
+            for (int i = 1; i < eventsEach; i++) events.add(new byte[]{'{', '}'});
+            out.add(new ListBatch(events));
+        }
+        return out;
+    }
+
+    private static final class ListBatch implements EventBatch {
+        private final List<byte[]> events;
+
+        ListBatch(List<byte[]> events) {
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        @Override public int size() { return events.size(); }
+
+        @Override
+        public long payloadBytes() {
+            long n = 0;
+            for (byte[] e : events) n += e.length;
+            return n;
+        }
+
+        @Override public Iterator<byte[]> iterator() { return events.iterator(); }
+        @Override public String id() { return null; }
+    }
+}